@@ -17,6 +17,7 @@
 package com.google.android.gnd.persistence.remote;
 
 import android.net.Uri;
+import androidx.annotation.Nullable;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
 import java.io.File;
@@ -33,7 +34,8 @@ public class FakeRemoteStorageManager implements RemoteStorageManager {
   }
 
   @Override
-  public Flowable<TransferProgress> uploadMediaFromFile(File file, String remoteDestinationPath) {
+  public Flowable<TransferProgress> uploadMediaFromFile(
+      File file, String remoteDestinationPath, @Nullable Uri sessionUri) {
     return Flowable.never();
   }
 }
@@ -24,7 +24,9 @@ import androidx.multidex.MultiDexApplication;
 import androidx.work.Configuration;
 import androidx.work.WorkManager;
 import com.akaita.java.rxjava2debug.RxJava2Debug;
+import com.google.android.gnd.persistence.sync.TileSourceReconciliationWorkManager;
 import com.google.android.gnd.rx.RxDebug;
+import com.google.android.gnd.system.StartupMetrics;
 import com.google.firebase.crashlytics.FirebaseCrashlytics;
 import dagger.hilt.android.HiltAndroidApp;
 import io.reactivex.plugins.RxJavaPlugins;
@@ -36,6 +38,8 @@ import timber.log.Timber;
 public class GndApplication extends MultiDexApplication implements Configuration.Provider {
 
   @Inject HiltWorkerFactory workerFactory;
+  @Inject StartupMetrics startupMetrics;
+  @Inject TileSourceReconciliationWorkManager tileSourceReconciliationWorkManager;
 
   public GndApplication() {
     super();
@@ -49,6 +53,7 @@ public class GndApplication extends MultiDexApplication implements Configuration
   @Override
   public void onCreate() {
     super.onCreate();
+    startupMetrics.onAppStarted();
     if (BuildConfig.DEBUG) {
       Timber.d("DEBUG build config active; enabling debug tooling");
 
@@ -66,6 +71,9 @@ public class GndApplication extends MultiDexApplication implements Configuration
     RxJavaPlugins.setErrorHandler(RxDebug::logEnhancedStackTrace);
 
     WorkManager.initialize(getApplicationContext(), getWorkManagerConfiguration());
+
+    // Clean up tile files left behind by interrupted deletes and re-queue any that went missing.
+    tileSourceReconciliationWorkManager.enqueueReconciliationWorker().blockingAwait();
   }
 
   @Override
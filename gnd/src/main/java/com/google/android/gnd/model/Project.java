@@ -20,14 +20,22 @@ import androidx.annotation.NonNull;
 import com.google.android.gnd.model.basemap.OfflineBaseMapSource;
 import com.google.android.gnd.model.layer.Layer;
 import com.google.auto.value.AutoValue;
+import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import java8.util.Optional;
 
-/** Configuration, schema, and ACLs for a single project. */
+/**
+ * Configuration, schema, and ACLs for a single project. Instances are interned on build, so that
+ * features and observations loaded at different times share equal projects by reference.
+ */
 @AutoValue
 public abstract class Project {
 
+  private static final Interner<Project> INTERNER = Interners.newWeakInterner();
+
   public abstract String getId();
 
   public abstract String getTitle();
@@ -50,6 +58,10 @@ public abstract class Project {
 
   public abstract ImmutableMap<String, String> getAcl();
 
+  @Memoized
+  @Override
+  public abstract int hashCode();
+
   public static Builder newBuilder() {
     return new AutoValue_Project.Builder().setAcl(ImmutableMap.of());
   }
@@ -78,6 +90,10 @@ public abstract class Project {
       return this;
     }
 
-    public abstract Project build();
+    abstract Project autoBuild();
+
+    public Project build() {
+      return INTERNER.intern(autoBuild());
+    }
   }
 }
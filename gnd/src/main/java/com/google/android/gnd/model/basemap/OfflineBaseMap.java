@@ -31,6 +31,9 @@ public abstract class OfflineBaseMap {
 
   public abstract String getName();
 
+  /** Returns true iff the area should never be removed automatically to free up storage. */
+  public abstract boolean isPinned();
+
   public abstract Builder toBuilder();
 
   public enum State {
@@ -41,7 +44,7 @@ public abstract class OfflineBaseMap {
   }
 
   public static Builder newBuilder() {
-    return new AutoValue_OfflineBaseMap.Builder();
+    return new AutoValue_OfflineBaseMap.Builder().setPinned(false);
   }
 
   @AutoValue.Builder
@@ -55,6 +58,8 @@ public abstract class OfflineBaseMap {
 
     public abstract Builder setName(String name);
 
+    public abstract Builder setPinned(boolean pinned);
+
     public abstract OfflineBaseMap build();
   }
 }
@@ -16,6 +16,7 @@
 
 package com.google.android.gnd.model.basemap.tile;
 
+import androidx.annotation.Nullable;
 import com.google.auto.value.AutoValue;
 
 /** Represents a source of offline imagery tileset data. */
@@ -49,8 +50,26 @@ public abstract class TileSource {
 
   public abstract int getBasemapReferenceCount();
 
+  /**
+   * Returns the number of bytes of storage used by this tile source, or 0 if not yet downloaded.
+   * This is the size of the downloaded file until it's merged into the merged tile store, and the
+   * size of the tile data it added to that store after. Tiles shared with other sources are only
+   * counted against the source which added them first.
+   */
+  public abstract long getByteCount();
+
+  /** Returns the hex-encoded SHA-256 digest of the downloaded source file, if downloaded. */
+  @Nullable
+  public abstract String getChecksum();
+
+  /**
+   * Returns the time the source file was last read to display tiles, in milliseconds since the
+   * epoch, or the time it finished downloading if it hasn't been read since.
+   */
+  public abstract long getLastAccessed();
+
   public static Builder newBuilder() {
-    return new AutoValue_TileSource.Builder();
+    return new AutoValue_TileSource.Builder().setByteCount(0).setLastAccessed(0);
   }
 
   public static String pathFromId(String tileSourceId) {
@@ -79,6 +98,12 @@ public abstract class TileSource {
 
     public abstract Builder setBasemapReferenceCount(int areaCount);
 
+    public abstract Builder setByteCount(long byteCount);
+
+    public abstract Builder setChecksum(@Nullable String checksum);
+
+    public abstract Builder setLastAccessed(long lastAccessed);
+
     public abstract TileSource build();
   }
 }
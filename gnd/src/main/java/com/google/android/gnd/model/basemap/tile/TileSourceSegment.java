@@ -0,0 +1,51 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.model.basemap.tile;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * A contiguous byte range of a tile source file which is fetched over its own connection when the
+ * file is downloaded in parallel segments.
+ */
+@AutoValue
+public abstract class TileSourceSegment {
+
+  /** Returns the offset of the first byte of the segment within the file. */
+  public abstract long getStart();
+
+  /** Returns the offset one past the last byte of the segment. */
+  public abstract long getEnd();
+
+  /** Returns the number of bytes from the start of the segment already written to disk. */
+  public abstract long getBytesWritten();
+
+  public long getLength() {
+    return getEnd() - getStart();
+  }
+
+  public boolean isComplete() {
+    return getBytesWritten() >= getLength();
+  }
+
+  public TileSourceSegment withBytesWritten(long bytesWritten) {
+    return create(getStart(), getEnd(), bytesWritten);
+  }
+
+  public static TileSourceSegment create(long start, long end, long bytesWritten) {
+    return new AutoValue_TileSourceSegment(start, end, bytesWritten);
+  }
+}
@@ -23,10 +23,18 @@ import com.google.android.gnd.model.Mutation.Type;
 import com.google.android.gnd.model.Project;
 import com.google.android.gnd.model.layer.Layer;
 import java.util.Date;
+import java8.util.Objects;
 import javax.annotation.Nullable;
 import javax.annotation.OverridingMethodsMustInvokeSuper;
 
-/** Base class for user-defined features shown on map. */
+/**
+ * Base class for user-defined features shown on map.
+ *
+ * <p>Features are versioned by their last modified audit info, which changes each time a feature is
+ * modified. Equality and hashing check the id and version first, so that distinct features are told
+ * apart without descending into their project and layer, which are interned and therefore compared
+ * by reference when they match.
+ */
 public abstract class Feature<B extends Feature.Builder> {
   public boolean isPoint() {
     return this instanceof PointFeature;
@@ -59,6 +67,33 @@ public abstract class Feature<B extends Feature.Builder> {
   /** Returns the user and time audit info pertaining to the last modification of this feature. */
   public abstract AuditInfo getLastModified();
 
+  /** Returns true iff this feature has the same geometry as the specified feature of its type. */
+  protected abstract boolean hasSameGeometry(Feature<?> other);
+
+  @Override
+  public final boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (o == null || o.getClass() != getClass()) {
+      return false;
+    }
+    Feature<?> that = (Feature<?>) o;
+    return getId().equals(that.getId())
+        && getLastModified().equals(that.getLastModified())
+        && getProject().equals(that.getProject())
+        && getLayer().equals(that.getLayer())
+        && Objects.equals(getCustomId(), that.getCustomId())
+        && Objects.equals(getCaption(), that.getCaption())
+        && getCreated().equals(that.getCreated())
+        && hasSameGeometry(that);
+  }
+
+  @Override
+  public final int hashCode() {
+    return 31 * getId().hashCode() + getLastModified().hashCode();
+  }
+
   @OverridingMethodsMustInvokeSuper
   public FeatureMutation toMutation(Type type, String userId) {
     return FeatureMutation.builder()
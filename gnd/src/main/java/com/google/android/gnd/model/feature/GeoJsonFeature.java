@@ -17,7 +17,6 @@
 package com.google.android.gnd.model.feature;
 
 import com.google.auto.value.AutoValue;
-import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -76,9 +75,10 @@ public abstract class GeoJsonFeature extends Feature<GeoJsonFeature.Builder> {
     return "";
   }
 
-  @Memoized
   @Override
-  public abstract int hashCode();
+  protected boolean hasSameGeometry(Feature<?> other) {
+    return getGeoJsonString().equals(((GeoJsonFeature) other).getGeoJsonString());
+  }
 
   public abstract Builder toBuilder();
 
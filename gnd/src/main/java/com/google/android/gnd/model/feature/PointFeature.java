@@ -18,7 +18,6 @@ package com.google.android.gnd.model.feature;
 
 import com.google.android.gnd.model.Mutation.Type;
 import com.google.auto.value.AutoValue;
-import com.google.auto.value.extension.memoized.Memoized;
 import java8.util.Optional;
 
 /** User-defined map feature consisting of a single point. */
@@ -38,9 +37,10 @@ public abstract class PointFeature extends Feature<PointFeature.Builder> {
         .build();
   }
 
-  @Memoized
   @Override
-  public abstract int hashCode();
+  protected boolean hasSameGeometry(Feature<?> other) {
+    return getPoint().equals(((PointFeature) other).getPoint());
+  }
 
   public abstract Builder toBuilder();
 
@@ -18,7 +18,6 @@ package com.google.android.gnd.model.feature;
 
 import com.google.android.gnd.model.Mutation.Type;
 import com.google.auto.value.AutoValue;
-import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableList;
 
 /** User-defined map feature consisting of a polygon. */
@@ -36,9 +35,10 @@ public abstract class PolygonFeature extends Feature<PolygonFeature.Builder> {
     return super.toMutation(type, userId).toBuilder().setNewPolygonVertices(getVertices()).build();
   }
 
-  @Memoized
   @Override
-  public abstract int hashCode();
+  protected boolean hasSameGeometry(Feature<?> other) {
+    return getVertices().equals(((PolygonFeature) other).getVertices());
+  }
 
   public abstract Builder toBuilder();
 
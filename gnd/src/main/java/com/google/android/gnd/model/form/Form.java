@@ -21,7 +21,10 @@ import static java8.util.stream.StreamSupport.stream;
 
 import com.google.android.gnd.model.observation.Response;
 import com.google.auto.value.AutoValue;
+import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import java8.util.Comparators;
 import java8.util.Optional;
 
@@ -31,6 +34,8 @@ import java8.util.Optional;
  */
 @AutoValue
 public abstract class Form {
+  /** Forms are interned on build so that equal forms are shared by reference. */
+  private static final Interner<Form> INTERNER = Interners.newWeakInterner();
 
   public abstract String getId();
 
@@ -49,6 +54,10 @@ public abstract class Form {
         .findFirst();
   }
 
+  @Memoized
+  @Override
+  public abstract int hashCode();
+
   public static Builder newBuilder() {
     return new AutoValue_Form.Builder().setElements(ImmutableList.of());
   }
@@ -59,6 +68,10 @@ public abstract class Form {
 
     public abstract Builder setElements(ImmutableList<Element> newElementsList);
 
-    public abstract Form build();
+    abstract Form autoBuild();
+
+    public Form build() {
+      return INTERNER.intern(autoBuild());
+    }
   }
 }
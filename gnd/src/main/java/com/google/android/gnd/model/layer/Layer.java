@@ -19,11 +19,17 @@ package com.google.android.gnd.model.layer;
 import com.google.android.gnd.model.feature.FeatureType;
 import com.google.android.gnd.model.form.Form;
 import com.google.auto.value.AutoValue;
+import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import java8.util.Optional;
 
+/** A layer of features in a project. Instances are interned on build. */
 @AutoValue
 public abstract class Layer {
+  private static final Interner<Layer> INTERNER = Interners.newWeakInterner();
+
   public abstract String getId();
 
   public abstract String getName();
@@ -38,6 +44,10 @@ public abstract class Layer {
 
   public abstract ImmutableList<FeatureType> getContributorsCanAdd();
 
+  @Memoized
+  @Override
+  public abstract int hashCode();
+
   public static Builder newBuilder() {
     return new AutoValue_Layer.Builder()
         .setForm(Optional.empty())
@@ -60,6 +70,10 @@ public abstract class Layer {
       return setForm(Optional.of(form));
     }
 
-    public abstract Layer build();
+    abstract Layer autoBuild();
+
+    public Layer build() {
+      return INTERNER.intern(autoBuild());
+    }
   }
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.model.observation;
+
+import com.google.android.gnd.model.feature.Point;
+import com.google.auto.value.AutoValue;
+
+/** The number of observations collected about a feature, used to show where data was collected. */
+@AutoValue
+public abstract class FeatureObservationCount {
+
+  public abstract String getFeatureId();
+
+  /** Returns the location of the feature. */
+  public abstract Point getLocation();
+
+  public abstract int getObservationCount();
+
+  public static FeatureObservationCount create(
+      String featureId, Point location, int observationCount) {
+    return new AutoValue_FeatureObservationCount(featureId, location, observationCount);
+  }
+}
@@ -22,7 +22,12 @@ import com.google.android.gnd.model.feature.Feature;
 import com.google.android.gnd.model.form.Form;
 import com.google.auto.value.AutoValue;
 
-/** Represents a single instance of data collected about a specific {@link Feature}. */
+/**
+ * Represents a single instance of data collected about a specific {@link Feature}.
+ *
+ * <p>Like features, observations are versioned by their last modified audit info, which is compared
+ * along with the id before the rest of their contents.
+ */
 @AutoValue
 public abstract class Observation {
 
@@ -44,6 +49,29 @@ public abstract class Observation {
 
   public abstract ResponseMap getResponses();
 
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof Observation)) {
+      return false;
+    }
+    Observation that = (Observation) o;
+    return getId().equals(that.getId())
+        && getLastModified().equals(that.getLastModified())
+        && getProject().equals(that.getProject())
+        && getFeature().equals(that.getFeature())
+        && getForm().equals(that.getForm())
+        && getCreated().equals(that.getCreated())
+        && getResponses().equals(that.getResponses());
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * getId().hashCode() + getLastModified().hashCode();
+  }
+
   public static Builder newBuilder() {
     return new AutoValue_Observation.Builder().setResponses(ResponseMap.builder().build());
   }
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.model.observation;
+
+/**
+ * Size and quality to which photos are downscaled and re-encoded before being saved or uploaded.
+ * Values are persisted in shared preferences by name.
+ */
+public enum PhotoPreset {
+  /** Photos are kept at their original resolution and encoding. */
+  ORIGINAL(0, 100),
+  HIGH(2560, 90),
+  MEDIUM(1920, 85),
+  LOW(1280, 75);
+
+  /** Max size of the longest edge of the photo in pixels, or 0 if photos shouldn't be resized. */
+  private final int maxDimension;
+
+  /** JPEG compression quality, from 0 to 100. */
+  private final int jpegQuality;
+
+  PhotoPreset(int maxDimension, int jpegQuality) {
+    this.maxDimension = maxDimension;
+    this.jpegQuality = jpegQuality;
+  }
+
+  public int getMaxDimension() {
+    return maxDimension;
+  }
+
+  public int getJpegQuality() {
+    return jpegQuality;
+  }
+
+  /** Returns true iff photos with the specified dimensions should be re-encoded. */
+  public boolean shouldReencode(int width, int height) {
+    return this != ORIGINAL && Math.max(width, height) > maxDimension;
+  }
+
+  /**
+   * Returns the largest power of two by which photos with the specified dimensions can be
+   * subsampled while decoding without their longest edge falling below the max dimension.
+   */
+  public int getSampleSize(int width, int height) {
+    int size = Math.max(width, height);
+    int sampleSize = 1;
+    while (shouldReencode(width, height) && size / (sampleSize * 2) >= maxDimension) {
+      sampleSize *= 2;
+    }
+    return sampleSize;
+  }
+
+  /**
+   * Returns the factor by which photos with the specified dimensions are scaled so that their
+   * longest edge fits the max dimension, or 1 if they fit already.
+   */
+  public float getScale(int width, int height) {
+    return shouldReencode(width, height) ? (float) maxDimension / Math.max(width, height) : 1;
+  }
+}
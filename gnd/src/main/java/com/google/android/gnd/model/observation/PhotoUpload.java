@@ -0,0 +1,56 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.model.observation;
+
+import androidx.annotation.Nullable;
+import com.google.auto.value.AutoValue;
+
+/**
+ * A photo queued for upload to remote storage. When an upload is interrupted, the resumable
+ * session URI is kept so that the next attempt can continue from the last byte received by the
+ * server.
+ */
+@AutoValue
+public abstract class PhotoUpload {
+
+  /** Path of the photo in remote storage. Uniquely identifies the upload. */
+  public abstract String getRemotePath();
+
+  /** Path of the original photo on the local filesystem. */
+  public abstract String getLocalPath();
+
+  /** URI of the resumable upload session, if an upload has been started. */
+  @Nullable
+  public abstract String getSessionUri();
+
+  public abstract Builder toBuilder();
+
+  public static Builder newBuilder() {
+    return new AutoValue_PhotoUpload.Builder();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    public abstract Builder setRemotePath(String remotePath);
+
+    public abstract Builder setLocalPath(String localPath);
+
+    public abstract Builder setSessionUri(@Nullable String sessionUri);
+
+    public abstract PhotoUpload build();
+  }
+}
@@ -21,15 +21,20 @@ import com.google.android.gnd.model.Project;
 import com.google.android.gnd.model.User;
 import com.google.android.gnd.model.basemap.OfflineBaseMap;
 import com.google.android.gnd.model.basemap.tile.TileSource;
+import com.google.android.gnd.model.basemap.tile.TileSourceSegment;
 import com.google.android.gnd.model.feature.Feature;
 import com.google.android.gnd.model.feature.FeatureMutation;
+import com.google.android.gnd.model.observation.FeatureObservationCount;
 import com.google.android.gnd.model.observation.Observation;
 import com.google.android.gnd.model.observation.ObservationMutation;
+import com.google.android.gnd.model.observation.PhotoUpload;
 import com.google.android.gnd.persistence.local.room.LocalDataStoreException;
 import com.google.android.gnd.persistence.local.room.models.MutationEntitySyncStatus;
 import com.google.android.gnd.rx.annotations.Cold;
+import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Maybe;
@@ -62,6 +67,18 @@ public interface LocalDataStore {
   /** Add project to the database. */
   Completable insertOrUpdateProject(Project project);
 
+  /** Load the project summaries cached for the specified user, sorted by title. */
+  Single<ImmutableList<Project>> getProjectSummaries(User user);
+
+  /**
+   * Returns true iff project summaries are cached for the specified user, and all of them were
+   * fetched from the remote data store at or after the specified time in millis.
+   */
+  Single<Boolean> isProjectSummaryCacheFresh(User user, long minCachedAt);
+
+  /** Replaces the project summaries cached for the specified user with the provided ones. */
+  Completable replaceProjectSummaries(User user, ImmutableList<Project> summaries);
+
   /** Add user to the database. */
   Completable insertOrUpdateUser(User user);
 
@@ -93,10 +110,22 @@ public interface LocalDataStore {
   Flowable<ImmutableSet<Feature>> getFeaturesOnceAndStream(Project project);
 
   /**
-   * Returns the list of observations which are not marked for deletion for the specified feature
-   * and form.
+   * Returns a long-lived stream that emits the list of observations which are not marked for
+   * deletion for the specified feature and form on subscribe, and continues to emit the full list
+   * each time an observation is added/changed/removed.
    */
-  Single<ImmutableList<Observation>> getObservations(Feature feature, String formId);
+  @Cold(terminates = false)
+  Flowable<ImmutableList<Observation>> getObservationsOnceAndStream(
+      Feature feature, String formId);
+
+  /**
+   * Returns a long-lived stream that emits the number of observations not marked for deletion for
+   * each feature in the specified project on subscribe, and again each time observations or
+   * features change. Only features with a location and at least one observation are included.
+   */
+  @Cold(terminates = false)
+  Flowable<ImmutableList<FeatureObservationCount>> getObservationCountsOnceAndStream(
+      Project project);
 
   /** Returns the feature with the specified UUID from the local data store, if found. */
   Maybe<Feature> getFeature(Project project, String featureId);
@@ -111,6 +140,13 @@ public interface LocalDataStore {
   @Cold(terminates = false)
   Flowable<ImmutableSet<TileSource>> getTileSourcesOnceAndStream();
 
+  /**
+   * Returns a long-lived stream that emits the set of downloaded tiles on subscribe and each time
+   * the set changes.
+   */
+  @Cold(terminates = false)
+  Flowable<ImmutableSet<TileSource>> getDownloadedTileSourcesOnceAndStream();
+
   /**
    * Returns a long-lived stream that emits the full list of mutations for specified project on
    * subscribe and a new list on each subsequent change.
@@ -165,12 +201,95 @@ public interface LocalDataStore {
   /** Returns all pending tiles from the local data store. */
   Single<ImmutableList<TileSource>> getPendingTileSources();
 
+  /**
+   * Returns all tiles which are either pending or whose download was started but not completed.
+   */
+  Single<ImmutableList<TileSource>> getIncompleteTileSources();
+
+  /**
+   * Returns up to {@code limit} tiles sorting after the one with the specified path and id, ordered
+   * by path and then by id. Pass empty strings to start from the first tile.
+   */
+  Single<ImmutableList<TileSource>> getTileSourcesOrderedByPath(
+      String afterPath, String afterId, int limit);
+
+  /**
+   * Updates the state of the specified existing tiles in the local data store to match the
+   * provided instances. The byte count and checksum of downloaded tiles are also updated; other
+   * columns are left unchanged.
+   */
+  Completable updateTileSourceStates(ImmutableList<TileSource> tileSources);
+
+  /** Sets the number of bytes of storage used by the specified tile source. */
+  Completable updateTileSourceByteCount(String tileSourceId, long byteCount);
+
+  /**
+   * Returns the saved progress of the segments of the specified tile source, ordered by offset, or
+   * an empty list if it isn't being downloaded in segments.
+   */
+  Single<ImmutableList<TileSourceSegment>> getTileSourceSegments(String tileSourceId);
+
+  /** Saves the progress of the specified segments of a tile source, replacing any saved before. */
+  Completable insertOrUpdateTileSourceSegments(
+      String tileSourceId, ImmutableList<TileSourceSegment> segments);
+
+  /** Deletes all saved segments of the specified tile source. */
+  Completable deleteTileSourceSegments(String tileSourceId);
+
+  /**
+   * Returns a long-lived stream that emits the total size in bytes of all downloaded tiles on
+   * subscribe and each time it changes.
+   */
+  @Cold(terminates = false)
+  Flowable<Long> getDownloadedTileSourcesByteCountOnceAndStream();
+
+  /**
+   * Returns a long-lived stream that emits the total size in bytes of the downloaded tiles covered
+   * by the specified offline area on subscribe and each time it changes.
+   */
+  @Cold(terminates = false)
+  Flowable<Long> getOfflineAreaByteCountOnceAndStream(String offlineAreaId);
+
+  /**
+   * Adds a photo to the queue of pending uploads. If the photo is already queued, its entry is
+   * replaced.
+   */
+  Completable insertOrUpdatePhotoUpload(PhotoUpload photoUpload);
+
+  /** Returns all photos queued for upload. */
+  Single<ImmutableList<PhotoUpload>> getPendingPhotoUploads();
+
+  /** Records the resumable session URI of the pending upload with the specified remote path. */
+  Completable updatePhotoUploadSessionUri(String remotePath, String sessionUri);
+
+  /** Removes the photo with the specified remote path from the queue of pending uploads. */
+  Completable deletePhotoUpload(String remotePath);
+
   /**
    * Attempts to update an offline area in the local data store. If the area doesn't exist, inserts
    * the area into the local data store.
    */
   Completable insertOrUpdateOfflineArea(OfflineBaseMap area);
 
+  /**
+   * Records that the specified offline area covers the provided tiles. The tiles and area must
+   * already exist in the local data store.
+   */
+  Completable insertOfflineAreaTileSources(
+      String offlineAreaId, ImmutableCollection<TileSource> tileSources);
+
+  /** Returns all tiles covered by the specified offline area, regardless of their state. */
+  Single<ImmutableList<TileSource>> getOfflineAreaTileSources(String offlineAreaId);
+
+  /** Returns the ids of the tiles covered by each offline area, keyed by offline area id. */
+  Single<ImmutableSetMultimap<String, String>> getOfflineAreaTileSourceIds();
+
+  /** Sets the last access time of the tiles with the specified paths. */
+  Completable updateTileSourcesLastAccessed(ImmutableCollection<String> paths, long lastAccessed);
+
+  /** Sets whether the specified offline area is exempt from automatic removal. */
+  Completable updateOfflineAreaPinned(String offlineAreaId, boolean pinned);
+
   /** Returns all queued, failed, and completed offline areas from the local data store. */
   Flowable<ImmutableList<OfflineBaseMap>> getOfflineAreasOnceAndStream();
 
@@ -28,9 +28,13 @@ import com.google.android.gnd.persistence.local.room.dao.ObservationDao;
 import com.google.android.gnd.persistence.local.room.dao.ObservationMutationDao;
 import com.google.android.gnd.persistence.local.room.dao.OfflineBaseMapDao;
 import com.google.android.gnd.persistence.local.room.dao.OfflineBaseMapSourceDao;
+import com.google.android.gnd.persistence.local.room.dao.OfflineBaseMapTileSourceDao;
 import com.google.android.gnd.persistence.local.room.dao.OptionDao;
+import com.google.android.gnd.persistence.local.room.dao.PhotoUploadDao;
 import com.google.android.gnd.persistence.local.room.dao.ProjectDao;
+import com.google.android.gnd.persistence.local.room.dao.ProjectSummaryDao;
 import com.google.android.gnd.persistence.local.room.dao.TileSourceDao;
+import com.google.android.gnd.persistence.local.room.dao.TileSourceSegmentDao;
 import com.google.android.gnd.persistence.local.room.dao.UserDao;
 import dagger.Binds;
 import dagger.Module;
@@ -78,11 +82,21 @@ public abstract class LocalDataStoreModule {
     return localDatabase.optionDao();
   }
 
+  @Provides
+  static PhotoUploadDao photoUploadDao(LocalDatabase localDatabase) {
+    return localDatabase.photoUploadDao();
+  }
+
   @Provides
   static ProjectDao projectDao(LocalDatabase localDatabase) {
     return localDatabase.projectDao();
   }
 
+  @Provides
+  static ProjectSummaryDao projectSummaryDao(LocalDatabase localDatabase) {
+    return localDatabase.projectSummaryDao();
+  }
+
   @Provides
   static ObservationDao observationDao(LocalDatabase localDatabase) {
     return localDatabase.observationDao();
@@ -98,11 +112,21 @@ public abstract class LocalDataStoreModule {
     return localDatabase.tileSourceDao();
   }
 
+  @Provides
+  static TileSourceSegmentDao tileSourceSegmentDao(LocalDatabase localDatabase) {
+    return localDatabase.tileSourceSegmentDao();
+  }
+
   @Provides
   static OfflineBaseMapDao offlineAreaDao(LocalDatabase localDatabase) {
     return localDatabase.offlineAreaDao();
   }
 
+  @Provides
+  static OfflineBaseMapTileSourceDao offlineBaseMapTileSourceDao(LocalDatabase localDatabase) {
+    return localDatabase.offlineBaseMapTileSourceDao();
+  }
+
   @Provides
   static OfflineBaseMapSourceDao offlineBaseMapSourceDao(LocalDatabase localDatabase) {
     return localDatabase.offlineBaseMapSourceDao();
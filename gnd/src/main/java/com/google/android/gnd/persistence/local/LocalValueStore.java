@@ -21,6 +21,7 @@ import static java8.util.J8Arrays.stream;
 import android.content.SharedPreferences;
 import androidx.annotation.NonNull;
 import com.google.android.gnd.model.feature.Point;
+import com.google.android.gnd.model.observation.PhotoPreset;
 import com.google.android.gnd.ui.map.CameraPosition;
 import com.google.android.gnd.ui.settings.Keys;
 import java8.util.Optional;
@@ -40,9 +41,13 @@ public class LocalValueStore {
 
   public static final String ACTIVE_PROJECT_ID_KEY = "activeProjectId";
   public static final String MAP_TYPE = "map_type";
+  public static final String HEATMAP_ENABLED = "heatmap_enabled";
   public static final String LAST_VIEWPORT_PREFIX = "last_viewport_";
   public static final String TOS_ACCEPTED = "tos_accepted";
 
+  /** Default zoom level below which features are shown as a raster overview. */
+  private static final String DEFAULT_FEATURE_OVERVIEW_ZOOM = "10";
+
   private final SharedPreferences preferences;
 
   @Inject
@@ -74,6 +79,71 @@ public class LocalValueStore {
     return preferences.getBoolean(Keys.OFFLINE_AREAS, false);
   }
 
+  /**
+   * Returns whether projects should be activated from the local cache immediately and refreshed
+   * from the remote data store in the background.
+   */
+  public boolean shouldActivateProjectsOfflineFirst() {
+    return preferences.getBoolean(Keys.OFFLINE_FIRST_PROJECTS, true);
+  }
+
+  /** Returns the size and quality to which photos are reduced before saving and uploading. */
+  public PhotoPreset getPhotoPreset() {
+    String name = preferences.getString(Keys.PHOTO_PRESET, PhotoPreset.HIGH.name());
+    try {
+      return PhotoPreset.valueOf(name);
+    } catch (IllegalArgumentException | NullPointerException e) {
+      Timber.e(e, "Invalid photo preset in prefs");
+      return PhotoPreset.HIGH;
+    }
+  }
+
+  /**
+   * Returns the maximum number of bytes offline base map tiles may occupy before the least recently
+   * used areas are removed, or 0 if unlimited.
+   */
+  public long getOfflineStorageBudget() {
+    return parseOfflineStorageBudget(preferences.getString(Keys.OFFLINE_STORAGE_BUDGET, "0"));
+  }
+
+  /** Converts a storage budget preference value in MB to bytes, returning 0 if invalid. */
+  public static long parseOfflineStorageBudget(@Nullable String megabytes) {
+    try {
+      return megabytes == null ? 0 : Long.parseLong(megabytes) * 1024 * 1024;
+    } catch (NumberFormatException e) {
+      Timber.e(e, "Invalid offline storage budget in prefs");
+      return 0;
+    }
+  }
+
+  /**
+   * Returns the distance in meters around the user's recent positions within which offline imagery
+   * is downloaded automatically, or 0 if prefetching is disabled.
+   */
+  public int getOfflinePrefetchRadius() {
+    String meters = preferences.getString(Keys.OFFLINE_PREFETCH_RADIUS, "0");
+    try {
+      return meters == null ? 0 : Integer.parseInt(meters);
+    } catch (NumberFormatException e) {
+      Timber.e(e, "Invalid offline prefetch radius in prefs");
+      return 0;
+    }
+  }
+
+  /**
+   * Returns the zoom level below which features are shown as a raster overview instead of as
+   * individual map objects, or 0 if the overview is disabled.
+   */
+  public int getFeatureOverviewZoom() {
+    String zoom = preferences.getString(Keys.FEATURE_OVERVIEW_ZOOM, DEFAULT_FEATURE_OVERVIEW_ZOOM);
+    try {
+      return zoom == null ? 0 : Integer.parseInt(zoom);
+    } catch (NumberFormatException e) {
+      Timber.e(e, "Invalid feature overview zoom in prefs");
+      return 0;
+    }
+  }
+
   public void saveMapType(int type) {
     preferences.edit().putInt(MAP_TYPE, type).apply();
   }
@@ -82,6 +152,19 @@ public class LocalValueStore {
     return preferences.getInt(MAP_TYPE, defaultType);
   }
 
+  public void setHeatmapEnabled(boolean enabled) {
+    preferences.edit().putBoolean(HEATMAP_ENABLED, enabled).apply();
+  }
+
+  public boolean isHeatmapEnabled() {
+    return preferences.getBoolean(HEATMAP_ENABLED, false);
+  }
+
+  /** Returns whether map rendering metrics should be recorded and shown over the map. */
+  public boolean isRenderMetricsEnabled() {
+    return preferences.getBoolean(Keys.RENDER_METRICS, false);
+  }
+
   public void setLastCameraPosition(String projectId, CameraPosition cameraPosition) {
     Double[] values = {
       cameraPosition.getTarget().getLatitude(),
@@ -33,9 +33,13 @@ import com.google.android.gnd.persistence.local.room.dao.ObservationDao;
 import com.google.android.gnd.persistence.local.room.dao.ObservationMutationDao;
 import com.google.android.gnd.persistence.local.room.dao.OfflineBaseMapDao;
 import com.google.android.gnd.persistence.local.room.dao.OfflineBaseMapSourceDao;
+import com.google.android.gnd.persistence.local.room.dao.OfflineBaseMapTileSourceDao;
 import com.google.android.gnd.persistence.local.room.dao.OptionDao;
+import com.google.android.gnd.persistence.local.room.dao.PhotoUploadDao;
 import com.google.android.gnd.persistence.local.room.dao.ProjectDao;
+import com.google.android.gnd.persistence.local.room.dao.ProjectSummaryDao;
 import com.google.android.gnd.persistence.local.room.dao.TileSourceDao;
+import com.google.android.gnd.persistence.local.room.dao.TileSourceSegmentDao;
 import com.google.android.gnd.persistence.local.room.dao.UserDao;
 import com.google.android.gnd.persistence.local.room.entity.FeatureEntity;
 import com.google.android.gnd.persistence.local.room.entity.FeatureMutationEntity;
@@ -47,9 +51,13 @@ import com.google.android.gnd.persistence.local.room.entity.ObservationEntity;
 import com.google.android.gnd.persistence.local.room.entity.ObservationMutationEntity;
 import com.google.android.gnd.persistence.local.room.entity.OfflineBaseMapEntity;
 import com.google.android.gnd.persistence.local.room.entity.OfflineBaseMapSourceEntity;
+import com.google.android.gnd.persistence.local.room.entity.OfflineBaseMapTileSourceEntity;
 import com.google.android.gnd.persistence.local.room.entity.OptionEntity;
+import com.google.android.gnd.persistence.local.room.entity.PhotoUploadEntity;
 import com.google.android.gnd.persistence.local.room.entity.ProjectEntity;
+import com.google.android.gnd.persistence.local.room.entity.ProjectSummaryEntity;
 import com.google.android.gnd.persistence.local.room.entity.TileSourceEntity;
+import com.google.android.gnd.persistence.local.room.entity.TileSourceSegmentEntity;
 import com.google.android.gnd.persistence.local.room.entity.UserEntity;
 import com.google.android.gnd.persistence.local.room.models.ElementEntityType;
 import com.google.android.gnd.persistence.local.room.models.EntityState;
@@ -76,12 +84,16 @@ import com.google.android.gnd.persistence.local.room.models.TileEntityState;
       LayerEntity.class,
       MultipleChoiceEntity.class,
       OptionEntity.class,
+      PhotoUploadEntity.class,
       ProjectEntity.class,
+      ProjectSummaryEntity.class,
       OfflineBaseMapSourceEntity.class,
       ObservationEntity.class,
       ObservationMutationEntity.class,
       TileSourceEntity.class,
+      TileSourceSegmentEntity.class,
       OfflineBaseMapEntity.class,
+      OfflineBaseMapTileSourceEntity.class,
       UserEntity.class
     },
     version = Config.DB_VERSION,
@@ -115,8 +127,12 @@ public abstract class LocalDatabase extends RoomDatabase {
 
   public abstract OptionDao optionDao();
 
+  public abstract PhotoUploadDao photoUploadDao();
+
   public abstract ProjectDao projectDao();
 
+  public abstract ProjectSummaryDao projectSummaryDao();
+
   public abstract OfflineBaseMapSourceDao offlineBaseMapSourceDao();
 
   public abstract ObservationDao observationDao();
@@ -125,7 +141,11 @@ public abstract class LocalDatabase extends RoomDatabase {
 
   public abstract TileSourceDao tileSourceDao();
 
+  public abstract TileSourceSegmentDao tileSourceSegmentDao();
+
   public abstract OfflineBaseMapDao offlineAreaDao();
 
+  public abstract OfflineBaseMapTileSourceDao offlineBaseMapTileSourceDao();
+
   public abstract UserDao userDao();
 }
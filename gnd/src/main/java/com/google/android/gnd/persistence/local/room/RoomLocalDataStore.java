@@ -31,6 +31,7 @@ import com.google.android.gnd.model.Project;
 import com.google.android.gnd.model.User;
 import com.google.android.gnd.model.basemap.OfflineBaseMap;
 import com.google.android.gnd.model.basemap.tile.TileSource;
+import com.google.android.gnd.model.basemap.tile.TileSourceSegment;
 import com.google.android.gnd.model.feature.Feature;
 import com.google.android.gnd.model.feature.FeatureMutation;
 import com.google.android.gnd.model.form.Element;
@@ -39,8 +40,10 @@ import com.google.android.gnd.model.form.Form;
 import com.google.android.gnd.model.form.MultipleChoice;
 import com.google.android.gnd.model.form.Option;
 import com.google.android.gnd.model.layer.Layer;
+import com.google.android.gnd.model.observation.FeatureObservationCount;
 import com.google.android.gnd.model.observation.Observation;
 import com.google.android.gnd.model.observation.ObservationMutation;
+import com.google.android.gnd.model.observation.PhotoUpload;
 import com.google.android.gnd.model.observation.ResponseMap;
 import com.google.android.gnd.model.observation.ResponseMap.Builder;
 import com.google.android.gnd.persistence.local.LocalDataStore;
@@ -56,9 +59,13 @@ import com.google.android.gnd.persistence.local.room.dao.ObservationDao;
 import com.google.android.gnd.persistence.local.room.dao.ObservationMutationDao;
 import com.google.android.gnd.persistence.local.room.dao.OfflineBaseMapDao;
 import com.google.android.gnd.persistence.local.room.dao.OfflineBaseMapSourceDao;
+import com.google.android.gnd.persistence.local.room.dao.OfflineBaseMapTileSourceDao;
 import com.google.android.gnd.persistence.local.room.dao.OptionDao;
+import com.google.android.gnd.persistence.local.room.dao.PhotoUploadDao;
 import com.google.android.gnd.persistence.local.room.dao.ProjectDao;
+import com.google.android.gnd.persistence.local.room.dao.ProjectSummaryDao;
 import com.google.android.gnd.persistence.local.room.dao.TileSourceDao;
+import com.google.android.gnd.persistence.local.room.dao.TileSourceSegmentDao;
 import com.google.android.gnd.persistence.local.room.dao.UserDao;
 import com.google.android.gnd.persistence.local.room.entity.AuditInfoEntity;
 import com.google.android.gnd.persistence.local.room.entity.FeatureEntity;
@@ -71,19 +78,26 @@ import com.google.android.gnd.persistence.local.room.entity.ObservationEntity;
 import com.google.android.gnd.persistence.local.room.entity.ObservationMutationEntity;
 import com.google.android.gnd.persistence.local.room.entity.OfflineBaseMapEntity;
 import com.google.android.gnd.persistence.local.room.entity.OfflineBaseMapSourceEntity;
+import com.google.android.gnd.persistence.local.room.entity.OfflineBaseMapTileSourceEntity;
 import com.google.android.gnd.persistence.local.room.entity.OptionEntity;
+import com.google.android.gnd.persistence.local.room.entity.PhotoUploadEntity;
 import com.google.android.gnd.persistence.local.room.entity.ProjectEntity;
+import com.google.android.gnd.persistence.local.room.entity.ProjectSummaryEntity;
 import com.google.android.gnd.persistence.local.room.entity.TileSourceEntity;
+import com.google.android.gnd.persistence.local.room.entity.TileSourceSegmentEntity;
 import com.google.android.gnd.persistence.local.room.entity.UserEntity;
 import com.google.android.gnd.persistence.local.room.models.EntityState;
 import com.google.android.gnd.persistence.local.room.models.MutationEntitySyncStatus;
+import com.google.android.gnd.persistence.local.room.models.ObservationCount;
 import com.google.android.gnd.persistence.local.room.models.TileEntityState;
 import com.google.android.gnd.persistence.local.room.models.UserDetails;
 import com.google.android.gnd.rx.Schedulers;
 import com.google.android.gnd.rx.annotations.Cold;
 import com.google.android.gnd.ui.util.FileUtil;
+import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Maybe;
@@ -93,6 +107,8 @@ import io.reactivex.SingleSource;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java8.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import timber.log.Timber;
@@ -112,14 +128,18 @@ public class RoomLocalDataStore implements LocalDataStore {
   @Inject FormDao formDao;
   @Inject LayerDao layerDao;
   @Inject ProjectDao projectDao;
+  @Inject PhotoUploadDao photoUploadDao;
+  @Inject ProjectSummaryDao projectSummaryDao;
   @Inject FeatureDao featureDao;
   @Inject FeatureMutationDao featureMutationDao;
   @Inject ObservationDao observationDao;
   @Inject ObservationMutationDao observationMutationDao;
   @Inject TileSourceDao tileSourceDao;
+  @Inject TileSourceSegmentDao tileSourceSegmentDao;
   @Inject UserDao userDao;
   @Inject OfflineBaseMapDao offlineBaseMapDao;
   @Inject OfflineBaseMapSourceDao offlineBaseMapSourceDao;
+  @Inject OfflineBaseMapTileSourceDao offlineBaseMapTileSourceDao;
   @Inject Schedulers schedulers;
   @Inject FileUtil fileUtil;
 
@@ -240,6 +260,32 @@ public class RoomLocalDataStore implements LocalDataStore {
     return projectDao.getProjectById(id).map(ProjectEntity::toProject).subscribeOn(schedulers.io());
   }
 
+  @Override
+  public Single<ImmutableList<Project>> getProjectSummaries(User user) {
+    return projectSummaryDao
+        .findByUserId(user.getId())
+        .map(list -> stream(list).map(ProjectSummaryEntity::toProject).collect(toImmutableList()))
+        .subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Single<Boolean> isProjectSummaryCacheFresh(User user, long minCachedAt) {
+    return projectSummaryDao.isCachedSince(user.getId(), minCachedAt).subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Completable replaceProjectSummaries(User user, ImmutableList<Project> summaries) {
+    long cachedAt = System.currentTimeMillis();
+    return Completable.fromAction(
+            () ->
+                projectSummaryDao.replaceAll(
+                    user.getId(),
+                    stream(summaries)
+                        .map(p -> ProjectSummaryEntity.fromProject(user.getId(), p, cachedAt))
+                        .collect(toImmutableList())))
+        .subscribeOn(schedulers.io());
+  }
+
   @Override
   public Completable deleteProject(Project project) {
     return projectDao.delete(ProjectEntity.fromProject(project)).subscribeOn(schedulers.io());
@@ -289,14 +335,30 @@ public class RoomLocalDataStore implements LocalDataStore {
         .subscribeOn(schedulers.io());
   }
 
+  @Cold(terminates = false)
   @Override
-  public Single<ImmutableList<Observation>> getObservations(Feature feature, String formId) {
+  public Flowable<ImmutableList<Observation>> getObservationsOnceAndStream(
+      Feature feature, String formId) {
     return observationDao
-        .findByFeatureId(feature.getId(), formId, EntityState.DEFAULT)
+        .findByFeatureIdOnceAndStream(feature.getId(), formId, EntityState.DEFAULT)
         .map(observationEntities -> toObservations(feature, observationEntities))
         .subscribeOn(schedulers.io());
   }
 
+  @Cold(terminates = false)
+  @Override
+  public Flowable<ImmutableList<FeatureObservationCount>> getObservationCountsOnceAndStream(
+      Project project) {
+    return observationDao
+        .countByFeatureOnceAndStream(project.getId(), EntityState.DEFAULT)
+        .map(
+            counts ->
+                stream(counts)
+                    .map(ObservationCount::toFeatureObservationCount)
+                    .collect(toImmutableList()))
+        .subscribeOn(schedulers.io());
+  }
+
   private ImmutableList<Observation> toObservations(
       Feature feature, List<ObservationEntity> observationEntities) {
     return stream(observationEntities)
@@ -312,6 +374,15 @@ public class RoomLocalDataStore implements LocalDataStore {
         .subscribeOn(schedulers.io());
   }
 
+  @Cold(terminates = false)
+  @Override
+  public Flowable<ImmutableSet<TileSource>> getDownloadedTileSourcesOnceAndStream() {
+    return tileSourceDao
+        .findByStateOnceAndStream(TileEntityState.DOWNLOADED.intValue())
+        .map(list -> stream(list).map(TileSourceEntity::toTileSource).collect(toImmutableSet()))
+        .subscribeOn(schedulers.io());
+  }
+
   @Cold(terminates = false)
   @Override
   public Flowable<ImmutableList<Mutation>> getMutationsOnceAndStream(Project project) {
@@ -665,6 +736,133 @@ public class RoomLocalDataStore implements LocalDataStore {
         .subscribeOn(schedulers.io());
   }
 
+  @Override
+  public Single<ImmutableList<TileSource>> getIncompleteTileSources() {
+    return tileSourceDao
+        .findByStates(TileEntityState.PENDING.intValue(), TileEntityState.IN_PROGRESS.intValue())
+        .map(ts -> stream(ts).map(TileSourceEntity::toTileSource).collect(toImmutableList()))
+        .subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Single<ImmutableList<TileSource>> getTileSourcesOrderedByPath(
+      String afterPath, String afterId, int limit) {
+    return tileSourceDao
+        .findPageOrderedByPath(afterPath, afterId, limit)
+        .map(ts -> stream(ts).map(TileSourceEntity::toTileSource).collect(toImmutableList()))
+        .subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Completable updateTileSourceStates(ImmutableList<TileSource> tileSources) {
+    // Issue one UPDATE per distinct state rather than one per tile. Downloaded tiles are the
+    // exception, since each also records its own size and checksum.
+    Map<TileSource.State, ImmutableList<String>> idsByState =
+        stream(tileSources)
+            .filter(tileSource -> tileSource.getState() != TileSource.State.DOWNLOADED)
+            .collect(
+                Collectors.groupingBy(
+                    TileSource::getState,
+                    Collectors.mapping(TileSource::getId, toImmutableList())));
+    Completable updateStates =
+        Completable.concat(
+            stream(idsByState.entrySet())
+                .map(
+                    entry ->
+                        tileSourceDao.updateStates(
+                            entry.getValue(),
+                            TileSourceEntity.toEntityState(entry.getKey()).intValue()))
+                .collect(toImmutableList()));
+    Completable updateDownloaded =
+        Completable.concat(
+            stream(tileSources)
+                .filter(tileSource -> tileSource.getState() == TileSource.State.DOWNLOADED)
+                .map(
+                    tileSource ->
+                        tileSourceDao.updateDownloaded(
+                            tileSource.getId(),
+                            TileEntityState.DOWNLOADED.intValue(),
+                            tileSource.getByteCount(),
+                            tileSource.getChecksum(),
+                            tileSource.getLastAccessed()))
+                .collect(toImmutableList()));
+    return updateStates.andThen(updateDownloaded).subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Completable updateTileSourceByteCount(String tileSourceId, long byteCount) {
+    return tileSourceDao.updateByteCount(tileSourceId, byteCount).subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Single<ImmutableList<TileSourceSegment>> getTileSourceSegments(String tileSourceId) {
+    return tileSourceSegmentDao
+        .findByTileSourceId(tileSourceId)
+        .map(
+            segments ->
+                stream(segments)
+                    .map(TileSourceSegmentEntity::toSegment)
+                    .collect(toImmutableList()))
+        .subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Completable insertOrUpdateTileSourceSegments(
+      String tileSourceId, ImmutableList<TileSourceSegment> segments) {
+    return tileSourceSegmentDao
+        .insertOrReplaceAll(
+            stream(segments)
+                .map(segment -> TileSourceSegmentEntity.fromSegment(tileSourceId, segment))
+                .collect(toImmutableList()))
+        .subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Completable deleteTileSourceSegments(String tileSourceId) {
+    return tileSourceSegmentDao.deleteByTileSourceId(tileSourceId).subscribeOn(schedulers.io());
+  }
+
+  @Cold(terminates = false)
+  @Override
+  public Flowable<Long> getDownloadedTileSourcesByteCountOnceAndStream() {
+    return tileSourceDao
+        .getTotalByteCountOnceAndStream(TileEntityState.DOWNLOADED.intValue())
+        .subscribeOn(schedulers.io());
+  }
+
+  @Cold(terminates = false)
+  @Override
+  public Flowable<Long> getOfflineAreaByteCountOnceAndStream(String offlineAreaId) {
+    return offlineBaseMapTileSourceDao
+        .getTotalByteCountOnceAndStream(offlineAreaId, TileEntityState.DOWNLOADED.intValue())
+        .subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Completable insertOrUpdatePhotoUpload(PhotoUpload photoUpload) {
+    return photoUploadDao
+        .insertOrUpdate(PhotoUploadEntity.fromPhotoUpload(photoUpload))
+        .subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Single<ImmutableList<PhotoUpload>> getPendingPhotoUploads() {
+    return photoUploadDao
+        .findAll()
+        .map(list -> stream(list).map(PhotoUploadEntity::toPhotoUpload).collect(toImmutableList()))
+        .subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Completable updatePhotoUploadSessionUri(String remotePath, String sessionUri) {
+    return photoUploadDao.updateSessionUri(remotePath, sessionUri).subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Completable deletePhotoUpload(String remotePath) {
+    return photoUploadDao.deleteByRemotePath(remotePath).subscribeOn(schedulers.io());
+  }
+
   @Override
   public Completable insertOrUpdateOfflineArea(OfflineBaseMap area) {
     return offlineBaseMapDao
@@ -672,6 +870,53 @@ public class RoomLocalDataStore implements LocalDataStore {
         .subscribeOn(schedulers.io());
   }
 
+  @Override
+  public Completable insertOfflineAreaTileSources(
+      String offlineAreaId, ImmutableCollection<TileSource> tileSources) {
+    return offlineBaseMapTileSourceDao
+        .insertAll(
+            stream(tileSources)
+                .map(
+                    tileSource ->
+                        OfflineBaseMapTileSourceEntity.create(offlineAreaId, tileSource.getId()))
+                .collect(toImmutableList()))
+        .subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Completable updateTileSourcesLastAccessed(
+      ImmutableCollection<String> paths, long lastAccessed) {
+    return tileSourceDao.updateLastAccessed(paths, lastAccessed).subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Completable updateOfflineAreaPinned(String offlineAreaId, boolean pinned) {
+    return offlineBaseMapDao.updatePinned(offlineAreaId, pinned).subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Single<ImmutableSetMultimap<String, String>> getOfflineAreaTileSourceIds() {
+    return offlineBaseMapTileSourceDao
+        .findAll()
+        .map(
+            links -> {
+              ImmutableSetMultimap.Builder<String, String> ids = ImmutableSetMultimap.builder();
+              for (OfflineBaseMapTileSourceEntity link : links) {
+                ids.put(link.getBaseMapId(), link.getTileSourceId());
+              }
+              return ids.build();
+            })
+        .subscribeOn(schedulers.io());
+  }
+
+  @Override
+  public Single<ImmutableList<TileSource>> getOfflineAreaTileSources(String offlineAreaId) {
+    return offlineBaseMapTileSourceDao
+        .findTileSourcesByBaseMapId(offlineAreaId)
+        .map(ts -> stream(ts).map(TileSourceEntity::toTileSource).collect(toImmutableList()))
+        .subscribeOn(schedulers.io());
+  }
+
   @Override
   public Flowable<ImmutableList<OfflineBaseMap>> getOfflineAreasOnceAndStream() {
     return offlineBaseMapDao
@@ -20,8 +20,9 @@ import androidx.room.Dao;
 import androidx.room.Query;
 import com.google.android.gnd.persistence.local.room.entity.ObservationEntity;
 import com.google.android.gnd.persistence.local.room.models.EntityState;
+import com.google.android.gnd.persistence.local.room.models.ObservationCount;
+import io.reactivex.Flowable;
 import io.reactivex.Maybe;
-import io.reactivex.Single;
 import java.util.List;
 
 @Dao
@@ -30,10 +31,28 @@ public interface ObservationDao extends BaseDao<ObservationEntity> {
   @Query("SELECT * FROM observation WHERE id = :observationId")
   Maybe<ObservationEntity> findById(String observationId);
 
-  /** Returns the list observations associated with the specified feature, form and state. */
+  /**
+   * Emits the list observations associated with the specified feature, form and state on
+   * subscribe, and a new list each time the observation table is modified.
+   */
   @Query(
       "SELECT * FROM observation "
           + "WHERE feature_id = :featureId AND form_id = :formId AND state = :state")
-  Single<List<ObservationEntity>> findByFeatureId(
+  Flowable<List<ObservationEntity>> findByFeatureIdOnceAndStream(
       String featureId, String formId, EntityState state);
+
+  /**
+   * Emits the number of observations in the specified state of each feature with a location in
+   * the specified project on subscribe, and again each time the observation or feature tables are
+   * modified. Features without observations are omitted.
+   */
+  @Query(
+      "SELECT o.feature_id AS feature_id, f.lat AS lat, f.lng AS lng, "
+          + "COUNT(*) AS observation_count "
+          + "FROM observation o JOIN feature f ON f.id = o.feature_id "
+          + "WHERE f.project_id = :projectId AND f.state = :state AND o.state = :state "
+          + "AND f.lat IS NOT NULL AND f.lng IS NOT NULL "
+          + "GROUP BY o.feature_id")
+  Flowable<List<ObservationCount>> countByFeatureOnceAndStream(
+      String projectId, EntityState state);
 }
@@ -19,6 +19,7 @@ package com.google.android.gnd.persistence.local.room.dao;
 import androidx.room.Dao;
 import androidx.room.Query;
 import com.google.android.gnd.persistence.local.room.entity.OfflineBaseMapEntity;
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import java.util.List;
@@ -31,4 +32,7 @@ public interface OfflineBaseMapDao extends BaseDao<OfflineBaseMapEntity> {
 
   @Query("SELECT * FROM offline_base_map WHERE id = :id")
   Maybe<OfflineBaseMapEntity> findById(String id);
+
+  @Query("UPDATE offline_base_map SET pinned = :pinned WHERE id = :id")
+  Completable updatePinned(String id, boolean pinned);
 }
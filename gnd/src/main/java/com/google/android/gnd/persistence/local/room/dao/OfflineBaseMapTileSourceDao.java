@@ -0,0 +1,51 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.persistence.local.room.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import com.google.android.gnd.persistence.local.room.entity.OfflineBaseMapTileSourceEntity;
+import com.google.android.gnd.persistence.local.room.entity.TileSourceEntity;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import java.util.List;
+
+/** Provides read/write operations on the tile sources covered by each offline base map. */
+@Dao
+public interface OfflineBaseMapTileSourceDao extends BaseDao<OfflineBaseMapTileSourceEntity> {
+
+  @Insert(onConflict = OnConflictStrategy.IGNORE)
+  Completable insertAll(List<OfflineBaseMapTileSourceEntity> entities);
+
+  @Query("SELECT * FROM offline_base_map_tile_source")
+  Single<List<OfflineBaseMapTileSourceEntity>> findAll();
+
+  @Query(
+      "SELECT t.* FROM tile_sources t "
+          + "JOIN offline_base_map_tile_source j ON j.tile_source_id = t.id "
+          + "WHERE j.base_map_id = :baseMapId")
+  Single<List<TileSourceEntity>> findTileSourcesByBaseMapId(String baseMapId);
+
+  /** Returns the total size in bytes of the tile sources in the given state covered by the map. */
+  @Query(
+      "SELECT COALESCE(SUM(t.byte_count), 0) FROM tile_sources t "
+          + "JOIN offline_base_map_tile_source j ON j.tile_source_id = t.id "
+          + "WHERE j.base_map_id = :baseMapId AND t.state = :state")
+  Flowable<Long> getTotalByteCountOnceAndStream(String baseMapId, int state);
+}
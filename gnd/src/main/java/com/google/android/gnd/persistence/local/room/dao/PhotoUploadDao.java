@@ -0,0 +1,38 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.local.room.dao;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import com.google.android.gnd.persistence.local.room.entity.PhotoUploadEntity;
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import java.util.List;
+
+/** Provides read/write operations for the queue of pending photo uploads. */
+@Dao
+public interface PhotoUploadDao extends BaseDao<PhotoUploadEntity> {
+
+  @Query("SELECT * FROM photo_upload")
+  Single<List<PhotoUploadEntity>> findAll();
+
+  @Query("UPDATE photo_upload SET session_uri = :sessionUri WHERE remote_path = :remotePath")
+  Completable updateSessionUri(String remotePath, String sessionUri);
+
+  @Query("DELETE FROM photo_upload WHERE remote_path = :remotePath")
+  Completable deleteByRemotePath(String remotePath);
+}
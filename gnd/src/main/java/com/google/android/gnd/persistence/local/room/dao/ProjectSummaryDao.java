@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.local.room.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import com.google.android.gnd.persistence.local.room.entity.ProjectSummaryEntity;
+import io.reactivex.Single;
+import java.util.List;
+
+@Dao
+public abstract class ProjectSummaryDao {
+
+  @Query("SELECT * FROM project_summary WHERE user_id = :userId ORDER BY title")
+  public abstract Single<List<ProjectSummaryEntity>> findByUserId(String userId);
+
+  /**
+   * Returns true iff summaries are cached for the specified user, and all of them were fetched at
+   * or after the specified time.
+   */
+  @Query(
+      "SELECT COUNT(*) > 0 AND MIN(cached_at) >= :minCachedAt FROM project_summary "
+          + "WHERE user_id = :userId")
+  public abstract Single<Boolean> isCachedSince(String userId, long minCachedAt);
+
+  /** Replaces all summaries cached for the specified user in a single transaction. */
+  @Transaction
+  public void replaceAll(String userId, List<ProjectSummaryEntity> summaries) {
+    deleteByUserId(userId);
+    insertAll(summaries);
+  }
+
+  @Query("DELETE FROM project_summary WHERE user_id = :userId")
+  abstract void deleteByUserId(String userId);
+
+  @Insert
+  abstract void insertAll(List<ProjectSummaryEntity> summaries);
+}
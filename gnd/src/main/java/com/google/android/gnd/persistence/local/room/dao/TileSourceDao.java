@@ -19,9 +19,11 @@ package com.google.android.gnd.persistence.local.room.dao;
 import androidx.room.Dao;
 import androidx.room.Query;
 import com.google.android.gnd.persistence.local.room.entity.TileSourceEntity;
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Single;
+import java.util.Collection;
 import java.util.List;
 
 @Dao
@@ -33,6 +35,13 @@ public interface TileSourceDao extends BaseDao<TileSourceEntity> {
   @Query("SELECT * FROM tile_sources WHERE state = :state")
   Single<List<TileSourceEntity>> findByState(int state);
 
+  @Query("SELECT * FROM tile_sources WHERE state = :state")
+  Flowable<List<TileSourceEntity>> findByStateOnceAndStream(int state);
+
+  // Ordered by insertion so that tiles are downloaded in the order they were queued.
+  @Query("SELECT * FROM tile_sources WHERE state IN (:states) ORDER BY rowid")
+  Single<List<TileSourceEntity>> findByStates(int... states);
+
   @Query("SELECT * FROM tile_sources WHERE id = :id")
   Maybe<TileSourceEntity> findById(String id);
 
@@ -42,9 +51,37 @@ public interface TileSourceDao extends BaseDao<TileSourceEntity> {
   @Query("SELECT * FROM tile_sources WHERE path = :path")
   Maybe<TileSourceEntity> findByPath(String path);
 
+  /**
+   * Returns up to {@code limit} tile sources sorting after the one with the specified path and id,
+   * ordered by path and then by id, since paths aren't unique.
+   */
+  @Query(
+      "SELECT * FROM tile_sources WHERE path > :afterPath OR (path = :afterPath AND id > :afterId) "
+          + "ORDER BY path, id LIMIT :limit")
+  Single<List<TileSourceEntity>> findPageOrderedByPath(String afterPath, String afterId, int limit);
+
   @Query("UPDATE tile_sources SET basemap_count=:newCount WHERE url = :url")
   Single<Integer> updateBasemapReferenceCount(int newCount, String url);
 
+  @Query("UPDATE tile_sources SET state = :state WHERE id IN (:ids)")
+  Completable updateStates(List<String> ids, int state);
+
+  @Query(
+      "UPDATE tile_sources SET state = :state, byte_count = :byteCount, checksum = :checksum, "
+          + "last_accessed = :lastAccessed WHERE id = :id")
+  Completable updateDownloaded(
+      String id, int state, long byteCount, String checksum, long lastAccessed);
+
+  @Query("UPDATE tile_sources SET byte_count = :byteCount WHERE id = :id")
+  Completable updateByteCount(String id, long byteCount);
+
+  @Query("UPDATE tile_sources SET last_accessed = :lastAccessed WHERE path IN (:paths)")
+  Completable updateLastAccessed(Collection<String> paths, long lastAccessed);
+
+  /** Returns the total size in bytes of all tile sources in the specified state. */
+  @Query("SELECT COALESCE(SUM(byte_count), 0) FROM tile_sources WHERE state = :state")
+  Flowable<Long> getTotalByteCountOnceAndStream(int state);
+
   @Query("DELETE FROM tile_sources WHERE url = :url")
   Maybe<Integer> deleteByUrl(String url);
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.persistence.local.room.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import com.google.android.gnd.persistence.local.room.entity.TileSourceSegmentEntity;
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import java.util.List;
+
+/** Provides read/write operations on the progress of segmented tile source downloads. */
+@Dao
+public interface TileSourceSegmentDao extends BaseDao<TileSourceSegmentEntity> {
+
+  // No other tables reference segments, so replacing rows is safe here.
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  Completable insertOrReplaceAll(List<TileSourceSegmentEntity> entities);
+
+  @Query(
+      "SELECT * FROM tile_source_segments WHERE tile_source_id = :tileSourceId "
+          + "ORDER BY start_offset")
+  Single<List<TileSourceSegmentEntity>> findByTileSourceId(String tileSourceId);
+
+  @Query("DELETE FROM tile_source_segments WHERE tile_source_id = :tileSourceId")
+  Completable deleteByTileSourceId(String tileSourceId);
+}
@@ -62,6 +62,10 @@ public abstract class OfflineBaseMapEntity {
   @ColumnInfo(name = "west")
   public abstract double getWest();
 
+  @AutoValue.CopyAnnotations
+  @ColumnInfo(name = "pinned")
+  public abstract boolean isPinned();
+
   public static OfflineBaseMap toArea(OfflineBaseMapEntity offlineBaseMapEntity) {
     LatLng northEast = new LatLng(offlineBaseMapEntity.getNorth(), offlineBaseMapEntity.getEast());
     LatLng southWest = new LatLng(offlineBaseMapEntity.getSouth(), offlineBaseMapEntity.getWest());
@@ -72,6 +76,7 @@ public abstract class OfflineBaseMapEntity {
         .setBounds(bounds)
         .setState(toAreaState(offlineBaseMapEntity.getState()))
         .setName(offlineBaseMapEntity.getName())
+        .setPinned(offlineBaseMapEntity.isPinned())
         .build();
   }
 
@@ -99,7 +104,8 @@ public abstract class OfflineBaseMapEntity {
             .setNorth(offlineBaseMap.getBounds().northeast.latitude)
             .setEast(offlineBaseMap.getBounds().northeast.longitude)
             .setSouth(offlineBaseMap.getBounds().southwest.latitude)
-            .setWest(offlineBaseMap.getBounds().southwest.longitude);
+            .setWest(offlineBaseMap.getBounds().southwest.longitude)
+            .setPinned(offlineBaseMap.isPinned());
     return entity.build();
   }
 
@@ -125,7 +131,8 @@ public abstract class OfflineBaseMapEntity {
       double north,
       double east,
       double south,
-      double west) {
+      double west,
+      boolean pinned) {
     return builder()
         .setId(id)
         .setName(name)
@@ -134,6 +141,7 @@ public abstract class OfflineBaseMapEntity {
         .setEast(east)
         .setSouth(south)
         .setWest(west)
+        .setPinned(pinned)
         .build();
   }
 
@@ -158,6 +166,8 @@ public abstract class OfflineBaseMapEntity {
 
     public abstract Builder setWest(double coordinate);
 
+    public abstract Builder setPinned(boolean pinned);
+
     public abstract OfflineBaseMapEntity build();
   }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.persistence.local.room.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import com.google.auto.value.AutoValue;
+import com.google.auto.value.AutoValue.CopyAnnotations;
+
+/**
+ * Associates an offline base map with one of the tile sources it covers. Rows are removed
+ * automatically when either the base map or the tile source is deleted.
+ */
+@AutoValue
+@Entity(
+    tableName = "offline_base_map_tile_source",
+    primaryKeys = {"base_map_id", "tile_source_id"},
+    foreignKeys = {
+      @ForeignKey(
+          entity = OfflineBaseMapEntity.class,
+          parentColumns = "id",
+          childColumns = "base_map_id",
+          onDelete = ForeignKey.CASCADE),
+      @ForeignKey(
+          entity = TileSourceEntity.class,
+          parentColumns = "id",
+          childColumns = "tile_source_id",
+          onDelete = ForeignKey.CASCADE)
+    },
+    indices = {@Index("tile_source_id")})
+public abstract class OfflineBaseMapTileSourceEntity {
+  @CopyAnnotations
+  @NonNull
+  @ColumnInfo(name = "base_map_id")
+  public abstract String getBaseMapId();
+
+  @CopyAnnotations
+  @NonNull
+  @ColumnInfo(name = "tile_source_id")
+  public abstract String getTileSourceId();
+
+  public static OfflineBaseMapTileSourceEntity create(String baseMapId, String tileSourceId) {
+    return new AutoValue_OfflineBaseMapTileSourceEntity(baseMapId, tileSourceId);
+  }
+}
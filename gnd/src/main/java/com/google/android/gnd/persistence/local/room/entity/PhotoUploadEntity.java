@@ -0,0 +1,78 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.local.room.entity;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+import com.google.android.gnd.model.observation.PhotoUpload;
+import com.google.auto.value.AutoValue;
+import com.google.auto.value.AutoValue.CopyAnnotations;
+
+/** Representation of a {@link PhotoUpload} in local db. */
+@AutoValue
+@Entity(tableName = "photo_upload")
+public abstract class PhotoUploadEntity {
+  @CopyAnnotations
+  @NonNull
+  @PrimaryKey
+  @ColumnInfo(name = "remote_path")
+  public abstract String getRemotePath();
+
+  @CopyAnnotations
+  @NonNull
+  @ColumnInfo(name = "local_path")
+  public abstract String getLocalPath();
+
+  @CopyAnnotations
+  @Nullable
+  @ColumnInfo(name = "session_uri")
+  public abstract String getSessionUri();
+
+  public static PhotoUploadEntity fromPhotoUpload(PhotoUpload photoUpload) {
+    return builder()
+        .setRemotePath(photoUpload.getRemotePath())
+        .setLocalPath(photoUpload.getLocalPath())
+        .setSessionUri(photoUpload.getSessionUri())
+        .build();
+  }
+
+  public static PhotoUpload toPhotoUpload(PhotoUploadEntity entity) {
+    return PhotoUpload.newBuilder()
+        .setRemotePath(entity.getRemotePath())
+        .setLocalPath(entity.getLocalPath())
+        .setSessionUri(entity.getSessionUri())
+        .build();
+  }
+
+  public static Builder builder() {
+    return new AutoValue_PhotoUploadEntity.Builder();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    public abstract Builder setRemotePath(String remotePath);
+
+    public abstract Builder setLocalPath(String localPath);
+
+    public abstract Builder setSessionUri(@Nullable String sessionUri);
+
+    public abstract PhotoUploadEntity build();
+  }
+}
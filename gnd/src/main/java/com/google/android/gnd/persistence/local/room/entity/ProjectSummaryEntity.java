@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.local.room.entity;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import com.google.android.gnd.model.Project;
+import com.google.auto.value.AutoValue;
+import com.google.auto.value.AutoValue.CopyAnnotations;
+
+/**
+ * Title and description of a project readable by a user, cached to show the project selector
+ * without loading full project definitions.
+ */
+@AutoValue
+@Entity(
+    tableName = "project_summary",
+    primaryKeys = {"user_id", "id"})
+public abstract class ProjectSummaryEntity {
+
+  @CopyAnnotations
+  @NonNull
+  @ColumnInfo(name = "user_id")
+  public abstract String getUserId();
+
+  @CopyAnnotations
+  @NonNull
+  @ColumnInfo(name = "id")
+  public abstract String getId();
+
+  @CopyAnnotations
+  @Nullable
+  @ColumnInfo(name = "title")
+  public abstract String getTitle();
+
+  @CopyAnnotations
+  @Nullable
+  @ColumnInfo(name = "description")
+  public abstract String getDescription();
+
+  /** Time in millis at which the summary was last fetched from the remote data store. */
+  @CopyAnnotations
+  @ColumnInfo(name = "cached_at")
+  public abstract long getCachedAt();
+
+  public static ProjectSummaryEntity fromProject(String userId, Project project, long cachedAt) {
+    return ProjectSummaryEntity.builder()
+        .setUserId(userId)
+        .setId(project.getId())
+        .setTitle(project.getTitle())
+        .setDescription(project.getDescription())
+        .setCachedAt(cachedAt)
+        .build();
+  }
+
+  public static Project toProject(ProjectSummaryEntity entity) {
+    return Project.newBuilder()
+        .setId(entity.getId())
+        .setTitle(entity.getTitle())
+        .setDescription(entity.getDescription())
+        .build();
+  }
+
+  public static Builder builder() {
+    return new AutoValue_ProjectSummaryEntity.Builder();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+
+    public abstract Builder setUserId(String userId);
+
+    public abstract Builder setId(String id);
+
+    public abstract Builder setTitle(String title);
+
+    public abstract Builder setDescription(String description);
+
+    public abstract Builder setCachedAt(long cachedAt);
+
+    public abstract ProjectSummaryEntity build();
+  }
+}
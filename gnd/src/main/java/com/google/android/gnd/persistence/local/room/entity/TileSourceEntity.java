@@ -17,8 +17,10 @@
 package com.google.android.gnd.persistence.local.room.entity;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import com.google.android.gnd.model.basemap.tile.TileSource;
 import com.google.android.gnd.persistence.local.room.models.TileEntityState;
@@ -26,7 +28,9 @@ import com.google.auto.value.AutoValue;
 import com.google.auto.value.AutoValue.CopyAnnotations;
 
 @AutoValue
-@Entity(tableName = "tile_sources")
+@Entity(
+    tableName = "tile_sources",
+    indices = {@Index(value = "url", unique = true), @Index({"path", "id"}), @Index("state")})
 public abstract class TileSourceEntity {
   @CopyAnnotations
   @NonNull
@@ -54,6 +58,19 @@ public abstract class TileSourceEntity {
   @ColumnInfo(name = "basemap_count")
   public abstract int getBasemapReferenceCount();
 
+  @CopyAnnotations
+  @ColumnInfo(name = "byte_count")
+  public abstract long getByteCount();
+
+  @CopyAnnotations
+  @Nullable
+  @ColumnInfo(name = "checksum")
+  public abstract String getChecksum();
+
+  @CopyAnnotations
+  @ColumnInfo(name = "last_accessed")
+  public abstract long getLastAccessed();
+
   public static TileSource toTileSource(TileSourceEntity tileSourceEntity) {
     TileSource.Builder tile =
         TileSource.newBuilder()
@@ -61,7 +78,10 @@ public abstract class TileSourceEntity {
             .setPath(tileSourceEntity.getPath())
             .setState(toTileState(tileSourceEntity.getState()))
             .setUrl(tileSourceEntity.getUrl())
-            .setBasemapReferenceCount(tileSourceEntity.getBasemapReferenceCount());
+            .setBasemapReferenceCount(tileSourceEntity.getBasemapReferenceCount())
+            .setByteCount(tileSourceEntity.getByteCount())
+            .setChecksum(tileSourceEntity.getChecksum())
+            .setLastAccessed(tileSourceEntity.getLastAccessed());
     return tile.build();
   }
 
@@ -87,11 +107,14 @@ public abstract class TileSourceEntity {
             .setPath(tileSource.getPath())
             .setState(toEntityState(tileSource.getState()))
             .setUrl(tileSource.getUrl())
-            .setBasemapReferenceCount(tileSource.getBasemapReferenceCount());
+            .setBasemapReferenceCount(tileSource.getBasemapReferenceCount())
+            .setByteCount(tileSource.getByteCount())
+            .setChecksum(tileSource.getChecksum())
+            .setLastAccessed(tileSource.getLastAccessed());
     return entity.build();
   }
 
-  private static TileEntityState toEntityState(TileSource.State state) {
+  public static TileEntityState toEntityState(TileSource.State state) {
     switch (state) {
       case PENDING:
         return TileEntityState.PENDING;
@@ -107,13 +130,23 @@ public abstract class TileSourceEntity {
   }
 
   public static TileSourceEntity create(
-      String id, String path, TileEntityState state, String url, int basemapReferenceCount) {
+      String id,
+      String path,
+      TileEntityState state,
+      String url,
+      int basemapReferenceCount,
+      long byteCount,
+      @Nullable String checksum,
+      long lastAccessed) {
     return builder()
         .setId(id)
         .setState(state)
         .setPath(path)
         .setUrl(url)
         .setBasemapReferenceCount(basemapReferenceCount)
+        .setByteCount(byteCount)
+        .setChecksum(checksum)
+        .setLastAccessed(lastAccessed)
         .build();
   }
 
@@ -133,6 +166,12 @@ public abstract class TileSourceEntity {
 
     public abstract Builder setBasemapReferenceCount(int basemapReferenceCount);
 
+    public abstract Builder setByteCount(long byteCount);
+
+    public abstract Builder setChecksum(@Nullable String checksum);
+
+    public abstract Builder setLastAccessed(long lastAccessed);
+
     public abstract TileSourceEntity build();
   }
 }
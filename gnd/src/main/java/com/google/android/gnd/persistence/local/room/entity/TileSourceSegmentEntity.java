@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.persistence.local.room.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import com.google.android.gnd.model.basemap.tile.TileSourceSegment;
+import com.google.auto.value.AutoValue;
+import com.google.auto.value.AutoValue.CopyAnnotations;
+
+/**
+ * Progress of one segment of a tile source being downloaded in parallel segments. Rows are removed
+ * automatically when the tile source is deleted.
+ */
+@AutoValue
+@Entity(
+    tableName = "tile_source_segments",
+    primaryKeys = {"tile_source_id", "start_offset"},
+    foreignKeys = {
+      @ForeignKey(
+          entity = TileSourceEntity.class,
+          parentColumns = "id",
+          childColumns = "tile_source_id",
+          onDelete = ForeignKey.CASCADE)
+    })
+public abstract class TileSourceSegmentEntity {
+  @CopyAnnotations
+  @NonNull
+  @ColumnInfo(name = "tile_source_id")
+  public abstract String getTileSourceId();
+
+  @CopyAnnotations
+  @ColumnInfo(name = "start_offset")
+  public abstract long getStartOffset();
+
+  @CopyAnnotations
+  @ColumnInfo(name = "end_offset")
+  public abstract long getEndOffset();
+
+  @CopyAnnotations
+  @ColumnInfo(name = "bytes_written")
+  public abstract long getBytesWritten();
+
+  public static TileSourceSegment toSegment(TileSourceSegmentEntity entity) {
+    return TileSourceSegment.create(
+        entity.getStartOffset(), entity.getEndOffset(), entity.getBytesWritten());
+  }
+
+  public static TileSourceSegmentEntity fromSegment(
+      String tileSourceId, TileSourceSegment segment) {
+    return create(
+        tileSourceId, segment.getStart(), segment.getEnd(), segment.getBytesWritten());
+  }
+
+  public static TileSourceSegmentEntity create(
+      String tileSourceId, long startOffset, long endOffset, long bytesWritten) {
+    return new AutoValue_TileSourceSegmentEntity(
+        tileSourceId, startOffset, endOffset, bytesWritten);
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.local.room.models;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Embedded;
+import com.google.android.gnd.model.observation.FeatureObservationCount;
+import com.google.auto.value.AutoValue;
+import com.google.auto.value.AutoValue.CopyAnnotations;
+
+/** Row returned by queries counting the observations of each feature in the local db. */
+@AutoValue
+public abstract class ObservationCount {
+
+  @CopyAnnotations
+  @NonNull
+  @ColumnInfo(name = "feature_id")
+  public abstract String getFeatureId();
+
+  @CopyAnnotations
+  @NonNull
+  @Embedded
+  public abstract Coordinates getLocation();
+
+  @CopyAnnotations
+  @ColumnInfo(name = "observation_count")
+  public abstract int getObservationCount();
+
+  public FeatureObservationCount toFeatureObservationCount() {
+    return FeatureObservationCount.create(
+        getFeatureId(), getLocation().toPoint(), getObservationCount());
+  }
+
+  public static ObservationCount create(
+      String featureId, Coordinates location, int observationCount) {
+    return new AutoValue_ObservationCount(featureId, location, observationCount);
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.mbtiles;
+
+import android.content.Context;
+import com.google.common.hash.Hashing;
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.util.Properties;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import timber.log.Timber;
+
+/**
+ * Local cache of offline basemap footprint files, keyed by URL. Cached copies are revalidated with
+ * conditional GET requests (If-None-Match / If-Modified-Since), so unchanged files are never
+ * downloaded twice. Each cached file is accompanied by a metadata sidecar holding its validators
+ * and by the persisted {@link TileSetIndex} written by {@link MbtilesFootprintParser}.
+ */
+@Singleton
+public class FootprintFileCache {
+
+  /** Subdirectory of the app's file directory in which footprint files are cached. */
+  private static final String CACHE_DIR = "footprints";
+
+  private static final String FILE_SUFFIX = ".geojson";
+  private static final String METADATA_SUFFIX = ".meta";
+  private static final String ETAG_KEY = "etag";
+  private static final String LAST_MODIFIED_KEY = "lastModified";
+
+  private static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+  private static final int READ_TIMEOUT_MILLIS = 60_000;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File cacheDir;
+  private final MbtilesFootprintParser parser;
+
+  @Inject
+  FootprintFileCache(@ApplicationContext Context context, MbtilesFootprintParser parser) {
+    this(new File(context.getFilesDir(), CACHE_DIR), parser);
+  }
+
+  FootprintFileCache(File cacheDir, MbtilesFootprintParser parser) {
+    this.cacheDir = cacheDir;
+    this.parser = parser;
+  }
+
+  /**
+   * Returns the index of the footprint file at the specified URL, first revalidating the cached
+   * copy with the server and downloading the file if it has changed. If the server can't be
+   * reached, falls back to the cached copy.
+   *
+   * @throws IOException if the file isn't cached and can't be downloaded, or can't be parsed
+   */
+  public synchronized TileSetIndex getIndex(URL url) throws IOException {
+    File file = getFile(url);
+    try {
+      revalidate(url, file);
+    } catch (IOException e) {
+      if (!file.exists()) {
+        throw e;
+      }
+      Timber.w(e, "Unable to revalidate footprint file, using cached copy: %s", url);
+    }
+    return parser.getIndex(file);
+  }
+
+  /**
+   * Returns the index of the cached copy of the footprint file at the specified URL. Never accesses
+   * the network.
+   *
+   * @throws FileNotFoundException if the file hasn't been cached
+   * @throws IOException if the cached file can't be parsed
+   */
+  public TileSetIndex getCachedIndex(URL url) throws IOException {
+    File file = getFile(url);
+    if (!file.exists()) {
+      throw new FileNotFoundException("Footprint file not cached: " + url);
+    }
+    return parser.getIndex(file);
+  }
+
+  File getFile(URL url) {
+    String key = Hashing.sha256().hashString(url.toString(), Charset.forName("UTF-8")).toString();
+    return new File(cacheDir, key + FILE_SUFFIX);
+  }
+
+  private static File getMetadataFile(File file) {
+    return new File(file.getPath() + METADATA_SUFFIX);
+  }
+
+  /** Downloads the file at {@code url} to {@code file} unless the cached copy is up-to-date. */
+  private void revalidate(URL url, File file) throws IOException {
+    URLConnection connection = url.openConnection();
+    connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+    connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+    if (!(connection instanceof HttpURLConnection)) {
+      // Validators only apply to HTTP; always copy from other sources.
+      save(connection.getInputStream(), file, new Properties());
+      return;
+    }
+    HttpURLConnection httpConnection = (HttpURLConnection) connection;
+    Properties metadata = file.exists() ? readMetadata(file) : new Properties();
+    String etag = metadata.getProperty(ETAG_KEY);
+    String lastModified = metadata.getProperty(LAST_MODIFIED_KEY);
+    if (etag != null) {
+      httpConnection.setRequestProperty("If-None-Match", etag);
+    }
+    if (lastModified != null) {
+      httpConnection.setRequestProperty("If-Modified-Since", lastModified);
+    }
+    int responseCode = httpConnection.getResponseCode();
+    if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+      Timber.d("Footprint file not modified: %s", url);
+      httpConnection.getInputStream().close();
+      return;
+    }
+    if (responseCode != HttpURLConnection.HTTP_OK) {
+      throw new IOException("Unexpected HTTP response " + responseCode + " for " + url);
+    }
+    Properties newMetadata = new Properties();
+    putIfNotNull(newMetadata, ETAG_KEY, httpConnection.getHeaderField("ETag"));
+    putIfNotNull(newMetadata, LAST_MODIFIED_KEY, httpConnection.getHeaderField("Last-Modified"));
+    Timber.d("Downloading footprint file: %s", url);
+    save(httpConnection.getInputStream(), file, newMetadata);
+  }
+
+  private static void putIfNotNull(Properties properties, String key, String value) {
+    if (value != null) {
+      properties.setProperty(key, value);
+    }
+  }
+
+  /**
+   * Writes the stream to {@code file} via a temp file so that an interrupted download never
+   * replaces a good copy, then writes the metadata and discards the stale persisted index.
+   */
+  private static void save(InputStream inputStream, File file, Properties metadata)
+      throws IOException {
+    File dir = file.getParentFile();
+    if (dir != null && !dir.exists() && !dir.mkdirs()) {
+      throw new IOException("Unable to create dir " + dir);
+    }
+    File tempFile = new File(file.getPath() + ".tmp");
+    try (InputStream in = inputStream;
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+    }
+    File indexFile = MbtilesFootprintParser.getIndexFile(file);
+    if (indexFile.exists() && !indexFile.delete()) {
+      Timber.w("Unable to delete stale index %s", indexFile);
+    }
+    if (!tempFile.renameTo(file)) {
+      throw new IOException("Unable to rename " + tempFile + " to " + file);
+    }
+    try (OutputStream out = new FileOutputStream(getMetadataFile(file))) {
+      metadata.store(out, null);
+    }
+  }
+
+  private static Properties readMetadata(File file) {
+    Properties metadata = new Properties();
+    File metadataFile = getMetadataFile(file);
+    if (!metadataFile.exists()) {
+      return metadata;
+    }
+    try (InputStream in = new FileInputStream(metadataFile)) {
+      metadata.load(in);
+    } catch (IOException e) {
+      Timber.w(e, "Ignoring unreadable metadata %s", metadataFile);
+    }
+    return metadata;
+  }
+}
@@ -16,107 +16,339 @@
 
 package com.google.android.gnd.persistence.mbtiles;
 
-import static com.google.android.gnd.util.ImmutableListCollector.toImmutableList;
-import static java8.util.stream.StreamSupport.stream;
-
+import android.util.JsonReader;
+import android.util.JsonToken;
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gnd.model.basemap.tile.TileSource;
 import com.google.android.gnd.model.basemap.tile.TileSource.State;
 import com.google.android.gnd.persistence.uuid.OfflineUuidGenerator;
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 import javax.inject.Inject;
-import org.apache.commons.io.FileUtils;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import javax.inject.Singleton;
 import timber.log.Timber;
 
+/**
+ * Parses offline basemap footprint files. Footprints are GeoJSON FeatureCollections in which each
+ * feature is a tile set with an id specifying cartesian coordinates, a polygon geometry describing
+ * its extents, and a "url" property specifying the source of the tile imagery.
+ *
+ * <p>Footprint files are parsed in a single streaming pass into a {@link TileSetIndex}, which is
+ * persisted alongside the footprint file so that subsequent queries needn't parse it again.
+ */
+@Singleton
 public class MbtilesFootprintParser {
 
   private static final String FEATURES_KEY = "features";
+  private static final String GEOMETRY_KEY = "geometry";
+  private static final String COORDINATES_KEY = "coordinates";
+  private static final String TYPE_KEY = "type";
+  private static final String POLYGON_TYPE = "Polygon";
+  private static final String ID_KEY = "id";
+  private static final String PROPERTIES_KEY = "properties";
+  private static final String URL_KEY = "url";
   private static final String JSON_SOURCE_CHARSET = "UTF-8";
 
+  /** Suffix appended to footprint file names to get the name of their persisted index. */
+  private static final String INDEX_FILE_SUFFIX = ".idx";
+
   private final OfflineUuidGenerator uuidGenerator;
 
+  /** The most recently loaded index, along with the footprint file it was loaded for. */
+  @Nullable private File cachedIndexSource;
+  private long cachedIndexSourceLastModified;
+  @Nullable private TileSetIndex cachedIndex;
+
   @Inject
   MbtilesFootprintParser(OfflineUuidGenerator uuidGenerator) {
     this.uuidGenerator = uuidGenerator;
   }
 
+  /** Returns the immutable list of tiles in {@param index} that intersect {@param bounds}. */
+  public ImmutableList<TileSource> intersectingTiles(LatLngBounds bounds, TileSetIndex index) {
+    return tilesAt(index, Ints.asList(index.findIntersecting(bounds)));
+  }
+
+  /** Returns the tiles at the specified positions in {@param index}, in the same order. */
+  public ImmutableList<TileSource> tilesAt(TileSetIndex index, Iterable<Integer> positions) {
+    ImmutableList.Builder<TileSource> tiles = ImmutableList.builder();
+    // Footprint files may list the same source more than once; keep one tile per URL.
+    Set<String> urls = new HashSet<>();
+    for (int i : positions) {
+      TileSource tile = toTileSource(index, i);
+      if (urls.add(tile.getUrl())) {
+        tiles.add(tile.incrementAreaCount());
+      }
+    }
+    return tiles.build();
+  }
+
   /**
-   * Returns the immutable list of tiles specified in {@param geojson} that intersect {@param
-   * bounds}.
+   * Returns the index of the specified footprint file, loading it from its persisted copy if it's
+   * up-to-date, or otherwise parsing the footprint file and persisting the result.
    */
-  public ImmutableList<TileSource> intersectingTiles(LatLngBounds bounds, File file) {
-    try {
-      String fileContents = FileUtils.readFileToString(file, Charset.forName(JSON_SOURCE_CHARSET));
-      // TODO: Separate parsing and intersection checks, make asyc (single, completable).
-      JSONObject geoJson = new JSONObject(fileContents);
-      // TODO: Make features constant.
-      JSONArray features = geoJson.getJSONArray(FEATURES_KEY);
-
-      return stream(toArrayList(features))
-          .map(TileSetSource::new)
-          .filter(tile -> tile.boundsIntersect(bounds))
-          .map(this::jsonToTileSource)
-          .map(TileSource::incrementAreaCount)
-          .collect(toImmutableList());
-
-    } catch (JSONException | IOException e) {
-      Timber.e(e, "Unable to parse JSON");
-    }
-
-    return ImmutableList.of();
+  public synchronized TileSetIndex getIndex(File footprintFile) throws IOException {
+    long lastModified = footprintFile.lastModified();
+    if (cachedIndex != null
+        && footprintFile.equals(cachedIndexSource)
+        && lastModified == cachedIndexSourceLastModified) {
+      return cachedIndex;
+    }
+    File indexFile = getIndexFile(footprintFile);
+    TileSetIndex index = null;
+    if (indexFile.exists() && indexFile.lastModified() >= lastModified) {
+      index = readIndex(indexFile);
+    }
+    if (index == null) {
+      try (InputStream in = new BufferedInputStream(new FileInputStream(footprintFile))) {
+        index = parseIndex(in);
+      }
+      writeIndex(index, indexFile);
+    }
+    cachedIndexSource = footprintFile;
+    cachedIndexSourceLastModified = lastModified;
+    cachedIndex = index;
+    return index;
+  }
+
+  /** Returns the file in which the index of the specified footprint file is persisted. */
+  static File getIndexFile(File footprintFile) {
+    return new File(footprintFile.getPath() + INDEX_FILE_SUFFIX);
+  }
+
+  @Nullable
+  private static TileSetIndex readIndex(File indexFile) {
+    try (InputStream in = new BufferedInputStream(new FileInputStream(indexFile))) {
+      return TileSetIndex.readFrom(in);
+    } catch (IOException e) {
+      Timber.w(e, "Ignoring unreadable tile set index %s", indexFile);
+      return null;
+    }
+  }
+
+  private static void writeIndex(TileSetIndex index, File indexFile) {
+    // Write to a temp file first so that an interrupted write never leaves a truncated index.
+    File tempFile = new File(indexFile.getPath() + ".tmp");
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+      index.writeTo(out);
+    } catch (IOException e) {
+      Timber.w(e, "Unable to write tile set index %s", indexFile);
+      return;
+    }
+    if (!tempFile.renameTo(indexFile)) {
+      Timber.w("Unable to rename %s to %s", tempFile, indexFile);
+    }
   }
 
   /**
-   * Converts a JSONArray to an array of JSONObjects. Provided for compatibility with java8 streams.
-   * JSONArray itself only inherits from Object, and is not convertible to a stream.
+   * Parses a footprint GeoJSON document in a single streaming pass, retaining only the id, url and
+   * footprint of each tile set. Features missing any of these are skipped.
    */
-  private static List<JSONObject> toArrayList(JSONArray arr) {
-    List<JSONObject> result = new ArrayList<>();
-
-    for (int i = 0; i < arr.length(); i++) {
-      try {
-        result.add(arr.getJSONObject(i));
-      } catch (JSONException e) {
-        Timber.e(e, "Ignoring error in JSON array");
+  public TileSetIndex parseIndex(InputStream in) throws IOException {
+    TileSetIndex.Builder index = TileSetIndex.newBuilder();
+    try (JsonReader reader =
+        new JsonReader(new InputStreamReader(in, Charset.forName(JSON_SOURCE_CHARSET)))) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (reader.nextName().equals(FEATURES_KEY)) {
+          reader.beginArray();
+          while (reader.hasNext()) {
+            readFeature(reader, index);
+          }
+          reader.endArray();
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+    } catch (IllegalStateException | NumberFormatException e) {
+      // JsonReader signals malformed documents with unchecked exceptions.
+      throw new IOException("Malformed footprint file", e);
+    }
+    return index.build();
+  }
+
+  private static void readFeature(JsonReader reader, TileSetIndex.Builder index)
+      throws IOException {
+    String id = null;
+    String url = null;
+    Geometry geometry = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case ID_KEY:
+          id = readOptionalString(reader);
+          break;
+        case PROPERTIES_KEY:
+          url = readUrl(reader);
+          break;
+        case GEOMETRY_KEY:
+          geometry = readGeometry(reader);
+          break;
+        default:
+          reader.skipValue();
+          break;
+      }
+    }
+    reader.endObject();
+    if (id == null || id.isEmpty() || url == null || url.isEmpty() || geometry == null) {
+      Timber.w("Skipping incomplete tile set in footprint file: %s", id);
+      return;
+    }
+    if (POLYGON_TYPE.equals(geometry.type)) {
+      index.addPolygon(id, url, geometry.getExteriorRing());
+    } else {
+      // Only the bounding box is used for other geometry types.
+      index.add(id, url, geometry.south, geometry.west, geometry.north, geometry.east);
+    }
+  }
+
+  @Nullable
+  private static String readOptionalString(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    // Also accepts numbers, returning their string representation.
+    return reader.nextString();
+  }
+
+  @Nullable
+  private static String readUrl(JsonReader reader) throws IOException {
+    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+      reader.skipValue();
+      return null;
+    }
+    String url = null;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (reader.nextName().equals(URL_KEY)) {
+        url = readOptionalString(reader);
+      } else {
+        reader.skipValue();
       }
     }
+    reader.endObject();
+    return url;
+  }
 
-    return result;
+  /** Reads a GeoJSON geometry object, returning null if it has no coordinates. */
+  @Nullable
+  private static Geometry readGeometry(JsonReader reader) throws IOException {
+    if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+      reader.skipValue();
+      return null;
+    }
+    Geometry geometry = new Geometry();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case TYPE_KEY:
+          geometry.type = readOptionalString(reader);
+          break;
+        case COORDINATES_KEY:
+          readCoordinates(reader, geometry);
+          break;
+        default:
+          reader.skipValue();
+          break;
+      }
+    }
+    reader.endObject();
+    return geometry.isEmpty() ? null : geometry;
   }
 
-  private static List<JSONObject> getFeaturesArray(String jsonString) {
-    try {
-      // TODO: Separate parsing and intersection checks, make asyc (single, completable).
-      JSONObject geoJson = new JSONObject(jsonString);
-      // TODO: Make features constant.
-      return toArrayList(geoJson.getJSONArray(FEATURES_KEY));
-    } catch (JSONException e) {
-      Timber.e(e, "Unable to parse JSON");
+  /**
+   * Reads the coordinate array at the reader's current position into {@param geometry},
+   * regardless of nesting depth.
+   */
+  private static void readCoordinates(JsonReader reader, Geometry geometry) throws IOException {
+    reader.beginArray();
+    if (reader.peek() == JsonToken.NUMBER) {
+      // GeoJSON positions are ordered longitude, latitude[, altitude].
+      double lng = reader.nextDouble();
+      double lat = reader.nextDouble();
+      while (reader.hasNext()) {
+        reader.skipValue();
+      }
+      geometry.addPosition(lat, lng);
+    } else {
+      while (reader.hasNext()) {
+        readCoordinates(reader, geometry);
+      }
+      geometry.endArray();
     }
-    return ImmutableList.of();
+    reader.endArray();
   }
 
-  public ImmutableList<TileSetSource> getGeoJsonTiles(String jsonString) {
-    return stream(getFeaturesArray(jsonString)).map(TileSetSource::new).collect(toImmutableList());
+  /**
+   * Bounding box and exterior ring of a geometry accumulated while streaming its coordinates. For
+   * polygons, the first ring is the exterior ring; subsequent rings are holes within it and so
+   * don't affect the bounding box.
+   */
+  private static class Geometry {
+    @Nullable String type;
+    double south = Double.POSITIVE_INFINITY;
+    double west = Double.POSITIVE_INFINITY;
+    double north = Double.NEGATIVE_INFINITY;
+    double east = Double.NEGATIVE_INFINITY;
+
+    /** Vertices of the first ring, packed as latitude, longitude pairs. */
+    private double[] exteriorRing = new double[10];
+
+    private int exteriorRingLength;
+    private boolean exteriorRingComplete;
+
+    void addPosition(double lat, double lng) {
+      south = Math.min(south, lat);
+      west = Math.min(west, lng);
+      north = Math.max(north, lat);
+      east = Math.max(east, lng);
+      if (exteriorRingComplete) {
+        return;
+      }
+      if (exteriorRingLength + 2 > exteriorRing.length) {
+        exteriorRing = Arrays.copyOf(exteriorRing, exteriorRing.length * 2);
+      }
+      exteriorRing[exteriorRingLength++] = lat;
+      exteriorRing[exteriorRingLength++] = lng;
+    }
+
+    /** Called at the end of each array of positions or arrays. */
+    void endArray() {
+      exteriorRingComplete = exteriorRingLength > 0;
+    }
+
+    boolean isEmpty() {
+      return south > north;
+    }
+
+    double[] getExteriorRing() {
+      return Arrays.copyOf(exteriorRing, exteriorRingLength);
+    }
   }
 
-  /** Returns the {@link TileSource} specified by {@param json}. */
-  private TileSource jsonToTileSource(TileSetSource json) {
-    // TODO: Instead of returning tiles with invalid state (empty URL/ID values)
-    // Throw an exception here and handle it downstream.
+  /** Returns a new pending {@link TileSource} for the tile set at position {@code i}. */
+  private TileSource toTileSource(TileSetIndex index, int i) {
     return TileSource.newBuilder()
         .setId(uuidGenerator.generateUuid())
-        .setUrl(json.getUrl().orElse(""))
+        .setUrl(index.getUrl(i))
         .setState(State.PENDING)
-        .setPath(TileSource.pathFromId(json.getId().orElse("")))
+        .setPath(TileSource.pathFromId(index.getId(i)))
         .setBasemapReferenceCount(0)
         .build();
   }
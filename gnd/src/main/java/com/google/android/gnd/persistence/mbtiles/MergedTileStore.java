@@ -0,0 +1,280 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.mbtiles;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gnd.rx.Nil;
+import com.google.android.gnd.rx.annotations.Cold;
+import com.google.android.gnd.rx.annotations.Hot;
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import io.reactivex.Flowable;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+import java.io.File;
+import java.util.Collection;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * A single SQLite store holding the tiles of all downloaded tile sources, so that offline imagery
+ * can be drawn from one overlay backed by one open database instead of one per tile source file.
+ * Tiles present in several sources (typically those at low zoom levels) are stored once, while the
+ * sources holding each tile are recorded separately so that a tile is only removed along with the
+ * last source which contains it.
+ *
+ * <p>Tiles are keyed by zoom level, column and row as in the MBTiles spec, i.e., with rows
+ * numbered from the bottom (TMS) rather than from the top as requested by the map.
+ */
+@Singleton
+public class MergedTileStore {
+
+  /** Name of the store's file in the app's file directory. */
+  private static final String FILE_NAME = "merged_tiles.db";
+
+  private static final String CREATE_TILES =
+      "CREATE TABLE IF NOT EXISTS tiles (zoom_level INTEGER NOT NULL, "
+          + "tile_column INTEGER NOT NULL, tile_row INTEGER NOT NULL, tile_data BLOB, "
+          + "PRIMARY KEY (zoom_level, tile_column, tile_row))";
+
+  private static final String CREATE_TILE_SOURCES =
+      "CREATE TABLE IF NOT EXISTS tile_sources (zoom_level INTEGER NOT NULL, "
+          + "tile_column INTEGER NOT NULL, tile_row INTEGER NOT NULL, path TEXT NOT NULL, "
+          + "PRIMARY KEY (zoom_level, tile_column, tile_row, path))";
+
+  private static final String CREATE_TILE_SOURCES_PATH_INDEX =
+      "CREATE INDEX IF NOT EXISTS tile_sources_path ON tile_sources (path)";
+
+  private static final String CREATE_MERGED_PATHS =
+      "CREATE TABLE IF NOT EXISTS merged_paths (path TEXT PRIMARY KEY NOT NULL)";
+
+  /**
+   * Holds the keys of the tiles of the sources being removed, so that only those tiles are checked
+   * for remaining sources rather than every tile in the store.
+   */
+  private static final String CREATE_REMOVED_TILES =
+      "CREATE TEMP TABLE removed_tiles (zoom_level INTEGER NOT NULL, "
+          + "tile_column INTEGER NOT NULL, tile_row INTEGER NOT NULL, "
+          + "PRIMARY KEY (zoom_level, tile_column, tile_row))";
+
+  private static final String TILE_KEY = "zoom_level = ? AND tile_column = ? AND tile_row = ?";
+
+  /** Separates the paths of the sources of a tile, which never contain line breaks. */
+  private static final char PATH_SEPARATOR = '\n';
+
+  private final File file;
+
+  /** Emits each time tiles are added to or removed from the store. */
+  @Hot
+  private final FlowableProcessor<Nil> changes = PublishProcessor.<Nil>create().toSerialized();
+
+  @Nullable private SQLiteDatabase db;
+
+  @Inject
+  MergedTileStore(@ApplicationContext Context context) {
+    this(new File(context.getFilesDir(), FILE_NAME));
+  }
+
+  @VisibleForTesting
+  MergedTileStore(File file) {
+    this.file = file;
+  }
+
+  private synchronized SQLiteDatabase getDatabase() {
+    if (db == null) {
+      db = SQLiteDatabase.openOrCreateDatabase(file, null);
+      // Lets the map read tiles while a merge is being written.
+      db.enableWriteAheadLogging();
+      // Only takes effect before the tables are first created.
+      db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+      db.execSQL(CREATE_TILES);
+      db.execSQL(CREATE_TILE_SOURCES);
+      db.execSQL(CREATE_TILE_SOURCES_PATH_INDEX);
+      db.execSQL(CREATE_MERGED_PATHS);
+    }
+    return db;
+  }
+
+  /**
+   * Returns a long-lived stream which emits this store on subscribe and each time its tiles
+   * change.
+   */
+  @Cold(terminates = false)
+  public Flowable<MergedTileStore> getChangesOnceAndStream() {
+    return changes.startWith(Nil.NIL).onBackpressureLatest().map(__ -> this);
+  }
+
+  /**
+   * Returns the specified tile along with the paths of the merged sources which contain it, or null
+   * if no merged source contains it. {@code y} is numbered from the top, as used by map tile
+   * providers. Both are read in a single query, since this is called for every tile drawn.
+   */
+  @Nullable
+  public MergedTile getTile(int x, int y, int zoom) {
+    try (Cursor cursor =
+        getDatabase()
+            .rawQuery(
+                "SELECT tile_data, (SELECT group_concat(path, '"
+                    + PATH_SEPARATOR
+                    + "') FROM tile_sources s WHERE s.zoom_level = t.zoom_level "
+                    + "AND s.tile_column = t.tile_column AND s.tile_row = t.tile_row) "
+                    + "FROM tiles t WHERE "
+                    + TILE_KEY,
+                tileKey(x, y, zoom))) {
+      if (!cursor.moveToFirst()) {
+        return null;
+      }
+      ImmutableSet<String> paths =
+          cursor.isNull(1)
+              ? ImmutableSet.of()
+              : ImmutableSet.copyOf(Splitter.on(PATH_SEPARATOR).split(cursor.getString(1)));
+      return MergedTile.create(cursor.getBlob(0), paths);
+    }
+  }
+
+  /** Returns the paths of all tile sources whose tiles have been merged into this store. */
+  public ImmutableSet<String> getMergedPaths() {
+    try (Cursor cursor = getDatabase().rawQuery("SELECT path FROM merged_paths", null)) {
+      return readPaths(cursor);
+    }
+  }
+
+  /**
+   * Copies all tiles of the specified MBTiles file into the store in a single transaction, skipping
+   * tiles which are already present, and records the file as merged under {@code path}. Blocks
+   * until done, so must not be called on the main thread.
+   *
+   * @return the number of bytes of tile data added to the store. Tiles already present are counted
+   *     against the source which first added them.
+   */
+  public long merge(File sourceFile, String path) {
+    SQLiteDatabase source =
+        SQLiteDatabase.openDatabase(sourceFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+    SQLiteDatabase db = getDatabase();
+    // Rows are copied over a separate connection rather than with ATTACH, since attaching a
+    // database permanently disables write-ahead logging on Android.
+    long byteCount = 0;
+    db.beginTransactionNonExclusive();
+    try (Cursor cursor =
+            source.rawQuery(
+                "SELECT zoom_level, tile_column, tile_row, tile_data FROM tiles", null);
+        SQLiteStatement insertTile =
+            db.compileStatement(
+                "INSERT OR IGNORE INTO tiles (zoom_level, tile_column, tile_row, tile_data) "
+                    + "VALUES (?, ?, ?, ?)");
+        SQLiteStatement insertTileSource =
+            db.compileStatement(
+                "INSERT OR IGNORE INTO tile_sources (zoom_level, tile_column, tile_row, path) "
+                    + "VALUES (?, ?, ?, ?)")) {
+      insertTileSource.bindString(4, path);
+      while (cursor.moveToNext()) {
+        for (int i = 0; i < 3; i++) {
+          insertTile.bindLong(i + 1, cursor.getLong(i));
+          insertTileSource.bindLong(i + 1, cursor.getLong(i));
+        }
+        byte[] data = cursor.getBlob(3);
+        insertTile.bindBlob(4, data);
+        if (insertTile.executeInsert() != -1) {
+          byteCount += data.length;
+        }
+        insertTileSource.executeInsert();
+      }
+      db.execSQL("INSERT OR IGNORE INTO merged_paths (path) VALUES (?)", new Object[] {path});
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+      source.close();
+    }
+    changes.onNext(Nil.NIL);
+    return byteCount;
+  }
+
+  /**
+   * Removes the tile sources with the specified paths from the store, deleting tiles which no
+   * longer belong to any remaining source. Blocks until done, so must not be called on the main
+   * thread.
+   */
+  public void remove(Collection<String> paths) {
+    if (paths.isEmpty()) {
+      return;
+    }
+    SQLiteDatabase db = getDatabase();
+    db.beginTransactionNonExclusive();
+    try {
+      db.execSQL(CREATE_REMOVED_TILES);
+      for (String path : paths) {
+        db.execSQL(
+            "INSERT OR IGNORE INTO removed_tiles SELECT zoom_level, tile_column, tile_row "
+                + "FROM tile_sources WHERE path = ?",
+            new Object[] {path});
+        db.delete("tile_sources", "path = ?", new String[] {path});
+        db.delete("merged_paths", "path = ?", new String[] {path});
+      }
+      db.execSQL(
+          "DELETE FROM tiles WHERE rowid IN (SELECT t.rowid FROM removed_tiles r "
+              + "JOIN tiles t ON t.zoom_level = r.zoom_level AND t.tile_column = r.tile_column "
+              + "AND t.tile_row = r.tile_row WHERE NOT EXISTS (SELECT 1 FROM tile_sources s "
+              + "WHERE s.zoom_level = r.zoom_level AND s.tile_column = r.tile_column "
+              + "AND s.tile_row = r.tile_row))");
+      db.execSQL("DROP TABLE removed_tiles");
+      db.setTransactionSuccessful();
+    } finally {
+      db.endTransaction();
+    }
+    // Returns pages freed by the deletes to the file system. Run as a query since the pragma
+    // yields a row for each page freed.
+    try (Cursor cursor = db.rawQuery("PRAGMA incremental_vacuum", null)) {
+      cursor.getCount();
+    }
+    changes.onNext(Nil.NIL);
+  }
+
+  private static String[] tileKey(int x, int y, int zoom) {
+    int row = (1 << zoom) - 1 - y;
+    return new String[] {String.valueOf(zoom), String.valueOf(x), String.valueOf(row)};
+  }
+
+  private static ImmutableSet<String> readPaths(Cursor cursor) {
+    ImmutableSet.Builder<String> paths = ImmutableSet.builder();
+    while (cursor.moveToNext()) {
+      paths.add(cursor.getString(0));
+    }
+    return paths.build();
+  }
+
+  /** A tile read from the store. */
+  @AutoValue
+  public abstract static class MergedTile {
+    /** Returns the image data of the tile. */
+    @SuppressWarnings("mutable")
+    public abstract byte[] getData();
+
+    /** Returns the paths of the merged tile sources which contain the tile. */
+    public abstract ImmutableSet<String> getSourcePaths();
+
+    static MergedTile create(byte[] data, ImmutableSet<String> sourcePaths) {
+      return new AutoValue_MergedTileStore_MergedTile(data, sourcePaths);
+    }
+  }
+}
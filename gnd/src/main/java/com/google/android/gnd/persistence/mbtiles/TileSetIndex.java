@@ -0,0 +1,389 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.mbtiles;
+
+import androidx.annotation.Nullable;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gnd.util.IntArray;
+import com.google.android.gnd.util.PackedRTree;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Compact, array-backed index of the tile sets described in an offline basemap footprint file.
+ * Only the id, source URL and footprint of each tile set are retained, so the index remains small
+ * even for national-scale footprint files. Indexes can be persisted so that footprint files need
+ * not be re-parsed.
+ *
+ * <p>Footprints are stored as bounding boxes. The exterior ring of footprints which aren't
+ * axis-aligned rectangles is also stored so that intersections can be tested exactly. Queries are
+ * answered via a {@link PackedRTree} over the bounding boxes.
+ */
+public class TileSetIndex {
+
+  /** Identifies the binary format written by {@link #writeTo(OutputStream)}. */
+  private static final int FORMAT_VERSION = 2;
+
+  /** Number of values stored per entry in {@link #bounds}. */
+  private static final int BOUNDS_STRIDE = 4;
+
+  private static final int SOUTH = 0;
+  private static final int WEST = 1;
+  private static final int NORTH = 2;
+  private static final int EAST = 3;
+
+  private static final int[] EMPTY = new int[0];
+
+  private final String[] ids;
+  private final String[] urls;
+
+  /** Bounding boxes of all entries, packed as south, west, north, east. */
+  private final double[] bounds;
+
+  /**
+   * Start of each entry's exterior ring in {@link #rings}. Ring {@code i} ends at {@code
+   * ringOffsets[i + 1]}. Rings are omitted for rectangular footprints.
+   */
+  private final int[] ringOffsets;
+
+  /** Exterior ring vertices of non-rectangular footprints, packed as latitude, longitude pairs. */
+  private final double[] rings;
+
+  private final PackedRTree tree;
+
+  private TileSetIndex(
+      String[] ids, String[] urls, double[] bounds, int[] ringOffsets, double[] rings) {
+    this.ids = ids;
+    this.urls = urls;
+    this.bounds = bounds;
+    this.ringOffsets = ringOffsets;
+    this.rings = rings;
+    this.tree = new PackedRTree(bounds, ids.length);
+  }
+
+  /** Returns the number of tile sets in the index. */
+  public int size() {
+    return ids.length;
+  }
+
+  /** Returns the id of the tile set at the specified position in the index. */
+  public String getId(int i) {
+    return ids[i];
+  }
+
+  /** Returns the source URL of the tile set at the specified position in the index. */
+  public String getUrl(int i) {
+    return urls[i];
+  }
+
+  /**
+   * Returns the point within the bounding box of the tile set at position {@code i} nearest to the
+   * specified point, packed as latitude, longitude. Points inside the box are returned unchanged.
+   */
+  public double[] nearestPoint(int i, double lat, double lng) {
+    int b = i * BOUNDS_STRIDE;
+    return new double[] {
+      Math.max(bounds[b + SOUTH], Math.min(bounds[b + NORTH], lat)),
+      Math.max(bounds[b + WEST], Math.min(bounds[b + EAST], lng))
+    };
+  }
+
+  /** Returns the positions of all tile sets whose footprints intersect {@code viewport}. */
+  public int[] findIntersecting(LatLngBounds viewport) {
+    return findIntersecting(
+        viewport.southwest.latitude,
+        viewport.southwest.longitude,
+        viewport.northeast.latitude,
+        viewport.northeast.longitude);
+  }
+
+  /**
+   * Returns the positions of all tile sets whose footprints intersect the specified rectangle, in
+   * ascending order. If {@code west} is greater than {@code east}, the rectangle is assumed to
+   * cross the antimeridian.
+   */
+  public int[] findIntersecting(double south, double west, double north, double east) {
+    if (south > north) {
+      return EMPTY;
+    }
+    IntArray results = new IntArray();
+    if (west <= east) {
+      search(south, west, north, east, results);
+    } else {
+      search(south, west, north, 180, results);
+      search(south, -180, north, east, results);
+    }
+    return results.toSortedDistinctArray();
+  }
+
+  private void search(double south, double west, double north, double east, IntArray results) {
+    tree.search(
+        south,
+        west,
+        north,
+        east,
+        i -> {
+          if (intersectsRing(i, south, west, north, east)) {
+            results.add(i);
+          }
+        });
+  }
+
+  /**
+   * Returns true iff the footprint at position {@code i}, whose bounding box is already known to
+   * intersect the rectangle, intersects the rectangle itself.
+   */
+  private boolean intersectsRing(int i, double south, double west, double north, double east) {
+    int start = ringOffsets[i];
+    int end = ringOffsets[i + 1];
+    if (start == end) {
+      // Rectangular footprint; the bounding box test is exact.
+      return true;
+    }
+    // Any vertex within the rectangle.
+    for (int p = start; p < end; p += 2) {
+      if (contains(south, west, north, east, rings[p], rings[p + 1])) {
+        return true;
+      }
+    }
+    // Rectangle within the footprint; checking one corner suffices since no vertex lies within
+    // the rectangle and, if no edges cross it, it's either entirely inside or outside.
+    if (ringContains(start, end, south, west)) {
+      return true;
+    }
+    // Any edge crossing the rectangle.
+    for (int p = start; p < end; p += 2) {
+      int q = p + 2 < end ? p + 2 : start;
+      if (segmentIntersectsRect(
+          rings[p], rings[p + 1], rings[q], rings[q + 1], south, west, north, east)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean contains(
+      double south, double west, double north, double east, double lat, double lng) {
+    return lat >= south && lat <= north && lng >= west && lng <= east;
+  }
+
+  /** Even-odd ray casting test of whether the point lies within the ring. */
+  private boolean ringContains(int start, int end, double lat, double lng) {
+    boolean inside = false;
+    for (int p = start, q = end - 2; p < end; q = p, p += 2) {
+      double latP = rings[p];
+      double lngP = rings[p + 1];
+      double latQ = rings[q];
+      double lngQ = rings[q + 1];
+      if ((latP > lat) != (latQ > lat)
+          && lng < (lngQ - lngP) * (lat - latP) / (latQ - latP) + lngP) {
+        inside = !inside;
+      }
+    }
+    return inside;
+  }
+
+  /** Liang-Barsky clipping test of whether a segment passes through the rectangle. */
+  private static boolean segmentIntersectsRect(
+      double lat0,
+      double lng0,
+      double lat1,
+      double lng1,
+      double south,
+      double west,
+      double north,
+      double east) {
+    double dLat = lat1 - lat0;
+    double dLng = lng1 - lng0;
+    double[] p = {-dLng, dLng, -dLat, dLat};
+    double[] q = {lng0 - west, east - lng0, lat0 - south, north - lat0};
+    double t0 = 0;
+    double t1 = 1;
+    for (int i = 0; i < 4; i++) {
+      if (p[i] == 0) {
+        if (q[i] < 0) {
+          return false;
+        }
+      } else {
+        double t = q[i] / p[i];
+        if (p[i] < 0) {
+          t0 = Math.max(t0, t);
+        } else {
+          t1 = Math.min(t1, t);
+        }
+        if (t0 > t1) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /** Writes the index to the specified stream in a compact binary format. */
+  public void writeTo(OutputStream outputStream) throws IOException {
+    DataOutputStream out = new DataOutputStream(outputStream);
+    out.writeInt(FORMAT_VERSION);
+    out.writeInt(size());
+    for (int i = 0; i < size(); i++) {
+      out.writeUTF(ids[i]);
+      out.writeUTF(urls[i]);
+      for (int j = 0; j < BOUNDS_STRIDE; j++) {
+        out.writeDouble(bounds[i * BOUNDS_STRIDE + j]);
+      }
+      out.writeInt(ringOffsets[i + 1] - ringOffsets[i]);
+      for (int p = ringOffsets[i]; p < ringOffsets[i + 1]; p++) {
+        out.writeDouble(rings[p]);
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * Reads an index previously written with {@link #writeTo(OutputStream)}.
+   *
+   * @throws IOException if the stream can't be read or was written in an unsupported format
+   */
+  public static TileSetIndex readFrom(InputStream inputStream) throws IOException {
+    DataInputStream in = new DataInputStream(inputStream);
+    int version = in.readInt();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported tile set index version: " + version);
+    }
+    int size = in.readInt();
+    Builder builder = new Builder();
+    double[] bbox = new double[BOUNDS_STRIDE];
+    for (int i = 0; i < size; i++) {
+      String id = in.readUTF();
+      String url = in.readUTF();
+      for (int j = 0; j < BOUNDS_STRIDE; j++) {
+        bbox[j] = in.readDouble();
+      }
+      double[] ring = new double[in.readInt()];
+      for (int p = 0; p < ring.length; p++) {
+        ring[p] = in.readDouble();
+      }
+      builder.add(id, url, bbox[SOUTH], bbox[WEST], bbox[NORTH], bbox[EAST], ring);
+    }
+    return builder.build();
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /** Accumulates entries into growable arrays which are trimmed to size on {@link #build()}. */
+  public static class Builder {
+    private String[] ids = new String[64];
+    private String[] urls = new String[64];
+    private double[] bounds = new double[64 * BOUNDS_STRIDE];
+    private int[] ringOffsets = new int[65];
+    private double[] rings = new double[64];
+    private int size;
+
+    private Builder() {}
+
+    /** Adds a tile set with a rectangular footprint. */
+    public Builder add(
+        String id, String url, double south, double west, double north, double east) {
+      return add(id, url, south, west, north, east, null);
+    }
+
+    /**
+     * Adds a tile set whose footprint is a polygon with the specified exterior ring, packed as
+     * latitude, longitude pairs.
+     */
+    public Builder addPolygon(String id, String url, double[] ring) {
+      double south = Double.POSITIVE_INFINITY;
+      double west = Double.POSITIVE_INFINITY;
+      double north = Double.NEGATIVE_INFINITY;
+      double east = Double.NEGATIVE_INFINITY;
+      for (int p = 0; p < ring.length; p += 2) {
+        south = Math.min(south, ring[p]);
+        west = Math.min(west, ring[p + 1]);
+        north = Math.max(north, ring[p]);
+        east = Math.max(east, ring[p + 1]);
+      }
+      return add(id, url, south, west, north, east, ring);
+    }
+
+    private Builder add(
+        String id,
+        String url,
+        double south,
+        double west,
+        double north,
+        double east,
+        @Nullable double[] ring) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        urls = Arrays.copyOf(urls, size * 2);
+        bounds = Arrays.copyOf(bounds, size * 2 * BOUNDS_STRIDE);
+        ringOffsets = Arrays.copyOf(ringOffsets, size * 2 + 1);
+      }
+      int offset = size * BOUNDS_STRIDE;
+      ids[size] = id;
+      urls[size] = url;
+      bounds[offset + SOUTH] = south;
+      bounds[offset + WEST] = west;
+      bounds[offset + NORTH] = north;
+      bounds[offset + EAST] = east;
+      int ringStart = ringOffsets[size];
+      int ringLength =
+          ring == null || isRectangle(ring, south, west, north, east) ? 0 : ring.length;
+      if (ringStart + ringLength > rings.length) {
+        rings = Arrays.copyOf(rings, Math.max(rings.length * 2, ringStart + ringLength));
+      }
+      if (ringLength > 0) {
+        System.arraycopy(ring, 0, rings, ringStart, ringLength);
+      }
+      ringOffsets[size + 1] = ringStart + ringLength;
+      size++;
+      return this;
+    }
+
+    /** Returns true iff the ring consists of exactly the four corners of the bounding box. */
+    private static boolean isRectangle(
+        double[] ring, double south, double west, double north, double east) {
+      if (ring.length > 10) {
+        return false;
+      }
+      int cornersSeen = 0;
+      for (int p = 0; p < ring.length; p += 2) {
+        boolean isSouth = ring[p] == south;
+        boolean isWest = ring[p + 1] == west;
+        if ((!isSouth && ring[p] != north) || (!isWest && ring[p + 1] != east)) {
+          return false;
+        }
+        cornersSeen |= 1 << ((isSouth ? 0 : 2) + (isWest ? 0 : 1));
+      }
+      return cornersSeen == 0b1111;
+    }
+
+    public TileSetIndex build() {
+      return new TileSetIndex(
+          Arrays.copyOf(ids, size),
+          Arrays.copyOf(urls, size),
+          Arrays.copyOf(bounds, size * BOUNDS_STRIDE),
+          Arrays.copyOf(ringOffsets, size + 1),
+          Arrays.copyOf(rings, ringOffsets[size]));
+    }
+  }
+}
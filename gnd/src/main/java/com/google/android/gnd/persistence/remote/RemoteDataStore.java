@@ -38,6 +38,10 @@ import java.util.List;
  * subscriptions are run in a background thread (i.e., not the Android main thread).
  */
 public interface RemoteDataStore {
+  /**
+   * Loads summaries of the projects readable by the specified user. Returned {@link Project}
+   * instances are only guaranteed to include id, title, description and ACL.
+   */
   @Cold
   Single<List<Project>> loadProjectSummaries(User user);
 
@@ -17,6 +17,7 @@
 package com.google.android.gnd.persistence.remote;
 
 import android.net.Uri;
+import androidx.annotation.Nullable;
 import com.google.android.gnd.rx.annotations.Cold;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
@@ -34,5 +35,17 @@ public interface RemoteStorageManager {
 
   /** Uploads file to a remote path, streaming progress in the returned {@link Flowable}. */
   @Cold
-  Flowable<TransferProgress> uploadMediaFromFile(File file, String remoteDestinationPath);
+  default Flowable<TransferProgress> uploadMediaFromFile(File file, String remoteDestinationPath) {
+    return uploadMediaFromFile(file, remoteDestinationPath, null);
+  }
+
+  /**
+   * Uploads file to a remote path, streaming progress in the returned {@link Flowable}. If {@code
+   * sessionUri} is provided, the upload resumes the specified session rather than starting from the
+   * beginning. The session URI of the upload is reported via {@link
+   * TransferProgress#getSessionUri()}.
+   */
+  @Cold
+  Flowable<TransferProgress> uploadMediaFromFile(
+      File file, String remoteDestinationPath, @Nullable Uri sessionUri);
 }
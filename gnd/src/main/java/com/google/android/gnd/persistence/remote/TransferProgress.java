@@ -16,6 +16,9 @@
 
 package com.google.android.gnd.persistence.remote;
 
+import android.net.Uri;
+import androidx.annotation.Nullable;
+
 public class TransferProgress {
 
   private static final TransferProgress STARTING = new TransferProgress(UploadState.STARTING);
@@ -26,15 +29,18 @@ public class TransferProgress {
   private final UploadState state;
   private final int byteCount;
   private final int bytesTransferred;
+  @Nullable private final Uri sessionUri;
 
   private TransferProgress(UploadState state) {
-    this(state, 0, 0);
+    this(state, 0, 0, null);
   }
 
-  private TransferProgress(UploadState state, int byteCount, int bytesTransferred) {
+  private TransferProgress(
+      UploadState state, int byteCount, int bytesTransferred, @Nullable Uri sessionUri) {
     this.state = state;
     this.byteCount = byteCount;
     this.bytesTransferred = bytesTransferred;
+    this.sessionUri = sessionUri;
   }
 
   public static TransferProgress starting() {
@@ -42,7 +48,12 @@ public class TransferProgress {
   }
 
   public static TransferProgress inProgress(int byteCount, int bytesTransferred) {
-    return new TransferProgress(UploadState.IN_PROGRESS, byteCount, bytesTransferred);
+    return inProgress(byteCount, bytesTransferred, null);
+  }
+
+  public static TransferProgress inProgress(
+      int byteCount, int bytesTransferred, @Nullable Uri sessionUri) {
+    return new TransferProgress(UploadState.IN_PROGRESS, byteCount, bytesTransferred, sessionUri);
   }
 
   public static TransferProgress paused() {
@@ -65,6 +76,15 @@ public class TransferProgress {
     return byteCount;
   }
 
+  /**
+   * Returns the URI of the resumable session used by the transfer, if known. Passing this URI to a
+   * subsequent upload of the same file allows it to continue where this transfer stopped.
+   */
+  @Nullable
+  public Uri getSessionUri() {
+    return sessionUri;
+  }
+
   public UploadState getState() {
     return state;
   }
@@ -86,7 +86,16 @@ public class FirestoreDataStore implements RemoteDataStore {
   @Cold
   @Override
   public Single<List<Project>> loadProjectSummaries(User user) {
-    return db.projects().getReadable(user).subscribeOn(schedulers.io());
+    // Fall back to loading full project documents when summaries aren't available, e.g. when
+    // connected to a backend which doesn't populate the summaries collection.
+    return db.projectSummaries()
+        .getReadable(user)
+        .doOnError(e -> Timber.d(e, "Project summaries not available, loading full projects"))
+        .onErrorReturnItem(ImmutableList.of())
+        .flatMap(
+            summaries ->
+                summaries.isEmpty() ? db.projects().getReadable(user) : Single.just(summaries))
+        .subscribeOn(schedulers.io());
   }
 
   @Cold(stateful = true, terminates = false)
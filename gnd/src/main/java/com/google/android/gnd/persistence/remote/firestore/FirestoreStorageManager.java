@@ -17,17 +17,22 @@
 package com.google.android.gnd.persistence.remote.firestore;
 
 import android.net.Uri;
+import androidx.annotation.Nullable;
 import com.google.android.gnd.model.observation.Observation;
 import com.google.android.gnd.persistence.remote.RemoteStorageManager;
 import com.google.android.gnd.persistence.remote.TransferProgress;
 import com.google.android.gnd.rx.RxTask;
 import com.google.android.gnd.rx.annotations.Cold;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
 import java.io.File;
 import java8.util.StringJoiner;
+import java8.util.function.Supplier;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import timber.log.Timber;
@@ -79,13 +84,43 @@ public class FirestoreStorageManager implements RemoteStorageManager {
 
   @Cold
   @Override
-  public Flowable<TransferProgress> uploadMediaFromFile(File file, String remoteDestinationPath) {
+  public Flowable<TransferProgress> uploadMediaFromFile(
+      File file, String remoteDestinationPath, @Nullable Uri sessionUri) {
+    if (sessionUri == null) {
+      return uploadTaskToFlowable(
+          () -> createReference(remoteDestinationPath).putFile(Uri.fromFile(file)));
+    }
+    return uploadTaskToFlowable(
+            () ->
+                createReference(remoteDestinationPath)
+                    .putFile(Uri.fromFile(file), new StorageMetadata(), sessionUri))
+        .onErrorResumeNext(
+            (Throwable e) -> {
+              if (!isSessionExpired(e)) {
+                return Flowable.error(e);
+              }
+              Timber.d("Upload session expired, restarting upload: %s", remoteDestinationPath);
+              return uploadMediaFromFile(file, remoteDestinationPath, null);
+            });
+  }
+
+  /** Returns true iff the error indicates the server no longer knows the resumable session. */
+  private static boolean isSessionExpired(Throwable e) {
+    if (!(e instanceof StorageException)) {
+      return false;
+    }
+    int httpResultCode = ((StorageException) e).getHttpResultCode();
+    return httpResultCode == 404 || httpResultCode == 410;
+  }
+
+  private static Flowable<TransferProgress> uploadTaskToFlowable(
+      Supplier<UploadTask> uploadTaskSupplier) {
     return Flowable.create(
         emitter ->
-            createReference(remoteDestinationPath)
-                .putFile(Uri.fromFile(file))
-                .addOnCompleteListener(
-                    uploadTask -> {
+            uploadTaskSupplier
+                .get()
+                .addOnSuccessListener(
+                    taskSnapshot -> {
                       // Do not delete the file after successful upload. It is used as a cache
                       // while viewing observations when network is unavailable.
                       emitter.onComplete();
@@ -97,7 +132,8 @@ public class FirestoreStorageManager implements RemoteStorageManager {
                         emitter.onNext(
                             TransferProgress.inProgress(
                                 (int) taskSnapshot.getTotalByteCount(),
-                                (int) taskSnapshot.getBytesTransferred()))),
+                                (int) taskSnapshot.getBytesTransferred(),
+                                taskSnapshot.getUploadSessionUri()))),
         BackpressureStrategy.LATEST);
   }
 }
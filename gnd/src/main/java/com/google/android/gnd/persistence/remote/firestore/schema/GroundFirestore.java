@@ -25,6 +25,7 @@ import javax.inject.Singleton;
 @Singleton
 public class GroundFirestore extends FluentFirestore {
   private static final String PROJECTS = "projects";
+  private static final String PROJECT_SUMMARIES = "projectSummaries";
   private static final String CONFIG = "config";
 
   @Inject
@@ -36,6 +37,10 @@ public class GroundFirestore extends FluentFirestore {
     return new ProjectsCollectionReference(db().collection(PROJECTS));
   }
 
+  public ProjectSummariesCollectionReference projectSummaries() {
+    return new ProjectSummariesCollectionReference(db().collection(PROJECT_SUMMARIES));
+  }
+
   public TermsOfServiceCollectionReference termsOfService() {
     return new TermsOfServiceCollectionReference(db().collection(CONFIG));
   }
@@ -49,6 +49,23 @@ class ProjectConverter {
     return project.build();
   }
 
+  /**
+   * Converts a {@link ProjectSummaryDocument} to a {@link Project} with only id, title, description
+   * and ACL populated.
+   */
+  static Project toProjectSummary(DocumentSnapshot doc) {
+    ProjectSummaryDocument pd = doc.toObject(ProjectSummaryDocument.class);
+    Project.Builder project = Project.newBuilder();
+    project
+        .setId(doc.getId())
+        .setTitle(getLocalizedMessage(pd.getTitle()))
+        .setDescription(getLocalizedMessage(pd.getDescription()));
+    if (pd.getAcl() != null) {
+      project.setAcl(ImmutableMap.copyOf(pd.getAcl()));
+    }
+    return project.build();
+  }
+
   private static void convertOfflineBaseMapSources(ProjectDocument pd, Project.Builder project) {
     for (OfflineBaseMapSourceNestedObject src : pd.getOfflineBaseMapSources()) {
       if (src.getUrl() == null) {
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.remote.firestore.schema;
+
+import com.google.android.gnd.model.Project;
+import com.google.android.gnd.model.User;
+import com.google.android.gnd.persistence.remote.firestore.base.FluentCollectionReference;
+import com.google.android.gnd.rx.annotations.Cold;
+import com.google.firebase.firestore.CollectionReference;
+import io.reactivex.Single;
+import java.util.List;
+
+/**
+ * Collection of {@link ProjectSummaryDocument}s, keyed by project id. Summaries are expected to be
+ * kept in sync with their full project documents server-side.
+ */
+public class ProjectSummariesCollectionReference extends FluentCollectionReference {
+
+  ProjectSummariesCollectionReference(CollectionReference ref) {
+    super(ref);
+  }
+
+  /** Returns summaries of projects which the specified user has any role in. */
+  @Cold
+  public Single<List<Project>> getReadable(User user) {
+    return runQuery(
+        ProjectsCollectionReference.readableBy(reference(), user),
+        ProjectConverter::toProjectSummary);
+  }
+}
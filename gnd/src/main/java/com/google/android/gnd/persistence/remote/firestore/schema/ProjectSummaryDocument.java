@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.remote.firestore.schema;
+
+import androidx.annotation.Nullable;
+import com.google.firebase.firestore.IgnoreExtraProperties;
+import java.util.Map;
+
+/**
+ * Lightweight copy of a project's title, description and ACL stored in Firestore alongside the
+ * full project document, so that projects can be listed without loading their layers and forms.
+ */
+@IgnoreExtraProperties
+class ProjectSummaryDocument {
+  @Nullable private Map<String, String> title;
+
+  @Nullable private Map<String, String> description;
+
+  @Nullable private Map<String, String> acl;
+
+  @SuppressWarnings("unused")
+  public ProjectSummaryDocument() {}
+
+  @SuppressWarnings("unused")
+  ProjectSummaryDocument(
+      @Nullable Map<String, String> title,
+      @Nullable Map<String, String> description,
+      @Nullable Map<String, String> acl) {
+    this.title = title;
+    this.description = description;
+    this.acl = acl;
+  }
+
+  @Nullable
+  public Map<String, String> getTitle() {
+    return title;
+  }
+
+  @Nullable
+  public Map<String, String> getDescription() {
+    return description;
+  }
+
+  @Nullable
+  public Map<String, String> getAcl() {
+    return acl;
+  }
+}
@@ -22,6 +22,7 @@ import com.google.android.gnd.persistence.remote.firestore.base.FluentCollection
 import com.google.android.gnd.rx.annotations.Cold;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.Query;
 import io.reactivex.Single;
 import java.util.Arrays;
 import java.util.List;
@@ -45,8 +46,11 @@ public class ProjectsCollectionReference extends FluentCollectionReference {
 
   @Cold
   public Single<List<Project>> getReadable(User user) {
-    return runQuery(
-        reference().whereIn(FieldPath.of(ACL_FIELD, user.getEmail()), VALID_ROLES),
-        ProjectConverter::toProject);
+    return runQuery(readableBy(reference(), user), ProjectConverter::toProject);
+  }
+
+  /** Returns a query matching documents whose ACL grants the specified user any valid role. */
+  static Query readableBy(CollectionReference ref, User user) {
+    return ref.whereIn(FieldPath.of(ACL_FIELD, user.getEmail()), VALID_ROLES);
   }
 }
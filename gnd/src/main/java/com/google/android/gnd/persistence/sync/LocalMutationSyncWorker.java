@@ -137,9 +137,7 @@ public class LocalMutationSyncWorker extends BaseWorker {
         .flatMapIterable(mutation -> ((ObservationMutation) mutation).getResponseDeltas())
         .filter(delta -> delta.getFieldType() == Type.PHOTO && delta.getNewResponse().isPresent())
         .map(delta -> delta.getNewResponse().get().toString())
-        .flatMapCompletable(
-            remotePath ->
-                Completable.fromRunnable(() -> photoSyncWorkManager.enqueueSyncWorker(remotePath)));
+        .flatMapCompletable(photoSyncWorkManager::enqueueSyncWorker);
   }
 
   private Map<String, ImmutableList<Mutation>> groupByUserId(
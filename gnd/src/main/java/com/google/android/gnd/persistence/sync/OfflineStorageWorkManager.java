@@ -0,0 +1,59 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.persistence.sync;
+
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.WorkManager;
+import io.reactivex.Completable;
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+/** Enqueues work to keep offline base maps within the user's storage budget. */
+public class OfflineStorageWorkManager extends BaseWorkManager {
+
+  @Inject
+  public OfflineStorageWorkManager(Provider<WorkManager> workManagerProvider) {
+    super(workManagerProvider);
+  }
+
+  @Override
+  Class<OfflineStorageWorker> getWorkerClass() {
+    return OfflineStorageWorker.class;
+  }
+
+  @Override
+  protected NetworkType preferredNetworkType() {
+    return NetworkType.NOT_REQUIRED;
+  }
+
+  /**
+   * Enqueues a worker that removes least recently used offline areas if they exceed the storage
+   * budget, returning a completable upon enqueueing.
+   */
+  public Completable enqueueStorageBudgetWorker() {
+    return Completable.fromRunnable(this::enqueueStorageBudgetWorkerInternal);
+  }
+
+  private void enqueueStorageBudgetWorkerInternal() {
+    // Appending ensures changes made while a worker is running, e.g. to the budget, are applied.
+    getWorkManager()
+        .enqueueUniqueWork(
+            OfflineStorageWorker.class.getName(),
+            ExistingWorkPolicy.APPEND_OR_REPLACE,
+            buildWorkerRequest());
+  }
+}
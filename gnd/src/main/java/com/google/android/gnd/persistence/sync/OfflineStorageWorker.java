@@ -0,0 +1,70 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.persistence.sync;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.hilt.Assisted;
+import androidx.hilt.work.WorkerInject;
+import androidx.work.WorkerParameters;
+import com.google.android.gnd.R;
+import com.google.android.gnd.persistence.local.LocalValueStore;
+import com.google.android.gnd.repository.OfflineBaseMapRepository;
+import com.google.android.gnd.system.NotificationManager;
+import timber.log.Timber;
+
+/**
+ * A worker that removes the least recently used offline areas once the tiles on the device exceed
+ * the storage budget set by the user. Pinned areas are never removed.
+ */
+public class OfflineStorageWorker extends BaseWorker {
+
+  private final OfflineBaseMapRepository offlineBaseMapRepository;
+  private final LocalValueStore localValueStore;
+
+  @WorkerInject
+  public OfflineStorageWorker(
+      @Assisted @NonNull Context context,
+      @Assisted @NonNull WorkerParameters params,
+      OfflineBaseMapRepository offlineBaseMapRepository,
+      LocalValueStore localValueStore,
+      NotificationManager notificationManager) {
+    super(context, params, notificationManager, OfflineStorageWorker.class.hashCode());
+    this.offlineBaseMapRepository = offlineBaseMapRepository;
+    this.localValueStore = localValueStore;
+  }
+
+  @NonNull
+  @Override
+  public Result doWork() {
+    long budgetBytes = localValueStore.getOfflineStorageBudget();
+    if (budgetBytes <= 0) {
+      return Result.success();
+    }
+    try {
+      offlineBaseMapRepository.enforceStorageBudget(budgetBytes).blockingAwait();
+      return Result.success();
+    } catch (Throwable t) {
+      Timber.e(t, "Failed to enforce offline storage budget");
+      return Result.failure();
+    }
+  }
+
+  @Override
+  public String getNotificationTitle() {
+    return getApplicationContext().getString(R.string.freeing_offline_storage);
+  }
+}
@@ -17,12 +17,14 @@
 package com.google.android.gnd.persistence.sync;
 
 import androidx.annotation.NonNull;
-import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
 import androidx.work.NetworkType;
-import androidx.work.OneTimeWorkRequest;
 import androidx.work.WorkManager;
+import com.google.android.gnd.model.observation.PhotoUpload;
+import com.google.android.gnd.persistence.local.LocalDataStore;
 import com.google.android.gnd.persistence.local.LocalValueStore;
 import com.google.android.gnd.repository.UserMediaRepository;
+import io.reactivex.Completable;
 import java.io.File;
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -31,15 +33,18 @@ import timber.log.Timber;
 /** Enqueues photo upload work to be done in the background. */
 public class PhotoSyncWorkManager extends BaseWorkManager {
 
+  private final LocalDataStore localDataStore;
   private final LocalValueStore localValueStore;
   private final UserMediaRepository userMediaRepository;
 
   @Inject
   public PhotoSyncWorkManager(
       Provider<WorkManager> workManagerProvider,
+      LocalDataStore localDataStore,
       LocalValueStore localValueStore,
       UserMediaRepository userMediaRepository) {
     super(workManagerProvider);
+    this.localDataStore = localDataStore;
     this.localValueStore = localValueStore;
     this.userMediaRepository = userMediaRepository;
   }
@@ -57,20 +62,35 @@ public class PhotoSyncWorkManager extends BaseWorkManager {
   }
 
   /**
-   * Enqueues a worker that uploads selected/captured photo to the remote FirestoreStorage once a
-   * network connection is available. The returned {@code Completable} completes immediately as soon
-   * as the worker is added to the work queue (not once the sync job completes).
+   * Adds the selected/captured photo to the upload queue and enqueues a worker that uploads queued
+   * photos to the remote FirestoreStorage once a network connection is available. The returned
+   * {@code Completable} completes immediately as soon as the worker is added to the work queue (not
+   * once the sync job completes).
    */
-  public void enqueueSyncWorker(@NonNull String remotePath) {
+  public Completable enqueueSyncWorker(@NonNull String remotePath) {
     File localFile = userMediaRepository.getLocalFileFromRemotePath(remotePath);
 
     if (!localFile.exists()) {
       Timber.e("Local file not found: %s", localFile.getPath());
-      return;
+      return Completable.complete();
     }
 
-    Data inputData = PhotoSyncWorker.createInputData(localFile.getPath(), remotePath);
-    OneTimeWorkRequest request = buildWorkerRequest(inputData);
-    getWorkManager().enqueue(request);
+    PhotoUpload upload =
+        PhotoUpload.newBuilder().setRemotePath(remotePath).setLocalPath(localFile.getPath()).build();
+    return localDataStore
+        .insertOrUpdatePhotoUpload(upload)
+        .andThen(Completable.fromRunnable(this::enqueueSyncWorkerInternal));
+  }
+
+  private void enqueueSyncWorkerInternal() {
+    // A single worker drains the whole upload queue, so rather than scheduling one worker per
+    // photo, we append to a unique chain. Workers appended while another is running will find the
+    // queue (nearly) empty and finish quickly. APPEND_OR_REPLACE ensures a failed chain doesn't
+    // block uploads queued after it.
+    getWorkManager()
+        .enqueueUniqueWork(
+            PhotoSyncWorker.class.getName(),
+            ExistingWorkPolicy.APPEND_OR_REPLACE,
+            buildWorkerRequest());
   }
 }
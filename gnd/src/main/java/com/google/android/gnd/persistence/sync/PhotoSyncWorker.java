@@ -17,71 +17,157 @@
 package com.google.android.gnd.persistence.sync;
 
 import android.content.Context;
+import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.hilt.Assisted;
 import androidx.hilt.work.WorkerInject;
-import androidx.work.Data;
 import androidx.work.WorkerParameters;
 import com.google.android.gnd.R;
+import com.google.android.gnd.model.observation.PhotoUpload;
+import com.google.android.gnd.persistence.local.LocalDataStore;
 import com.google.android.gnd.persistence.remote.RemoteStorageManager;
+import com.google.android.gnd.persistence.remote.TransferProgress;
+import com.google.android.gnd.repository.UserMediaRepository;
+import com.google.android.gnd.rx.Schedulers;
 import com.google.android.gnd.system.NotificationManager;
+import com.google.common.collect.ImmutableList;
+import io.reactivex.Flowable;
 import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import timber.log.Timber;
 
 /**
- * A worker that uploads photos from observations to the FirestoreStorage in the background. The
- * source file and remote destination path are provided in a {@link Data} object. This worker should
- * only run when the device has a network connection.
+ * Uploads all photos in the local upload queue to remote storage, a few at a time. Resumable
+ * session URIs are persisted as soon as they're known so that retries continue where the previous
+ * attempt left off rather than starting over.
  */
 public class PhotoSyncWorker extends BaseWorker {
 
-  private static final String SOURCE_FILE_PATH_PARAM_KEY = "sourceFilePath";
-  private static final String DESTINATION_PATH_PARAM_KEY = "destinationPath";
+  /**
+   * Maximum number of photos uploaded in parallel. Kept low so that uploads on slow connections
+   * don't starve each other of bandwidth and time out.
+   */
+  private static final int MAX_CONCURRENT_UPLOADS = 2;
 
+  /** Minimum interval between updates to the progress notification. */
+  private static final long NOTIFICATION_INTERVAL_MILLIS = 500;
+
+  private final LocalDataStore localDataStore;
   private final RemoteStorageManager remoteStorageManager;
-  private final String localSourcePath;
-  private final String remoteDestinationPath;
+  private final UserMediaRepository userMediaRepository;
+  private final Schedulers schedulers;
 
   @WorkerInject
   public PhotoSyncWorker(
       @Assisted @NonNull Context context,
       @Assisted @NonNull WorkerParameters workerParams,
+      LocalDataStore localDataStore,
       RemoteStorageManager remoteStorageManager,
-      NotificationManager notificationManager) {
+      UserMediaRepository userMediaRepository,
+      NotificationManager notificationManager,
+      Schedulers schedulers) {
     super(context, workerParams, notificationManager, PhotoSyncWorker.class.hashCode());
+    this.localDataStore = localDataStore;
     this.remoteStorageManager = remoteStorageManager;
-    this.localSourcePath = workerParams.getInputData().getString(SOURCE_FILE_PATH_PARAM_KEY);
-    this.remoteDestinationPath = workerParams.getInputData().getString(DESTINATION_PATH_PARAM_KEY);
-  }
-
-  static Data createInputData(String sourceFilePath, String destinationPath) {
-    return new Data.Builder()
-        .putString(SOURCE_FILE_PATH_PARAM_KEY, sourceFilePath)
-        .putString(DESTINATION_PATH_PARAM_KEY, destinationPath)
-        .build();
+    this.userMediaRepository = userMediaRepository;
+    this.schedulers = schedulers;
   }
 
   @NonNull
   @Override
   public Result doWork() {
-    Timber.d("Attempting photo sync: %s, %s", localSourcePath, remoteDestinationPath);
-    File file = new File(localSourcePath);
-    if (file.exists()) {
-      Timber.d("Starting photo upload: %s, %s", localSourcePath, remoteDestinationPath);
-      try {
-        remoteStorageManager
-            .uploadMediaFromFile(file, remoteDestinationPath)
-            .compose(this::notifyTransferState)
-            .blockingForEach(this::sendNotification);
-        return Result.success();
-      } catch (Exception e) {
-        Timber.e(e, "Photo sync failed: %s %s", localSourcePath, remoteDestinationPath);
-        return Result.retry();
-      }
-    } else {
-      Timber.e("Photo not found %s, %s", localSourcePath, remoteDestinationPath);
-      return Result.failure();
+    ImmutableList<PhotoUpload> uploads = localDataStore.getPendingPhotoUploads().blockingGet();
+    if (uploads.isEmpty()) {
+      Timber.d("No pending photo uploads");
+      return Result.success();
+    }
+    Timber.d("Uploading %d photo(s)", uploads.size());
+    Map<String, TransferProgress> progressByPath = new ConcurrentHashMap<>();
+    AtomicBoolean failed = new AtomicBoolean();
+    sendNotification(TransferProgress.starting());
+    Flowable.fromIterable(uploads)
+        .flatMap(
+            upload ->
+                uploadPhoto(upload)
+                    .doOnNext(progress -> progressByPath.put(upload.getRemotePath(), progress))
+                    .onErrorResumeNext(
+                        (Throwable e) -> {
+                          Timber.e(e, "Photo upload failed: %s", upload.getRemotePath());
+                          failed.set(true);
+                          return Flowable.empty();
+                        }),
+            MAX_CONCURRENT_UPLOADS)
+        .throttleLatest(NOTIFICATION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS, true)
+        .blockingForEach(__ -> sendNotification(getTotalProgress(progressByPath)));
+    if (failed.get()) {
+      sendNotification(TransferProgress.failed());
+      return Result.retry();
+    }
+    sendNotification(TransferProgress.completed());
+    return Result.success();
+  }
+
+  /** Returns the progress of all uploads in this batch combined. */
+  private static TransferProgress getTotalProgress(Map<String, TransferProgress> progressByPath) {
+    int byteCount = 0;
+    int bytesTransferred = 0;
+    for (TransferProgress progress : progressByPath.values()) {
+      byteCount += progress.getByteCount();
+      bytesTransferred += progress.getBytesTransferred();
+    }
+    return TransferProgress.inProgress(byteCount, bytesTransferred);
+  }
+
+  /**
+   * Uploads the specified photo, resuming the previous upload session if one was recorded. Removes
+   * the photo from the queue once the upload completes.
+   */
+  private Flowable<TransferProgress> uploadPhoto(PhotoUpload upload) {
+    File photo = new File(upload.getLocalPath());
+    String remotePath = upload.getRemotePath();
+    if (!photo.exists()) {
+      // The photo can never be uploaded, so there's no point keeping it in the queue.
+      Timber.e("Photo not found %s, %s", photo.getPath(), remotePath);
+      return localDataStore.deletePhotoUpload(remotePath).toFlowable();
+    }
+    File uploadFile = getUploadFile(photo);
+    AtomicReference<String> sessionUri = new AtomicReference<>(upload.getSessionUri());
+    Uri resumeUri = upload.getSessionUri() == null ? null : Uri.parse(upload.getSessionUri());
+    Timber.d("Starting photo upload: %s, %s", uploadFile.getPath(), remotePath);
+    return remoteStorageManager
+        .uploadMediaFromFile(uploadFile, remotePath, resumeUri)
+        .observeOn(schedulers.io())
+        .doOnNext(progress -> saveSessionUri(remotePath, progress, sessionUri))
+        .concatWith(
+            localDataStore
+                .deletePhotoUpload(remotePath)
+                .doOnComplete(() -> userMediaRepository.deleteUploadFile(photo)));
+  }
+
+  /** Returns the downscaled copy of the photo to upload, falling back to the original on error. */
+  private File getUploadFile(File photo) {
+    try {
+      return userMediaRepository.getUploadFile(photo);
+    } catch (IOException e) {
+      Timber.e(e, "Unable to prepare photo for upload, uploading original: %s", photo.getPath());
+      return photo;
+    }
+  }
+
+  /** Persists the session URI reported by the upload if it differs from the last one saved. */
+  private void saveSessionUri(
+      String remotePath, TransferProgress progress, AtomicReference<String> lastSessionUri) {
+    Uri sessionUri = progress.getSessionUri();
+    if (sessionUri == null || sessionUri.toString().equals(lastSessionUri.get())) {
+      return;
     }
+    localDataStore.updatePhotoUploadSessionUri(remotePath, sessionUri.toString()).blockingAwait();
+    lastSessionUri.set(sessionUri.toString());
   }
 
   @Override
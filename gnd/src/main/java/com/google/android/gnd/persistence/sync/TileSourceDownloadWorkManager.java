@@ -16,6 +16,7 @@
 
 package com.google.android.gnd.persistence.sync;
 
+import androidx.work.ExistingWorkPolicy;
 import androidx.work.NetworkType;
 import androidx.work.WorkManager;
 import com.google.android.gnd.persistence.local.LocalValueStore;
@@ -56,6 +57,13 @@ public class TileSourceDownloadWorkManager extends BaseWorkManager {
   }
 
   private void enqueueTileSourceDownloadWorkerInternal() {
-    getWorkManager().enqueue(buildWorkerRequest());
+    // Each worker downloads all incomplete tiles, so workers must never run concurrently or they
+    // would write to the same files. Appending ensures tiles added while a worker is running are
+    // picked up by the next one.
+    getWorkManager()
+        .enqueueUniqueWork(
+            TileSourceDownloadWorker.class.getName(),
+            ExistingWorkPolicy.APPEND_OR_REPLACE,
+            buildWorkerRequest());
   }
 }
@@ -16,193 +16,203 @@
 
 package com.google.android.gnd.persistence.sync;
 
+import static com.google.android.gnd.util.ImmutableListCollector.toImmutableList;
+import static java.lang.System.currentTimeMillis;
+import static java8.util.stream.StreamSupport.stream;
+
 import android.content.Context;
 import androidx.annotation.NonNull;
 import androidx.hilt.Assisted;
 import androidx.hilt.work.WorkerInject;
-import androidx.work.Data;
 import androidx.work.WorkerParameters;
 import com.google.android.gnd.R;
 import com.google.android.gnd.model.basemap.tile.TileSource;
 import com.google.android.gnd.model.basemap.tile.TileSource.State;
+import com.google.android.gnd.model.basemap.tile.TileSourceSegment;
 import com.google.android.gnd.persistence.local.LocalDataStore;
 import com.google.android.gnd.persistence.remote.TransferProgress;
+import com.google.android.gnd.persistence.sync.TileSourceDownloader.DownloadResult;
+import com.google.android.gnd.persistence.sync.TileSourceDownloader.ProgressListener;
+import com.google.android.gnd.persistence.sync.TileSourceDownloader.SegmentStore;
+import com.google.android.gnd.persistence.sync.TileSourceDownloader.UnexpectedResponseException;
+import com.google.android.gnd.rx.Schedulers;
 import com.google.android.gnd.system.NotificationManager;
 import com.google.common.collect.ImmutableList;
-import io.reactivex.Completable;
-import io.reactivex.Observable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import timber.log.Timber;
 
 /**
- * A worker that downloads files to the device in the background. The target URL and file name are
- * provided in a {@link Data} object. This worker should only run when the device has a network
- * connection.
+ * A worker that downloads all pending tile source files to the device in the background, a few at
+ * a time. Interrupted downloads are resumed from where they left off. This worker should only run
+ * when the device has a network connection.
  */
 public class TileSourceDownloadWorker extends BaseWorker {
-  private static final int BUFFER_SIZE = 4096;
+
+  /** Maximum number of tile sources downloaded in parallel. */
+  private static final int MAX_CONCURRENT_DOWNLOADS = 4;
+
+  /** Interval between updates to the progress notification. */
+  private static final long NOTIFICATION_INTERVAL_MILLIS = 1000;
+
+  /** Max number of tile state changes written to the db in a single transaction. */
+  private static final int STATE_UPDATE_BATCH_SIZE = 50;
+
+  /** Max time tile state changes are held before being written to the db. */
+  private static final long STATE_UPDATE_INTERVAL_MILLIS = 2000;
 
   private final Context context;
   private final LocalDataStore localDataStore;
+  private final TileSourceDownloader downloader;
+  private final OfflineStorageWorkManager offlineStorageWorkManager;
+  private final TileSourceMergeWorkManager tileSourceMergeWorkManager;
+  private final Schedulers schedulers;
 
   @WorkerInject
   public TileSourceDownloadWorker(
       @Assisted @NonNull Context context,
       @Assisted @NonNull WorkerParameters params,
       LocalDataStore localDataStore,
-      NotificationManager notificationManager) {
+      TileSourceDownloader downloader,
+      OfflineStorageWorkManager offlineStorageWorkManager,
+      TileSourceMergeWorkManager tileSourceMergeWorkManager,
+      NotificationManager notificationManager,
+      Schedulers schedulers) {
     super(context, params, notificationManager, TileSourceDownloadWorker.class.hashCode());
     this.context = context;
     this.localDataStore = localDataStore;
+    this.downloader = downloader;
+    this.offlineStorageWorkManager = offlineStorageWorkManager;
+    this.tileSourceMergeWorkManager = tileSourceMergeWorkManager;
+    this.schedulers = schedulers;
   }
 
   /**
-   * Given a tile, downloads the given {@param tile}'s source file and saves it to the device's app
-   * storage. Optional HTTP request header {@param requestProperties} may be provided.
+   * Downloads the source file of the specified tile to the app's storage, returning the tile with
+   * its new state and, once downloaded, its size and checksum. Permanent failures (e.g., file not
+   * found) are marked {@code FAILED}; tiles which fail for other reasons are left {@code
+   * IN_PROGRESS} so the download is resumed on retry.
    */
-  private void downloadTileFile(TileSource tileSource, Map<String, String> requestProperties)
-      throws TileSourceDownloadException {
-
-    int mode = Context.MODE_PRIVATE;
+  private Single<TileSource> downloadTileSource(
+      TileSource tileSource, DownloadProgress progress, AtomicBoolean retry) {
+    return Single.fromCallable(
+            () -> {
+              File file = new File(context.getFilesDir(), tileSource.getPath());
+              DownloadResult result =
+                  downloader.download(
+                      new URL(tileSource.getUrl()), file, segmentStore(tileSource), progress);
+              return tileSource.toBuilder()
+                  .setState(State.DOWNLOADED)
+                  .setByteCount(result.getByteCount())
+                  .setChecksum(result.getChecksum())
+                  .setLastAccessed(currentTimeMillis())
+                  .build();
+            })
+        .onErrorReturn(
+            e -> {
+              Timber.d(e, "Failed to download tile: %s", tileSource);
+              if (e instanceof UnexpectedResponseException
+                  && ((UnexpectedResponseException) e).isPermanent()) {
+                return tileSource.toBuilder().setState(State.FAILED).build();
+              }
+              retry.set(true);
+              return tileSource.toBuilder().setState(State.IN_PROGRESS).build();
+            })
+        .subscribeOn(schedulers.io());
+  }
 
-    try {
-      URL url = new URL(tileSource.getUrl());
-      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-
-      if (!requestProperties.isEmpty()) {
-        for (Map.Entry<String, String> property : requestProperties.entrySet()) {
-          connection.setRequestProperty(property.getKey(), property.getValue());
-        }
-        mode = Context.MODE_APPEND;
+  /** Returns a store which keeps the progress of segmented downloads of a tile in the local db. */
+  private SegmentStore segmentStore(TileSource tileSource) {
+    String tileSourceId = tileSource.getId();
+    return new SegmentStore() {
+      @Override
+      public ImmutableList<TileSourceSegment> load() {
+        return localDataStore.getTileSourceSegments(tileSourceId).blockingGet();
       }
 
-      connection.connect();
-
-      try (InputStream is = connection.getInputStream();
-          FileOutputStream fos = context.openFileOutput(tileSource.getPath(), mode)) {
-
-        byte[] byteChunk = new byte[BUFFER_SIZE];
-        int n;
-
-        while ((n = is.read(byteChunk)) > 0) {
-          fos.write(byteChunk, 0, n);
-        }
+      @Override
+      public void save(ImmutableList<TileSourceSegment> segments) {
+        localDataStore.insertOrUpdateTileSourceSegments(tileSourceId, segments).blockingAwait();
       }
-    } catch (IOException e) {
-      throw new TileSourceDownloadException("Failed to download tile", e);
-    }
-  }
-
-  /** Update a tile's state in the database and initiate a download of the tile source file. */
-  private Completable downloadTileSource(TileSource tileSource) {
-    Map<String, String> requestProperties = new HashMap<>();
-
-    // To resume a download for an in progress tile, we use the HTTP Range request property.
-    // The range property takes a range of bytes, the server returns the content of the resource
-    // that corresponds to the given byte range.
-    //
-    // To resume a download, we get the current length, in bytes, of the file on disk.
-    // appending '-' to the byte value tells the server to return the range of bytes from the given
-    // byte value to the end of the file, e.g. '500-' returns contents starting at byte 500 to EOF.
-    //
-    // Note that length returns 0 when the file does not exist, so this correctly handles an edge
-    // case whereby the local DB has a tile state of IN_PROGRESS but none of the file has been
-    // downloaded yet (since then we'll fetch the range '0-', the entire file).
-    //
-    // For more info see: https://developer.mozilla.org/en-US/docs/Web/HTTP/Headers/Range
-    if (tileSource.getState() == State.IN_PROGRESS) {
-      File existingTileFile = new File(context.getFilesDir(), tileSource.getPath());
-      requestProperties.put("Range", "bytes=" + existingTileFile.length() + "-");
-    }
 
-    return localDataStore
-        .insertOrUpdateTileSource(
-            tileSource.toBuilder().setState(TileSource.State.IN_PROGRESS).build())
-        .andThen(
-            Completable.fromRunnable(
-                () -> {
-                  downloadTileFile(tileSource, requestProperties);
-                }))
-        .onErrorResumeNext(
-            e -> {
-              Timber.d(e, "Failed to download tile: %s", tileSource);
-              return localDataStore.insertOrUpdateTileSource(
-                  tileSource.toBuilder().setState(State.FAILED).build());
-            })
-        .andThen(
-            localDataStore.insertOrUpdateTileSource(
-                tileSource.toBuilder().setState(State.DOWNLOADED).build()));
+      @Override
+      public void clear() {
+        localDataStore.deleteTileSourceSegments(tileSourceId).blockingAwait();
+      }
+    };
   }
 
   /**
-   * Verifies that {@param tile} marked as {@code Tile.State.DOWNLOADED} in the local database still
-   * exists in the app's storage. If the tile's source file isn't present, initiates a download of
-   * source file.
+   * Downloads all incomplete tile sources, writing state changes back to the db in batches.
+   * Returns true iff one or more downloads should be retried.
    */
-  private Completable downloadIfNotFound(TileSource tileSource) {
-    File file = new File(context.getFilesDir(), tileSource.getPath());
-
-    if (file.exists()) {
-      return Completable.complete();
+  private boolean processTileSources(ImmutableList<TileSource> tileSources) {
+    DownloadProgress progress = new DownloadProgress();
+    AtomicBoolean retry = new AtomicBoolean();
+    // Mark all tiles as in progress up front in a single transaction rather than one at a time.
+    localDataStore
+        .updateTileSourceStates(
+            stream(tileSources)
+                .map(t -> t.toBuilder().setState(State.IN_PROGRESS).build())
+                .collect(toImmutableList()))
+        .blockingAwait();
+    Disposable progressUpdates =
+        Flowable.interval(NOTIFICATION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS, schedulers.io())
+            .subscribe(__ -> sendNotification(progress.toTransferProgress()));
+    try {
+      Flowable.fromIterable(tileSources)
+          .flatMapSingle(
+              t -> downloadTileSource(t, progress, retry), false, MAX_CONCURRENT_DOWNLOADS)
+          .filter(t -> t.getState() != State.IN_PROGRESS)
+          .buffer(STATE_UPDATE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS, STATE_UPDATE_BATCH_SIZE)
+          .filter(batch -> !batch.isEmpty())
+          .concatMapCompletable(
+              batch -> localDataStore.updateTileSourceStates(ImmutableList.copyOf(batch)))
+          .blockingAwait();
+    } finally {
+      progressUpdates.dispose();
     }
-
-    return downloadTileSource(tileSource);
-  }
-
-  private Completable processTileSources(ImmutableList<TileSource> pendingTileSources) {
-    return Observable.fromIterable(pendingTileSources)
-        .doOnNext(
-            tile ->
-                sendNotification(
-                    TransferProgress.inProgress(
-                        pendingTileSources.size(), pendingTileSources.indexOf(tile) + 1)))
-        .flatMapCompletable(
-            t -> {
-              switch (t.getState()) {
-                case DOWNLOADED:
-                  return downloadIfNotFound(t);
-                case PENDING:
-                case IN_PROGRESS:
-                case FAILED:
-                default:
-                  return downloadTileSource(t);
-              }
-            })
-        .compose(this::notifyTransferState);
+    return retry.get();
   }
 
   /**
-   * Given a tile identifier, downloads a tile source file and saves it to the app's file storage.
-   * If the tile source file already exists on the device, this method returns {@code
-   * Result.success()} and does not re-download the file.
+   * Downloads all pending and partially downloaded tile source files and saves them to the app's
+   * file storage, retrying later if any downloads are interrupted.
    */
   @NonNull
   @Override
   public Result doWork() {
-    ImmutableList<TileSource> pendingTileSources =
-        localDataStore.getPendingTileSources().blockingGet();
+    ImmutableList<TileSource> tileSources = localDataStore.getIncompleteTileSources().blockingGet();
 
-    // When there are no tiles in the db, the blockingGet returns null.
-    // If that isn't the case, another worker may have already taken care of the work.
-    // In this case, we return a result immediately to stop the worker.
-    if (pendingTileSources == null) {
+    // Another worker may have already taken care of the work.
+    if (tileSources.isEmpty()) {
       return Result.success();
     }
 
-    Timber.d("Downloading tiles: %s", pendingTileSources);
+    Timber.d("Downloading %d tiles", tileSources.size());
+    sendNotification(TransferProgress.starting());
 
     try {
-      processTileSources(pendingTileSources).blockingAwait();
+      boolean retry = processTileSources(tileSources);
+      // Newly downloaded tiles may push offline storage over budget.
+      offlineStorageWorkManager.enqueueStorageBudgetWorker().blockingAwait();
+      // Downloaded tiles are only displayed once merged.
+      tileSourceMergeWorkManager.enqueueMergeWorker().blockingAwait();
+      if (retry) {
+        sendNotification(TransferProgress.failed());
+        return Result.retry();
+      }
+      sendNotification(TransferProgress.completed());
       return Result.success();
     } catch (Throwable t) {
-      Timber.d(t, "Downloads for tiles failed: %s", pendingTileSources);
+      Timber.d(t, "Downloads for tiles failed: %s", tileSources);
+      sendNotification(TransferProgress.failed());
       return Result.failure();
     }
   }
@@ -212,9 +222,31 @@ public class TileSourceDownloadWorker extends BaseWorker {
     return getApplicationContext().getString(R.string.downloading_tiles);
   }
 
-  static class TileSourceDownloadException extends RuntimeException {
-    TileSourceDownloadException(String msg, Throwable e) {
-      super(msg, e);
+  /** Total progress of all downloads in the current batch, in bytes. */
+  private static class DownloadProgress implements ProgressListener {
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+
+    @Override
+    public void onStart(long existingBytes, long totalBytes) {
+      if (totalBytes > 0) {
+        this.totalBytes.addAndGet(totalBytes);
+      }
+      bytesDownloaded.addAndGet(existingBytes);
+    }
+
+    @Override
+    public void onBytesWritten(long byteCount) {
+      bytesDownloaded.addAndGet(byteCount);
+    }
+
+    /**
+     * Returns progress in KiB, since offline areas can easily exceed the range of {@code int} when
+     * measured in bytes.
+     */
+    TransferProgress toTransferProgress() {
+      return TransferProgress.inProgress(
+          (int) (totalBytes.get() / 1024), (int) (bytesDownloaded.get() / 1024));
     }
   }
 }
@@ -0,0 +1,626 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.sync;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gnd.model.basemap.tile.TileSourceSegment;
+import com.google.android.gnd.rx.Schedulers;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.exceptions.CompositeException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.inject.Inject;
+
+/**
+ * Downloads tile source files over HTTP, resuming partial downloads using Range requests.
+ *
+ * <p>Large files are split into segments which are fetched in parallel over separate connections
+ * and written in place into a preallocated file. The progress of each segment is saved to a {@link
+ * SegmentStore} so that an interrupted download resumes every partial segment where it left off.
+ *
+ * <p>Response bodies are always read to the end and closed without calling {@link
+ * HttpURLConnection#disconnect()}, which allows the platform to return the underlying socket to its
+ * keep-alive pool so that subsequent downloads from the same host reuse the connection.
+ */
+public class TileSourceDownloader {
+
+  /** Size of the buffer used to copy response bodies to disk. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Files at least this large are downloaded in parallel segments if the server allows it. */
+  private static final long MIN_SEGMENTED_BYTES = 32L * 1024 * 1024;
+
+  /** Max number of segments, and thus concurrent connections, used to download a single file. */
+  private static final int MAX_SEGMENTS = 4;
+
+  /** Number of bytes written to a segment between saves of its progress. */
+  private static final long CHECKPOINT_BYTES = 4L * 1024 * 1024;
+
+  private static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+  private static final int READ_TIMEOUT_MILLIS = 60_000;
+
+  /** HTTP status returned when the requested range starts at or beyond the end of the file. */
+  private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+  /**
+   * Receives updates as a download progresses. Callbacks are invoked on the downloading threads,
+   * which may be several at once for segmented downloads.
+   */
+  public interface ProgressListener {
+    /**
+     * Called once the server responds, with the number of bytes already on disk and the expected
+     * total size of the file in bytes, or -1 if unknown.
+     */
+    void onStart(long existingBytes, long totalBytes);
+
+    /** Called each time a chunk of {@code byteCount} bytes is written to disk. */
+    void onBytesWritten(long byteCount);
+  }
+
+  /** Persists the progress of a segmented download of a single file. Calls may block. */
+  public interface SegmentStore {
+    /** Returns the saved segments of the file ordered by offset, or an empty list if none. */
+    ImmutableList<TileSourceSegment> load();
+
+    /** Saves the specified segments, replacing any previously saved with the same offsets. */
+    void save(ImmutableList<TileSourceSegment> segments);
+
+    /** Discards all saved segments of the file. */
+    void clear();
+  }
+
+  private final Schedulers schedulers;
+  private final long minSegmentedBytes;
+
+  @Inject
+  public TileSourceDownloader(Schedulers schedulers) {
+    this(schedulers, MIN_SEGMENTED_BYTES);
+  }
+
+  @VisibleForTesting
+  TileSourceDownloader(Schedulers schedulers, long minSegmentedBytes) {
+    this.schedulers = schedulers;
+    this.minSegmentedBytes = minSegmentedBytes;
+  }
+
+  /**
+   * Downloads the file at the specified URL to {@code file}. If the file already exists, only the
+   * remaining bytes are requested. If the server ignores the Range request, the file is overwritten
+   * from the beginning. Large files are fetched in parallel segments when the server accepts
+   * ranges, in which case the progress of each segment is kept in {@code segmentStore}.
+   *
+   * <p>The downloaded file is verified against its expected length and, if the server sends one in
+   * a {@code Digest} header, its SHA-256 checksum.
+   *
+   * @return the size and checksum of the downloaded file
+   * @throws UnexpectedResponseException if the server responds with an unexpected HTTP status
+   * @throws IOException if the connection fails or the downloaded file fails verification
+   */
+  public DownloadResult download(
+      URL url, File file, SegmentStore segmentStore, ProgressListener listener)
+      throws IOException {
+    ImmutableList<TileSourceSegment> segments = segmentStore.load();
+    if (!segments.isEmpty()) {
+      long totalBytes = segments.get(segments.size() - 1).getEnd();
+      if (file.length() == totalBytes) {
+        return downloadSegments(url, file, totalBytes, segments, null, segmentStore, listener);
+      }
+      // The preallocated file was removed or replaced, so the saved progress no longer applies.
+      segmentStore.clear();
+      deleteFile(file);
+    }
+    long existingBytes = file.length();
+    HttpURLConnection connection = openConnection(url);
+    if (existingBytes > 0) {
+      // Request bytes from the end of the partial file to EOF, e.g. 'bytes=500-'. For more info
+      // see: https://developer.mozilla.org/en-US/docs/Web/HTTP/Headers/Range
+      connection.setRequestProperty("Range", "bytes=" + existingBytes + "-");
+    }
+    int responseCode = connection.getResponseCode();
+    boolean append;
+    long totalBytes;
+    switch (responseCode) {
+      case HttpURLConnection.HTTP_PARTIAL:
+        append = true;
+        totalBytes = getTotalBytes(connection, existingBytes);
+        break;
+      case HttpURLConnection.HTTP_OK:
+        // Either this is a new download or the server ignored the range; start over.
+        totalBytes = getContentLength(connection);
+        if (totalBytes >= minSegmentedBytes && acceptsRanges(connection)) {
+          return startSegmentedDownload(url, file, connection, totalBytes, segmentStore, listener);
+        }
+        append = false;
+        existingBytes = 0;
+        break;
+      case HTTP_RANGE_NOT_SATISFIABLE:
+        // The partial file may in fact be complete if we were interrupted before marking it so.
+        discardErrorStream(connection);
+        if (existingBytes > 0 && getTotalBytes(connection, -1) == existingBytes) {
+          listener.onStart(existingBytes, existingBytes);
+          return DownloadResult.create(existingBytes, hashFile(file).hash().toString());
+        }
+        throw new UnexpectedResponseException(url, responseCode);
+      default:
+        discardErrorStream(connection);
+        throw new UnexpectedResponseException(url, responseCode);
+    }
+    listener.onStart(existingBytes, totalBytes);
+    // The checksum covers the whole file, so bytes from an earlier attempt are hashed first.
+    Hasher hasher = append ? hashFile(file) : Hashing.sha256().newHasher();
+    long fileSize =
+        existingBytes + copyToFile(connection.getInputStream(), file, append, hasher, listener);
+    if (totalBytes >= 0 && fileSize != totalBytes) {
+      throw new IOException(
+          "Incomplete download of " + url + ": " + fileSize + " of " + totalBytes + " bytes");
+    }
+    String checksum = hasher.hash().toString();
+    verifyChecksum(url, file, getExpectedChecksum(connection), checksum);
+    return DownloadResult.create(fileSize, checksum);
+  }
+
+  /**
+   * Splits the file into segments, allocates it at its full size on disk, and downloads all
+   * segments in parallel. The body of {@code connection}, the response to an unranged request, is
+   * used for the first segment.
+   */
+  private DownloadResult startSegmentedDownload(
+      URL url,
+      File file,
+      HttpURLConnection connection,
+      long totalBytes,
+      SegmentStore segmentStore,
+      ProgressListener listener)
+      throws IOException {
+    ImmutableList<TileSourceSegment> segments = planSegments(totalBytes);
+    // Segments are saved before the file is allocated so that a full-length file with no saved
+    // segments is always one which has been completely downloaded and verified.
+    segmentStore.save(segments);
+    try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+      out.setLength(totalBytes);
+    }
+    return downloadSegments(url, file, totalBytes, segments, connection, segmentStore, listener);
+  }
+
+  /** Splits a file of the specified size into at most {@link #MAX_SEGMENTS} equal segments. */
+  private ImmutableList<TileSourceSegment> planSegments(long totalBytes) {
+    long segmentBytes = (totalBytes + MAX_SEGMENTS - 1) / MAX_SEGMENTS;
+    ImmutableList.Builder<TileSourceSegment> segments = ImmutableList.builder();
+    for (long start = 0; start < totalBytes; start += segmentBytes) {
+      segments.add(TileSourceSegment.create(start, Math.min(start + segmentBytes, totalBytes), 0));
+    }
+    return segments.build();
+  }
+
+  /**
+   * Downloads the incomplete parts of the specified segments in parallel, then verifies the whole
+   * file. {@code firstConnection}, if present, is an open response whose body starts at offset 0.
+   */
+  private DownloadResult downloadSegments(
+      URL url,
+      File file,
+      long totalBytes,
+      ImmutableList<TileSourceSegment> segments,
+      @Nullable HttpURLConnection firstConnection,
+      SegmentStore segmentStore,
+      ProgressListener listener)
+      throws IOException {
+    long existingBytes = 0;
+    for (TileSourceSegment segment : segments) {
+      existingBytes += segment.getBytesWritten();
+    }
+    listener.onStart(existingBytes, totalBytes);
+    SegmentProgress progress = new SegmentProgress(segments, segmentStore);
+    AtomicReference<String> expectedChecksum = new AtomicReference<>();
+    if (firstConnection != null) {
+      expectedChecksum.set(getExpectedChecksum(firstConnection));
+    }
+    Throwable error;
+    try (RandomAccessFile out = new RandomAccessFile(file, "rw");
+        FileChannel channel = out.getChannel()) {
+      // Errors are delayed so that every segment gets as far as it can before giving up.
+      error =
+          Flowable.range(0, segments.size())
+              .filter(i -> !segments.get(i).isComplete())
+              .flatMapCompletable(
+                  i ->
+                      Completable.fromAction(
+                              () ->
+                                  downloadSegment(
+                                      url,
+                                      i == 0 ? firstConnection : null,
+                                      channel,
+                                      totalBytes,
+                                      i,
+                                      progress,
+                                      expectedChecksum,
+                                      listener))
+                          .subscribeOn(schedulers.io()),
+                  true,
+                  MAX_SEGMENTS)
+              .blockingGet();
+    } finally {
+      if (firstConnection != null) {
+        // The rest of the body was abandoned, so the connection can't be reused.
+        firstConnection.disconnect();
+      }
+    }
+    if (error instanceof CompositeException) {
+      // Prefer the error which invalidates the saved progress, if any.
+      List<Throwable> errors = ((CompositeException) error).getExceptions();
+      error = errors.get(0);
+      for (Throwable t : errors) {
+        if (t instanceof RestartRequiredException) {
+          error = t;
+        }
+      }
+    }
+    if (error instanceof RestartRequiredException) {
+      segmentStore.clear();
+      deleteFile(file);
+    }
+    if (error instanceof IOException) {
+      throw (IOException) error;
+    }
+    if (error != null) {
+      throw new IOException("Segmented download of " + url + " failed", error);
+    }
+    if (!progress.isComplete() || file.length() != totalBytes) {
+      throw new IOException("Incomplete segmented download of " + url);
+    }
+    String checksum = hashFile(file).hash().toString();
+    try {
+      verifyChecksum(url, file, expectedChecksum.get(), checksum);
+    } finally {
+      // The file is either verified or deleted; either way the saved segments are no longer needed.
+      segmentStore.clear();
+    }
+    return DownloadResult.create(totalBytes, checksum);
+  }
+
+  /**
+   * Downloads the remainder of a single segment into its place in the file, saving its progress
+   * every {@link #CHECKPOINT_BYTES} and once more when done or interrupted. If {@code
+   * firstConnection} is null, the remainder is requested with a Range header.
+   */
+  private static void downloadSegment(
+      URL url,
+      @Nullable HttpURLConnection firstConnection,
+      FileChannel channel,
+      long totalBytes,
+      int index,
+      SegmentProgress progress,
+      AtomicReference<String> expectedChecksum,
+      ProgressListener listener)
+      throws IOException {
+    TileSourceSegment segment = progress.get(index);
+    long position = segment.getStart() + segment.getBytesWritten();
+    HttpURLConnection connection = firstConnection;
+    if (connection == null) {
+      connection = openConnection(url);
+      // Request the rest of the segment, e.g. 'bytes=500-999'.
+      connection.setRequestProperty("Range", "bytes=" + position + "-" + (segment.getEnd() - 1));
+      int responseCode = connection.getResponseCode();
+      if (responseCode == HttpURLConnection.HTTP_OK) {
+        connection.disconnect();
+        throw new RestartRequiredException("Server no longer accepts ranges for " + url);
+      }
+      if (responseCode != HttpURLConnection.HTTP_PARTIAL) {
+        discardErrorStream(connection);
+        throw new UnexpectedResponseException(url, responseCode);
+      }
+      if (getRangeStart(connection) != position || getTotalBytes(connection, -1) != totalBytes) {
+        connection.disconnect();
+        throw new RestartRequiredException("File changed on server: " + url);
+      }
+      expectedChecksum.compareAndSet(null, getExpectedChecksum(connection));
+    }
+    long bytesWritten = segment.getBytesWritten();
+    long bytesSinceCheckpoint = 0;
+    try (InputStream in = connection.getInputStream()) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      while (bytesWritten < segment.getLength()) {
+        long remaining = segment.getLength() - bytesWritten;
+        int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+        if (n == -1) {
+          throw new IOException("Incomplete download of segment at " + position + " of " + url);
+        }
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, n);
+        while (byteBuffer.hasRemaining()) {
+          position += channel.write(byteBuffer, position);
+        }
+        bytesWritten += n;
+        bytesSinceCheckpoint += n;
+        listener.onBytesWritten(n);
+        if (bytesSinceCheckpoint >= CHECKPOINT_BYTES) {
+          progress.checkpoint(channel, index, bytesWritten);
+          bytesSinceCheckpoint = 0;
+        }
+      }
+    } finally {
+      if (bytesSinceCheckpoint > 0) {
+        progress.checkpoint(channel, index, bytesWritten);
+      }
+    }
+  }
+
+  private static HttpURLConnection openConnection(URL url) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+    connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+    return connection;
+  }
+
+  /**
+   * Throws if the server provided a checksum and it doesn't match the downloaded file, in which
+   * case the file is deleted so that the next attempt starts over.
+   */
+  private static void verifyChecksum(
+      URL url, File file, @Nullable String expectedChecksum, String checksum) throws IOException {
+    if (expectedChecksum != null && !expectedChecksum.equals(checksum)) {
+      deleteFile(file);
+      throw new IOException(
+          "Checksum mismatch for " + url + ": expected " + expectedChecksum + ", got " + checksum);
+    }
+  }
+
+  private static void deleteFile(File file) throws IOException {
+    if (file.exists() && !file.delete()) {
+      throw new IOException("Unable to delete " + file.getPath());
+    }
+  }
+
+  /** Returns a SHA-256 hasher primed with the current contents of the specified file. */
+  private static Hasher hashFile(File file) throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    try (InputStream in = new FileInputStream(file)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        hasher.putBytes(buffer, 0, n);
+      }
+    }
+    return hasher;
+  }
+
+  /**
+   * Copies the stream to the file, closing both once done, and feeds the copied bytes to {@code
+   * hasher}. Returns the number of bytes copied.
+   */
+  private static long copyToFile(
+      InputStream inputStream,
+      File file,
+      boolean append,
+      Hasher hasher,
+      ProgressListener listener)
+      throws IOException {
+    long bytesCopied = 0;
+    try (InputStream in = inputStream;
+        FileChannel out = new FileOutputStream(file, append).getChannel()) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, n);
+        while (byteBuffer.hasRemaining()) {
+          out.write(byteBuffer);
+        }
+        hasher.putBytes(buffer, 0, n);
+        bytesCopied += n;
+        listener.onBytesWritten(n);
+      }
+    }
+    return bytesCopied;
+  }
+
+  /**
+   * Returns the total size of the file as reported in the Content-Range response header (e.g.
+   * 'bytes 500-999/1000' or 'bytes *&#47;1000'). Falls back to the content length plus {@code
+   * offset} if the header is missing, or to -1 if {@code offset} is negative.
+   */
+  private static long getTotalBytes(HttpURLConnection connection, long offset) {
+    String contentRange = connection.getHeaderField("Content-Range");
+    if (contentRange != null) {
+      int slash = contentRange.lastIndexOf('/');
+      if (slash >= 0) {
+        try {
+          return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+          // Length is '*' (unknown); fall through.
+        }
+      }
+    }
+    long contentLength = getContentLength(connection);
+    return offset < 0 || contentLength < 0 ? -1 : offset + contentLength;
+  }
+
+  /**
+   * Returns the offset of the first byte in the Content-Range response header (e.g. 500 in 'bytes
+   * 500-999/1000'), or -1 if absent or invalid.
+   */
+  private static long getRangeStart(HttpURLConnection connection) {
+    String contentRange = connection.getHeaderField("Content-Range");
+    if (contentRange == null) {
+      return -1;
+    }
+    int space = contentRange.indexOf(' ');
+    int dash = contentRange.indexOf('-', space + 1);
+    if (space < 0 || dash < 0) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(contentRange.substring(space + 1, dash).trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /** Returns true iff the response indicates that the server supports byte Range requests. */
+  private static boolean acceptsRanges(HttpURLConnection connection) {
+    String acceptRanges = connection.getHeaderField("Accept-Ranges");
+    return acceptRanges != null && acceptRanges.trim().equalsIgnoreCase("bytes");
+  }
+
+  /**
+   * Returns the hex-encoded SHA-256 digest of the file given in the Digest response header (e.g.
+   * 'sha-256=X48E9qOokqqrvdts8nOJRJN3OWDUoyWxBf7kbu9DBPE='), or null if absent or invalid.
+   */
+  @Nullable
+  private static String getExpectedChecksum(HttpURLConnection connection) {
+    String digest = connection.getHeaderField("Digest");
+    if (digest == null) {
+      return null;
+    }
+    for (String value : digest.split(",")) {
+      int equals = value.indexOf('=');
+      if (equals > 0 && value.substring(0, equals).trim().equalsIgnoreCase("sha-256")) {
+        try {
+          byte[] sha256 = BaseEncoding.base64().decode(value.substring(equals + 1).trim());
+          return HashCode.fromBytes(sha256).toString();
+        } catch (IllegalArgumentException e) {
+          return null;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the value of the Content-Length response header, or -1 if absent or invalid. Unlike
+   * {@link HttpURLConnection#getContentLength()}, this supports files larger than 2 GB on all API
+   * levels.
+   */
+  private static long getContentLength(HttpURLConnection connection) {
+    String contentLength = connection.getHeaderField("Content-Length");
+    if (contentLength == null) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(contentLength.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /** Reads and closes the error body so that the connection can be reused. */
+  private static void discardErrorStream(HttpURLConnection connection) throws IOException {
+    try (InputStream errorStream = connection.getErrorStream()) {
+      if (errorStream == null) {
+        return;
+      }
+      byte[] buffer = new byte[BUFFER_SIZE];
+      while (errorStream.read(buffer) != -1) {
+        // Discard.
+      }
+    }
+  }
+
+  /** The size and checksum of a successfully downloaded file. */
+  @AutoValue
+  public abstract static class DownloadResult {
+    /** Returns the size of the downloaded file in bytes. */
+    public abstract long getByteCount();
+
+    /** Returns the hex-encoded SHA-256 digest of the downloaded file. */
+    public abstract String getChecksum();
+
+    static DownloadResult create(long byteCount, String checksum) {
+      return new AutoValue_TileSourceDownloader_DownloadResult(byteCount, checksum);
+    }
+  }
+
+  /** Progress of the segments of a single download, shared by the threads downloading them. */
+  private static class SegmentProgress {
+    private final TileSourceSegment[] segments;
+    private final SegmentStore segmentStore;
+
+    SegmentProgress(ImmutableList<TileSourceSegment> segments, SegmentStore segmentStore) {
+      this.segments = segments.toArray(new TileSourceSegment[0]);
+      this.segmentStore = segmentStore;
+    }
+
+    synchronized TileSourceSegment get(int index) {
+      return segments[index];
+    }
+
+    /**
+     * Flushes written data to disk and then saves the progress of the specified segment. Flushing
+     * first ensures the saved progress never runs ahead of what would survive a crash.
+     */
+    synchronized void checkpoint(FileChannel channel, int index, long bytesWritten)
+        throws IOException {
+      channel.force(false);
+      segments[index] = segments[index].withBytesWritten(bytesWritten);
+      segmentStore.save(ImmutableList.of(segments[index]));
+    }
+
+    synchronized boolean isComplete() {
+      for (TileSourceSegment segment : segments) {
+        if (!segment.isComplete()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Thrown when the saved progress of a segmented download can't be used, e.g. because the file
+   * changed on the server. The download is restarted from scratch on the next attempt.
+   */
+  private static class RestartRequiredException extends IOException {
+    RestartRequiredException(String message) {
+      super(message);
+    }
+  }
+
+  /** Thrown when the server responds to a download request with an unexpected HTTP status. */
+  public static class UnexpectedResponseException extends IOException {
+    private final int responseCode;
+
+    UnexpectedResponseException(URL url, int responseCode) {
+      super("Unexpected HTTP response " + responseCode + " for " + url);
+      this.responseCode = responseCode;
+    }
+
+    public int getResponseCode() {
+      return responseCode;
+    }
+
+    /** Returns true iff retrying the request is unlikely to succeed. */
+    public boolean isPermanent() {
+      return responseCode >= 400 && responseCode < 500 && responseCode != 408;
+    }
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.sync;
+
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.WorkManager;
+import io.reactivex.Completable;
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+/** Enqueues work to merge downloaded tile sources into the merged tile store. */
+public class TileSourceMergeWorkManager extends BaseWorkManager {
+
+  @Inject
+  public TileSourceMergeWorkManager(Provider<WorkManager> workManagerProvider) {
+    super(workManagerProvider);
+  }
+
+  @Override
+  Class<TileSourceMergeWorker> getWorkerClass() {
+    return TileSourceMergeWorker.class;
+  }
+
+  @Override
+  protected NetworkType preferredNetworkType() {
+    return NetworkType.NOT_REQUIRED;
+  }
+
+  /**
+   * Enqueues a worker that merges newly downloaded tile sources into the merged tile store,
+   * returning a completable upon enqueueing.
+   */
+  public Completable enqueueMergeWorker() {
+    return Completable.fromRunnable(this::enqueueMergeWorkerInternal);
+  }
+
+  private void enqueueMergeWorkerInternal() {
+    // Appended to the download chain so that files are never merged while being written.
+    getWorkManager()
+        .enqueueUniqueWork(
+            TileSourceDownloadWorker.class.getName(),
+            ExistingWorkPolicy.APPEND_OR_REPLACE,
+            buildWorkerRequest());
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.sync;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteCantOpenDatabaseException;
+import android.database.sqlite.SQLiteDatabaseCorruptException;
+import androidx.annotation.NonNull;
+import androidx.hilt.Assisted;
+import androidx.hilt.work.WorkerInject;
+import androidx.work.WorkerParameters;
+import com.google.android.gnd.R;
+import com.google.android.gnd.model.basemap.tile.TileSource;
+import com.google.android.gnd.model.basemap.tile.TileSource.State;
+import com.google.android.gnd.persistence.local.LocalDataStore;
+import com.google.android.gnd.persistence.mbtiles.MergedTileStore;
+import com.google.android.gnd.system.NotificationManager;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import timber.log.Timber;
+
+/**
+ * A worker that folds the tiles of newly downloaded tile sources into the {@link MergedTileStore},
+ * from which offline imagery is displayed, and removes those of tile sources which are no longer
+ * downloaded. Source files are deleted once merged. Runs in the same unique work chain as {@link
+ * TileSourceDownloadWorker} so that it never reads a download half written.
+ */
+public class TileSourceMergeWorker extends BaseWorker {
+
+  private final LocalDataStore localDataStore;
+  private final MergedTileStore mergedTileStore;
+  private final TileSourceDownloadWorkManager tileSourceDownloadWorkManager;
+
+  @WorkerInject
+  public TileSourceMergeWorker(
+      @Assisted @NonNull Context context,
+      @Assisted @NonNull WorkerParameters params,
+      LocalDataStore localDataStore,
+      MergedTileStore mergedTileStore,
+      TileSourceDownloadWorkManager tileSourceDownloadWorkManager,
+      NotificationManager notificationManager) {
+    super(context, params, notificationManager, TileSourceMergeWorker.class.hashCode());
+    this.localDataStore = localDataStore;
+    this.mergedTileStore = mergedTileStore;
+    this.tileSourceDownloadWorkManager = tileSourceDownloadWorkManager;
+  }
+
+  @NonNull
+  @Override
+  public Result doWork() {
+    try {
+      ImmutableSet<TileSource> downloaded =
+          localDataStore.getDownloadedTileSourcesOnceAndStream().blockingFirst();
+      Set<String> downloadedPaths = new HashSet<>();
+      for (TileSource tileSource : downloaded) {
+        downloadedPaths.add(tileSource.getPath());
+      }
+      ImmutableSet<String> mergedPaths = mergedTileStore.getMergedPaths();
+      // Tile sources whose areas were removed or which were re-queued for download.
+      mergedTileStore.remove(Sets.difference(mergedPaths, downloadedPaths));
+
+      ImmutableList.Builder<TileSource> requeued = ImmutableList.builder();
+      int mergedCount = 0;
+      for (TileSource tileSource : downloaded) {
+        File file = new File(getApplicationContext().getFilesDir(), tileSource.getPath());
+        if (!mergedPaths.contains(tileSource.getPath())) {
+          // Missing files are re-queued by TileSourceReconciler.
+          if (!file.exists()) {
+            continue;
+          }
+          try {
+            long byteCount = mergedTileStore.merge(file, tileSource.getPath());
+            // Storage figures and budgets count the space used in the merged store, since the
+            // file itself is deleted below.
+            localDataStore.updateTileSourceByteCount(tileSource.getId(), byteCount).blockingAwait();
+            mergedCount++;
+          } catch (SQLiteCantOpenDatabaseException | SQLiteDatabaseCorruptException e) {
+            Timber.e(e, "Unreadable tile file, re-queuing: %s", tileSource.getPath());
+            requeued.add(tileSource.toBuilder().setState(State.PENDING).build());
+            deleteFile(file);
+            continue;
+          }
+        }
+        // Once merged, tiles are only read from the merged store. Files may also be left behind
+        // if a previous run was interrupted after merging them.
+        deleteFile(file);
+      }
+      Timber.d("Merged %d tile sources", mergedCount);
+
+      ImmutableList<TileSource> requeuedTileSources = requeued.build();
+      if (!requeuedTileSources.isEmpty()) {
+        localDataStore.updateTileSourceStates(requeuedTileSources).blockingAwait();
+        tileSourceDownloadWorkManager.enqueueTileSourceDownloadWorker().blockingAwait();
+      }
+      return Result.success();
+    } catch (Throwable t) {
+      Timber.e(t, "Merging tile sources failed");
+      return Result.failure();
+    }
+  }
+
+  private static void deleteFile(File file) {
+    if (file.exists() && !file.delete()) {
+      Timber.w("Unable to delete tile file: %s", file.getPath());
+    }
+  }
+
+  @Override
+  public String getNotificationTitle() {
+    return getApplicationContext().getString(R.string.merging_tiles);
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.persistence.sync;
+
+import android.content.Context;
+import com.google.android.gnd.model.basemap.tile.TileSource;
+import com.google.android.gnd.model.basemap.tile.TileSource.State;
+import com.google.android.gnd.persistence.local.LocalDataStore;
+import com.google.android.gnd.persistence.mbtiles.MergedTileStore;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import java.io.File;
+import java.util.Arrays;
+import javax.inject.Inject;
+import timber.log.Timber;
+
+/**
+ * Brings tile source files in the app's storage back in line with the tile sources in the local db.
+ * Files which no longer belong to any tile source are deleted, and downloaded tile sources whose
+ * files are missing or truncated are marked pending so that they are downloaded again. Tile
+ * sources already folded into the {@link MergedTileStore} no longer need their files.
+ *
+ * <p>File names and tile source rows are walked side by side in path order, one page of rows at a
+ * time, so the full table is never loaded into memory. Paths aren't unique, so rows are paged by
+ * path and id.
+ */
+public class TileSourceReconciler {
+
+  private static final String MBTILES_SUFFIX = ".mbtiles";
+
+  /** Number of tile sources read from the db at a time. */
+  private static final int PAGE_SIZE = 500;
+
+  private final File dir;
+  private final LocalDataStore localDataStore;
+  private final MergedTileStore mergedTileStore;
+  private final int pageSize;
+
+  @Inject
+  public TileSourceReconciler(
+      @ApplicationContext Context context,
+      LocalDataStore localDataStore,
+      MergedTileStore mergedTileStore) {
+    this(context.getFilesDir(), localDataStore, mergedTileStore, PAGE_SIZE);
+  }
+
+  TileSourceReconciler(
+      File dir, LocalDataStore localDataStore, MergedTileStore mergedTileStore, int pageSize) {
+    this.dir = dir;
+    this.localDataStore = localDataStore;
+    this.mergedTileStore = mergedTileStore;
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Deletes orphaned tile files and re-queues downloaded tiles whose files are missing or
+   * incomplete. Blocks until done, so must not be called on the main thread.
+   */
+  public Report reconcile() {
+    // Only names are listed; there's no lazily sorted directory iterator on older API levels. Tile
+    // paths are ASCII, so String order matches SQLite's default BINARY collation used below.
+    String[] fileNames = dir.list((d, name) -> name.endsWith(MBTILES_SUFFIX));
+    if (fileNames == null) {
+      fileNames = new String[0];
+    }
+    Arrays.sort(fileNames);
+    ImmutableSet<String> mergedPaths = mergedTileStore.getMergedPaths();
+
+    int fileIndex = 0;
+    int filesDeleted = 0;
+    long bytesReclaimed = 0;
+    int tilesRequeued = 0;
+    String afterPath = "";
+    String afterId = "";
+    ImmutableList<TileSource> page;
+    do {
+      page = localDataStore.getTileSourcesOrderedByPath(afterPath, afterId, pageSize).blockingGet();
+      ImmutableList.Builder<TileSource> requeued = ImmutableList.builder();
+      for (TileSource tileSource : page) {
+        String path = tileSource.getPath();
+        // Files sorting before the current row have no row of their own.
+        while (fileIndex < fileNames.length && fileNames[fileIndex].compareTo(path) < 0) {
+          long length = deleteFile(new File(dir, fileNames[fileIndex++]));
+          if (length >= 0) {
+            filesDeleted++;
+            bytesReclaimed += length;
+          }
+        }
+        if (fileIndex < fileNames.length && fileNames[fileIndex].equals(path)) {
+          fileIndex++;
+        }
+        if (tileSource.getState() == State.DOWNLOADED
+            && !mergedPaths.contains(path)
+            && !isComplete(new File(dir, path), tileSource)) {
+          Timber.w("Tile file missing or incomplete, re-queuing: %s", path);
+          requeued.add(tileSource.toBuilder().setState(State.PENDING).build());
+        }
+      }
+      ImmutableList<TileSource> requeuedPage = requeued.build();
+      if (!requeuedPage.isEmpty()) {
+        localDataStore.updateTileSourceStates(requeuedPage).blockingAwait();
+        tilesRequeued += requeuedPage.size();
+      }
+      if (!page.isEmpty()) {
+        TileSource last = page.get(page.size() - 1);
+        afterPath = last.getPath();
+        afterId = last.getId();
+      }
+    } while (page.size() == pageSize);
+
+    // Remaining files sort after the last row.
+    while (fileIndex < fileNames.length) {
+      long length = deleteFile(new File(dir, fileNames[fileIndex++]));
+      if (length >= 0) {
+        filesDeleted++;
+        bytesReclaimed += length;
+      }
+    }
+    return Report.create(filesDeleted, bytesReclaimed, tilesRequeued);
+  }
+
+  /**
+   * Returns true iff the file of the specified downloaded tile exists and, when its size is known,
+   * matches it. Incomplete files are removed so the download restarts from scratch. The file is
+   * checked directly rather than against the listing since it may have been written since.
+   */
+  private boolean isComplete(File file, TileSource tileSource) {
+    if (!file.exists()) {
+      return false;
+    }
+    if (tileSource.getByteCount() <= 0 || file.length() == tileSource.getByteCount()) {
+      return true;
+    }
+    deleteFile(file);
+    return false;
+  }
+
+  /** Deletes the specified file, returning its length, or -1 if it couldn't be deleted. */
+  private static long deleteFile(File file) {
+    long length = file.length();
+    if (!file.delete()) {
+      Timber.w("Unable to delete tile file: %s", file.getPath());
+      return -1;
+    }
+    return length;
+  }
+
+  /** Summary of the changes made by a single reconciliation pass. */
+  @AutoValue
+  public abstract static class Report {
+    /** Number of tile files deleted because no tile source references them. */
+    public abstract int getFilesDeleted();
+
+    /** Total size of the deleted orphaned files, in bytes. */
+    public abstract long getBytesReclaimed();
+
+    /** Number of downloaded tile sources marked pending because their files were unusable. */
+    public abstract int getTilesRequeued();
+
+    static Report create(int filesDeleted, long bytesReclaimed, int tilesRequeued) {
+      return new AutoValue_TileSourceReconciler_Report(filesDeleted, bytesReclaimed, tilesRequeued);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.persistence.sync;
+
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.WorkManager;
+import io.reactivex.Completable;
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+/** Enqueues work to reconcile tile files on the device with tile sources in the local db. */
+public class TileSourceReconciliationWorkManager extends BaseWorkManager {
+
+  @Inject
+  public TileSourceReconciliationWorkManager(Provider<WorkManager> workManagerProvider) {
+    super(workManagerProvider);
+  }
+
+  @Override
+  Class<TileSourceReconciliationWorker> getWorkerClass() {
+    return TileSourceReconciliationWorker.class;
+  }
+
+  @Override
+  protected NetworkType preferredNetworkType() {
+    return NetworkType.NOT_REQUIRED;
+  }
+
+  /**
+   * Enqueues a worker that removes orphaned tile files and re-queues missing ones, returning a
+   * completable upon enqueueing.
+   */
+  public Completable enqueueReconciliationWorker() {
+    return Completable.fromRunnable(this::enqueueReconciliationWorkerInternal);
+  }
+
+  private void enqueueReconciliationWorkerInternal() {
+    // Appended to the download chain rather than its own so the two never touch files at once.
+    getWorkManager()
+        .enqueueUniqueWork(
+            TileSourceDownloadWorker.class.getName(),
+            ExistingWorkPolicy.APPEND_OR_REPLACE,
+            buildWorkerRequest());
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.persistence.sync;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.hilt.Assisted;
+import androidx.hilt.work.WorkerInject;
+import androidx.work.Data;
+import androidx.work.WorkerParameters;
+import com.google.android.gnd.R;
+import com.google.android.gnd.persistence.sync.TileSourceReconciler.Report;
+import com.google.android.gnd.system.NotificationManager;
+import timber.log.Timber;
+
+/**
+ * A worker that deletes tile files no longer referenced by any tile source and re-queues
+ * downloaded tile sources whose files have gone missing. Runs in the same unique work chain as
+ * {@link TileSourceDownloadWorker} so that it never sees a download half written.
+ */
+public class TileSourceReconciliationWorker extends BaseWorker {
+
+  public static final String FILES_DELETED_KEY = "filesDeleted";
+  public static final String BYTES_RECLAIMED_KEY = "bytesReclaimed";
+  public static final String TILES_REQUEUED_KEY = "tilesRequeued";
+
+  private final TileSourceReconciler reconciler;
+  private final TileSourceDownloadWorkManager tileSourceDownloadWorkManager;
+  private final TileSourceMergeWorkManager tileSourceMergeWorkManager;
+
+  @WorkerInject
+  public TileSourceReconciliationWorker(
+      @Assisted @NonNull Context context,
+      @Assisted @NonNull WorkerParameters params,
+      TileSourceReconciler reconciler,
+      TileSourceDownloadWorkManager tileSourceDownloadWorkManager,
+      TileSourceMergeWorkManager tileSourceMergeWorkManager,
+      NotificationManager notificationManager) {
+    super(context, params, notificationManager, TileSourceReconciliationWorker.class.hashCode());
+    this.reconciler = reconciler;
+    this.tileSourceDownloadWorkManager = tileSourceDownloadWorkManager;
+    this.tileSourceMergeWorkManager = tileSourceMergeWorkManager;
+  }
+
+  @NonNull
+  @Override
+  public Result doWork() {
+    try {
+      Report report = reconciler.reconcile();
+      Timber.i(
+          "Tile reconciliation deleted %d files (%d bytes), re-queued %d tiles",
+          report.getFilesDeleted(), report.getBytesReclaimed(), report.getTilesRequeued());
+      // Picks up files downloaded before the merged store existed or left unmerged by a crash.
+      tileSourceMergeWorkManager.enqueueMergeWorker().blockingAwait();
+      if (report.getTilesRequeued() > 0) {
+        tileSourceDownloadWorkManager.enqueueTileSourceDownloadWorker().blockingAwait();
+      }
+      return Result.success(
+          new Data.Builder()
+              .putInt(FILES_DELETED_KEY, report.getFilesDeleted())
+              .putLong(BYTES_RECLAIMED_KEY, report.getBytesReclaimed())
+              .putInt(TILES_REQUEUED_KEY, report.getTilesRequeued())
+              .build());
+    } catch (Throwable t) {
+      Timber.e(t, "Tile reconciliation failed");
+      return Result.failure();
+    }
+  }
+
+  @Override
+  public String getNotificationTitle() {
+    return getApplicationContext().getString(R.string.freeing_offline_storage);
+  }
+}
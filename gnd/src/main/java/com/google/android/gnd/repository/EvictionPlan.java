@@ -0,0 +1,153 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.repository;
+
+import androidx.annotation.Nullable;
+import com.google.android.gnd.model.basemap.OfflineBaseMap;
+import com.google.android.gnd.model.basemap.tile.TileSource;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The offline areas to remove in order to bring the storage used by downloaded tiles within a
+ * budget. Areas are removed least recently used first, where an area's last use is the latest
+ * access of any of its tiles. Pinned areas and areas which are still downloading are never removed.
+ * Areas with tiles which failed to download may be removed, with those tiles freeing no storage.
+ */
+@AutoValue
+public abstract class EvictionPlan {
+
+  /** Returns the ids of the areas to remove, in the order they should be removed. */
+  public abstract ImmutableList<String> getAreaIds();
+
+  /** Returns the number of bytes used by downloaded tiles before any areas are removed. */
+  public abstract long getBytesUsed();
+
+  /**
+   * Returns the number of bytes freed by removing the planned areas. Tiles shared with areas which
+   * are kept aren't counted, since they remain on the device. This is an estimate: merged tiles
+   * present in several tile sources are only counted against the first source to add them, so
+   * removing that source may free less than its byte count while the others still use them.
+   */
+  public abstract long getBytesFreed();
+
+  static EvictionPlan create(ImmutableList<String> areaIds, long bytesUsed, long bytesFreed) {
+    return new AutoValue_EvictionPlan(areaIds, bytesUsed, bytesFreed);
+  }
+
+  /**
+   * Returns the plan for reducing the size of the provided tiles to at most {@code budgetBytes}.
+   * If the budget is zero or negative, storage is considered unlimited and nothing is removed.
+   *
+   * @param areas all offline areas on the device
+   * @param tileIdsByArea the ids of the tiles covered by each area, keyed by area id
+   * @param tileSources all tiles on the device
+   */
+  public static EvictionPlan forBudget(
+      ImmutableCollection<OfflineBaseMap> areas,
+      ImmutableSetMultimap<String, String> tileIdsByArea,
+      ImmutableCollection<TileSource> tileSources,
+      long budgetBytes) {
+    Map<String, TileSource> tilesById = new HashMap<>();
+    long bytesUsed = 0;
+    for (TileSource tile : tileSources) {
+      tilesById.put(tile.getId(), tile);
+      if (tile.getState() == TileSource.State.DOWNLOADED) {
+        bytesUsed += tile.getByteCount();
+      }
+    }
+    if (budgetBytes <= 0 || bytesUsed <= budgetBytes) {
+      return create(ImmutableList.of(), bytesUsed, 0);
+    }
+
+    Map<String, Integer> areaCounts = new HashMap<>();
+    for (String tileId : tileIdsByArea.values()) {
+      Integer count = areaCounts.get(tileId);
+      areaCounts.put(tileId, count == null ? 1 : count + 1);
+    }
+
+    List<Candidate> candidates = new ArrayList<>();
+    for (OfflineBaseMap area : areas) {
+      ImmutableSet<String> tileIds = tileIdsByArea.get(area.getId());
+      if (!area.isPinned() && !tileIds.isEmpty()) {
+        Candidate candidate = Candidate.of(area.getId(), tileIds, tilesById);
+        if (candidate != null) {
+          candidates.add(candidate);
+        }
+      }
+    }
+    Collections.sort(candidates, (a, b) -> Long.compare(a.lastAccessed, b.lastAccessed));
+
+    ImmutableList.Builder<String> areaIds = ImmutableList.builder();
+    long bytesFreed = 0;
+    for (Candidate candidate : candidates) {
+      if (bytesUsed - bytesFreed <= budgetBytes) {
+        break;
+      }
+      areaIds.add(candidate.areaId);
+      for (String tileId : candidate.tileIds) {
+        int count = areaCounts.get(tileId) - 1;
+        areaCounts.put(tileId, count);
+        TileSource tile = tilesById.get(tileId);
+        if (count == 0 && tile.getState() == TileSource.State.DOWNLOADED) {
+          bytesFreed += tile.getByteCount();
+        }
+      }
+    }
+    return create(areaIds.build(), bytesUsed, bytesFreed);
+  }
+
+  /** An area which may be removed, along with the time any of its tiles was last used. */
+  private static class Candidate {
+    private final String areaId;
+    private final ImmutableSet<String> tileIds;
+    private final long lastAccessed;
+
+    private Candidate(String areaId, ImmutableSet<String> tileIds, long lastAccessed) {
+      this.areaId = areaId;
+      this.tileIds = tileIds;
+      this.lastAccessed = lastAccessed;
+    }
+
+    /**
+     * Returns a candidate for the specified area, or null if any of its tiles is missing or still
+     * waiting to be downloaded.
+     */
+    @Nullable
+    static Candidate of(
+        String areaId, ImmutableSet<String> tileIds, Map<String, TileSource> tilesById) {
+      long lastAccessed = 0;
+      for (String tileId : tileIds) {
+        TileSource tile = tilesById.get(tileId);
+        if (tile == null
+            || tile.getState() == TileSource.State.PENDING
+            || tile.getState() == TileSource.State.IN_PROGRESS) {
+          return null;
+        }
+        lastAccessed = Math.max(lastAccessed, tile.getLastAccessed());
+      }
+      return new Candidate(areaId, tileIds, lastAccessed);
+    }
+  }
+}
@@ -40,4 +40,26 @@ public class MapsRepository {
   public int getSavedMapType() {
     return localValueStore.getSavedMapType(DEFAULT_MAP_TYPE);
   }
+
+  public void setHeatmapEnabled(boolean enabled) {
+    localValueStore.setHeatmapEnabled(enabled);
+  }
+
+  /** Returns true iff the observation density heatmap was last shown over the map. */
+  public boolean isHeatmapEnabled() {
+    return localValueStore.isHeatmapEnabled();
+  }
+
+  /** Returns true iff map rendering metrics should be recorded, logged and shown over the map. */
+  public boolean isRenderMetricsEnabled() {
+    return localValueStore.isRenderMetricsEnabled();
+  }
+
+  /**
+   * Returns the zoom level below which features are shown as a raster overview, or 0 if features
+   * should always be shown individually.
+   */
+  public int getFeatureOverviewZoom() {
+    return localValueStore.getFeatureOverviewZoom();
+  }
 }
@@ -16,11 +16,14 @@
 
 package com.google.android.gnd.repository;
 
+import static java.lang.System.currentTimeMillis;
+
 import com.google.android.gnd.model.AuditInfo;
 import com.google.android.gnd.model.Mutation.SyncStatus;
 import com.google.android.gnd.model.Mutation.Type;
 import com.google.android.gnd.model.Project;
 import com.google.android.gnd.model.feature.Feature;
+import com.google.android.gnd.model.observation.FeatureObservationCount;
 import com.google.android.gnd.model.observation.Observation;
 import com.google.android.gnd.model.observation.ObservationMutation;
 import com.google.android.gnd.model.observation.ResponseDelta;
@@ -31,6 +34,7 @@ import com.google.android.gnd.persistence.remote.RemoteDataStore;
 import com.google.android.gnd.persistence.sync.DataSyncWorkManager;
 import com.google.android.gnd.persistence.uuid.OfflineUuidGenerator;
 import com.google.android.gnd.rx.ValueOrError;
+import com.google.android.gnd.rx.annotations.Cold;
 import com.google.android.gnd.system.auth.AuthenticationManager;
 import com.google.common.collect.ImmutableList;
 import io.reactivex.Completable;
@@ -38,8 +42,11 @@ import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import timber.log.Timber;
 
 /**
@@ -47,10 +54,14 @@ import timber.log.Timber;
  * memory data stores. For more details on this pattern and overall architecture, see
  * https://developer.android.com/jetpack/docs/guide.
  */
+@Singleton
 public class ObservationRepository {
 
   private static final long LOAD_REMOTE_OBSERVATIONS_TIMEOUT_SECS = 15;
 
+  /** Remote observations merged more recently than this are not synced again on read. */
+  private static final long OBSERVATIONS_FRESHNESS_SECS = 60;
+
   private final LocalDataStore localDataStore;
   private final RemoteDataStore remoteDataStore;
   private final FeatureRepository featureRepository;
@@ -58,6 +69,9 @@ public class ObservationRepository {
   private final OfflineUuidGenerator uuidGenerator;
   private final AuthenticationManager authManager;
 
+  /** Time in millis at which remote observations were last merged, keyed by feature id. */
+  private final Map<String, Long> lastSyncTimestamps = new ConcurrentHashMap<>();
+
   @Inject
   public ObservationRepository(
       LocalDataStore localDataStore,
@@ -76,31 +90,72 @@ public class ObservationRepository {
   }
 
   /**
-   * Retrieves the observations or the specified project, feature, and form.
+   * Returns a long-lived stream of the observations for the specified project, feature, and form.
    *
    * <ol>
-   *   <li>Attempt to sync remote observation changes to the local data store. If network is not
-   *       available or operation times out, this step is skipped.
-   *   <li>Relevant observations are returned directly from the local data store.
+   *   <li>Relevant observations are emitted directly from the local data store on subscribe.
+   *   <li>Concurrently, unless the feature's observations were synced recently, remote observation
+   *       changes are merged into the local data store. If network is not available or the
+   *       operation times out, this step is skipped.
+   *   <li>A new list is emitted only when the local observations actually change, e.g. as a result
+   *       of the remote merge.
    * </ol>
    */
-  public Single<ImmutableList<Observation>> getObservations(
+  @Cold(terminates = false)
+  public Flowable<ImmutableList<Observation>> getObservationsOnceAndStream(
       String projectId, String featureId, String formId) {
     // TODO: Only fetch first n fields.
     return featureRepository
         .getFeature(projectId, featureId)
-        .flatMap(feature -> getObservations(feature, formId));
+        .flatMapPublisher(feature -> getObservationsOnceAndStream(feature, formId));
+  }
+
+  /**
+   * Returns a long-lived stream of the number of observations of each feature in the specified
+   * project, as stored locally. A new list is emitted only when the counts actually change, e.g. as
+   * a result of remote observations being merged.
+   */
+  @Cold(terminates = false)
+  public Flowable<ImmutableList<FeatureObservationCount>> getObservationCountsOnceAndStream(
+      Project project) {
+    return localDataStore.getObservationCountsOnceAndStream(project).distinctUntilChanged();
+  }
+
+  private Flowable<ImmutableList<Observation>> getObservationsOnceAndStream(
+      Feature feature, String formId) {
+    return localDataStore
+        .getObservationsOnceAndStream(feature, formId)
+        .distinctUntilChanged()
+        .mergeWith(syncRemoteObservationsIfStale(feature));
+  }
+
+  /**
+   * Merges remote observation changes for the specified feature into the local data store, unless
+   * they were already merged in the last {@link #OBSERVATIONS_FRESHNESS_SECS} seconds. Errors are
+   * logged and ignored, leaving the feature's freshness timestamp unchanged.
+   */
+  private Completable syncRemoteObservationsIfStale(Feature feature) {
+    return Completable.defer(
+        () -> {
+          if (isFresh(feature.getId())) {
+            Timber.v("Observations of feature %s are fresh, skipping sync", feature.getId());
+            return Completable.complete();
+          }
+          return remoteDataStore
+              .loadObservations(feature)
+              .timeout(LOAD_REMOTE_OBSERVATIONS_TIMEOUT_SECS, TimeUnit.SECONDS)
+              .doOnError(t -> Timber.e(t, "Observation sync timed out"))
+              .flatMapCompletable(this::mergeRemoteObservations)
+              .doOnComplete(() -> lastSyncTimestamps.put(feature.getId(), currentTimeMillis()))
+              .onErrorComplete();
+        });
   }
 
-  private Single<ImmutableList<Observation>> getObservations(Feature feature, String formId) {
-    Completable remoteSync =
-        remoteDataStore
-            .loadObservations(feature)
-            .timeout(LOAD_REMOTE_OBSERVATIONS_TIMEOUT_SECS, TimeUnit.SECONDS)
-            .doOnError(t -> Timber.e(t, "Observation sync timed out"))
-            .flatMapCompletable(this::mergeRemoteObservations)
-            .onErrorComplete();
-    return remoteSync.andThen(localDataStore.getObservations(feature, formId));
+  private boolean isFresh(String featureId) {
+    Long lastSyncTimestamp = lastSyncTimestamps.get(featureId);
+    return lastSyncTimestamp != null
+        && currentTimeMillis() - lastSyncTimestamp
+            < TimeUnit.SECONDS.toMillis(OBSERVATIONS_FRESHNESS_SECS);
   }
 
   private Completable mergeRemoteObservations(
@@ -18,44 +18,80 @@ package com.google.android.gnd.repository;
 
 import static com.google.android.gnd.util.ImmutableListCollector.toImmutableList;
 import static com.google.android.gnd.util.ImmutableSetCollector.toImmutableSet;
+import static java.lang.System.currentTimeMillis;
 import static java8.util.stream.StreamSupport.stream;
 
+import android.content.res.Resources;
+import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gnd.R;
 import com.google.android.gnd.model.Project;
 import com.google.android.gnd.model.basemap.OfflineBaseMap;
 import com.google.android.gnd.model.basemap.OfflineBaseMap.State;
 import com.google.android.gnd.model.basemap.OfflineBaseMapSource;
 import com.google.android.gnd.model.basemap.tile.TileSource;
+import com.google.android.gnd.model.feature.Point;
 import com.google.android.gnd.persistence.local.LocalDataStore;
+import com.google.android.gnd.persistence.local.LocalValueStore;
+import com.google.android.gnd.persistence.mbtiles.FootprintFileCache;
 import com.google.android.gnd.persistence.mbtiles.MbtilesFootprintParser;
+import com.google.android.gnd.persistence.mbtiles.MergedTileStore;
+import com.google.android.gnd.persistence.mbtiles.TileSetIndex;
 import com.google.android.gnd.persistence.sync.TileSourceDownloadWorkManager;
 import com.google.android.gnd.rx.Loadable;
 import com.google.android.gnd.rx.Schedulers;
+import com.google.android.gnd.rx.annotations.Cold;
 import com.google.android.gnd.system.GeocodingManager;
-import com.google.android.gnd.ui.util.FileUtil;
+import com.google.android.gnd.system.NetworkManager;
+import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
-import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
-import java.io.File;
 import java.io.IOException;
 import java.net.URL;
-import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
-import org.apache.commons.io.FileUtils;
 import timber.log.Timber;
 
 public class OfflineBaseMapRepository {
+
+  /** Minimum time between successive prefetches around the user's track. */
+  private static final long PREFETCH_INTERVAL_SECS = 60;
+
+  /** Max number of tile sources queued by a single prefetch. */
+  private static final int MAX_PREFETCH_TILES = 4;
+
+  /**
+   * Share of the storage budget beyond which nothing more is prefetched, so that prefetched imagery
+   * never causes areas the user chose to be removed.
+   */
+  private static final double PREFETCH_BUDGET_SHARE = 0.9;
+
+  /** Prefix of the ids of the areas holding the imagery prefetched for each project. */
+  private static final String PREFETCH_AREA_ID_PREFIX = "prefetch-";
+
+  /**
+   * Size of the grid cells into which prefetched imagery is grouped, in degrees. Each cell is a
+   * separate area, so that imagery prefetched along a long route can be removed piecemeal.
+   */
+  private static final double PREFETCH_CELL_DEGREES = 0.1;
+
   private final TileSourceDownloadWorkManager tileSourceDownloadWorkManager;
   private final LocalDataStore localDataStore;
   private final ProjectRepository projectRepository;
   private final MbtilesFootprintParser geoJsonParser;
-  private final FileUtil fileUtil;
+  private final FootprintFileCache footprintFileCache;
   private final Schedulers schedulers;
   private final GeocodingManager geocodingManager;
+  private final LocalValueStore localValueStore;
+  private final NetworkManager networkManager;
+  private final MergedTileStore mergedTileStore;
+  private final Resources resources;
 
   @Inject
   public OfflineBaseMapRepository(
@@ -63,49 +99,50 @@ public class OfflineBaseMapRepository {
       LocalDataStore localDataStore,
       ProjectRepository projectRepository,
       MbtilesFootprintParser geoJsonParser,
-      FileUtil fileUtil,
+      FootprintFileCache footprintFileCache,
       Schedulers schedulers,
-      GeocodingManager geocodingManager) {
+      GeocodingManager geocodingManager,
+      LocalValueStore localValueStore,
+      NetworkManager networkManager,
+      MergedTileStore mergedTileStore,
+      Resources resources) {
     this.tileSourceDownloadWorkManager = tileSourceDownloadWorkManager;
     this.localDataStore = localDataStore;
     this.geoJsonParser = geoJsonParser;
     this.projectRepository = projectRepository;
-    this.fileUtil = fileUtil;
+    this.footprintFileCache = footprintFileCache;
     this.schedulers = schedulers;
     this.geocodingManager = geocodingManager;
+    this.localValueStore = localValueStore;
+    this.networkManager = networkManager;
+    this.mergedTileStore = mergedTileStore;
+    this.resources = resources;
   }
 
   /**
-   * Download the offline basemap source for the active project.
-   *
-   * <p>Only the first basemap source is used. Sources are always re-downloaded and overwritten on
-   * subsequent calls.
+   * Enqueue a single area and its tile sources for download, recording which tile sources the area
+   * covers so that later lookups don't need to recompute the intersection.
    */
-  private File downloadOfflineBaseMapSource(OfflineBaseMapSource offlineBaseMapSource)
-      throws IOException {
-
-    URL baseMapUrl = offlineBaseMapSource.getUrl();
-    Timber.d("Basemap url: %s, file: %s", baseMapUrl, baseMapUrl.getFile());
-    File localFile = fileUtil.getOrCreateFile(baseMapUrl.getFile());
-
-    FileUtils.copyURLToFile(baseMapUrl, localFile);
-    return localFile;
-  }
-
-  /** Enqueue a single area and its tile sources for download. */
   private Completable enqueueDownload(OfflineBaseMap area, ImmutableList<TileSource> tileSources) {
     return Flowable.fromIterable(tileSources)
-        .flatMapCompletable(
+        .concatMapSingle(
             tileSource ->
                 localDataStore
                     .getTileSource(tileSource.getUrl())
                     .map(TileSource::incrementAreaCount)
                     .toSingle(tileSource)
-                    .flatMapCompletable(localDataStore::insertOrUpdateTileSource))
+                    .flatMap(
+                        tile ->
+                            localDataStore.insertOrUpdateTileSource(tile).toSingleDefault(tile)))
+        .toList()
         .doOnError(__ -> Timber.e("failed to add/update a tile in the database"))
-        .andThen(
-            localDataStore.insertOrUpdateOfflineArea(
-                area.toBuilder().setState(State.IN_PROGRESS).build()))
+        .flatMapCompletable(
+            tiles ->
+                localDataStore
+                    .insertOrUpdateOfflineArea(area.toBuilder().setState(State.IN_PROGRESS).build())
+                    .andThen(
+                        localDataStore.insertOfflineAreaTileSources(
+                            area.getId(), ImmutableList.copyOf(tiles))))
         .andThen(tileSourceDownloadWorkManager.enqueueTileSourceDownloadWorker());
   }
 
@@ -114,7 +151,7 @@ public class OfflineBaseMapRepository {
    * source downloads.
    */
   private Completable enqueueTileSourceDownloads(OfflineBaseMap area) {
-    return getBaseMapTileSources(area)
+    return getBaseMapTileSources(area, true)
         .flatMapCompletable(tileSources -> enqueueDownload(area, tileSources))
         .doOnComplete(() -> Timber.d("area download completed"))
         .doOnError(throwable -> Timber.e(throwable, "failed to download area"))
@@ -124,25 +161,159 @@ public class OfflineBaseMapRepository {
   /**
    * Get a list of tile sources specified in the first basemap source of the active project that
    * intersect a given area.
+   *
+   * @param revalidate if true, the cached footprint file is first revalidated with the server.
+   *     Otherwise, only the cached copy is used and the network is never accessed.
    */
-  private Single<ImmutableList<TileSource>> getBaseMapTileSources(OfflineBaseMap offlineBaseMap) {
+  private Single<ImmutableList<TileSource>> getBaseMapTileSources(
+      OfflineBaseMap offlineBaseMap, boolean revalidate) {
     LatLngBounds bounds = offlineBaseMap.getBounds();
+    return getFootprintIndex(revalidate)
+        .map(index -> geoJsonParser.intersectingTiles(bounds, index))
+        .doOnError(
+            throwable ->
+                Timber.e(throwable, "couldn't retrieve basemap sources for the active project"));
+  }
 
-    // TODO: Simplify this stream.
-    return projectRepository
-        .getProjectLoadingState()
-        .compose(Loadable::values)
-        .map(Project::getOfflineBaseMapSources)
+  /**
+   * Returns the footprint index of the first basemap source of the active project.
+   *
+   * @param revalidate if true, the cached footprint file is first revalidated with the server.
+   *     Otherwise, only the cached copy is used and the network is never accessed.
+   */
+  private Single<TileSetIndex> getFootprintIndex(boolean revalidate) {
+    return getActiveProject().flatMap(project -> getFootprintIndex(project, revalidate));
+  }
+
+  /** Returns the footprint index of the first basemap source of the specified project. */
+  private Single<TileSetIndex> getFootprintIndex(Project project, boolean revalidate) {
+    return Flowable.fromIterable(project.getOfflineBaseMapSources())
+        .firstOrError()
         .doOnError(
             throwable -> Timber.e(throwable, "no basemap sources specified for the active project"))
-        .map(ImmutableList::asList)
-        .flatMap(Flowable::fromIterable)
+        .map(OfflineBaseMapSource::getUrl)
+        .observeOn(schedulers.io())
+        .map(url -> getFootprintIndex(url, revalidate));
+  }
+
+  private Single<Project> getActiveProject() {
+    return projectRepository.getProjectLoadingState().compose(Loadable::values).firstOrError();
+  }
+
+  private TileSetIndex getFootprintIndex(URL url, boolean revalidate) throws IOException {
+    return revalidate ? footprintFileCache.getIndex(url) : footprintFileCache.getCachedIndex(url);
+  }
+
+  /**
+   * Returns a completable which, while prefetching is enabled in settings and the device is on an
+   * unmetered network, queues tile sources around the recent positions in {@code locations} for
+   * download. Tiles ahead of the user are queued before those behind them. Prefetched tiles are
+   * added to unpinned offline areas, one per project and grid cell of {@link
+   * #PREFETCH_CELL_DEGREES}, so prefetched imagery is subject to the storage budget like any other
+   * area and the least recently used cells are removed first. Only the cached footprint index is
+   * used, so prefetching never fetches footprints or geocodes names. Failed prefetches are logged
+   * and skipped.
+   */
+  @Cold(terminates = false)
+  public Completable prefetchAroundTrack(Flowable<Point> locations) {
+    return locations
+        .scan(ImmutableList.<Point>of(), PrefetchPlan::appendToTrack)
+        .skip(1)
+        .throttleLatest(PREFETCH_INTERVAL_SECS, TimeUnit.SECONDS, schedulers.io())
+        .filter(
+            __ ->
+                localValueStore.getOfflinePrefetchRadius() > 0
+                    && networkManager.isUnmeteredNetworkAvailable())
+        .concatMapCompletable(
+            track ->
+                prefetch(track, localValueStore.getOfflinePrefetchRadius())
+                    .doOnError(t -> Timber.e(t, "Prefetch failed"))
+                    .onErrorComplete());
+  }
+
+  /** Queues the highest priority tiles around the track which aren't on the device already. */
+  private Completable prefetch(ImmutableList<Point> track, int radiusMeters) {
+    long budgetBytes = localValueStore.getOfflineStorageBudget();
+    return localDataStore
+        .getDownloadedTileSourcesByteCountOnceAndStream()
         .firstOrError()
-        .map(this::downloadOfflineBaseMapSource)
-        .map(json -> geoJsonParser.intersectingTiles(bounds, json))
-        .doOnError(
-            throwable ->
-                Timber.e(throwable, "couldn't retrieve basemap sources for the active project"));
+        .filter(bytesUsed -> budgetBytes <= 0 || bytesUsed < budgetBytes * PREFETCH_BUDGET_SHARE)
+        .flatMapCompletable(
+            __ ->
+                getActiveProject()
+                    .flatMapCompletable(project -> prefetch(project, track, radiusMeters)));
+  }
+
+  private Completable prefetch(Project project, ImmutableList<Point> track, int radiusMeters) {
+    return Single.zip(
+            getFootprintIndex(project, false),
+            localDataStore.getTileSourcesOnceAndStream().firstOrError(),
+            (index, tileSources) -> getPrefetchTiles(track, radiusMeters, index, tileSources))
+        .filter(tilesByCell -> !tilesByCell.isEmpty())
+        .flatMapCompletable(
+            tilesByCell -> {
+              Timber.d("Prefetching %d tiles", tilesByCell.size());
+              return Observable.fromIterable(tilesByCell.asMap().entrySet())
+                  .concatMapCompletable(
+                      entry ->
+                          getPrefetchArea(project, entry.getKey())
+                              .flatMapCompletable(
+                                  area ->
+                                      enqueueDownload(
+                                          area, ImmutableList.copyOf(entry.getValue()))));
+            });
+  }
+
+  /**
+   * Returns the project's prefetch area for the specified cell, or a new area covering the cell if
+   * nothing has been prefetched in it yet.
+   */
+  private Single<OfflineBaseMap> getPrefetchArea(Project project, PrefetchCell cell) {
+    String id = PREFETCH_AREA_ID_PREFIX + project.getId() + "_" + cell.getAreaIdSuffix();
+    LatLngBounds bounds = cell.getBounds();
+    return localDataStore
+        .getOfflineAreaById(id)
+        .onErrorResumeNext(
+            t ->
+                t instanceof NoSuchElementException
+                    ? Single.just(
+                        OfflineBaseMap.newBuilder()
+                            .setId(id)
+                            .setBounds(bounds)
+                            .setState(State.PENDING)
+                            .setName(
+                                resources.getString(
+                                    R.string.prefetched_area_name,
+                                    bounds.getCenter().latitude,
+                                    bounds.getCenter().longitude,
+                                    project.getTitle()))
+                            .build())
+                    : Single.error(t));
+  }
+
+  /**
+   * Returns the tiles in the index to prefetch around the track, excluding those already known,
+   * keyed by the cell containing the point of each tile set nearest the user's current position.
+   */
+  private ImmutableListMultimap<PrefetchCell, TileSource> getPrefetchTiles(
+      ImmutableList<Point> track,
+      int radiusMeters,
+      TileSetIndex index,
+      ImmutableSet<TileSource> existingTileSources) {
+    ImmutableSet<String> existingUrls =
+        stream(existingTileSources).map(TileSource::getUrl).collect(toImmutableSet());
+    PrefetchPlan plan =
+        PrefetchPlan.forTrack(track, radiusMeters, index, existingUrls, MAX_PREFETCH_TILES);
+    Point current = track.get(track.size() - 1);
+    ImmutableListMultimap.Builder<PrefetchCell, TileSource> tilesByCell =
+        ImmutableListMultimap.builder();
+    for (int i : plan.getPositions()) {
+      double[] nearest = index.nearestPoint(i, current.getLatitude(), current.getLongitude());
+      tilesByCell.putAll(
+          PrefetchCell.containing(nearest[0], nearest[1]),
+          geoJsonParser.tilesAt(index, ImmutableList.of(i)));
+    }
+    return tilesByCell.build();
   }
 
   public Completable addAreaAndEnqueue(OfflineBaseMap baseMap) {
@@ -161,46 +332,66 @@ public class OfflineBaseMapRepository {
   }
 
   /**
-   * Returns the intersection of downloaded tiles in two collections of tiles. Tiles are considered
-   * equal if their URLs are equal.
+   * Returns a long-lived stream that emits the store holding the tiles of all downloaded tile
+   * sources on subscribe and each time its tiles change.
    */
-  private ImmutableSet<TileSource> downloadedTileSourcesIntersection(
-      Collection<TileSource> tileSources, Collection<TileSource> other) {
-    ImmutableList<String> otherUrls =
-        stream(other).map(TileSource::getUrl).collect(toImmutableList());
+  @Cold(terminates = false)
+  public Flowable<MergedTileStore> getMergedTileStoreOnceAndStream() {
+    return mergedTileStore.getChangesOnceAndStream();
+  }
 
-    return stream(tileSources)
-        .filter(tile -> otherUrls.contains(tile.getUrl()))
-        .filter(tile -> tile.getState() == TileSource.State.DOWNLOADED)
-        .collect(toImmutableSet());
+  /**
+   * Returns a long-lived stream that emits the total size in bytes of all downloaded tile sources
+   * on the device on subscribe and each time it changes.
+   */
+  public Flowable<Long> getDownloadedTileSourcesByteCountOnceAndStream() {
+    return localDataStore.getDownloadedTileSourcesByteCountOnceAndStream();
   }
 
-  public Flowable<ImmutableSet<TileSource>> getIntersectingDownloadedTileSourcesOnceAndStream(
-      OfflineBaseMap offlineBaseMap) {
-    return getBaseMapTileSources(offlineBaseMap)
-        .flatMapPublisher(
-            tiles ->
-                getDownloadedTileSourcesOnceAndStream()
-                    .map(ts -> downloadedTileSourcesIntersection(ts, tiles)))
-        // If no tile sources are found, we report the area takes up 0.0mb on the device.
-        .doOnError(
-            throwable -> Timber.d(throwable, "no tile sources found for area %s", offlineBaseMap))
-        .onErrorReturn(__ -> ImmutableSet.of());
+  /**
+   * Returns a long-lived stream that emits the size in bytes of the downloaded tile sources covered
+   * by the specified area on subscribe and each time it changes.
+   */
+  public Flowable<Long> getAreaByteCountOnceAndStream(OfflineBaseMap offlineBaseMap) {
+    return localDataStore.getOfflineAreaByteCountOnceAndStream(offlineBaseMap.getId());
   }
 
-  public Maybe<ImmutableSet<TileSource>> getIntersectingDownloadedTileSourcesOnce(
-      OfflineBaseMap offlineBaseMap) {
-    return getIntersectingDownloadedTileSourcesOnceAndStream(offlineBaseMap).firstElement();
+  /** Sets whether the specified area is exempt from removal when storage runs low. */
+  public Completable setAreaPinned(String offlineAreaId, boolean pinned) {
+    return localDataStore.updateOfflineAreaPinned(offlineAreaId, pinned);
   }
 
-  public Flowable<ImmutableSet<TileSource>> getDownloadedTileSourcesOnceAndStream() {
-    return localDataStore
-        .getTileSourcesOnceAndStream()
-        .map(
-            set ->
-                stream(set)
-                    .filter(tileSource -> tileSource.getState() == TileSource.State.DOWNLOADED)
-                    .collect(toImmutableSet()));
+  /** Records that tiles were just read from the tile sources with the specified paths. */
+  public Completable recordTileSourceAccess(ImmutableSet<String> paths) {
+    return localDataStore.updateTileSourcesLastAccessed(paths, currentTimeMillis());
+  }
+
+  /**
+   * Returns the areas which would need to be removed to reduce the storage used by offline tiles to
+   * at most {@code budgetBytes}.
+   */
+  public Single<EvictionPlan> getEvictionPlan(long budgetBytes) {
+    return Single.zip(
+        localDataStore.getOfflineAreasOnceAndStream().firstOrError(),
+        localDataStore.getOfflineAreaTileSourceIds(),
+        localDataStore.getTileSourcesOnceAndStream().firstOrError(),
+        (areas, tileIdsByArea, tileSources) ->
+            EvictionPlan.forBudget(areas, tileIdsByArea, tileSources, budgetBytes));
+  }
+
+  /**
+   * Removes the least recently used unpinned areas until the storage used by offline tiles is at
+   * most {@code budgetBytes}, or until no more areas can be removed.
+   */
+  public Completable enforceStorageBudget(long budgetBytes) {
+    return getEvictionPlan(budgetBytes)
+        .doOnSuccess(
+            plan ->
+                Timber.d(
+                    "Removing %d areas to free %d of %d bytes",
+                    plan.getAreaIds().size(), plan.getBytesFreed(), plan.getBytesUsed()))
+        .flattenAsObservable(EvictionPlan::getAreaIds)
+        .concatMapCompletable(this::deleteArea);
   }
 
   /**
@@ -209,16 +400,62 @@ public class OfflineBaseMapRepository {
    */
   public Completable deleteArea(String offlineAreaId) {
     return localDataStore
-        .getOfflineAreaById(offlineAreaId)
-        .flatMapMaybe(this::getIntersectingDownloadedTileSourcesOnce)
-        .flatMapObservable(Observable::fromIterable)
-        .map(TileSource::decrementAreaCount)
+        .getOfflineAreaTileSources(offlineAreaId)
+        .map(
+            tileSources ->
+                stream(tileSources)
+                    .map(TileSource::decrementAreaCount)
+                    .collect(toImmutableList()))
         .flatMapCompletable(
-            tile ->
-                localDataStore
-                    .updateTileSourceBasemapReferenceCountByUrl(
-                        tile.getBasemapReferenceCount(), tile.getUrl())
-                    .andThen(localDataStore.deleteTileByUrl(tile)))
+            tileSources ->
+                Observable.fromIterable(tileSources)
+                    .flatMapCompletable(
+                        tile ->
+                            localDataStore
+                                .updateTileSourceBasemapReferenceCountByUrl(
+                                    tile.getBasemapReferenceCount(), tile.getUrl())
+                                .andThen(localDataStore.deleteTileByUrl(tile)))
+                    .andThen(removeMergedTiles(tileSources)))
         .andThen(localDataStore.deleteOfflineArea(offlineAreaId));
   }
+
+  /**
+   * Removes the tiles of tile sources no longer used by any area from the merged tile store, in a
+   * single transaction.
+   */
+  private Completable removeMergedTiles(ImmutableList<TileSource> tileSources) {
+    ImmutableList<String> paths =
+        stream(tileSources)
+            .filter(tile -> tile.getBasemapReferenceCount() < 1)
+            .map(TileSource::getPath)
+            .collect(toImmutableList());
+    return Completable.fromAction(() -> mergedTileStore.remove(paths))
+        .subscribeOn(schedulers.io());
+  }
+
+  /** A cell of the grid into which prefetched imagery is grouped. */
+  @AutoValue
+  abstract static class PrefetchCell {
+    abstract int getRow();
+
+    abstract int getColumn();
+
+    static PrefetchCell containing(double latitude, double longitude) {
+      return new AutoValue_OfflineBaseMapRepository_PrefetchCell(
+          (int) Math.floor(latitude / PREFETCH_CELL_DEGREES),
+          (int) Math.floor(longitude / PREFETCH_CELL_DEGREES));
+    }
+
+    String getAreaIdSuffix() {
+      return getRow() + "_" + getColumn();
+    }
+
+    LatLngBounds getBounds() {
+      double south = getRow() * PREFETCH_CELL_DEGREES;
+      double west = getColumn() * PREFETCH_CELL_DEGREES;
+      return new LatLngBounds(
+          new LatLng(south, west),
+          new LatLng(south + PREFETCH_CELL_DEGREES, west + PREFETCH_CELL_DEGREES));
+    }
+  }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.repository;
+
+import androidx.annotation.Nullable;
+import com.google.android.gnd.model.feature.Point;
+import com.google.android.gnd.persistence.mbtiles.TileSetIndex;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The tile sets to download ahead of time around the user's recent positions. Tile sets are ranked
+ * by their distance from the nearest recent position, with those behind the user's direction of
+ * travel weighted as up to twice as far away as those ahead.
+ */
+@AutoValue
+public abstract class PrefetchPlan {
+
+  /** Approximate length of one degree of latitude. */
+  private static final double METERS_PER_DEGREE = 111_320;
+
+  /** Max number of recent positions retained in a track. */
+  static final int MAX_TRACK_POINTS = 10;
+
+  /** Positions closer than this to the previous one replace it rather than extending the track. */
+  static final double MIN_TRACK_SPACING_METERS = 20;
+
+  /** Number of positions back along the track from which the heading is measured. */
+  private static final int HEADING_LOOKBACK = 3;
+
+  /** Returns the positions in the index of the tile sets to download, highest priority first. */
+  public abstract ImmutableList<Integer> getPositions();
+
+  static PrefetchPlan create(ImmutableList<Integer> positions) {
+    return new AutoValue_PrefetchPlan(positions);
+  }
+
+  /**
+   * Returns the specified track with {@code point} appended as the most recent position. Only the
+   * last {@link #MAX_TRACK_POINTS} positions are kept, and positions less than {@link
+   * #MIN_TRACK_SPACING_METERS} from the previous one replace it, so that the track spans a useful
+   * distance even when the user is standing still.
+   */
+  public static ImmutableList<Point> appendToTrack(ImmutableList<Point> track, Point point) {
+    List<Point> points = new ArrayList<>(track);
+    if (!points.isEmpty()
+        && distanceMeters(points.get(points.size() - 1), point) < MIN_TRACK_SPACING_METERS) {
+      points.remove(points.size() - 1);
+    }
+    points.add(point);
+    int from = Math.max(0, points.size() - MAX_TRACK_POINTS);
+    return ImmutableList.copyOf(points.subList(from, points.size()));
+  }
+
+  /**
+   * Returns the plan for downloading at most {@code maxTiles} tile sets within {@code radiusMeters}
+   * of the positions in {@code track}.
+   *
+   * @param track recent positions, oldest first; the last is the user's current position
+   * @param index the footprints of all tile sets available to the project
+   * @param excludedUrls URLs of tile sets which are already on the device or queued
+   */
+  public static PrefetchPlan forTrack(
+      ImmutableList<Point> track,
+      double radiusMeters,
+      TileSetIndex index,
+      ImmutableSet<String> excludedUrls,
+      int maxTiles) {
+    if (track.isEmpty() || radiusMeters <= 0 || maxTiles <= 0) {
+      return create(ImmutableList.of());
+    }
+    Point current = track.get(track.size() - 1);
+    double[] heading = heading(track);
+    Map<Integer, Double> scores = new HashMap<>();
+    for (Point point : track) {
+      double dLat = radiusMeters / METERS_PER_DEGREE;
+      double dLng = dLat / Math.max(Math.cos(Math.toRadians(point.getLatitude())), 0.01);
+      for (int i :
+          index.findIntersecting(
+              point.getLatitude() - dLat,
+              wrapLongitude(point.getLongitude() - dLng),
+              point.getLatitude() + dLat,
+              wrapLongitude(point.getLongitude() + dLng))) {
+        if (scores.containsKey(i) || excludedUrls.contains(index.getUrl(i))) {
+          continue;
+        }
+        double distance = distanceMeters(track, index, i);
+        if (distance <= radiusMeters) {
+          scores.put(i, distance * headingWeight(index, i, current, heading));
+        }
+      }
+    }
+    List<Integer> candidates = new ArrayList<>(scores.keySet());
+    Collections.sort(candidates, (a, b) -> Double.compare(scores.get(a), scores.get(b)));
+    ImmutableList.Builder<Integer> positions = ImmutableList.builder();
+    // Footprint files may list the same source more than once; keep one entry per URL.
+    Set<String> urls = new HashSet<>();
+    for (int i : candidates) {
+      if (urls.size() == maxTiles) {
+        break;
+      }
+      if (urls.add(index.getUrl(i))) {
+        positions.add(i);
+      }
+    }
+    return create(positions.build());
+  }
+
+  /** Returns the distance from the nearest point in the track to the footprint's bounding box. */
+  private static double distanceMeters(ImmutableList<Point> track, TileSetIndex index, int i) {
+    double min = Double.MAX_VALUE;
+    for (Point point : track) {
+      double[] nearest = index.nearestPoint(i, point.getLatitude(), point.getLongitude());
+      min = Math.min(min, distanceMeters(point, nearest[0], nearest[1]));
+    }
+    return min;
+  }
+
+  /**
+   * Returns a weight between 1 for footprints straight ahead of the user and 2 for footprints
+   * directly behind them, or 1 if the heading is unknown or the user is within the footprint.
+   */
+  private static double headingWeight(
+      TileSetIndex index, int i, Point current, @Nullable double[] heading) {
+    if (heading == null) {
+      return 1;
+    }
+    double[] nearest = index.nearestPoint(i, current.getLatitude(), current.getLongitude());
+    double[] direction = offsetMeters(current, nearest[0], nearest[1]);
+    double length = Math.hypot(direction[0], direction[1]);
+    if (length == 0) {
+      return 1;
+    }
+    double cos = (direction[0] * heading[0] + direction[1] * heading[1]) / length;
+    return 1 + (1 - cos) / 2;
+  }
+
+  /**
+   * Returns the user's direction of travel as a unit vector of east and north components, or null
+   * if they haven't moved far enough for it to be known.
+   */
+  @Nullable
+  private static double[] heading(ImmutableList<Point> track) {
+    if (track.size() < 2) {
+      return null;
+    }
+    Point current = track.get(track.size() - 1);
+    Point previous = track.get(Math.max(0, track.size() - 1 - HEADING_LOOKBACK));
+    double[] offset = offsetMeters(previous, current.getLatitude(), current.getLongitude());
+    double length = Math.hypot(offset[0], offset[1]);
+    if (length < MIN_TRACK_SPACING_METERS) {
+      return null;
+    }
+    return new double[] {offset[0] / length, offset[1] / length};
+  }
+
+  private static double distanceMeters(Point from, Point to) {
+    return distanceMeters(from, to.getLatitude(), to.getLongitude());
+  }
+
+  private static double distanceMeters(Point from, double lat, double lng) {
+    double[] offset = offsetMeters(from, lat, lng);
+    return Math.hypot(offset[0], offset[1]);
+  }
+
+  /**
+   * Returns the east and north offsets in meters from {@code from} to the specified point, using an
+   * equirectangular approximation which is accurate enough at prefetch distances.
+   */
+  private static double[] offsetMeters(Point from, double lat, double lng) {
+    double dLng = wrapLongitude(lng - from.getLongitude());
+    double cosLat = Math.cos(Math.toRadians((from.getLatitude() + lat) / 2));
+    return new double[] {
+      dLng * METERS_PER_DEGREE * cosLat, (lat - from.getLatitude()) * METERS_PER_DEGREE
+    };
+  }
+
+  private static double wrapLongitude(double lng) {
+    if (lng < -180) {
+      return lng + 360;
+    }
+    return lng > 180 ? lng - 360 : lng;
+  }
+}
@@ -17,6 +17,7 @@
 package com.google.android.gnd.repository;
 
 import static com.google.android.gnd.util.ImmutableListCollector.toImmutableList;
+import static java.lang.System.currentTimeMillis;
 import static java8.util.stream.StreamSupport.stream;
 
 import com.google.android.gnd.model.Mutation;
@@ -33,7 +34,9 @@ import com.google.android.gnd.rx.annotations.Cold;
 import com.google.android.gnd.rx.annotations.Hot;
 import com.google.android.gnd.ui.map.CameraPosition;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 import io.reactivex.Single;
 import io.reactivex.processors.BehaviorProcessor;
 import io.reactivex.processors.FlowableProcessor;
@@ -55,6 +58,7 @@ public class ProjectRepository {
 
   private static final long LOAD_REMOTE_PROJECT_TIMEOUT_SECS = 15;
   private static final long LOAD_REMOTE_PROJECT_SUMMARIES_TIMEOUT_SECS = 30;
+  private static final long PROJECT_SUMMARIES_TTL_SECS = TimeUnit.HOURS.toSeconds(1);
 
   private final UserRepository userRepository;
   private final LocalDataStore localDataStore;
@@ -96,13 +100,43 @@ public class ProjectRepository {
       return Flowable.just(Loadable.notLoaded());
     }
     String id = projectId.get();
-    return syncProjectWithRemote(id)
-        .onErrorResumeNext(__ -> getProject(id))
-        .doOnSuccess(__ -> localValueStore.setLastActiveProjectId(id))
-        .toFlowable()
+    Flowable<Project> project =
+        localValueStore.shouldActivateProjectsOfflineFirst()
+            ? loadCachedProjectAndRefresh(id)
+            : syncProjectWithRemote(id).onErrorResumeNext(__ -> getProject(id)).toFlowable();
+    return project
+        .doOnNext(__ -> localValueStore.setLastActiveProjectId(id))
         .compose(Loadable::loadingOnceAndWrap);
   }
 
+  /**
+   * Emits the project from the local db immediately if cached, then refreshes it from the remote
+   * data store in the background, emitting the refreshed project only if its layers, forms or ACL
+   * changed. Falls back to loading the project from remote if not yet cached.
+   */
+  @Cold
+  private Flowable<Project> loadCachedProjectAndRefresh(String id) {
+    return localDataStore
+        .getProjectById(id)
+        .doOnSuccess(__ -> Timber.d("Activating cached project %s", id))
+        .flatMapPublisher(cached -> Flowable.just(cached).concatWith(refreshProject(cached)))
+        .switchIfEmpty(syncProjectWithRemote(id).toFlowable());
+  }
+
+  @Cold(errors = false)
+  private Maybe<Project> refreshProject(Project cached) {
+    return syncProjectWithRemote(cached.getId())
+        .filter(remote -> isSchemaOrAclChanged(cached, remote))
+        .doOnSuccess(__ -> Timber.d("Project %s changed on remote, reloading", cached.getId()))
+        .onErrorComplete();
+  }
+
+  private static boolean isSchemaOrAclChanged(Project cached, Project remote) {
+    // Layer order isn't guaranteed to be preserved in the local db, so compare as sets.
+    return !ImmutableSet.copyOf(cached.getLayers()).equals(ImmutableSet.copyOf(remote.getLayers()))
+        || !cached.getAcl().equals(remote.getAcl());
+  }
+
   /** This only works if the project is already cached to local db. */
   @Cold
   public Single<Project> getProject(String projectId) {
@@ -144,26 +178,63 @@ public class ProjectRepository {
     selectProjectEvent.onNext(Optional.of(projectId));
   }
 
+  /**
+   * Emits summaries of projects readable by the specified user. Summaries cached in the local db
+   * are emitted immediately. If they are older than {@link #PROJECT_SUMMARIES_TTL_SECS}, they are
+   * then revalidated against the remote data store, emitting the updated list on success. If no
+   * summaries are cached and the remote isn't reachable, the error is emitted.
+   */
   @Cold
   public Flowable<Loadable<List<Project>>> getProjectSummaries(User user) {
-    return loadProjectSummariesFromRemote(user)
-        .doOnSubscribe(__ -> Timber.d("Loading project list from remote"))
-        .doOnError(err -> Timber.d(err, "Failed to load project list from remote"))
-        .onErrorResumeNext(__ -> localDataStore.getProjects())
-        .toFlowable()
+    long minCachedAt =
+        currentTimeMillis() - TimeUnit.SECONDS.toMillis(PROJECT_SUMMARIES_TTL_SECS);
+    return localDataStore
+        .isProjectSummaryCacheFresh(user, minCachedAt)
+        .flatMapPublisher(
+            fresh ->
+                fresh
+                    ? localDataStore.getProjectSummaries(user).toFlowable()
+                    : loadAndRevalidateProjectSummaries(user))
+        .<List<Project>>map(summaries -> summaries)
         .compose(Loadable::loadingOnceAndWrap);
   }
 
   @Cold
-  public Single<ImmutableList<Project>> getOfflineProjects() {
-    return localDataStore.getProjects();
+  private Flowable<ImmutableList<Project>> loadAndRevalidateProjectSummaries(User user) {
+    return localDataStore
+        .getProjectSummaries(user)
+        .flatMapPublisher(
+            cached ->
+                cached.isEmpty()
+                    ? syncProjectSummariesWithRemote(user).toFlowable()
+                    : Flowable.just(cached)
+                        .concatWith(
+                            syncProjectSummariesWithRemote(user)
+                                .filter(updated -> !updated.equals(cached))
+                                .onErrorComplete()));
   }
 
+  /**
+   * Loads project summaries from remote and replaces the ones cached in the local db, returning
+   * the updated cached summaries. Cached summaries are left unchanged if loading fails.
+   */
   @Cold
-  private Single<List<Project>> loadProjectSummariesFromRemote(User user) {
+  private Single<ImmutableList<Project>> syncProjectSummariesWithRemote(User user) {
     return remoteDataStore
         .loadProjectSummaries(user)
-        .timeout(LOAD_REMOTE_PROJECT_SUMMARIES_TIMEOUT_SECS, TimeUnit.SECONDS);
+        .timeout(LOAD_REMOTE_PROJECT_SUMMARIES_TIMEOUT_SECS, TimeUnit.SECONDS)
+        .flatMap(
+            summaries ->
+                localDataStore
+                    .replaceProjectSummaries(user, ImmutableList.copyOf(summaries))
+                    .andThen(localDataStore.getProjectSummaries(user)))
+        .doOnSubscribe(__ -> Timber.d("Loading project list from remote"))
+        .doOnError(err -> Timber.d(err, "Failed to load project list from remote"));
+  }
+
+  @Cold
+  public Single<ImmutableList<Project>> getOfflineProjects() {
+    return localDataStore.getProjects();
   }
 
   /** Clears the currently active project from cache. */
@@ -18,11 +18,16 @@ package com.google.android.gnd.repository;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
 import android.net.Uri;
 import android.os.Environment;
 import android.provider.MediaStore;
 import com.google.android.gnd.Config;
 import com.google.android.gnd.model.form.Field;
+import com.google.android.gnd.model.observation.PhotoPreset;
+import com.google.android.gnd.persistence.local.LocalValueStore;
 import com.google.android.gnd.persistence.remote.RemoteStorageManager;
 import com.google.android.gnd.persistence.uuid.OfflineUuidGenerator;
 import com.google.android.gnd.rx.annotations.Cold;
@@ -43,24 +48,34 @@ import timber.log.Timber;
 @Singleton
 public class UserMediaRepository {
 
+  /** Subdirectory of the app cache dir where re-encoded copies of photos are staged for upload. */
+  private static final String UPLOAD_DIR = "upload";
+
   private final Context context;
   private final RemoteStorageManager remoteStorageManager;
   private final OfflineUuidGenerator uuidGenerator;
+  private final LocalValueStore localValueStore;
 
   @Inject
   public UserMediaRepository(
       @ApplicationContext Context context,
       RemoteStorageManager remoteStorageManager,
-      OfflineUuidGenerator uuidGenerator) {
+      OfflineUuidGenerator uuidGenerator,
+      LocalValueStore localValueStore) {
     this.context = context;
     this.remoteStorageManager = remoteStorageManager;
     this.uuidGenerator = uuidGenerator;
+    this.localValueStore = localValueStore;
   }
 
   private File getRootDir() {
     return context.getExternalFilesDir(Environment.DIRECTORY_PICTURES);
   }
 
+  private File getUploadDir() {
+    return new File(context.getCacheDir(), UPLOAD_DIR);
+  }
+
   public String createImageFilename(Field field) {
     return field.getId() + "-" + uuidGenerator.generateUuid() + Config.PHOTO_EXT;
   }
@@ -76,13 +91,112 @@ public class UserMediaRepository {
    */
   public File savePhoto(Bitmap bitmap, Field field) throws IOException {
     File file = createImageFile(field);
-    try (FileOutputStream fos = new FileOutputStream(file)) {
-      bitmap.compress(Bitmap.CompressFormat.JPEG, 100, fos);
-    }
+    PhotoPreset preset = localValueStore.getPhotoPreset();
+    writeJpeg(scaleToFit(bitmap, preset), file, preset);
     Timber.d("Photo saved %s : %b", file.getPath(), file.exists());
     return file;
   }
 
+  /**
+   * Returns the file to be uploaded for the specified local photo. If the photo exceeds the size of
+   * the current {@link PhotoPreset}, a downscaled and re-encoded copy is created in the app's cache
+   * dir. Once created, the same copy is returned on subsequent calls so that interrupted uploads
+   * can be resumed.
+   *
+   * @throws IOException If the photo can't be read or the copy can't be written
+   */
+  public File getUploadFile(File photo) throws IOException {
+    PhotoPreset preset = localValueStore.getPhotoPreset();
+    File uploadFile = new File(getUploadDir(), photo.getName());
+    if (uploadFile.exists()) {
+      return uploadFile;
+    }
+    BitmapFactory.Options bounds = new BitmapFactory.Options();
+    bounds.inJustDecodeBounds = true;
+    BitmapFactory.decodeFile(photo.getPath(), bounds);
+    if (!preset.shouldReencode(bounds.outWidth, bounds.outHeight)) {
+      return photo;
+    }
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    options.inSampleSize = preset.getSampleSize(bounds.outWidth, bounds.outHeight);
+    Bitmap bitmap = BitmapFactory.decodeFile(photo.getPath(), options);
+    if (bitmap == null) {
+      throw new IOException("Unable to decode photo " + photo.getPath());
+    }
+    // Re-encoding drops EXIF metadata, so orientation must be applied to the pixels themselves.
+    bitmap = rotate(scaleToFit(bitmap, preset), getExifRotation(photo));
+    if (!getUploadDir().exists() && !getUploadDir().mkdirs()) {
+      throw new IOException("Unable to create dir " + getUploadDir());
+    }
+    // Write to a temp file first so an interrupted write is never mistaken for a complete copy.
+    File tempFile = new File(getUploadDir(), photo.getName() + ".tmp");
+    writeJpeg(bitmap, tempFile, preset);
+    if (!tempFile.renameTo(uploadFile)) {
+      throw new IOException("Unable to rename " + tempFile + " to " + uploadFile);
+    }
+    Timber.d(
+        "Photo %s re-encoded for upload: %d -> %d bytes",
+        photo.getName(),
+        photo.length(),
+        uploadFile.length());
+    return uploadFile;
+  }
+
+  /** Deletes the re-encoded copy of the specified photo created for upload, if present. */
+  public void deleteUploadFile(File photo) {
+    File uploadFile = new File(getUploadDir(), photo.getName());
+    if (uploadFile.exists() && !uploadFile.delete()) {
+      Timber.w("Unable to delete %s", uploadFile);
+    }
+  }
+
+  private static void writeJpeg(Bitmap bitmap, File file, PhotoPreset preset) throws IOException {
+    try (FileOutputStream fos = new FileOutputStream(file)) {
+      bitmap.compress(Bitmap.CompressFormat.JPEG, preset.getJpegQuality(), fos);
+    }
+  }
+
+  private static Bitmap scaleToFit(Bitmap bitmap, PhotoPreset preset) {
+    int width = bitmap.getWidth();
+    int height = bitmap.getHeight();
+    if (!preset.shouldReencode(width, height)) {
+      return bitmap;
+    }
+    float scale = preset.getScale(width, height);
+    return Bitmap.createScaledBitmap(
+        bitmap, Math.round(width * scale), Math.round(height * scale), true);
+  }
+
+  private static int getExifRotation(File photo) {
+    try {
+      int orientation =
+          new ExifInterface(photo.getPath())
+              .getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+      switch (orientation) {
+        case ExifInterface.ORIENTATION_ROTATE_90:
+          return 90;
+        case ExifInterface.ORIENTATION_ROTATE_180:
+          return 180;
+        case ExifInterface.ORIENTATION_ROTATE_270:
+          return 270;
+        default:
+          return 0;
+      }
+    } catch (IOException e) {
+      Timber.w(e, "Unable to read EXIF orientation of %s", photo.getPath());
+      return 0;
+    }
+  }
+
+  private static Bitmap rotate(Bitmap bitmap, int degrees) {
+    if (degrees == 0) {
+      return bitmap;
+    }
+    Matrix matrix = new Matrix();
+    matrix.postRotate(degrees);
+    return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+  }
+
   public void addImageToGallery(String filePath, String title) throws FileNotFoundException {
     MediaStore.Images.Media.insertImage(context.getContentResolver(), filePath, title, "");
   }
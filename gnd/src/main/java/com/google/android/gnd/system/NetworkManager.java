@@ -57,4 +57,12 @@ public class NetworkManager {
   public boolean isNetworkAvailable() {
     return isNetworkAvailable(application);
   }
+
+  /** Returns true iff the device is connected to a network which isn't metered, e.g. Wi-Fi. */
+  @RequiresPermission("android.permission.ACCESS_NETWORK_STATE")
+  public boolean isUnmeteredNetworkAvailable() {
+    ConnectivityManager cm =
+        (ConnectivityManager) application.getSystemService(Context.CONNECTIVITY_SERVICE);
+    return isNetworkAvailable(application) && !cm.isActiveNetworkMetered();
+  }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.system;
+
+import android.os.SystemClock;
+import com.google.firebase.perf.FirebasePerformance;
+import com.google.firebase.perf.metrics.Trace;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import timber.log.Timber;
+
+/** Records app startup milestones as Firebase Performance custom traces. */
+@Singleton
+public class StartupMetrics {
+
+  /** Time from app start until the map is shown with an active project loaded. */
+  private static final String TIME_TO_USABLE_MAP_TRACE = "time_to_usable_map";
+
+  private final AtomicBoolean mapUsable = new AtomicBoolean();
+
+  @Nullable private Trace timeToUsableMapTrace;
+  private long startTimeMillis;
+
+  @Inject
+  StartupMetrics() {}
+
+  /** Starts startup traces. Should be called once when the application is created. */
+  public void onAppStarted() {
+    startTimeMillis = SystemClock.elapsedRealtime();
+    try {
+      timeToUsableMapTrace = FirebasePerformance.startTrace(TIME_TO_USABLE_MAP_TRACE);
+    } catch (IllegalStateException e) {
+      // Firebase not initialized, e.g. in tests.
+      Timber.w(e, "Startup trace not started");
+    }
+  }
+
+  /**
+   * Records the time to usable map on the first call after app start. Subsequent calls, e.g. when
+   * switching projects, are ignored.
+   */
+  public void onMapUsable() {
+    if (mapUsable.getAndSet(true)) {
+      return;
+    }
+    Timber.d("Map usable %dms after app start", SystemClock.elapsedRealtime() - startTimeMillis);
+    if (timeToUsableMapTrace != null) {
+      timeToUsableMapTrace.stop();
+    }
+  }
+}
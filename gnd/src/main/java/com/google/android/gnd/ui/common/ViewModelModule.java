@@ -35,6 +35,7 @@ import com.google.android.gnd.ui.offlinebasemap.OfflineBaseMapsViewModel;
 import com.google.android.gnd.ui.offlinebasemap.selector.OfflineBaseMapSelectorViewModel;
 import com.google.android.gnd.ui.offlinebasemap.viewer.OfflineBaseMapViewerViewModel;
 import com.google.android.gnd.ui.projectselector.ProjectSelectorViewModel;
+import com.google.android.gnd.ui.settings.SettingsViewModel;
 import com.google.android.gnd.ui.signin.SignInViewModel;
 import com.google.android.gnd.ui.syncstatus.SyncStatusViewModel;
 import com.google.android.gnd.ui.tos.TermsOfServiceViewModel;
@@ -72,6 +73,11 @@ public abstract class ViewModelModule {
   @ViewModelKey(OfflineBaseMapViewerViewModel.class)
   abstract ViewModel bindOfflineAreaViewerViewModel(OfflineBaseMapViewerViewModel viewModel);
 
+  @Binds
+  @IntoMap
+  @ViewModelKey(SettingsViewModel.class)
+  abstract ViewModel bindSettingsViewModel(SettingsViewModel viewModel);
+
   @Binds
   @IntoMap
   @ViewModelKey(MainViewModel.class)
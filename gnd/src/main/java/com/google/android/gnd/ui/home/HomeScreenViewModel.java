@@ -38,6 +38,8 @@ import com.google.android.gnd.repository.ProjectRepository;
 import com.google.android.gnd.repository.UserRepository;
 import com.google.android.gnd.rx.Loadable;
 import com.google.android.gnd.rx.Nil;
+import com.google.android.gnd.rx.Schedulers;
+import com.google.android.gnd.rx.annotations.Cold;
 import com.google.android.gnd.rx.annotations.Hot;
 import com.google.android.gnd.ui.common.AbstractViewModel;
 import com.google.android.gnd.ui.common.Navigator;
@@ -52,7 +54,6 @@ import io.reactivex.processors.FlowableProcessor;
 import io.reactivex.processors.PublishProcessor;
 import io.reactivex.subjects.PublishSubject;
 import io.reactivex.subjects.Subject;
-import java8.util.Objects;
 import java8.util.Optional;
 import javax.inject.Inject;
 import timber.log.Timber;
@@ -67,6 +68,7 @@ public class HomeScreenViewModel extends AbstractViewModel {
   private final Navigator navigator;
   private final FeatureRepository featureRepository;
   private final UserRepository userRepository;
+  private final Schedulers schedulers;
 
   /** The state and value of the currently active project (loading, loaded, etc.). */
   private final LiveData<Loadable<Project>> projectLoadingState;
@@ -101,6 +103,10 @@ public class HomeScreenViewModel extends AbstractViewModel {
   private final Subject<ImmutableList<Feature>> showFeatureSelectorRequests =
       PublishSubject.create();
 
+  /** Ids of map features clicked by the user, used to look up the corresponding features. */
+  @Hot
+  private final FlowableProcessor<ImmutableList<String>> featureClicks = PublishProcessor.create();
+
   private Subject<Pair<ImmutableList<Layer>, Point>> showAddFeatureDialogRequests =
       PublishSubject.create();
 
@@ -109,11 +115,13 @@ public class HomeScreenViewModel extends AbstractViewModel {
       ProjectRepository projectRepository,
       FeatureRepository featureRepository,
       Navigator navigator,
-      UserRepository userRepository) {
+      UserRepository userRepository,
+      Schedulers schedulers) {
     this.projectRepository = projectRepository;
     this.featureRepository = featureRepository;
     this.navigator = navigator;
     this.userRepository = userRepository;
+    this.schedulers = schedulers;
 
     projectLoadingState =
         LiveDataReactiveStreams.fromPublisher(
@@ -136,6 +144,11 @@ public class HomeScreenViewModel extends AbstractViewModel {
         updateFeatureRequests.switchMapSingle(
             mutation ->
                 toBooleanSingle(featureRepository.applyAndEnqueue(mutation), errors::onNext));
+    disposeOnClear(
+        featureClicks
+            .switchMapSingle(this::getFeatures)
+            .observeOn(schedulers.ui())
+            .subscribe(this::onFeaturesClicked));
   }
 
   /** Handle state of the UI elements depending upon the active project. */
@@ -234,7 +247,7 @@ public class HomeScreenViewModel extends AbstractViewModel {
   }
 
   public void onMarkerClick(MapPin marker) {
-    showBottomSheet(marker.getFeature());
+    featureClicks.onNext(ImmutableList.of(marker.getId()));
   }
 
   public void onFeatureSelected(Feature feature) {
@@ -295,14 +308,34 @@ public class HomeScreenViewModel extends AbstractViewModel {
   }
 
   public void onFeatureClick(ImmutableList<MapFeature> mapFeatures) {
-    ImmutableList<Feature> features =
-        stream(mapFeatures)
-            .map(MapFeature::getFeature)
-            .filter(Objects::nonNull)
-            .collect(toImmutableList());
+    featureClicks.onNext(stream(mapFeatures).map(MapFeature::getId).collect(toImmutableList()));
+  }
+
+  /**
+   * Loads the features with the specified ids in the active project from the local db. Features
+   * which can't be found are skipped.
+   */
+  @Cold
+  private Single<ImmutableList<Feature>> getFeatures(ImmutableList<String> featureIds) {
+    Optional<String> projectId = getActiveProject().map(Project::getId);
+    if (projectId.isEmpty()) {
+      return Single.just(ImmutableList.of());
+    }
+    return Flowable.fromIterable(featureIds)
+        .concatMapMaybe(
+            featureId ->
+                featureRepository
+                    .getFeature(projectId.get(), featureId)
+                    .toMaybe()
+                    .doOnError(Timber::e)
+                    .onErrorComplete())
+        .toList()
+        .map(ImmutableList::copyOf);
+  }
 
+  private void onFeaturesClicked(ImmutableList<Feature> features) {
     if (features.isEmpty()) {
-      Timber.e("onFeatureClick called with empty or null map features");
+      Timber.e("onFeatureClick called with empty or unknown map features");
       return;
     }
 
@@ -27,7 +27,7 @@ import com.google.android.gnd.repository.ObservationRepository;
 import com.google.android.gnd.rx.annotations.Hot;
 import com.google.android.gnd.ui.common.AbstractViewModel;
 import com.google.common.collect.ImmutableList;
-import io.reactivex.Single;
+import io.reactivex.Flowable;
 import io.reactivex.processors.FlowableProcessor;
 import io.reactivex.processors.PublishProcessor;
 import java8.util.Optional;
@@ -54,7 +54,7 @@ public class ObservationListViewModel extends AbstractViewModel {
         LiveDataReactiveStreams.fromPublisher(
             observationListRequests
                 .doOnNext(__ -> isLoading.postValue(true))
-                .switchMapSingle(this::getObservations)
+                .switchMap(this::getObservations)
                 .doOnNext(__ -> isLoading.postValue(false)));
   }
 
@@ -68,21 +68,21 @@ public class ObservationListViewModel extends AbstractViewModel {
     loadObservations(feature.getProject(), feature.getId(), form.map(Form::getId));
   }
 
-  private Single<ImmutableList<Observation>> getObservations(ObservationListRequest req) {
+  private Flowable<ImmutableList<Observation>> getObservations(ObservationListRequest req) {
     if (req.formId.isEmpty()) {
       // Do nothing. No form defined for this layer.
       // TODO(#354): Show message or special treatment for layer with no form.
-      return Single.just(ImmutableList.of());
+      return Flowable.just(ImmutableList.of());
     }
     return observationRepository
-        .getObservations(req.project.getId(), req.featureId, req.formId.get())
+        .getObservationsOnceAndStream(req.project.getId(), req.featureId, req.formId.get())
         .onErrorResumeNext(this::onGetObservationsError);
   }
 
-  private Single<ImmutableList<Observation>> onGetObservationsError(Throwable t) {
+  private Flowable<ImmutableList<Observation>> onGetObservationsError(Throwable t) {
     // TODO: Show an appropriate error message to the user.
     Timber.e(t, "Failed to fetch observation list.");
-    return Single.just(ImmutableList.of());
+    return Flowable.just(ImmutableList.of());
   }
 
   private void loadObservations(Project project, String featureId, Optional<String> formId) {
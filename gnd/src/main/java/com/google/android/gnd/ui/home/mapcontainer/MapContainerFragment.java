@@ -43,6 +43,7 @@ import com.google.android.gnd.rx.BooleanOrError;
 import com.google.android.gnd.rx.Loadable;
 import com.google.android.gnd.system.PermissionsManager.PermissionDeniedException;
 import com.google.android.gnd.system.SettingsManager.SettingsChangeRequestCanceled;
+import com.google.android.gnd.system.StartupMetrics;
 import com.google.android.gnd.ui.common.AbstractFragment;
 import com.google.android.gnd.ui.home.BottomSheetState;
 import com.google.android.gnd.ui.home.HomeScreenViewModel;
@@ -67,6 +68,7 @@ public class MapContainerFragment extends AbstractFragment {
   @Inject MbtilesFootprintParser mbtilesFootprintParser;
   @Inject MapProvider mapProvider;
   @Inject MapsRepository mapsRepository;
+  @Inject StartupMetrics startupMetrics;
 
   private MapContainerViewModel mapContainerViewModel;
   private HomeScreenViewModel homeScreenViewModel;
@@ -107,9 +109,19 @@ public class MapContainerFragment extends AbstractFragment {
         .subscribe(mapContainerViewModel::onCameraMove);
     mapAdapter
         .toObservable()
-        .flatMap(MapAdapter::getTileProviders)
+        .flatMap(MapAdapter::getTileSourceAccesses)
         .as(disposeOnDestroy(this))
-        .subscribe(mapContainerViewModel::queueTileProvider);
+        .subscribe(mapContainerViewModel::onTileSourceAccessed);
+    mapAdapter
+        .toObservable()
+        .flatMap(MapAdapter::getPendingFeatureUpdates)
+        .as(disposeOnDestroy(this))
+        .subscribe(mapContainerViewModel::onPendingFeatureUpdates);
+    mapAdapter
+        .toObservable()
+        .flatMap(MapAdapter::getRenderStats)
+        .as(disposeOnDestroy(this))
+        .subscribe(mapContainerViewModel::onRenderStats);
 
     mapContainerViewModel
         .getConfirmButtonClicks()
@@ -164,13 +176,31 @@ public class MapContainerFragment extends AbstractFragment {
     homeScreenViewModel
         .getBottomSheetState()
         .observe(this, state -> onBottomSheetStateChange(state, map));
-    mapContainerViewModel.getMbtilesFilePaths().observe(this, map::addTileOverlays);
+    mapContainerViewModel.getMergedTileStore().observe(this, map::setOfflineTiles);
+    mapContainerViewModel
+        .getFeatureOverview()
+        .observe(this, overview -> map.setFeatureOverview(overview.orElse(null)));
+    mapContainerViewModel.getObservationHeatmap().observe(this, map::setObservationHeatmap);
+    mapContainerViewModel.getRenderMetricsEnabled().observe(this, map::setRenderMetricsEnabled);
 
     // TODO: Do this the RxJava way
     map.moveCamera(mapContainerViewModel.getCameraPosition().getValue());
+    mapContainerViewModel.onZoomLevelChanged(map.getCurrentZoomLevel());
     map.setMapType(mapsRepository.getSavedMapType());
   }
 
+  @Override
+  public void onResume() {
+    super.onResume();
+    mapContainerViewModel.onMapVisibilityChanged(true);
+  }
+
+  @Override
+  public void onPause() {
+    mapContainerViewModel.onMapVisibilityChanged(false);
+    super.onPause();
+  }
+
   private void showMapTypeSelectorDialog() {
     ImmutableList<Pair<Integer, String>> mapTypes = mapProvider.getMapTypes();
     ImmutableList<Integer> typeNos = stream(mapTypes).map(p -> p.first).collect(toImmutableList());
@@ -244,6 +274,8 @@ public class MapContainerFragment extends AbstractFragment {
 
   private void onProjectChange(Loadable<Project> project) {
     if (project.isLoaded()) {
+      // Project state is only observed once the map is ready.
+      startupMetrics.onMapUsable();
       enableAddFeatureBtn();
     } else {
       disableAddFeatureBtn();
@@ -292,6 +324,7 @@ public class MapContainerFragment extends AbstractFragment {
         zoomLevel = Math.max(zoomLevel, map.getCurrentZoomLevel());
       }
       map.moveCamera(update.getCenter(), zoomLevel);
+      mapContainerViewModel.onZoomLevelChanged(map.getCurrentZoomLevel());
     } else {
       map.moveCamera(update.getCenter());
     }
@@ -303,12 +336,6 @@ public class MapContainerFragment extends AbstractFragment {
     saveChildFragment(outState, mapProvider.getFragment(), MAP_FRAGMENT_KEY);
   }
 
-  @Override
-  public void onDestroy() {
-    mapContainerViewModel.closeProviders();
-    super.onDestroy();
-  }
-
   public void setDefaultMode() {
     mapContainerViewModel.setViewMode(Mode.DEFAULT);
     mapContainerViewModel.setReposFeature(Optional.empty());
@@ -22,22 +22,25 @@ import static com.google.android.gnd.util.ImmutableSetCollector.toImmutableSet;
 import static java8.util.stream.StreamSupport.stream;
 
 import android.content.res.Resources;
+import android.util.Pair;
 import androidx.annotation.ColorRes;
 import androidx.annotation.Dimension;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.LiveDataReactiveStreams;
 import androidx.lifecycle.MutableLiveData;
-import com.cocoahero.android.gmaps.addons.mapbox.MapBoxOfflineTileProvider;
 import com.google.android.gnd.R;
 import com.google.android.gnd.model.Project;
-import com.google.android.gnd.model.basemap.tile.TileSource;
 import com.google.android.gnd.model.feature.Feature;
 import com.google.android.gnd.model.feature.GeoJsonFeature;
 import com.google.android.gnd.model.feature.Point;
 import com.google.android.gnd.model.feature.PointFeature;
 import com.google.android.gnd.model.feature.PolygonFeature;
+import com.google.android.gnd.model.observation.FeatureObservationCount;
+import com.google.android.gnd.persistence.mbtiles.MergedTileStore;
 import com.google.android.gnd.repository.FeatureRepository;
+import com.google.android.gnd.repository.MapsRepository;
+import com.google.android.gnd.repository.ObservationRepository;
 import com.google.android.gnd.repository.OfflineBaseMapRepository;
 import com.google.android.gnd.repository.ProjectRepository;
 import com.google.android.gnd.rx.BooleanOrError;
@@ -49,19 +52,26 @@ import com.google.android.gnd.system.LocationManager;
 import com.google.android.gnd.ui.common.AbstractViewModel;
 import com.google.android.gnd.ui.common.SharedViewModel;
 import com.google.android.gnd.ui.map.CameraPosition;
+import com.google.android.gnd.ui.map.FeatureOverview;
 import com.google.android.gnd.ui.map.MapFeature;
 import com.google.android.gnd.ui.map.MapGeoJson;
 import com.google.android.gnd.ui.map.MapPin;
 import com.google.android.gnd.ui.map.MapPolygon;
+import com.google.android.gnd.ui.map.MapRenderMetricsLog;
+import com.google.android.gnd.ui.map.MapRenderStats;
+import com.google.android.gnd.ui.map.MapSnapshotStore;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
+import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.processors.BehaviorProcessor;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
 import io.reactivex.subjects.PublishSubject;
 import io.reactivex.subjects.Subject;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java8.util.Optional;
 import javax.inject.Inject;
 import org.json.JSONException;
@@ -76,9 +86,17 @@ public class MapContainerViewModel extends AbstractViewModel {
   private static final float DEFAULT_MAP_ZOOM_LEVEL = 0.0f;
   private static final Point DEFAULT_MAP_POINT =
       Point.newBuilder().setLatitude(0.0).setLongitude(0.0).build();
+  /** Max time tile source accesses are held before being written to the db. */
+  private static final long TILE_SOURCE_ACCESS_FLUSH_INTERVAL_SECS = 30;
 
   private final LiveData<Loadable<Project>> projectLoadingState;
   private final LiveData<ImmutableSet<MapFeature>> mapFeatures;
+  private final LiveData<Optional<FeatureOverview>> featureOverview;
+  private final LiveData<ImmutableList<FeatureObservationCount>> observationHeatmap;
+  private final LiveData<Integer> heatmapButtonTint;
+  private final LiveData<Boolean> renderMetricsEnabledLiveData;
+  private final LiveData<Integer> renderStatsVisibility;
+  private final LiveData<String> renderStatsText;
   private final LiveData<BooleanOrError> locationLockState;
   private final LiveData<Event<CameraUpdate>> cameraUpdateRequests;
 
@@ -89,6 +107,10 @@ public class MapContainerViewModel extends AbstractViewModel {
   private final ProjectRepository projectRepository;
   private final LocationManager locationManager;
   private final FeatureRepository featureRepository;
+  private final ObservationRepository observationRepository;
+  private final MapsRepository mapsRepository;
+  private final MapSnapshotStore mapSnapshotStore;
+  private final MapRenderMetricsLog mapRenderMetricsLog;
 
   @Hot private final Subject<Boolean> locationLockChangeRequests = PublishSubject.create();
   @Hot private final Subject<CameraUpdate> cameraUpdateSubject = PublishSubject.create();
@@ -103,6 +125,11 @@ public class MapContainerViewModel extends AbstractViewModel {
   @Hot(replays = true)
   private final MutableLiveData<Integer> moveFeaturesVisibility = new MutableLiveData<>(GONE);
 
+  /** Visibility of the hint shown while changes to map features are still being applied. */
+  @Hot(replays = true)
+  private final MutableLiveData<Integer> featureUpdatesProgressVisibility =
+      new MutableLiveData<>(GONE);
+
   @Hot(replays = true)
   private final MutableLiveData<Boolean> locationLockEnabled = new MutableLiveData<>();
 
@@ -110,9 +137,8 @@ public class MapContainerViewModel extends AbstractViewModel {
   private final MutableLiveData<Integer> featureAddButtonBackgroundTint =
       new MutableLiveData<>(R.color.colorGrey500);
 
-  private final LiveData<ImmutableSet<String>> mbtilesFilePaths;
+  private final LiveData<MergedTileStore> mergedTileStore;
   private final LiveData<Integer> iconTint;
-  private final List<MapBoxOfflineTileProvider> tileProviders = new ArrayList<>();
   private final @Dimension int defaultPolygonStrokeWidth;
   private final @Dimension int selectedPolygonStrokeWidth;
   /** The currently selected feature on the map. */
@@ -123,6 +149,23 @@ public class MapContainerViewModel extends AbstractViewModel {
   @Hot private final Subject<Point> addFeatureButtonClicks = PublishSubject.create();
   @Hot private final Subject<Point> confirmButtonClicks = PublishSubject.create();
   @Hot private final Subject<Nil> cancelButtonClicks = PublishSubject.create();
+  /** Paths of offline tile sources from which tiles were displayed. */
+  @Hot private final Subject<String> tileSourceAccesses = PublishSubject.create();
+  /** Current zoom level of the map, used to choose between map objects and an overview. */
+  @Hot(replays = true)
+  private final BehaviorProcessor<Float> zoomLevels =
+      BehaviorProcessor.createDefault(DEFAULT_MAP_ZOOM_LEVEL);
+  /** Emits each time changes to map features have been fully applied to the map. */
+  @Hot private final FlowableProcessor<Nil> mapRenderIdleEvents = PublishProcessor.create();
+  /** Whether the density of observations is shown as a heatmap over the map. */
+  @Hot(replays = true)
+  private final BehaviorProcessor<Boolean> heatmapEnabled;
+  /** Whether render metrics are being recorded, i.e., they're enabled and the map is shown. */
+  @Hot(replays = true)
+  private final BehaviorProcessor<Boolean> renderMetricsEnabled =
+      BehaviorProcessor.createDefault(false);
+  /** Render metrics reported by the map while they're being recorded. */
+  @Hot private final Subject<MapRenderStats> renderStats = PublishSubject.create();
   /** Feature selected for repositioning. */
   private Optional<Feature> reposFeature = Optional.empty();
 
@@ -131,11 +174,20 @@ public class MapContainerViewModel extends AbstractViewModel {
       Resources resources,
       ProjectRepository projectRepository,
       FeatureRepository featureRepository,
+      ObservationRepository observationRepository,
       LocationManager locationManager,
-      OfflineBaseMapRepository offlineBaseMapRepository) {
+      OfflineBaseMapRepository offlineBaseMapRepository,
+      MapsRepository mapsRepository,
+      MapSnapshotStore mapSnapshotStore,
+      MapRenderMetricsLog mapRenderMetricsLog) {
     // THIS SHOULD NOT BE CALLED ON CONFIG CHANGE
     this.projectRepository = projectRepository;
     this.featureRepository = featureRepository;
+    this.observationRepository = observationRepository;
+    this.mapsRepository = mapsRepository;
+    this.mapSnapshotStore = mapSnapshotStore;
+    this.mapRenderMetricsLog = mapRenderMetricsLog;
+    this.heatmapEnabled = BehaviorProcessor.createDefault(mapsRepository.isHeatmapEnabled());
     this.locationManager = locationManager;
     this.defaultPolygonStrokeWidth = (int) resources.getDimension(R.dimen.polyline_stroke_width);
     this.selectedPolygonStrokeWidth =
@@ -157,22 +209,141 @@ public class MapContainerViewModel extends AbstractViewModel {
     // TODO: Clear feature markers when project is deactivated.
     // TODO: Since we depend on project stream from repo anyway, this transformation can be moved
     // into the repo?
+    Flowable<Optional<Pair<String, ImmutableSet<MapFeature>>>> liveProjectMapFeatures =
+        projectRepository
+            .getActiveProject()
+            .switchMap(this::getMapFeaturesStream)
+            .replay(1)
+            .refCount();
+    // Until the active project's features are loaded, those of the last active project are drawn
+    // from the snapshot saved when they were last rendered, so that cold starts don't wait for the
+    // project to be activated and its features to be queried.
+    Flowable<Optional<Pair<String, ImmutableSet<MapFeature>>>> projectMapFeatures =
+        Flowable.combineLatest(
+                liveProjectMapFeatures,
+                getSnapshotStream(liveProjectMapFeatures.filter(Optional::isPresent)),
+                (live, snapshot) -> live.isPresent() ? live : snapshot)
+            .replay(1)
+            .refCount();
+    Flowable<ImmutableSet<MapFeature>> allMapFeatures =
+        Flowable.combineLatest(
+                projectMapFeatures.map(
+                    features -> features.map(p -> p.second).orElse(ImmutableSet.of())),
+                selectedFeature,
+                this::updateSelectedFeature)
+            .distinctUntilChanged()
+            .replay(1)
+            .refCount();
+    // Points and polygons are rendered as a raster overview when zoomed out, since individual map
+    // objects aren't useful at that scale, and are too slow to render in large projects.
+    Flowable<Boolean> overviewEnabled =
+        zoomLevels
+            .map(zoom -> zoom < mapsRepository.getFeatureOverviewZoom())
+            .distinctUntilChanged();
     this.mapFeatures =
         LiveDataReactiveStreams.fromPublisher(
             Flowable.combineLatest(
-                    projectRepository
-                        .getActiveProject()
-                        .switchMap(this::getFeaturesStream)
-                        .map(this::toMapFeatures),
-                    selectedFeature,
-                    this::updateSelectedFeature)
-                .distinctUntilChanged());
-    this.mbtilesFilePaths =
+                allMapFeatures,
+                overviewEnabled,
+                (features, overview) ->
+                    overview ? getFeaturesExcludedFromOverview(features) : features));
+    this.featureOverview =
+        LiveDataReactiveStreams.fromPublisher(
+            Flowable.combineLatest(
+                projectMapFeatures,
+                overviewEnabled,
+                (features, overview) ->
+                    overview
+                        ? features.map(p -> FeatureOverview.create(p.first, p.second))
+                        : Optional.<FeatureOverview>empty()));
+    this.observationHeatmap =
+        LiveDataReactiveStreams.fromPublisher(
+            heatmapEnabled
+                .distinctUntilChanged()
+                .switchMap(
+                    enabled ->
+                        enabled
+                            ? projectRepository
+                                .getActiveProject()
+                                .switchMap(this::getObservationCountsStream)
+                            : Flowable.just(ImmutableList.of())));
+    this.heatmapButtonTint =
+        LiveDataReactiveStreams.fromPublisher(
+            heatmapEnabled.map(enabled -> enabled ? R.color.colorMapBlue : R.color.colorGrey500));
+    this.renderMetricsEnabledLiveData =
+        LiveDataReactiveStreams.fromPublisher(renderMetricsEnabled.distinctUntilChanged());
+    this.renderStatsVisibility =
+        LiveDataReactiveStreams.fromPublisher(
+            renderMetricsEnabled.map(enabled -> enabled ? VISIBLE : GONE));
+    this.renderStatsText =
         LiveDataReactiveStreams.fromPublisher(
-            offlineBaseMapRepository
-                .getDownloadedTileSourcesOnceAndStream()
-                .map(set -> stream(set).map(TileSource::getPath).collect(toImmutableSet())));
+            renderStats
+                .toFlowable(BackpressureStrategy.LATEST)
+                .map(stats -> formatRenderStats(resources, stats)));
+    this.mergedTileStore =
+        LiveDataReactiveStreams.fromPublisher(
+            offlineBaseMapRepository.getMergedTileStoreOnceAndStream());
     disposeOnClear(projectRepository.getActiveProject().subscribe(this::onProjectChange));
+    // Snapshot the active project's features each time the map settles after they change.
+    disposeOnClear(
+        mapRenderIdleEvents
+            .withLatestFrom(liveProjectMapFeatures, (idle, features) -> features)
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .distinctUntilChanged()
+            .switchMapCompletable(
+                features ->
+                    mapSnapshotStore
+                        .saveSnapshot(features.first, features.second)
+                        .doOnError(t -> Timber.e(t, "Failed to save map snapshot"))
+                        .onErrorComplete())
+            .subscribe());
+    // Keep a log of render metrics so that regressions can be traced to the data being shown.
+    disposeOnClear(
+        renderStats
+            .concatMapCompletable(
+                stats ->
+                    mapRenderMetricsLog
+                        .append(stats)
+                        .doOnError(t -> Timber.e(t, "Failed to log render metrics"))
+                        .onErrorComplete())
+            .subscribe());
+    // Prefetch offline imagery around the user while their location is being followed.
+    disposeOnClear(
+        offlineBaseMapRepository
+            .prefetchAroundTrack(
+                locationLockStateFlowable.switchMap(
+                    lockState ->
+                        lockState.isTrue()
+                            ? locationManager.getLocationUpdates()
+                            : Flowable.empty()))
+            .subscribe());
+    // Batch last access updates rather than writing to the db each time a tile source is used.
+    disposeOnClear(
+        tileSourceAccesses
+            .buffer(TILE_SOURCE_ACCESS_FLUSH_INTERVAL_SECS, TimeUnit.SECONDS)
+            .filter(paths -> !paths.isEmpty())
+            .map(ImmutableSet::copyOf)
+            .flatMapCompletable(
+                paths -> offlineBaseMapRepository.recordTileSourceAccess(paths).onErrorComplete())
+            .subscribe());
+  }
+
+  private static String formatRenderStats(Resources resources, MapRenderStats stats) {
+    return resources.getString(
+        R.string.render_stats_overlay,
+        stats.getFramesPerSecond(),
+        stats.getJankyFrameCount(),
+        stats.getMaxFrameMillis(),
+        stats.getFeatureUpdateCount(),
+        stats.getDiffMillis(),
+        stats.getApplyMillis(),
+        stats.getAddedCount(),
+        stats.getRemovedCount(),
+        stats.getFeatureCount(),
+        stats.getMarkerCount(),
+        stats.getPolylineCount(),
+        stats.getGeoJsonCount());
   }
 
   private static MapFeature toMapPin(PointFeature feature) {
@@ -180,7 +351,7 @@ public class MapContainerViewModel extends AbstractViewModel {
         .setId(feature.getId())
         .setPosition(feature.getPoint())
         .setStyle(feature.getLayer().getDefaultStyle())
-        .setFeature(feature)
+        .setVersion(getVersion(feature))
         .build();
   }
 
@@ -189,10 +360,15 @@ public class MapContainerViewModel extends AbstractViewModel {
         .setId(feature.getId())
         .setVertices(feature.getVertices())
         .setStyle(feature.getLayer().getDefaultStyle())
-        .setFeature(feature)
+        .setVersion(getVersion(feature))
         .build();
   }
 
+  /** Returns a version of the feature which changes each time the feature is modified locally. */
+  private static long getVersion(Feature feature) {
+    return feature.getLastModified().getClientTimestamp().getTime();
+  }
+
   private void onProjectChange(Optional<Project> project) {
     project
         .map(Project::getId)
@@ -211,7 +387,7 @@ public class MapContainerViewModel extends AbstractViewModel {
     for (MapFeature feature : features) {
       if (feature instanceof MapGeoJson) {
         MapGeoJson geoJsonFeature = (MapGeoJson) feature;
-        String geoJsonFeatureId = geoJsonFeature.getFeature().getId();
+        String geoJsonFeatureId = geoJsonFeature.getId();
         if (geoJsonFeatureId.equals(selectedFeatureId)) {
           Timber.v("Restyling selected GeoJSON feature " + selectedFeatureId);
           updatedFeatures.add(
@@ -255,6 +431,13 @@ public class MapContainerViewModel extends AbstractViewModel {
         .build();
   }
 
+  private static ImmutableSet<MapFeature> getFeaturesExcludedFromOverview(
+      ImmutableSet<MapFeature> features) {
+    return stream(features)
+        .filter(feature -> !FeatureOverview.isSupported(feature))
+        .collect(toImmutableSet());
+  }
+
   private MapGeoJson toMapGeoJson(GeoJsonFeature feature) {
     JSONObject jsonObject;
     try {
@@ -266,10 +449,11 @@ public class MapContainerViewModel extends AbstractViewModel {
 
     return MapGeoJson.newBuilder()
         .setId(feature.getId())
+        .setLayerId(feature.getLayer().getId())
         .setGeoJson(jsonObject)
         .setStyle(feature.getLayer().getDefaultStyle())
         .setStrokeWidth(defaultPolygonStrokeWidth)
-        .setFeature(feature)
+        .setVersion(getVersion(feature))
         .build();
   }
 
@@ -305,12 +489,48 @@ public class MapContainerViewModel extends AbstractViewModel {
         .toFlowable(BackpressureStrategy.LATEST);
   }
 
-  private Flowable<ImmutableSet<Feature>> getFeaturesStream(Optional<Project> activeProject) {
-    // Emit empty set in separate stream to force unsubscribe from Feature updates and update
+  /** Emits the id of the active project and its map features, or empty if none is active. */
+  private Flowable<Optional<Pair<String, ImmutableSet<MapFeature>>>> getMapFeaturesStream(
+      Optional<Project> activeProject) {
+    // Emit empty in separate stream to force unsubscribe from Feature updates and update
     // subscribers.
     return activeProject
-        .map(featureRepository::getFeaturesOnceAndStream)
-        .orElse(Flowable.just(ImmutableSet.of()));
+        .map(
+            project ->
+                featureRepository
+                    .getFeaturesOnceAndStream(project)
+                    .map(
+                        features ->
+                            Optional.of(Pair.create(project.getId(), toMapFeatures(features)))))
+        .orElse(Flowable.just(Optional.empty()));
+  }
+
+  /**
+   * Emits the snapshot of the last active project's map features once read, and empty once live
+   * features are emitted, or if there's no snapshot.
+   */
+  private Flowable<Optional<Pair<String, ImmutableSet<MapFeature>>>> getSnapshotStream(
+      Flowable<?> liveFeatures) {
+    Optional<Pair<String, ImmutableSet<MapFeature>>> none = Optional.empty();
+    return projectRepository
+        .getLastActiveProjectId()
+        .map(
+            projectId ->
+                mapSnapshotStore
+                    .getSnapshot(projectId)
+                    .map(features -> Optional.of(Pair.create(projectId, features))))
+        .orElse(Maybe.empty())
+        .toFlowable()
+        .startWith(none)
+        .takeUntil(liveFeatures)
+        .concatWith(Flowable.just(none));
+  }
+
+  private Flowable<ImmutableList<FeatureObservationCount>> getObservationCountsStream(
+      Optional<Project> activeProject) {
+    return activeProject
+        .map(observationRepository::getObservationCountsOnceAndStream)
+        .orElse(Flowable.just(ImmutableList.of()));
   }
 
   public LiveData<Loadable<Project>> getProjectLoadingState() {
@@ -321,8 +541,37 @@ public class MapContainerViewModel extends AbstractViewModel {
     return mapFeatures;
   }
 
-  public LiveData<ImmutableSet<String>> getMbtilesFilePaths() {
-    return mbtilesFilePaths;
+  /** Emits the features to render as an overview, or empty if they're shown as map objects. */
+  public LiveData<Optional<FeatureOverview>> getFeatureOverview() {
+    return featureOverview;
+  }
+
+  /** Emits the observation counts to show as a heatmap, or an empty list if it's not shown. */
+  public LiveData<ImmutableList<FeatureObservationCount>> getObservationHeatmap() {
+    return observationHeatmap;
+  }
+
+  public LiveData<Integer> getHeatmapButtonTint() {
+    return heatmapButtonTint;
+  }
+
+  /** Emits true while the map should record render metrics. */
+  public LiveData<Boolean> getRenderMetricsEnabled() {
+    return renderMetricsEnabledLiveData;
+  }
+
+  public LiveData<Integer> getRenderStatsVisibility() {
+    return renderStatsVisibility;
+  }
+
+  /** Returns the latest render metrics, formatted for the debug overlay. */
+  public LiveData<String> getRenderStatsText() {
+    return renderStatsText;
+  }
+
+  /** Emits the store of offline tiles when first observed and each time its tiles change. */
+  public LiveData<MergedTileStore> getMergedTileStore() {
+    return mergedTileStore;
   }
 
   LiveData<Event<CameraUpdate>> getCameraUpdateRequests() {
@@ -349,6 +598,7 @@ public class MapContainerViewModel extends AbstractViewModel {
   public void onCameraMove(CameraPosition newCameraPosition) {
     Timber.d("Setting position to %s", newCameraPosition.toString());
     cameraPosition.setValue(newCameraPosition);
+    zoomLevels.onNext(newCameraPosition.getZoomLevel());
     Loadable.getValue(projectLoadingState)
         .ifPresent(
             project -> projectRepository.setCameraPosition(project.getId(), newCameraPosition));
@@ -377,13 +627,32 @@ public class MapContainerViewModel extends AbstractViewModel {
     locationLockChangeRequests.onNext(!isLocationLockEnabled());
   }
 
-  // TODO(#691): Create our own wrapper/interface for MbTiles providers.
-  public void queueTileProvider(MapBoxOfflineTileProvider tileProvider) {
-    this.tileProviders.add(tileProvider);
+  /** Called when the zoom level of the map may have changed without the user moving it. */
+  public void onZoomLevelChanged(float zoomLevel) {
+    zoomLevels.onNext(zoomLevel);
   }
 
-  public void closeProviders() {
-    stream(tileProviders).forEach(MapBoxOfflineTileProvider::close);
+  public void onTileSourceAccessed(String path) {
+    tileSourceAccesses.onNext(path);
+  }
+
+  public void onPendingFeatureUpdates(int count) {
+    featureUpdatesProgressVisibility.postValue(count > 0 ? VISIBLE : GONE);
+    if (count == 0) {
+      mapRenderIdleEvents.onNext(Nil.NIL);
+    }
+  }
+
+  public void onRenderStats(MapRenderStats stats) {
+    renderStats.onNext(stats);
+  }
+
+  /**
+   * Called when the map is shown or hidden. Render metrics are only recorded while the map is shown
+   * and they're enabled in settings, which may have changed while the map was hidden.
+   */
+  public void onMapVisibilityChanged(boolean visible) {
+    renderMetricsEnabled.onNext(visible && mapsRepository.isRenderMetricsEnabled());
   }
 
   public void setViewMode(Mode viewMode) {
@@ -395,6 +664,12 @@ public class MapContainerViewModel extends AbstractViewModel {
     selectMapTypeClicks.onNext(Nil.NIL);
   }
 
+  public void onHeatmapButtonClicked() {
+    boolean enabled = !heatmapEnabled.getValue();
+    mapsRepository.setHeatmapEnabled(enabled);
+    heatmapEnabled.onNext(enabled);
+  }
+
   public void onAddFeatureBtnClick() {
     addFeatureButtonClicks.onNext(getCameraPosition().getValue().getTarget());
   }
@@ -431,6 +706,10 @@ public class MapContainerViewModel extends AbstractViewModel {
     return moveFeaturesVisibility;
   }
 
+  public LiveData<Integer> getFeatureUpdatesProgressVisibility() {
+    return featureUpdatesProgressVisibility;
+  }
+
   public LiveData<Boolean> isAddPolygonButtonVisible() {
     return addPolygonVisible;
   }
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map;
+
+import static com.google.android.gnd.util.ImmutableListCollector.toImmutableList;
+import static java8.util.stream.StreamSupport.stream;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import java.util.Collection;
+
+/**
+ * The points and polygons of a project to be rendered as a raster overview rather than as
+ * individual map objects, used when zoomed out over large projects.
+ */
+@AutoValue
+public abstract class FeatureOverview {
+
+  public abstract String getProjectId();
+
+  public abstract ImmutableList<MapFeature> getFeatures();
+
+  /**
+   * Returns an overview of the features in the specified collection which can be rendered in
+   * overviews. See {@link #isSupported(MapFeature)}.
+   */
+  public static FeatureOverview create(String projectId, Collection<MapFeature> features) {
+    ImmutableList<MapFeature> supported =
+        stream(features).filter(FeatureOverview::isSupported).collect(toImmutableList());
+    return new AutoValue_FeatureOverview(projectId, supported);
+  }
+
+  /**
+   * Returns true iff the specified feature can be rendered in overviews. Only pins and polygons are
+   * supported; GeoJSON is always rendered as map objects.
+   */
+  public static boolean isSupported(MapFeature mapFeature) {
+    return mapFeature instanceof MapPin || mapFeature instanceof MapPolygon;
+  }
+}
@@ -17,9 +17,11 @@
 package com.google.android.gnd.ui.map;
 
 import android.annotation.SuppressLint;
-import com.cocoahero.android.gmaps.addons.mapbox.MapBoxOfflineTileProvider;
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gnd.model.feature.Point;
+import com.google.android.gnd.model.observation.FeatureObservationCount;
+import com.google.android.gnd.persistence.mbtiles.MergedTileStore;
 import com.google.android.gnd.rx.Nil;
 import com.google.android.gnd.rx.annotations.Hot;
 import com.google.common.collect.ImmutableList;
@@ -91,9 +93,29 @@ public interface MapAdapter {
   @SuppressLint("MissingPermission")
   void enableCurrentLocationIndicator();
 
-  /** Update map pins/polygons shown on map. */
+  /**
+   * Update map pins/polygons shown on map. Changes are computed in the background and applied over
+   * several frames, so may not be visible immediately; see {@link #getPendingFeatureUpdates()}.
+   */
   void setMapFeatures(ImmutableSet<MapFeature> mapFeatures);
 
+  /**
+   * Returns the number of changes to map features not yet applied to the map, emitting 0 once the
+   * features last set are all shown. Emits the current count on subscription.
+   */
+  @Hot(replays = true)
+  Observable<Integer> getPendingFeatureUpdates();
+
+  /**
+   * Starts or stops recording frame durations, the time taken to apply feature updates and the
+   * number of objects on the map. Recording is disabled by default, since it runs every frame.
+   */
+  void setRenderMetricsEnabled(boolean enabled);
+
+  /** Returns rendering metrics aggregated over short windows while recording is enabled. */
+  @Hot
+  Observable<MapRenderStats> getRenderStats();
+
   /** Get current map type. */
   int getMapType();
 
@@ -106,11 +128,28 @@ public interface MapAdapter {
   /** Set the map viewport to the given bounds. */
   void setBounds(LatLngBounds bounds);
 
-  /** Renders a tile overlay on the map. */
-  void addTileOverlays(ImmutableSet<String> mbtilesFiles);
+  /**
+   * Renders offline imagery from the specified store in a single tile overlay, or reloads the tiles
+   * shown if already rendered.
+   */
+  void setOfflineTiles(MergedTileStore tileStore);
+
+  /**
+   * Renders the points and polygons in the specified overview as raster tiles, updating the tiles
+   * shown as features change, or removes the overview if null.
+   */
+  void setFeatureOverview(@Nullable FeatureOverview overview);
 
-  // TODO(#691): Create interface and impl to encapsulate MapBoxOfflineTileProvider impl.
-  /** Returns TileProviders associated with this map adapter. */
+  /**
+   * Shows where observations were collected as a heatmap weighted by the number of observations of
+   * each feature, updating it as counts change, or removes the heatmap if the list is empty.
+   */
+  void setObservationHeatmap(ImmutableList<FeatureObservationCount> counts);
+
+  /**
+   * Returns the paths of offline tile sources as tiles are read from them to be displayed.
+   * Emissions for each source are throttled, so consecutive accesses may be reported only once.
+   */
   @Hot
-  Observable<MapBoxOfflineTileProvider> getTileProviders();
+  Observable<String> getTileSourceAccesses();
 }
@@ -16,12 +16,20 @@
 
 package com.google.android.gnd.ui.map;
 
-import com.google.android.gnd.model.feature.Feature;
-import javax.annotation.Nullable;
-
-/** Abstract class defining objects that need to be rendered on map. */
+/**
+ * Abstract class defining objects that need to be rendered on map. Only what's needed to render
+ * features is included, so that map features stay small and cheap to compare; the features
+ * themselves are looked up by id when needed.
+ */
 public abstract class MapFeature {
   // TODO(#713): Pull common attributes from concrete classes to here.
-  @Nullable
-  public abstract Feature getFeature();
+
+  /** Returns the id of the feature this represents. */
+  public abstract String getId();
+
+  /**
+   * Returns the version of the feature this represents, which changes each time the feature is
+   * modified.
+   */
+  public abstract long getVersion();
 }
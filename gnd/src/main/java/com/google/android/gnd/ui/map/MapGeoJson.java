@@ -17,7 +17,6 @@
 package com.google.android.gnd.ui.map;
 
 import androidx.annotation.Dimension;
-import com.google.android.gnd.model.feature.Feature;
 import com.google.android.gnd.model.layer.Style;
 import com.google.auto.value.AutoValue;
 import org.json.JSONObject;
@@ -32,20 +31,28 @@ public abstract class MapGeoJson extends MapFeature {
     return new AutoValue_MapGeoJson.Builder();
   }
 
+  @Override
   public abstract String getId();
 
+  /** Returns the id of the layer containing the feature. */
+  public abstract String getLayerId();
+
   public abstract JSONObject getGeoJson();
 
   public abstract Style getStyle();
 
   public abstract @Dimension int getStrokeWidth();
 
-  // TODO: Just store the ID and pull the feature when needed.
   @Override
-  public abstract Feature getFeature();
+  public abstract long getVersion();
 
   public abstract Builder toBuilder();
 
+  /**
+   * Returns true iff the specified object is a {@link MapGeoJson} with the same id, version and
+   * appearance. The GeoJSON itself isn't compared, since it can be large and only changes along
+   * with the feature's version.
+   */
   @Override
   public boolean equals(Object o) {
     if (o == this) {
@@ -54,10 +61,10 @@ public abstract class MapGeoJson extends MapFeature {
     if (o instanceof MapGeoJson) {
       MapGeoJson that = (MapGeoJson) o;
       return this.getId().equals(that.getId())
-          && this.getGeoJson().toString().equals(that.getGeoJson().toString())
+          && this.getVersion() == that.getVersion()
+          && this.getLayerId().equals(that.getLayerId())
           && this.getStyle().equals(that.getStyle())
-          && this.getStrokeWidth() == that.getStrokeWidth()
-          && this.getFeature().equals(that.getFeature());
+          && this.getStrokeWidth() == that.getStrokeWidth();
     }
     return false;
   }
@@ -68,13 +75,13 @@ public abstract class MapGeoJson extends MapFeature {
     hc *= HASH_MULTIPLER;
     hc ^= getId().hashCode();
     hc *= HASH_MULTIPLER;
-    hc ^= getGeoJson().toString().hashCode();
+    hc ^= (int) (getVersion() ^ (getVersion() >>> 32));
+    hc *= HASH_MULTIPLER;
+    hc ^= getLayerId().hashCode();
     hc *= HASH_MULTIPLER;
     hc ^= getStyle().hashCode();
     hc *= HASH_MULTIPLER;
     hc ^= getStrokeWidth();
-    hc *= HASH_MULTIPLER;
-    hc ^= getFeature().hashCode();
     return hc;
   }
 
@@ -82,13 +89,15 @@ public abstract class MapGeoJson extends MapFeature {
   public abstract static class Builder {
     public abstract Builder setId(String newId);
 
+    public abstract Builder setLayerId(String newLayerId);
+
     public abstract Builder setGeoJson(JSONObject newGeoJson);
 
     public abstract Builder setStyle(Style style);
 
     public abstract Builder setStrokeWidth(@Dimension int newStrokeWidth);
 
-    public abstract Builder setFeature(Feature feature);
+    public abstract Builder setVersion(long newVersion);
 
     public abstract MapGeoJson build();
   }
@@ -16,11 +16,10 @@
 
 package com.google.android.gnd.ui.map;
 
-import androidx.annotation.NonNull;
-import com.google.android.gnd.model.feature.Feature;
 import com.google.android.gnd.model.feature.Point;
 import com.google.android.gnd.model.layer.Style;
 import com.google.auto.value.AutoValue;
+import com.google.auto.value.extension.memoized.Memoized;
 
 @AutoValue
 public abstract class MapPin extends MapFeature {
@@ -29,17 +28,19 @@ public abstract class MapPin extends MapFeature {
     return new AutoValue_MapPin.Builder();
   }
 
+  @Override
   public abstract String getId();
 
   public abstract Point getPosition();
 
   public abstract Style getStyle();
 
-  // TODO: Stop embedding entire Feature in pins to free up memory. Instead, copy only details
-  // relevant to rendering pins and uuid to reference the related Feature.
-  @NonNull
   @Override
-  public abstract Feature getFeature();
+  public abstract long getVersion();
+
+  @Memoized
+  @Override
+  public abstract int hashCode();
 
   @AutoValue.Builder
   public abstract static class Builder {
@@ -49,7 +50,7 @@ public abstract class MapPin extends MapFeature {
 
     public abstract Builder setStyle(Style style);
 
-    public abstract Builder setFeature(Feature newFeature);
+    public abstract Builder setVersion(long newVersion);
 
     public abstract MapPin build();
   }
@@ -16,11 +16,10 @@
 
 package com.google.android.gnd.ui.map;
 
-import androidx.annotation.Nullable;
-import com.google.android.gnd.model.feature.Feature;
 import com.google.android.gnd.model.feature.Point;
 import com.google.android.gnd.model.layer.Style;
 import com.google.auto.value.AutoValue;
+import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.ImmutableList;
 
 @AutoValue
@@ -30,15 +29,19 @@ public abstract class MapPolygon extends MapFeature {
     return new AutoValue_MapPolygon.Builder();
   }
 
+  @Override
   public abstract String getId();
 
   public abstract ImmutableList<Point> getVertices();
 
   public abstract Style getStyle();
 
-  @Nullable
   @Override
-  public abstract Feature getFeature();
+  public abstract long getVersion();
+
+  @Memoized
+  @Override
+  public abstract int hashCode();
 
   @AutoValue.Builder
   public abstract static class Builder {
@@ -48,7 +51,7 @@ public abstract class MapPolygon extends MapFeature {
 
     public abstract Builder setStyle(Style style);
 
-    public abstract Builder setFeature(@Nullable Feature newFeature);
+    public abstract Builder setVersion(long newVersion);
 
     public abstract MapPolygon build();
   }
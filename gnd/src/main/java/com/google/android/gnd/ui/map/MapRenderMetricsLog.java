@@ -0,0 +1,194 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map;
+
+import android.content.Context;
+import com.google.android.gnd.rx.Schedulers;
+import com.google.android.gnd.rx.annotations.Cold;
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Rolling CSV log of map rendering metrics, kept on the device so that they can be exported and
+ * compared across builds and project sizes. Once the current file exceeds {@link #MAX_FILE_BYTES}
+ * it replaces the previous one, so at most twice that is ever stored.
+ *
+ * <p>Rows are held in memory and written {@link #WINDOWS_PER_WRITE} at a time rather than opening
+ * the file once a second, so up to that many recent rows are lost if the app is killed.
+ */
+@Singleton
+public class MapRenderMetricsLog {
+
+  /** Subdirectory of the app's cache directory in which logs are stored. */
+  private static final String LOG_DIR = "render_metrics";
+
+  private static final String CURRENT_FILE = "render_metrics.csv";
+  private static final String PREVIOUS_FILE = "render_metrics.1.csv";
+  private static final String EXPORT_FILE = "render_metrics_export.csv";
+
+  static final long MAX_FILE_BYTES = 256 * 1024;
+
+  /** Number of rows buffered before they're written to the log. */
+  static final int WINDOWS_PER_WRITE = 30;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  static final String HEADER =
+      "timestamp,window_ms,frames,janky_frames,max_frame_ms,feature_updates,diff_ms,apply_ms,"
+          + "added,removed,features,markers,polylines,geojson\n";
+
+  private final File logDir;
+  private final Schedulers schedulers;
+
+  /** Rows not yet written to the log. Guarded by this. */
+  private final List<MapRenderStats> pending = new ArrayList<>();
+
+  @Inject
+  MapRenderMetricsLog(@ApplicationContext Context context, Schedulers schedulers) {
+    this(new File(context.getCacheDir(), LOG_DIR), schedulers);
+  }
+
+  MapRenderMetricsLog(File logDir, Schedulers schedulers) {
+    this.logDir = logDir;
+    this.schedulers = schedulers;
+  }
+
+  /**
+   * Appends the specified stats to the log, writing buffered rows once enough have accumulated and
+   * rolling the log over if it has grown too large.
+   */
+  @Cold
+  public Completable append(MapRenderStats stats) {
+    return Completable.fromAction(() -> add(stats)).subscribeOn(schedulers.io());
+  }
+
+  /**
+   * Copies the entries currently in the log, oldest first, to a single file in the log directory
+   * and returns it. The file is replaced on each export.
+   */
+  @Cold
+  public Single<File> export() {
+    return Single.fromCallable(this::writeExport).subscribeOn(schedulers.io());
+  }
+
+  synchronized void add(MapRenderStats stats) throws IOException {
+    pending.add(stats);
+    if (pending.size() >= WINDOWS_PER_WRITE) {
+      flush();
+    }
+  }
+
+  /** Writes all buffered rows to the log in one go. */
+  private synchronized void flush() throws IOException {
+    if (pending.isEmpty()) {
+      return;
+    }
+    // Rows which can't be written are dropped, so that the buffer never grows without bound.
+    List<MapRenderStats> rows = new ArrayList<>(pending);
+    pending.clear();
+    if (!logDir.exists() && !logDir.mkdirs()) {
+      throw new IOException("Unable to create " + logDir);
+    }
+    File current = new File(logDir, CURRENT_FILE);
+    if (current.length() > MAX_FILE_BYTES) {
+      File previous = new File(logDir, PREVIOUS_FILE);
+      if (previous.exists() && !previous.delete()) {
+        throw new IOException("Unable to delete " + previous);
+      }
+      if (!current.renameTo(previous)) {
+        throw new IOException("Unable to roll over " + current);
+      }
+    }
+    boolean isNew = !current.exists() || current.length() == 0;
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(current, true), UTF_8)) {
+      if (isNew) {
+        writer.write(HEADER);
+      }
+      for (MapRenderStats stats : rows) {
+        writer.write(toCsvRow(stats));
+      }
+    }
+  }
+
+  synchronized File writeExport() throws IOException {
+    flush();
+    if (!logDir.exists() && !logDir.mkdirs()) {
+      throw new IOException("Unable to create " + logDir);
+    }
+    File export = new File(logDir, EXPORT_FILE);
+    try (OutputStream out = new FileOutputStream(export)) {
+      out.write(HEADER.getBytes(UTF_8));
+      copyEntries(new File(logDir, PREVIOUS_FILE), out);
+      copyEntries(new File(logDir, CURRENT_FILE), out);
+    }
+    return export;
+  }
+
+  /** Copies the rows of the specified log file to the stream, skipping its header. */
+  private static void copyEntries(File file, OutputStream out) throws IOException {
+    if (!file.exists()) {
+      return;
+    }
+    try (InputStream in = new FileInputStream(file)) {
+      // The header is ASCII, so its length in bytes matches its length in chars.
+      long skipped = in.skip(HEADER.length());
+      if (skipped < HEADER.length()) {
+        return;
+      }
+      byte[] buffer = new byte[8192];
+      int count;
+      while ((count = in.read(buffer)) != -1) {
+        out.write(buffer, 0, count);
+      }
+    }
+  }
+
+  static String toCsvRow(MapRenderStats stats) {
+    return String.format(
+        Locale.US,
+        "%d,%d,%d,%d,%.2f,%d,%.2f,%.2f,%d,%d,%d,%d,%d,%d\n",
+        stats.getTimestamp(),
+        stats.getWindowMillis(),
+        stats.getFrameCount(),
+        stats.getJankyFrameCount(),
+        stats.getMaxFrameMillis(),
+        stats.getFeatureUpdateCount(),
+        stats.getDiffMillis(),
+        stats.getApplyMillis(),
+        stats.getAddedCount(),
+        stats.getRemovedCount(),
+        stats.getFeatureCount(),
+        stats.getMarkerCount(),
+        stats.getPolylineCount(),
+        stats.getGeoJsonCount());
+  }
+}
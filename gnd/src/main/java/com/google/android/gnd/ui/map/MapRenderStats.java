@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * Rendering metrics of the map aggregated over a short window, along with the number of objects on
+ * the map at its end, so that jank and slow updates can be tied to the amount of data shown.
+ */
+@AutoValue
+public abstract class MapRenderStats {
+
+  public static Builder newBuilder() {
+    return new AutoValue_MapRenderStats.Builder()
+        .setFrameCount(0)
+        .setJankyFrameCount(0)
+        .setMaxFrameMillis(0)
+        .setFeatureUpdateCount(0)
+        .setDiffMillis(0)
+        .setApplyMillis(0)
+        .setAddedCount(0)
+        .setRemovedCount(0)
+        .setFeatureCount(0)
+        .setMarkerCount(0)
+        .setPolylineCount(0)
+        .setGeoJsonCount(0);
+  }
+
+  /** Time at which the window ended, in milliseconds since the epoch. */
+  public abstract long getTimestamp();
+
+  /** Length of the window, in milliseconds. */
+  public abstract long getWindowMillis();
+
+  public abstract int getFrameCount();
+
+  /** Number of frames which took long enough to cause at least one frame to be skipped. */
+  public abstract int getJankyFrameCount();
+
+  public abstract double getMaxFrameMillis();
+
+  /** Number of sets of features diffed against those on the map. */
+  public abstract int getFeatureUpdateCount();
+
+  /** Total time spent diffing sets of features in the background. */
+  public abstract double getDiffMillis();
+
+  /** Total time spent applying changes to map objects on the main thread. */
+  public abstract double getApplyMillis();
+
+  /** Number of features added to the map by the diffs completed in the window. */
+  public abstract int getAddedCount();
+
+  /** Number of features removed from the map by the diffs completed in the window. */
+  public abstract int getRemovedCount();
+
+  /** Number of features shown, including those not currently rendered as map objects. */
+  public abstract int getFeatureCount();
+
+  public abstract int getMarkerCount();
+
+  public abstract int getPolylineCount();
+
+  public abstract int getGeoJsonCount();
+
+  /** Returns the average number of frames rendered per second over the window. */
+  public double getFramesPerSecond() {
+    return getWindowMillis() == 0 ? 0 : getFrameCount() * 1000.0 / getWindowMillis();
+  }
+
+  @AutoValue.Builder
+  public abstract static class Builder {
+    public abstract Builder setTimestamp(long newTimestamp);
+
+    public abstract Builder setWindowMillis(long newWindowMillis);
+
+    public abstract Builder setFrameCount(int newFrameCount);
+
+    public abstract Builder setJankyFrameCount(int newJankyFrameCount);
+
+    public abstract Builder setMaxFrameMillis(double newMaxFrameMillis);
+
+    public abstract Builder setFeatureUpdateCount(int newFeatureUpdateCount);
+
+    public abstract Builder setDiffMillis(double newDiffMillis);
+
+    public abstract Builder setApplyMillis(double newApplyMillis);
+
+    public abstract Builder setAddedCount(int newAddedCount);
+
+    public abstract Builder setRemovedCount(int newRemovedCount);
+
+    public abstract Builder setFeatureCount(int newFeatureCount);
+
+    public abstract Builder setMarkerCount(int newMarkerCount);
+
+    public abstract Builder setPolylineCount(int newPolylineCount);
+
+    public abstract Builder setGeoJsonCount(int newGeoJsonCount);
+
+    public abstract MapRenderStats build();
+  }
+}
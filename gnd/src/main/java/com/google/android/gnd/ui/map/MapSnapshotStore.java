@@ -0,0 +1,384 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map;
+
+import android.content.Context;
+import androidx.annotation.Nullable;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gnd.model.feature.Point;
+import com.google.android.gnd.model.layer.Style;
+import com.google.android.gnd.rx.Schedulers;
+import com.google.android.gnd.rx.annotations.Cold;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.maps.android.PolyUtil;
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import timber.log.Timber;
+
+/**
+ * Persists the pins and polygons last rendered for each project, so that they can be drawn as soon
+ * as the app starts, before the project and its features have been loaded from the local db.
+ *
+ * <p>Snapshots are stored in a flat binary layout read through a memory-mapped buffer, so reading
+ * one costs little more than creating the map features it contains:
+ *
+ * <ol>
+ *   <li>Header: magic number, format version, and the number of strings, pins, polygons and
+ *       polygon vertices.
+ *   <li>String offsets: offset of each string in the string data, plus the end of the data.
+ *   <li>Pins: latitude, longitude, version, id string and style string.
+ *   <li>Polygons: version, id string, style string, index of first vertex and vertex count.
+ *   <li>Vertices: latitude and longitude.
+ *   <li>String data: UTF-8 encoded feature ids and style colors.
+ * </ol>
+ *
+ * Polygons are simplified before being stored, since they're replaced with the full geometry once
+ * features are loaded. Positions are stored as latitude and longitude rather than projected map
+ * coordinates, since map markers are placed by geographic position and the feature overview
+ * projects shapes lazily as tiles are rendered; projected coordinates would have to be converted
+ * back on every read.
+ */
+@Singleton
+public class MapSnapshotStore {
+
+  /** Subdirectory of the app's cache directory in which snapshots are stored. */
+  private static final String SNAPSHOT_DIR = "map_snapshots";
+
+  private static final String FILE_SUFFIX = ".snapshot";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int MAGIC = 0x474e4453;
+  private static final int FORMAT_VERSION = 1;
+
+  // Sizes of fixed-length records, in bytes.
+  private static final int HEADER_BYTES = 6 * 4;
+  private static final int STRING_OFFSET_BYTES = 4;
+  private static final int PIN_BYTES = 8 + 8 + 8 + 4 + 4;
+  private static final int POLYGON_BYTES = 8 + 4 + 4 + 4 + 4;
+  private static final int VERTEX_BYTES = 8 + 8;
+
+  /** Maximum distance between simplified polygon outlines and the originals, in meters. */
+  private static final double SIMPLIFICATION_TOLERANCE_METERS = 1;
+
+  /** Outlines with fewer vertices are stored as is, since simplifying them saves little. */
+  private static final int MIN_SIMPLIFIED_VERTICES = 32;
+
+  private final File snapshotDir;
+  private final Schedulers schedulers;
+
+  @Inject
+  MapSnapshotStore(@ApplicationContext Context context, Schedulers schedulers) {
+    this(new File(context.getCacheDir(), SNAPSHOT_DIR), schedulers);
+  }
+
+  MapSnapshotStore(File snapshotDir, Schedulers schedulers) {
+    this.snapshotDir = snapshotDir;
+    this.schedulers = schedulers;
+  }
+
+  /**
+   * Returns the pins and polygons last saved for the specified project. Completes empty if none
+   * were saved or the snapshot can't be read.
+   */
+  @Cold
+  public Maybe<ImmutableSet<MapFeature>> getSnapshot(String projectId) {
+    return Maybe.fromCallable(() -> read(projectId))
+        .doOnError(t -> Timber.e(t, "Failed to read map snapshot"))
+        .onErrorComplete()
+        .subscribeOn(schedulers.io());
+  }
+
+  /**
+   * Replaces the snapshot of the specified project with the pins and polygons in the specified
+   * features. Other types of features are skipped.
+   */
+  @Cold
+  public Completable saveSnapshot(String projectId, Collection<MapFeature> features) {
+    return Completable.fromAction(() -> write(projectId, features)).subscribeOn(schedulers.io());
+  }
+
+  private File getFile(String projectId) {
+    return new File(snapshotDir, projectId + FILE_SUFFIX);
+  }
+
+  @Nullable
+  synchronized ImmutableSet<MapFeature> read(String projectId) throws IOException {
+    File file = getFile(projectId);
+    if (!file.exists()) {
+      return null;
+    }
+    try (FileInputStream in = new FileInputStream(file);
+        FileChannel channel = in.getChannel()) {
+      return readFrom(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  synchronized void write(String projectId, Collection<MapFeature> features) throws IOException {
+    if (!snapshotDir.exists() && !snapshotDir.mkdirs()) {
+      throw new IOException("Unable to create " + snapshotDir);
+    }
+    ByteBuffer buffer = toByteBuffer(features);
+    // Written to a temp file first so that a partially written snapshot is never read.
+    File file = getFile(projectId);
+    File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+    try (FileOutputStream out = new FileOutputStream(tempFile);
+        FileChannel channel = out.getChannel()) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+    if (!tempFile.renameTo(file)) {
+      throw new IOException("Unable to replace " + file);
+    }
+  }
+
+  private static ImmutableSet<MapFeature> readFrom(ByteBuffer buffer) throws IOException {
+    if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a map snapshot");
+    }
+    int version = buffer.getInt(4);
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported map snapshot version: " + version);
+    }
+    int stringCount = buffer.getInt(8);
+    int pinCount = buffer.getInt(12);
+    int polygonCount = buffer.getInt(16);
+    int vertexCount = buffer.getInt(20);
+    int pinsStart = HEADER_BYTES + (stringCount + 1) * STRING_OFFSET_BYTES;
+    int polygonsStart = pinsStart + pinCount * PIN_BYTES;
+    int verticesStart = polygonsStart + polygonCount * POLYGON_BYTES;
+    int stringsStart = verticesStart + vertexCount * VERTEX_BYTES;
+    int stringsEnd = stringsStart + buffer.getInt(HEADER_BYTES + stringCount * STRING_OFFSET_BYTES);
+    if (buffer.limit() != stringsEnd) {
+      throw new IOException("Truncated map snapshot");
+    }
+
+    String[] strings = new String[stringCount];
+    for (int i = 0; i < stringCount; i++) {
+      int start = buffer.getInt(HEADER_BYTES + i * STRING_OFFSET_BYTES);
+      int end = buffer.getInt(HEADER_BYTES + (i + 1) * STRING_OFFSET_BYTES);
+      byte[] bytes = new byte[end - start];
+      ByteBuffer view = buffer.duplicate();
+      view.position(stringsStart + start);
+      view.get(bytes);
+      strings[i] = new String(bytes, UTF_8);
+    }
+    // Most features share a handful of styles.
+    Style[] styles = new Style[stringCount];
+
+    ImmutableSet.Builder<MapFeature> features = ImmutableSet.builder();
+    for (int i = 0; i < pinCount; i++) {
+      int offset = pinsStart + i * PIN_BYTES;
+      features.add(
+          MapPin.newBuilder()
+              .setPosition(
+                  Point.newBuilder()
+                      .setLatitude(buffer.getDouble(offset))
+                      .setLongitude(buffer.getDouble(offset + 8))
+                      .build())
+              .setVersion(buffer.getLong(offset + 16))
+              .setId(strings[buffer.getInt(offset + 24)])
+              .setStyle(getStyle(styles, strings, buffer.getInt(offset + 28)))
+              .build());
+    }
+    for (int i = 0; i < polygonCount; i++) {
+      int offset = polygonsStart + i * POLYGON_BYTES;
+      int firstVertex = buffer.getInt(offset + 16);
+      int polygonVertexCount = buffer.getInt(offset + 20);
+      ImmutableList.Builder<Point> vertices = ImmutableList.builder();
+      for (int v = firstVertex; v < firstVertex + polygonVertexCount; v++) {
+        int vertexOffset = verticesStart + v * VERTEX_BYTES;
+        vertices.add(
+            Point.newBuilder()
+                .setLatitude(buffer.getDouble(vertexOffset))
+                .setLongitude(buffer.getDouble(vertexOffset + 8))
+                .build());
+      }
+      features.add(
+          MapPolygon.newBuilder()
+              .setVersion(buffer.getLong(offset))
+              .setId(strings[buffer.getInt(offset + 8)])
+              .setStyle(getStyle(styles, strings, buffer.getInt(offset + 12)))
+              .setVertices(vertices.build())
+              .build());
+    }
+    return features.build();
+  }
+
+  private static Style getStyle(Style[] styles, String[] strings, int index) {
+    if (styles[index] == null) {
+      styles[index] = Style.builder().setColor(strings[index]).build();
+    }
+    return styles[index];
+  }
+
+  private static ByteBuffer toByteBuffer(Collection<MapFeature> features) {
+    List<MapPin> pins = new ArrayList<>();
+    List<MapPolygon> polygons = new ArrayList<>();
+    List<List<Point>> polygonVertices = new ArrayList<>();
+    int vertexCount = 0;
+    for (MapFeature feature : features) {
+      if (feature instanceof MapPin) {
+        pins.add((MapPin) feature);
+      } else if (feature instanceof MapPolygon) {
+        MapPolygon polygon = (MapPolygon) feature;
+        List<Point> vertices = simplify(polygon.getVertices());
+        polygons.add(polygon);
+        polygonVertices.add(vertices);
+        vertexCount += vertices.size();
+      }
+    }
+
+    StringTable strings = new StringTable();
+    for (MapPin pin : pins) {
+      strings.add(pin.getId());
+      strings.add(pin.getStyle().getColor());
+    }
+    for (MapPolygon polygon : polygons) {
+      strings.add(polygon.getId());
+      strings.add(polygon.getStyle().getColor());
+    }
+
+    int size =
+        HEADER_BYTES
+            + (strings.size() + 1) * STRING_OFFSET_BYTES
+            + pins.size() * PIN_BYTES
+            + polygons.size() * POLYGON_BYTES
+            + vertexCount * VERTEX_BYTES
+            + strings.getDataSize();
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer
+        .putInt(MAGIC)
+        .putInt(FORMAT_VERSION)
+        .putInt(strings.size())
+        .putInt(pins.size())
+        .putInt(polygons.size())
+        .putInt(vertexCount);
+    strings.putOffsets(buffer);
+    for (MapPin pin : pins) {
+      buffer
+          .putDouble(pin.getPosition().getLatitude())
+          .putDouble(pin.getPosition().getLongitude())
+          .putLong(pin.getVersion())
+          .putInt(strings.indexOf(pin.getId()))
+          .putInt(strings.indexOf(pin.getStyle().getColor()));
+    }
+    int firstVertex = 0;
+    for (int i = 0; i < polygons.size(); i++) {
+      MapPolygon polygon = polygons.get(i);
+      int polygonVertexCount = polygonVertices.get(i).size();
+      buffer
+          .putLong(polygon.getVersion())
+          .putInt(strings.indexOf(polygon.getId()))
+          .putInt(strings.indexOf(polygon.getStyle().getColor()))
+          .putInt(firstVertex)
+          .putInt(polygonVertexCount);
+      firstVertex += polygonVertexCount;
+    }
+    for (List<Point> vertices : polygonVertices) {
+      for (Point vertex : vertices) {
+        buffer.putDouble(vertex.getLatitude()).putDouble(vertex.getLongitude());
+      }
+    }
+    strings.putData(buffer);
+    buffer.flip();
+    return buffer;
+  }
+
+  /** Returns the specified polygon outline simplified for storage. */
+  private static List<Point> simplify(ImmutableList<Point> vertices) {
+    if (vertices.size() < MIN_SIMPLIFIED_VERTICES) {
+      return vertices;
+    }
+    List<LatLng> latLngs = new ArrayList<>(vertices.size());
+    for (Point vertex : vertices) {
+      latLngs.add(new LatLng(vertex.getLatitude(), vertex.getLongitude()));
+    }
+    List<LatLng> simplified = PolyUtil.simplify(latLngs, SIMPLIFICATION_TOLERANCE_METERS);
+    // Outlines smaller than the tolerance collapse entirely; they're stored as is.
+    if (PolyUtil.isClosedPolygon(latLngs) && simplified.size() < 4) {
+      return vertices;
+    }
+    List<Point> points = new ArrayList<>(simplified.size());
+    for (LatLng latLng : simplified) {
+      points.add(
+          Point.newBuilder().setLatitude(latLng.latitude).setLongitude(latLng.longitude).build());
+    }
+    return points;
+  }
+
+  /** Deduplicated UTF-8 strings, referenced by index from pins and polygons. */
+  private static class StringTable {
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final List<byte[]> data = new ArrayList<>();
+    private int dataSize;
+
+    void add(String string) {
+      if (!indices.containsKey(string)) {
+        byte[] bytes = string.getBytes(UTF_8);
+        indices.put(string, data.size());
+        data.add(bytes);
+        dataSize += bytes.length;
+      }
+    }
+
+    int indexOf(String string) {
+      return indices.get(string);
+    }
+
+    int size() {
+      return data.size();
+    }
+
+    int getDataSize() {
+      return dataSize;
+    }
+
+    void putOffsets(ByteBuffer buffer) {
+      int offset = 0;
+      for (byte[] bytes : data) {
+        buffer.putInt(offset);
+        offset += bytes.length;
+      }
+      buffer.putInt(offset);
+    }
+
+    void putData(ByteBuffer buffer) {
+      for (byte[] bytes : data) {
+        buffer.put(bytes);
+      }
+    }
+  }
+}
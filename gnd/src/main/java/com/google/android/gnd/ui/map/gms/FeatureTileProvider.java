@@ -0,0 +1,352 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+import androidx.annotation.Nullable;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+import com.google.android.gnd.ui.map.MapFeature;
+import com.google.android.gnd.ui.map.gms.FeatureTileRenderer.Footprint;
+import com.google.android.gnd.ui.map.gms.FeatureTileRenderer.Shape;
+import com.google.android.gnd.ui.map.gms.FeatureTileRenderer.ShapeIndex;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import timber.log.Timber;
+
+/**
+ * A {@link TileProvider} which renders an overview of a project's points and polygons as raster
+ * tiles. Tiles are rendered on tile provider threads when first requested and cached on disk per
+ * project, so the overview of large projects is available straight away when they're reopened.
+ * When features change, only the cached tiles touched by the features which changed are deleted.
+ */
+class FeatureTileProvider implements TileProvider {
+
+  /** Version of the cache format and rendering. Cached tiles are discarded when it changes. */
+  private static final int CACHE_VERSION = 1;
+
+  /** Name of the file recording the footprints of the features in each project's cached tiles. */
+  private static final String INDEX_FILE_NAME = "index";
+
+  /**
+   * Maximum number of tiles at a zoom level touched by a changed feature for which cached files are
+   * deleted one by one. Above this, the files cached at that level are listed instead.
+   */
+  private static final int MAX_TILES_TO_DELETE_INDIVIDUALLY = 64;
+
+  private final File cacheDir;
+  private final int defaultColor;
+
+  /** The shapes to render and the directory to cache them in, replaced as a whole on update. */
+  @Nullable private volatile Snapshot snapshot;
+
+  /** Footprints of the shapes in the current snapshot, keyed by shape id. Guarded by this. */
+  private Map<String, Footprint> footprints = new HashMap<>();
+
+  /**
+   * Creates a new provider caching tiles under the specified directory. {@code defaultColor} is
+   * used for features whose style doesn't specify a valid color.
+   */
+  FeatureTileProvider(File cacheDir, int defaultColor) {
+    this.cacheDir = cacheDir;
+    this.defaultColor = defaultColor;
+  }
+
+  /**
+   * Replaces the features rendered with the points and polygons in the specified collection,
+   * deleting the cached tiles touched by features which have been added, changed or removed since
+   * the project's tiles were last cached. Blocks while reading and deleting files, so must be
+   * called off the main thread. Returns true iff tiles already displayed may have changed.
+   */
+  synchronized boolean update(String projectId, Collection<MapFeature> features) {
+    File dir = new File(cacheDir, projectId);
+    Snapshot previous = snapshot;
+    boolean projectChanged = previous == null || !previous.dir.equals(dir);
+    if (projectChanged) {
+      footprints = readIndex(dir);
+    }
+
+    ImmutableList.Builder<Shape> shapes = ImmutableList.builder();
+    Map<String, Footprint> nextFootprints = new HashMap<>();
+    for (MapFeature mapFeature : features) {
+      Shape shape = FeatureTileRenderer.toShape(mapFeature, defaultColor);
+      if (shape != null) {
+        shapes.add(shape);
+        nextFootprints.put(shape.id, shape.footprint);
+      }
+    }
+
+    List<Footprint> changed = new ArrayList<>();
+    addChanged(footprints, nextFootprints, changed);
+    addChanged(nextFootprints, footprints, changed);
+    invalidate(dir, changed);
+    writeIndex(dir, nextFootprints);
+    footprints = nextFootprints;
+    snapshot = new Snapshot(dir, new ShapeIndex(shapes.build()));
+    return projectChanged || !changed.isEmpty();
+  }
+
+  /** Adds the footprints in {@code from} which are missing or different in {@code to}. */
+  private static void addChanged(
+      Map<String, Footprint> from, Map<String, Footprint> to, List<Footprint> changed) {
+    for (Entry<String, Footprint> entry : from.entrySet()) {
+      Footprint other = to.get(entry.getKey());
+      if (other == null || other.fingerprint != entry.getValue().fingerprint) {
+        changed.add(entry.getValue());
+      }
+    }
+  }
+
+  @Override
+  public Tile getTile(int x, int y, int zoom) {
+    Snapshot current = snapshot;
+    if (current == null) {
+      return NO_TILE;
+    }
+    File file = getTileFile(current.dir, x, y, zoom);
+    byte[] data = readTile(file);
+    if (data == null) {
+      data = FeatureTileRenderer.render(current.shapes, x, y, zoom);
+      // Empty tiles are cached as empty files so that they aren't rendered again.
+      data = data == null ? new byte[0] : data;
+      saveTile(current, file, data);
+    }
+    return data.length == 0
+        ? NO_TILE
+        : new Tile(WebMercator.TILE_SIZE, WebMercator.TILE_SIZE, data);
+  }
+
+  @Nullable
+  private static byte[] readTile(File file) {
+    if (!file.exists()) {
+      return null;
+    }
+    try {
+      return Files.toByteArray(file);
+    } catch (IOException e) {
+      Timber.w(e, "Failed to read cached feature tile %s", file);
+      return null;
+    }
+  }
+
+  /**
+   * Caches the specified tile if it was rendered from the current snapshot. Tiles rendered from an
+   * older snapshot may not reflect changes made since, so are discarded.
+   */
+  private synchronized void saveTile(Snapshot renderedFrom, File file, byte[] data) {
+    if (renderedFrom != snapshot) {
+      return;
+    }
+    File tempFile = new File(file.getPath() + ".tmp");
+    try {
+      Files.createParentDirs(file);
+      Files.write(data, tempFile);
+      if (!tempFile.renameTo(file)) {
+        Timber.w("Failed to cache feature tile %s", file);
+      }
+    } catch (IOException e) {
+      Timber.w(e, "Failed to cache feature tile %s", file);
+    }
+  }
+
+  /** Deletes the cached tiles which may contain any of the specified footprints. */
+  private static void invalidate(File dir, List<Footprint> changed) {
+    File[] zoomDirs = dir.listFiles(File::isDirectory);
+    if (changed.isEmpty() || zoomDirs == null) {
+      return;
+    }
+    for (File zoomDir : zoomDirs) {
+      int zoom;
+      try {
+        zoom = Integer.parseInt(zoomDir.getName());
+      } catch (NumberFormatException e) {
+        continue;
+      }
+      // Cached tiles at this level, listed only if needed.
+      File[] cachedTiles = null;
+      for (Footprint footprint : changed) {
+        TileRange range = TileRange.of(footprint, zoom);
+        if (range.size() <= MAX_TILES_TO_DELETE_INDIVIDUALLY) {
+          for (int x = range.minX; x <= range.maxX; x++) {
+            for (int y = range.minY; y <= range.maxY; y++) {
+              deleteFile(getTileFile(dir, x, y, zoom));
+            }
+          }
+          continue;
+        }
+        if (cachedTiles == null) {
+          cachedTiles = zoomDir.listFiles();
+        }
+        for (File tile : cachedTiles == null ? new File[0] : cachedTiles) {
+          if (range.contains(tile.getName())) {
+            deleteFile(tile);
+          }
+        }
+      }
+    }
+  }
+
+  private static File getTileFile(File dir, int x, int y, int zoom) {
+    return new File(dir, zoom + File.separator + x + "_" + y + ".png");
+  }
+
+  private static void deleteFile(File file) {
+    if (file.exists() && !file.delete()) {
+      Timber.w("Failed to delete cached feature tile %s", file);
+    }
+  }
+
+  /**
+   * Returns the footprints recorded for the project's cached tiles. If they can't be read or were
+   * written by a different version, the project's tiles are deleted and an empty map is returned.
+   */
+  private static Map<String, Footprint> readIndex(File dir) {
+    File file = new File(dir, INDEX_FILE_NAME);
+    Map<String, Footprint> index = new HashMap<>();
+    if (file.exists()) {
+      try (DataInputStream in =
+          new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+        if (in.readInt() == CACHE_VERSION) {
+          int count = in.readInt();
+          for (int i = 0; i < count; i++) {
+            String id = in.readUTF();
+            long fingerprint = in.readLong();
+            double minX = in.readDouble();
+            double minY = in.readDouble();
+            double maxX = in.readDouble();
+            double maxY = in.readDouble();
+            index.put(id, new Footprint(fingerprint, minX, minY, maxX, maxY));
+          }
+          return index;
+        }
+      } catch (IOException e) {
+        Timber.w(e, "Failed to read feature tile index %s", file);
+        index.clear();
+      }
+    }
+    deleteRecursively(dir);
+    return index;
+  }
+
+  private static void writeIndex(File dir, Map<String, Footprint> index) {
+    File file = new File(dir, INDEX_FILE_NAME);
+    File tempFile = new File(dir, INDEX_FILE_NAME + ".tmp");
+    try {
+      Files.createParentDirs(file);
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(CACHE_VERSION);
+        out.writeInt(index.size());
+        for (Entry<String, Footprint> entry : index.entrySet()) {
+          Footprint footprint = entry.getValue();
+          out.writeUTF(entry.getKey());
+          out.writeLong(footprint.fingerprint);
+          out.writeDouble(footprint.minX);
+          out.writeDouble(footprint.minY);
+          out.writeDouble(footprint.maxX);
+          out.writeDouble(footprint.maxY);
+        }
+      }
+      if (!tempFile.renameTo(file)) {
+        Timber.w("Failed to save feature tile index %s", file);
+      }
+    } catch (IOException e) {
+      Timber.w(e, "Failed to save feature tile index %s", file);
+    }
+  }
+
+  private static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    if (file.exists() && !file.delete()) {
+      Timber.w("Failed to delete %s", file);
+    }
+  }
+
+  /** The shapes to render and the directory their tiles are cached in. */
+  private static class Snapshot {
+    final File dir;
+    final ShapeIndex shapes;
+
+    Snapshot(File dir, ShapeIndex shapes) {
+      this.dir = dir;
+      this.shapes = shapes;
+    }
+  }
+
+  /** The tiles at a zoom level which may contain a footprint. */
+  private static class TileRange {
+    final int minX;
+    final int minY;
+    final int maxX;
+    final int maxY;
+
+    private TileRange(int minX, int minY, int maxX, int maxY) {
+      this.minX = minX;
+      this.minY = minY;
+      this.maxX = maxX;
+      this.maxY = maxY;
+    }
+
+    static TileRange of(Footprint footprint, int zoom) {
+      double worldSize = WebMercator.getWorldSize(zoom);
+      double margin = FeatureTileRenderer.MARGIN_PX;
+      return new TileRange(
+          WebMercator.toTile(footprint.minX * worldSize - margin, zoom),
+          WebMercator.toTile(footprint.minY * worldSize - margin, zoom),
+          WebMercator.toTile(footprint.maxX * worldSize + margin, zoom),
+          WebMercator.toTile(footprint.maxY * worldSize + margin, zoom));
+    }
+
+    long size() {
+      return (long) (maxX - minX + 1) * (maxY - minY + 1);
+    }
+
+    /** Returns true iff the cached tile with the specified file name is in this range. */
+    boolean contains(String fileName) {
+      int separator = fileName.indexOf('_');
+      int extension = fileName.indexOf('.');
+      if (separator < 0 || extension < separator) {
+        return false;
+      }
+      try {
+        int x = Integer.parseInt(fileName.substring(0, separator));
+        int y = Integer.parseInt(fileName.substring(separator + 1, extension));
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
+  }
+}
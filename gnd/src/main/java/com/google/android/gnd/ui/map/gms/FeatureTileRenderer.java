@@ -0,0 +1,273 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Paint.Style;
+import android.graphics.Path;
+import androidx.annotation.Nullable;
+import com.google.android.gnd.model.feature.Point;
+import com.google.android.gnd.ui.map.FeatureOverview;
+import com.google.android.gnd.ui.map.MapFeature;
+import com.google.android.gnd.ui.map.MapPin;
+import com.google.android.gnd.ui.map.MapPolygon;
+import com.google.android.gnd.util.IntArray;
+import com.google.android.gnd.util.PackedRTree;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+/**
+ * Rasterizes points and polygons into map tiles, giving a fast overview of projects with too many
+ * features to show as individual map objects. Safe to use from multiple threads.
+ */
+final class FeatureTileRenderer {
+
+  private static final float POINT_RADIUS_PX = 4;
+  private static final float STROKE_WIDTH_PX = 2;
+
+  /** Distance shapes may be drawn beyond their bounds, in pixels. */
+  static final double MARGIN_PX = POINT_RADIUS_PX + STROKE_WIDTH_PX;
+
+  /** Do not instantiate. */
+  private FeatureTileRenderer() {}
+
+  /**
+   * Returns the shape to render for the specified feature, or null if the feature isn't supported
+   * in overviews or has no vertices. {@code defaultColor} is used if the feature's color is
+   * invalid.
+   */
+  @Nullable
+  static Shape toShape(MapFeature mapFeature, int defaultColor) {
+    if (!FeatureOverview.isSupported(mapFeature)) {
+      return null;
+    }
+    if (mapFeature instanceof MapPin) {
+      MapPin pin = (MapPin) mapFeature;
+      return Shape.create(
+          pin.getId(),
+          parseColor(pin.getStyle().getColor(), defaultColor),
+          true,
+          ImmutableList.of(pin.getPosition()));
+    } else if (mapFeature instanceof MapPolygon) {
+      MapPolygon polygon = (MapPolygon) mapFeature;
+      if (polygon.getVertices().isEmpty()) {
+        return null;
+      }
+      return Shape.create(
+          polygon.getId(),
+          parseColor(polygon.getStyle().getColor(), defaultColor),
+          false,
+          polygon.getVertices());
+    }
+    return null;
+  }
+
+  private static int parseColor(@Nullable String color, int defaultColor) {
+    try {
+      return Color.parseColor(String.valueOf(color));
+    } catch (IllegalArgumentException e) {
+      return defaultColor;
+    }
+  }
+
+  /**
+   * Renders the indexed shapes in the tile at the specified coordinates, returning the tile as a
+   * PNG, or null if no shapes fall within it.
+   */
+  @Nullable
+  static byte[] render(ShapeIndex index, int x, int y, int zoom) {
+    double worldSize = WebMercator.getWorldSize(zoom);
+    double left = (double) x * WebMercator.TILE_SIZE;
+    double top = (double) y * WebMercator.TILE_SIZE;
+    List<Shape> shapes = index.findIntersecting(left, top, worldSize);
+    if (shapes.isEmpty()) {
+      return null;
+    }
+    Bitmap bitmap =
+        Bitmap.createBitmap(WebMercator.TILE_SIZE, WebMercator.TILE_SIZE, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(bitmap);
+    Paint fill = new Paint(Paint.ANTI_ALIAS_FLAG);
+    fill.setStyle(Style.FILL);
+    Paint stroke = new Paint(Paint.ANTI_ALIAS_FLAG);
+    stroke.setStyle(Style.STROKE);
+    stroke.setStrokeWidth(STROKE_WIDTH_PX);
+    stroke.setStrokeJoin(Paint.Join.ROUND);
+    for (Shape shape : shapes) {
+      if (shape.isPoint) {
+        float cx = (float) (shape.xs[0] * worldSize - left);
+        float cy = (float) (shape.ys[0] * worldSize - top);
+        fill.setColor(shape.color);
+        canvas.drawCircle(cx, cy, POINT_RADIUS_PX, fill);
+        stroke.setColor(Color.WHITE);
+        canvas.drawCircle(cx, cy, POINT_RADIUS_PX, stroke);
+      } else {
+        Path path = new Path();
+        path.moveTo(
+            (float) (shape.xs[0] * worldSize - left), (float) (shape.ys[0] * worldSize - top));
+        for (int i = 1; i < shape.xs.length; i++) {
+          path.lineTo(
+              (float) (shape.xs[i] * worldSize - left), (float) (shape.ys[i] * worldSize - top));
+        }
+        stroke.setColor(shape.color);
+        canvas.drawPath(path, stroke);
+      }
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    bitmap.compress(CompressFormat.PNG, 100, out);
+    bitmap.recycle();
+    return out.toByteArray();
+  }
+
+  /**
+   * Immutable set of shapes indexed by their bounds, so that rendering a tile only visits the
+   * shapes which may be drawn in it rather than every shape in the project.
+   */
+  static final class ShapeIndex {
+    private final ImmutableList<Shape> shapes;
+    private final PackedRTree tree;
+
+    ShapeIndex(ImmutableList<Shape> shapes) {
+      this.shapes = shapes;
+      // World y increases southwards, so minY takes the place of south in the tree's boxes.
+      double[] boxes = new double[shapes.size() * 4];
+      for (int i = 0; i < shapes.size(); i++) {
+        Footprint footprint = shapes.get(i).footprint;
+        boxes[i * 4] = footprint.minY;
+        boxes[i * 4 + 1] = footprint.minX;
+        boxes[i * 4 + 2] = footprint.maxY;
+        boxes[i * 4 + 3] = footprint.maxX;
+      }
+      this.tree = new PackedRTree(boxes, shapes.size());
+    }
+
+    /**
+     * Returns the shapes which may be drawn in the tile with the specified top left corner, in
+     * pixels, on a map of the specified size. Shapes are returned in the order they were indexed in
+     * so that overlapping shapes are stacked the same way in every tile.
+     */
+    List<Shape> findIntersecting(double left, double top, double worldSize) {
+      double margin = MARGIN_PX / worldSize;
+      double minX = left / worldSize - margin;
+      double minY = top / worldSize - margin;
+      double maxX = (left + WebMercator.TILE_SIZE) / worldSize + margin;
+      double maxY = (top + WebMercator.TILE_SIZE) / worldSize + margin;
+      IntArray candidates = new IntArray();
+      tree.search(minY, minX, maxY, maxX, candidates::add);
+      ImmutableList.Builder<Shape> results = ImmutableList.builder();
+      for (int i : candidates.toSortedDistinctArray()) {
+        Shape shape = shapes.get(i);
+        // Re-check in pixels so that results match Shape.intersects() despite rounding.
+        if (shape.intersects(left, top, worldSize)) {
+          results.add(shape);
+        }
+      }
+      return results.build();
+    }
+  }
+
+  /** A point or polygon outline projected to normalized world coordinates, ready to render. */
+  static final class Shape {
+    final String id;
+    final int color;
+    final boolean isPoint;
+    final double[] xs;
+    final double[] ys;
+    final Footprint footprint;
+
+    private Shape(
+        String id, int color, boolean isPoint, double[] xs, double[] ys, Footprint footprint) {
+      this.id = id;
+      this.color = color;
+      this.isPoint = isPoint;
+      this.xs = xs;
+      this.ys = ys;
+      this.footprint = footprint;
+    }
+
+    static Shape create(String id, int color, boolean isPoint, List<Point> vertices) {
+      double[] xs = new double[vertices.size()];
+      double[] ys = new double[vertices.size()];
+      // Fingerprint of everything affecting how the shape is drawn, used to detect changes.
+      long fingerprint = isPoint ? 1 : 2;
+      fingerprint = 31 * fingerprint + color;
+      for (int i = 0; i < vertices.size(); i++) {
+        Point vertex = vertices.get(i);
+        xs[i] = WebMercator.toWorldX(vertex.getLongitude());
+        ys[i] = WebMercator.toWorldY(vertex.getLatitude());
+        fingerprint = 31 * fingerprint + Double.doubleToLongBits(xs[i]);
+        fingerprint = 31 * fingerprint + Double.doubleToLongBits(ys[i]);
+      }
+      return new Shape(id, color, isPoint, xs, ys, Footprint.of(xs, ys, fingerprint));
+    }
+
+    /**
+     * Returns true iff this shape may be drawn in the tile with the specified top left corner, in
+     * pixels, on a map of the specified size.
+     */
+    boolean intersects(double left, double top, double worldSize) {
+      return footprint.intersects(left, top, worldSize);
+    }
+  }
+
+  /**
+   * Bounds of a shape in normalized world coordinates, along with a fingerprint of its contents.
+   * Recorded alongside cached tiles so that the tiles touched by a shape can be found after it's
+   * changed or removed.
+   */
+  static final class Footprint {
+    final long fingerprint;
+    final double minX;
+    final double minY;
+    final double maxX;
+    final double maxY;
+
+    Footprint(long fingerprint, double minX, double minY, double maxX, double maxY) {
+      this.fingerprint = fingerprint;
+      this.minX = minX;
+      this.minY = minY;
+      this.maxX = maxX;
+      this.maxY = maxY;
+    }
+
+    private static Footprint of(double[] xs, double[] ys, long fingerprint) {
+      double minX = xs[0];
+      double minY = ys[0];
+      double maxX = xs[0];
+      double maxY = ys[0];
+      for (int i = 1; i < xs.length; i++) {
+        minX = Math.min(minX, xs[i]);
+        minY = Math.min(minY, ys[i]);
+        maxX = Math.max(maxX, xs[i]);
+        maxY = Math.max(maxY, ys[i]);
+      }
+      return new Footprint(fingerprint, minX, minY, maxX, maxY);
+    }
+
+    /** See {@link Shape#intersects}. */
+    boolean intersects(double left, double top, double worldSize) {
+      return maxX * worldSize + MARGIN_PX >= left
+          && minX * worldSize - MARGIN_PX <= left + WebMercator.TILE_SIZE
+          && maxY * worldSize + MARGIN_PX >= top
+          && minY * worldSize - MARGIN_PX <= top + WebMercator.TILE_SIZE;
+    }
+  }
+}
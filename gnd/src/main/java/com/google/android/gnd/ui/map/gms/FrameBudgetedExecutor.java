@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Runs tasks on the main thread in the order they're queued, spreading them across frames so that
+ * only as many are run per frame as fit in a fixed time budget. Used to apply large numbers of
+ * changes to the map without blocking input and rendering. Must only be used from the main thread.
+ */
+class FrameBudgetedExecutor implements FrameCallback {
+
+  private final Queue<Runnable> tasks = new ArrayDeque<>();
+  private final long frameBudgetNanos;
+  private final Runnable onProgress;
+  private boolean frameCallbackPosted;
+  private long busyNanos;
+
+  /**
+   * Creates a new executor which runs tasks for at most {@code frameBudgetNanos} each frame, and
+   * calls {@code onProgress} when tasks are first queued and after each frame in which tasks were
+   * run.
+   */
+  FrameBudgetedExecutor(long frameBudgetNanos, Runnable onProgress) {
+    this.frameBudgetNanos = frameBudgetNanos;
+    this.onProgress = onProgress;
+  }
+
+  /** Queues the specified task to be run in the next frame with time left in its budget. */
+  void execute(Runnable task) {
+    boolean wasIdle = tasks.isEmpty();
+    tasks.add(task);
+    if (!frameCallbackPosted) {
+      Choreographer.getInstance().postFrameCallback(this);
+      frameCallbackPosted = true;
+    }
+    if (wasIdle) {
+      onProgress.run();
+    }
+  }
+
+  /** Returns the number of tasks which have been queued but not yet run. */
+  int getPendingTaskCount() {
+    return tasks.size();
+  }
+
+  /** Returns the total time spent running tasks since the executor was created. */
+  long getBusyNanos() {
+    return busyNanos;
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    frameCallbackPosted = false;
+    long start = System.nanoTime();
+    long deadline = start + frameBudgetNanos;
+    // At least one task is run each frame so that progress is made even if one exceeds the budget.
+    do {
+      Runnable task = tasks.poll();
+      if (task == null) {
+        break;
+      }
+      task.run();
+    } while (System.nanoTime() < deadline);
+    busyNanos += System.nanoTime() - start;
+    if (!tasks.isEmpty() && !frameCallbackPosted) {
+      Choreographer.getInstance().postFrameCallback(this);
+      frameCallbackPosted = true;
+    }
+    onProgress.run();
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+import androidx.annotation.Nullable;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gnd.model.feature.Point;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/** Bounding boxes of map geometries, used to decide which geometries are near the viewport. */
+final class GeometryBounds {
+
+  private GeometryBounds() {}
+
+  /** Returns the bounds of the specified vertices, or null if there are none. */
+  @Nullable
+  static LatLngBounds of(List<Point> vertices) {
+    if (vertices.isEmpty()) {
+      return null;
+    }
+    LatLngBounds.Builder builder = LatLngBounds.builder();
+    for (Point vertex : vertices) {
+      builder.include(new LatLng(vertex.getLatitude(), vertex.getLongitude()));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the bounds of all positions in the specified GeoJSON geometry, feature, or feature
+   * collection, or null if it contains none.
+   */
+  @Nullable
+  static LatLngBounds of(JSONObject geoJson) {
+    LatLngBounds.Builder builder = LatLngBounds.builder();
+    return includeObject(builder, geoJson) ? builder.build() : null;
+  }
+
+  /** Adds the positions in the specified object to the builder, returning true iff any were. */
+  private static boolean includeObject(LatLngBounds.Builder builder, JSONObject object) {
+    boolean included = false;
+    JSONArray coordinates = object.optJSONArray("coordinates");
+    if (coordinates != null) {
+      included = includeCoordinates(builder, coordinates);
+    }
+    JSONObject geometry = object.optJSONObject("geometry");
+    if (geometry != null) {
+      included |= includeObject(builder, geometry);
+    }
+    included |= includeObjects(builder, object.optJSONArray("features"));
+    included |= includeObjects(builder, object.optJSONArray("geometries"));
+    return included;
+  }
+
+  private static boolean includeObjects(LatLngBounds.Builder builder, @Nullable JSONArray objects) {
+    if (objects == null) {
+      return false;
+    }
+    boolean included = false;
+    for (int i = 0; i < objects.length(); i++) {
+      JSONObject object = objects.optJSONObject(i);
+      if (object != null) {
+        included |= includeObject(builder, object);
+      }
+    }
+    return included;
+  }
+
+  /**
+   * Adds the positions in the specified, possibly nested, array of GeoJSON coordinates to the
+   * builder. A position is a [longitude, latitude] array.
+   */
+  private static boolean includeCoordinates(LatLngBounds.Builder builder, JSONArray coordinates) {
+    if (coordinates.optJSONArray(0) == null) {
+      if (coordinates.length() < 2) {
+        return false;
+      }
+      builder.include(new LatLng(coordinates.optDouble(1), coordinates.optDouble(0)));
+      return true;
+    }
+    boolean included = false;
+    for (int i = 0; i < coordinates.length(); i++) {
+      JSONArray child = coordinates.optJSONArray(i);
+      if (child != null) {
+        included |= includeCoordinates(builder, child);
+      }
+    }
+    return included;
+  }
+
+  /**
+   * Returns true iff the specified bounds intersect the viewport once it's expanded on each side
+   * by {@code margin} times its size. Null bounds are treated as always near the viewport. Handles
+   * bounds and viewports which span the antimeridian.
+   */
+  static boolean isNearViewport(
+      @Nullable LatLngBounds bounds, LatLngBounds viewport, double margin) {
+    if (bounds == null) {
+      return true;
+    }
+    double latMargin = (viewport.northeast.latitude - viewport.southwest.latitude) * margin;
+    if (bounds.northeast.latitude < viewport.southwest.latitude - latMargin
+        || bounds.southwest.latitude > viewport.northeast.latitude + latMargin) {
+      return false;
+    }
+    double viewportWidth = getWidth(viewport);
+    double lngMargin = viewportWidth * margin;
+    double width = viewportWidth + 2 * lngMargin;
+    // A viewport spanning the whole world has equal east and west edges, and so zero width.
+    if (viewportWidth == 0 || width >= 360) {
+      return true;
+    }
+    // Longitude ranges are compared as intervals on a circle, starting at the viewport's west edge.
+    double west = viewport.southwest.longitude - lngMargin;
+    double offset = normalize(bounds.southwest.longitude - west);
+    return offset <= width || offset + getWidth(bounds) >= 360;
+  }
+
+  /** Returns the width of the specified bounds in degrees of longitude. */
+  private static double getWidth(LatLngBounds bounds) {
+    return normalize(bounds.northeast.longitude - bounds.southwest.longitude);
+  }
+
+  /** Returns the specified angle in degrees normalized to [0, 360). */
+  private static double normalize(double degrees) {
+    double normalized = degrees % 360;
+    return normalized < 0 ? normalized + 360 : normalized;
+  }
+}
@@ -24,7 +24,6 @@ import static java8.util.stream.StreamSupport.stream;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Color;
-import com.cocoahero.android.gmaps.addons.mapbox.MapBoxOfflineTileProvider;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.UiSettings;
@@ -37,47 +36,62 @@ import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.gms.maps.model.Polyline;
 import com.google.android.gms.maps.model.PolylineOptions;
+import com.google.android.gms.maps.model.TileOverlay;
 import com.google.android.gms.maps.model.TileOverlayOptions;
 import com.google.android.gnd.R;
 import com.google.android.gnd.model.feature.Point;
+import com.google.android.gnd.model.observation.FeatureObservationCount;
+import com.google.android.gnd.persistence.mbtiles.MergedTileStore;
 import com.google.android.gnd.rx.Nil;
+import com.google.android.gnd.rx.Schedulers;
 import com.google.android.gnd.rx.annotations.Hot;
 import com.google.android.gnd.ui.MarkerIconFactory;
 import com.google.android.gnd.ui.map.CameraPosition;
+import com.google.android.gnd.ui.map.FeatureOverview;
 import com.google.android.gnd.ui.map.MapAdapter;
 import com.google.android.gnd.ui.map.MapFeature;
 import com.google.android.gnd.ui.map.MapGeoJson;
 import com.google.android.gnd.ui.map.MapPin;
 import com.google.android.gnd.ui.map.MapPolygon;
+import com.google.android.gnd.ui.map.MapRenderStats;
 import com.google.android.gnd.ui.util.BitmapUtil;
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
 import com.google.maps.android.PolyUtil;
 import com.google.maps.android.collections.MarkerManager;
 import com.google.maps.android.data.geojson.GeoJsonFeature;
-import com.google.maps.android.data.geojson.GeoJsonLayer;
-import com.google.maps.android.data.geojson.GeoJsonLineStringStyle;
 import com.google.maps.android.data.geojson.GeoJsonMultiPolygon;
-import com.google.maps.android.data.geojson.GeoJsonPointStyle;
 import com.google.maps.android.data.geojson.GeoJsonPolygon;
-import com.google.maps.android.data.geojson.GeoJsonPolygonStyle;
+import com.google.maps.android.heatmaps.HeatmapTileProvider;
+import com.google.maps.android.heatmaps.WeightedLatLng;
 import io.reactivex.Flowable;
 import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Function;
 import io.reactivex.processors.FlowableProcessor;
 import io.reactivex.processors.PublishProcessor;
+import io.reactivex.subjects.BehaviorSubject;
 import io.reactivex.subjects.PublishSubject;
 import io.reactivex.subjects.Subject;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
+import org.json.JSONObject;
 import timber.log.Timber;
 
 /**
@@ -86,9 +100,34 @@ import timber.log.Timber;
  */
 class GoogleMapsMapAdapter implements MapAdapter {
 
+  /**
+   * Margin around the viewport within which polygons and GeoJSON are rendered, as a fraction of
+   * the viewport's size on each side. Keeps features just out of view ready while panning.
+   */
+  private static final double VIEWPORT_MARGIN = 0.5;
+
+  /**
+   * Time spent applying changes to map features each frame, leaving the rest of the frame for
+   * input handling and rendering.
+   */
+  private static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(8);
+
+  /** Name of the directory under the app's cache directory where feature tiles are cached. */
+  private static final String FEATURE_TILES_DIR = "feature_tiles";
+
+  /** Z-index of the feature overview, drawn above offline imagery. */
+  private static final float FEATURE_OVERVIEW_Z_INDEX = 1;
+
+  /** Z-index of the observation heatmap, drawn above the feature overview. */
+  private static final float HEATMAP_Z_INDEX = 2;
+
+  /** Radius of the blur applied to each point of the observation heatmap, in pixels. */
+  private static final int HEATMAP_RADIUS_PX = 30;
+
   private final GoogleMap map;
   private final Context context;
   private final MarkerIconFactory markerIconFactory;
+  private final Schedulers schedulers;
 
   /** Marker click events. */
   @Hot private final Subject<MapPin> markerClicks = PublishSubject.create();
@@ -103,12 +142,38 @@ class GoogleMapsMapAdapter implements MapAdapter {
   @Hot
   private final FlowableProcessor<CameraPosition> cameraMovedEvents = PublishProcessor.create();
 
-  // TODO(#693): Simplify impl of tile providers.
-  // TODO(#691): This is a limitation of the MapBox tile provider we're using;
-  // since one need to call `close` explicitly, we cannot generically expose these as TileProviders;
-  // instead we must retain explicit reference to the concrete type.
+  /** Paths of offline tile sources read by the tile overlay. Emitted from tile provider threads. */
+  @Hot
+  private final Subject<String> tileSourceAccesses = PublishSubject.<String>create().toSerialized();
+
+  /** Sets of features to be shown, in the order requested. Diffed in the background. */
   @Hot
-  private final PublishSubject<MapBoxOfflineTileProvider> tileProviders = PublishSubject.create();
+  private final FlowableProcessor<ImmutableSet<MapFeature>> mapFeatureSets =
+      PublishProcessor.create();
+
+  /** Number of pending changes to map features. Emits 0 once all changes have been applied. */
+  @Hot(replays = true)
+  private final Subject<Integer> pendingFeatureUpdates = BehaviorSubject.createDefault(0);
+
+  /** Applies changes to map features on the main thread without exceeding the frame budget. */
+  private final FrameBudgetedExecutor mapUpdates =
+      new FrameBudgetedExecutor(FRAME_BUDGET_NANOS, this::onMapUpdateProgress);
+
+  /** Records frame durations and the cost of map feature updates while enabled. */
+  private final RenderMetricsRecorder renderMetrics =
+      new RenderMetricsRecorder(mapUpdates, this::countMapObjects);
+
+  /** The last set of features passed to {@link #setMapFeatures}. */
+  @Nullable private ImmutableSet<MapFeature> requestedFeatures;
+
+  /** Whether {@link #requestedFeatures} is still being diffed against the features on the map. */
+  private boolean featureDiffPending;
+
+  /**
+   * Features on the map or queued to be added, as of the last diff. Each feature maps to itself,
+   * allowing the instance on the map to be looked up by equality. Only accessed while diffing.
+   */
+  private Map<MapFeature, MapFeature> diffedFeatures = new HashMap<>();
 
   /**
    * Manager for handling click events for markers.
@@ -125,6 +190,14 @@ class GoogleMapsMapAdapter implements MapAdapter {
    */
   private final MarkerManager.Collection markers;
 
+  /*
+   * Maps below are keyed by identity, since only the instances produced by the last diff are ever
+   * added to the map, and equality checks on features are expensive.
+   */
+
+  /** Markers present on the map, keyed by the pin they display. */
+  private final Map<MapPin, Marker> markersByPin = new IdentityHashMap<>();
+
   /**
    * References to Google Maps SDK CustomCap present on the map. Used to set the custom drawable to
    * start and end of polygon.
@@ -135,30 +208,100 @@ class GoogleMapsMapAdapter implements MapAdapter {
    * References to Google Maps SDK Markers present on the map. Used to sync and update polylines
    * with current view and data state.
    */
-  private final Set<Polyline> polylines = new HashSet<>();
+  private final Map<MapPolygon, Polyline> polylines = new IdentityHashMap<>();
+
+  private final Map<MapFeature, List<LatLng>> geoJsonPolygonLoops = new IdentityHashMap<>();
+  private final Map<MapFeature, ArrayList<ArrayList<LatLng>>> geoJsonPolygonHoles =
+      new IdentityHashMap<>();
+  private final Map<MapFeature, List<LatLng>> polygons = new IdentityHashMap<>();
+  /**
+   * GeoJSON features present on the map, rendered in layers shared by features with the same layer
+   * and style. Used to sync and update GeoJSON with current data and UI state.
+   */
+  private final SharedGeoJsonLayers geoJsonLayers;
+
+  /**
+   * Bounds of each polygon and GeoJSON feature to be shown, used to render only those near the
+   * viewport. Null for features without any vertices.
+   */
+  private final Map<MapFeature, LatLngBounds> featureBounds = new IdentityHashMap<>();
+
+  /** Vertices currently rendered for each polygon, which may be simplified for the zoom band. */
+  private final Map<MapPolygon, List<LatLng>> renderedVertices = new IdentityHashMap<>();
+
+  /**
+   * Simplified outlines of polygons on the map, by zoom band. Computed in the background as bands
+   * are first needed, and dropped when polygons are no longer shown. Since {@link MapPolygon}
+   * equality covers its vertices, each version of a polygon is cached separately.
+   */
+  private final Table<MapPolygon, Integer, List<LatLng>> simplifiedPolygons =
+      HashBasedTable.create();
+
+  /** Simplified GeoJSON geometries on the map, by zoom band. See {@link #simplifiedPolygons}. */
+  private final Table<MapGeoJson, Integer, JSONObject> simplifiedGeoJson = HashBasedTable.create();
+
+  /** Zoom band of the current camera position. See {@link LevelOfDetail}. */
+  private int zoomBand;
+
+  /** Pending simplification of geometries for the current zoom band. */
+  private final CompositeDisposable levelOfDetailUpdates = new CompositeDisposable();
 
-  private final Map<MapFeature, List<LatLng>> geoJsonPolygonLoops = new HashMap<>();
-  private final Map<MapFeature, ArrayList<ArrayList<LatLng>>> geoJsonPolygonHoles = new HashMap<>();
-  private final Map<MapFeature, List<LatLng>> polygons = new HashMap<>();
   /**
-   * References to Google Maps SDK GeoJSON layers present on the map, keyed by MapGeoJson features.
-   * Used to sync and update GeoJSON with current data and UI state.
+   * Features whose geometries are being simplified for the current zoom band, so that they aren't
+   * queued again while in progress.
    */
-  private Map<MapGeoJson, GeoJsonLayer> geoJsonLayersByFeature = new HashMap<>();
+  private final Set<MapFeature> simplifyingFeatures = Sets.newIdentityHashSet();
+
+  /** Overlay displaying offline imagery, or null until the merged tile store is first set. */
+  @Nullable private TileOverlay offlineTileOverlay;
+
+  /** Overviews of features to render as raster tiles, in the order set. Applied in background. */
+  @Hot
+  private final FlowableProcessor<FeatureOverview> featureOverviews = PublishProcessor.create();
+
+  /** Renders and caches raster tiles of the current feature overview. */
+  private final FeatureTileProvider featureTileProvider;
+
+  /** Overlay displaying the feature overview, or null if not shown or not rendered yet. */
+  @Nullable private TileOverlay featureOverviewOverlay;
+
+  /** Whether a feature overview should be shown. */
+  private boolean featureOverviewShown;
+
+  /** Observation counts to render as a heatmap, in the order set. Applied in background. */
+  @Hot
+  private final FlowableProcessor<ImmutableList<FeatureObservationCount>> observationHeatmaps =
+      PublishProcessor.create();
+
+  /** Overlay displaying the observation heatmap, or null if not shown or not indexed yet. */
+  @Nullable private TileOverlay heatmapOverlay;
+
+  /** Whether an observation heatmap should be shown. */
+  private boolean heatmapShown;
 
   private int cameraChangeReason = REASON_DEVELOPER_ANIMATION;
 
   public GoogleMapsMapAdapter(
-      GoogleMap map, Context context, MarkerIconFactory markerIconFactory, BitmapUtil bitmapUtil) {
+      GoogleMap map,
+      Context context,
+      MarkerIconFactory markerIconFactory,
+      BitmapUtil bitmapUtil,
+      Schedulers schedulers) {
     this.map = map;
     this.context = context;
     this.markerIconFactory = markerIconFactory;
+    this.schedulers = schedulers;
     this.customCap = new CustomCap(bitmapUtil.bitmapDescriptorFromVector(R.drawable.ic_endpoint));
 
     // init markers
     markerManager = new MarkerManager(map);
     markers = markerManager.newCollection();
     markers.setOnMarkerClickListener(this::onMarkerClick);
+    geoJsonLayers = new SharedGeoJsonLayers(map, markerManager, this::parseColor);
+    featureTileProvider =
+        new FeatureTileProvider(
+            new File(context.getCacheDir(), FEATURE_TILES_DIR),
+            context.getResources().getColor(R.color.colorMapAccent));
 
     UiSettings uiSettings = map.getUiSettings();
     uiSettings.setRotateGesturesEnabled(false);
@@ -167,9 +310,34 @@ class GoogleMapsMapAdapter implements MapAdapter {
     uiSettings.setMapToolbarEnabled(false);
     uiSettings.setCompassEnabled(false);
     uiSettings.setIndoorLevelPickerEnabled(false);
+    zoomBand = LevelOfDetail.getBand(map.getCameraPosition().zoom);
     map.setOnCameraIdleListener(this::onCameraIdle);
+    map.setOnCameraMoveListener(this::onCameraMove);
     map.setOnCameraMoveStartedListener(this::onCameraMoveStarted);
     map.setOnMapClickListener(this::onMapClick);
+
+    // Only the latest set of features is diffed if several are requested while diffing.
+    mapFeatureSets
+        .onBackpressureLatest()
+        .observeOn(schedulers.io(), false, 1)
+        .map(this::diffMapFeatures)
+        .observeOn(schedulers.ui())
+        .subscribe(this::onMapFeaturesDiffed, t -> Timber.e(t, "Failed to update map features"));
+    featureOverviews
+        .onBackpressureLatest()
+        .observeOn(schedulers.io(), false, 1)
+        .map(
+            overview ->
+                featureTileProvider.update(overview.getProjectId(), overview.getFeatures()))
+        .observeOn(schedulers.ui())
+        .subscribe(
+            this::onFeatureOverviewUpdated, t -> Timber.e(t, "Failed to update feature overview"));
+    observationHeatmaps
+        .onBackpressureLatest()
+        .observeOn(schedulers.io(), false, 1)
+        .map(GoogleMapsMapAdapter::newHeatmapTileProvider)
+        .observeOn(schedulers.ui())
+        .subscribe(this::onHeatmapUpdated, t -> Timber.e(t, "Failed to update heatmap"));
   }
 
   private static Point fromLatLng(LatLng latLng) {
@@ -262,8 +430,33 @@ class GoogleMapsMapAdapter implements MapAdapter {
 
   @Hot
   @Override
-  public Observable<MapBoxOfflineTileProvider> getTileProviders() {
-    return tileProviders;
+  public Observable<String> getTileSourceAccesses() {
+    return tileSourceAccesses;
+  }
+
+  @Hot(replays = true)
+  @Override
+  public Observable<Integer> getPendingFeatureUpdates() {
+    return pendingFeatureUpdates.distinctUntilChanged();
+  }
+
+  @Override
+  public void setRenderMetricsEnabled(boolean enabled) {
+    renderMetrics.setEnabled(enabled);
+  }
+
+  @Hot
+  @Override
+  public Observable<MapRenderStats> getRenderStats() {
+    return renderMetrics.getStats();
+  }
+
+  private void countMapObjects(MapRenderStats.Builder stats) {
+    stats
+        .setFeatureCount(markersByPin.size() + featureBounds.size())
+        .setMarkerCount(markersByPin.size())
+        .setPolylineCount(polylines.size())
+        .setGeoJsonCount(geoJsonLayers.getFeatures().size());
   }
 
   @Override
@@ -299,6 +492,7 @@ class GoogleMapsMapAdapter implements MapAdapter {
     Marker marker =
         markers.addMarker(new MarkerOptions().position(position).icon(icon).alpha(1.0f));
     marker.setTag(mapPin);
+    markersByPin.put(mapPin, marker);
   }
 
   private void addMapPolyline(MapPolygon mapPolygon) {
@@ -308,7 +502,11 @@ class GoogleMapsMapAdapter implements MapAdapter {
         stream(mapPolygon.getVertices())
             .map(GoogleMapsMapAdapter::toLatLng)
             .collect(toImmutableList());
-    options.addAll(vertices);
+    polygons.put(mapPolygon, vertices);
+    List<LatLng> simplified = getVerticesForZoomBand(mapPolygon);
+    // Drawn at full detail until a simplified outline is available.
+    List<LatLng> outline = simplified == null ? vertices : simplified;
+    options.addAll(outline);
 
     Polyline polyline = map.addPolyline(options);
     polyline.setTag(mapPolygon);
@@ -320,8 +518,8 @@ class GoogleMapsMapAdapter implements MapAdapter {
     polyline.setColor(parseColor(mapPolygon.getStyle().getColor()));
     polyline.setJointType(JointType.ROUND);
 
-    polylines.add(polyline);
-    polygons.put(mapPolygon, vertices);
+    polylines.put(mapPolygon, polyline);
+    renderedVertices.put(mapPolygon, outline);
   }
 
   private boolean isPolygonCompleted(List<Point> vertices) {
@@ -333,34 +531,21 @@ class GoogleMapsMapAdapter implements MapAdapter {
   }
 
   private void addMapGeoJson(MapGeoJson mapFeature) {
-    // Pass markerManager here otherwise markers in the previous layers won't be clickable.
-    GeoJsonLayer layer =
-        new GeoJsonLayer(map, mapFeature.getGeoJson(), markerManager, null, null, null);
-
-    int width = mapFeature.getStrokeWidth();
-    int color = parseColor(mapFeature.getStyle().getColor());
-
-    GeoJsonPointStyle pointStyle = layer.getDefaultPointStyle();
-    pointStyle.setZIndex(1);
-
-    GeoJsonPolygonStyle polygonStyle = layer.getDefaultPolygonStyle();
-    polygonStyle.setStrokeWidth(width);
-    polygonStyle.setLineStringWidth(width);
-    polygonStyle.setStrokeColor(color);
-    polygonStyle.setClickable(false);
-    polygonStyle.setZIndex(1);
-
-    GeoJsonLineStringStyle lineStringStyle = layer.getDefaultLineStringStyle();
-    lineStringStyle.setLineStringWidth(width);
-    lineStringStyle.setZIndex(1);
-
-    layer.addLayerToMap();
-
-    for (GeoJsonFeature geoJsonFeature : layer.getFeatures()) {
+    JSONObject simplified = getGeoJsonForZoomBand(mapFeature);
+    JSONObject geoJson = simplified == null ? mapFeature.getGeoJson() : simplified;
+    // Replaces any geometry already rendered for the feature, along with its boundaries.
+    geoJsonPolygonHoles.remove(mapFeature);
+    geoJsonPolygonLoops.remove(mapFeature);
+    for (GeoJsonFeature geoJsonFeature : geoJsonLayers.add(mapFeature, geoJson)) {
       updateGeoJsonPolygonBoundaries(geoJsonFeature, mapFeature);
     }
+  }
 
-    geoJsonLayersByFeature.put(mapFeature, layer);
+  private void removeMapGeoJson(MapGeoJson mapFeature) {
+    Timber.v("Removing GeoJSON feature %s", mapFeature.getId());
+    geoJsonPolygonHoles.remove(mapFeature);
+    geoJsonPolygonLoops.remove(mapFeature);
+    geoJsonLayers.remove(mapFeature);
   }
 
   /* Adds the inner and outer boundaries (holes and loops) of polygons defined by a GeoJson feature
@@ -408,64 +593,294 @@ class GoogleMapsMapAdapter implements MapAdapter {
   @Override
   public void setMapFeatures(ImmutableSet<MapFeature> features) {
     Timber.d("Set map features called : %s", features.size());
-    Set<MapFeature> featuresToUpdate = new HashSet<>(features);
+    requestedFeatures = features;
+    featureDiffPending = true;
+    onMapUpdateProgress();
+    mapFeatureSets.onNext(features);
+  }
 
-    for (Marker marker : markers.getMarkers()) {
-      MapPin pin = (MapPin) marker.getTag();
-      if (features.contains(pin)) {
-        // If existing pin is present and up-to-date, don't update it.
-        featuresToUpdate.remove(pin);
+  /**
+   * Computes the changes needed to show the specified features instead of those from the last diff.
+   * Called in the background, so must only access {@link #diffedFeatures}. Features which have
+   * changed are removed and added back.
+   */
+  private MapFeatureDiff diffMapFeatures(ImmutableSet<MapFeature> features) {
+    long startNanos = System.nanoTime();
+    Map<MapFeature, MapFeature> nextFeatures = new HashMap<>();
+    Map<MapFeature, LatLngBounds> added = new IdentityHashMap<>();
+    for (MapFeature mapFeature : features) {
+      MapFeature existing = diffedFeatures.get(mapFeature);
+      if (existing == null) {
+        nextFeatures.put(mapFeature, mapFeature);
+        added.put(mapFeature, getBounds(mapFeature));
       } else {
-        // If pin isn't present or up-to-date, remove it so it can be added back later.
+        // Keep the instance already on the map, since features on the map are keyed by identity.
+        nextFeatures.put(existing, existing);
+      }
+    }
+    ImmutableList<MapFeature> removed =
+        stream(diffedFeatures.values())
+            .filter(mapFeature -> !features.contains(mapFeature))
+            .collect(toImmutableList());
+    diffedFeatures = nextFeatures;
+    return new MapFeatureDiff(features, removed, added, System.nanoTime() - startNanos);
+  }
+
+  /** Queues the changes in the specified diff to be applied to the map over the next frames. */
+  private void onMapFeaturesDiffed(MapFeatureDiff diff) {
+    Timber.d("Updating map features: %d removed, %d added", diff.removed.size(), diff.added.size());
+    renderMetrics.onFeaturesDiffed(diff.durationNanos, diff.added.size(), diff.removed.size());
+    for (MapFeature mapFeature : diff.removed) {
+      mapUpdates.execute(() -> removeMapFeature(mapFeature));
+    }
+    for (Entry<MapFeature, LatLngBounds> entry : diff.added.entrySet()) {
+      mapUpdates.execute(() -> addMapFeature(entry.getKey(), entry.getValue()));
+    }
+    mapUpdates.execute(this::updateLevelOfDetail);
+    if (diff.features == requestedFeatures) {
+      featureDiffPending = false;
+    }
+    onMapUpdateProgress();
+  }
+
+  private void onMapUpdateProgress() {
+    pendingFeatureUpdates.onNext((featureDiffPending ? 1 : 0) + mapUpdates.getPendingTaskCount());
+  }
+
+  private void addMapFeature(MapFeature mapFeature, @Nullable LatLngBounds bounds) {
+    if (mapFeature instanceof MapPin) {
+      addMapPin((MapPin) mapFeature);
+    } else {
+      // Polygons and GeoJSON are only rendered while near the viewport.
+      featureBounds.put(mapFeature, bounds);
+      renderIfNearViewport(mapFeature);
+    }
+  }
+
+  private void removeMapFeature(MapFeature mapFeature) {
+    if (mapFeature instanceof MapPin) {
+      Marker marker = markersByPin.remove(mapFeature);
+      if (marker != null) {
         removeMarker(marker);
       }
+      return;
+    }
+    featureBounds.remove(mapFeature);
+    Polyline polyline = polylines.remove(mapFeature);
+    if (polyline != null) {
+      removePolygon(polyline);
+    }
+    if (mapFeature instanceof MapGeoJson && geoJsonLayers.contains((MapGeoJson) mapFeature)) {
+      removeMapGeoJson((MapGeoJson) mapFeature);
+    }
+  }
+
+  @Nullable
+  private static LatLngBounds getBounds(MapFeature mapFeature) {
+    if (mapFeature instanceof MapPolygon) {
+      return GeometryBounds.of(((MapPolygon) mapFeature).getVertices());
+    } else if (mapFeature instanceof MapGeoJson) {
+      return GeometryBounds.of(((MapGeoJson) mapFeature).getGeoJson());
+    }
+    return null;
+  }
+
+  /**
+   * Removes polylines and GeoJSON layers for the polygons and GeoJSON features no longer near the
+   * viewport, and queues those which have come near it to be added, so that the number of live map
+   * objects depends on what's visible rather than on the size of the project.
+   */
+  private void updateRenderedFeatures() {
+    LatLngBounds viewport = getViewport();
+    Set<MapFeature> featuresToRender = Sets.newIdentityHashSet();
+    for (Entry<MapFeature, LatLngBounds> entry : featureBounds.entrySet()) {
+      if (GeometryBounds.isNearViewport(entry.getValue(), viewport, VIEWPORT_MARGIN)) {
+        featuresToRender.add(entry.getKey());
+      }
     }
 
-    Iterator<Polyline> polylineIterator = polylines.iterator();
+    Iterator<Entry<MapPolygon, Polyline>> polylineIterator = polylines.entrySet().iterator();
     while (polylineIterator.hasNext()) {
-      Polyline polyline = polylineIterator.next();
-      MapPolygon polygon = (MapPolygon) polyline.getTag();
-      if (features.contains(polygon)) {
+      Entry<MapPolygon, Polyline> entry = polylineIterator.next();
+      if (featuresToRender.contains(entry.getKey())) {
         // If polygon already exists on map, don't add it.
-        featuresToUpdate.remove(polygon);
+        featuresToRender.remove(entry.getKey());
       } else {
-        // Remove existing polyline not in list of updatedFeatures.
-        removePolygon(polyline);
+        // Remove polylines out of view.
+        removePolygon(entry.getValue());
         polylineIterator.remove();
       }
     }
 
     // Iterate over all existing GeoJSON on the map.
-    Iterator<Entry<MapGeoJson, GeoJsonLayer>> geoJsonIterator =
-        geoJsonLayersByFeature.entrySet().iterator();
-    while (geoJsonIterator.hasNext()) {
-      Entry<MapGeoJson, GeoJsonLayer> entry = geoJsonIterator.next();
-      MapGeoJson geoJsonFeature = entry.getKey();
-      GeoJsonLayer layer = entry.getValue();
-      if (features.contains(geoJsonFeature)) {
-        // If existing GeoJSON is present and up-to-date, don't update it.
-        featuresToUpdate.remove(geoJsonFeature);
+    for (MapGeoJson geoJsonFeature : ImmutableList.copyOf(geoJsonLayers.getFeatures())) {
+      if (featuresToRender.contains(geoJsonFeature)) {
+        // If existing GeoJSON is present, don't add it.
+        featuresToRender.remove(geoJsonFeature);
       } else {
-        // If pin isn't present or up-to-date, remove it so it can be added back later.
-        Timber.v("Removing GeoJSON feature %s", geoJsonFeature.getFeature().getId());
-        geoJsonPolygonHoles.remove(geoJsonFeature);
-        geoJsonPolygonLoops.remove(geoJsonFeature);
-        geoJsonIterator.remove();
-        layer.removeLayerFromMap();
+        // Remove GeoJSON out of view.
+        removeMapGeoJson(geoJsonFeature);
       }
     }
 
-    for (MapFeature mapFeature : featuresToUpdate) {
-      if (mapFeature instanceof MapPin) {
-        addMapPin((MapPin) mapFeature);
-      } else if (mapFeature instanceof MapPolygon) {
-        addMapPolyline((MapPolygon) mapFeature);
-      } else if (mapFeature instanceof MapGeoJson) {
-        addMapGeoJson((MapGeoJson) mapFeature);
+    if (featuresToRender.isEmpty()) {
+      updateLevelOfDetail();
+      return;
+    }
+    for (MapFeature mapFeature : featuresToRender) {
+      mapUpdates.execute(() -> renderIfNearViewport(mapFeature));
+    }
+    mapUpdates.execute(this::updateLevelOfDetail);
+  }
+
+  /**
+   * Adds a polyline or GeoJSON layer for the specified feature if it's still shown and near the
+   * viewport, and hasn't been rendered since it was queued.
+   */
+  private void renderIfNearViewport(MapFeature mapFeature) {
+    if (!featureBounds.containsKey(mapFeature)
+        || polylines.containsKey(mapFeature)
+        || (mapFeature instanceof MapGeoJson && geoJsonLayers.contains((MapGeoJson) mapFeature))
+        || !GeometryBounds.isNearViewport(
+            featureBounds.get(mapFeature), getViewport(), VIEWPORT_MARGIN)) {
+      return;
+    }
+    if (mapFeature instanceof MapPolygon) {
+      addMapPolyline((MapPolygon) mapFeature);
+    } else if (mapFeature instanceof MapGeoJson) {
+      addMapGeoJson((MapGeoJson) mapFeature);
+    }
+  }
+
+  /**
+   * Renders geometries simplified for the current zoom band, first simplifying those not yet
+   * cached or being simplified for the band in the background. Only features which are new to the
+   * map or whose geometry for the band hasn't been computed yet are simplified, so this is cheap
+   * to call after each diff and camera move.
+   */
+  private void updateLevelOfDetail() {
+    if (simplifyingFeatures.isEmpty()) {
+      // Nothing is in progress, so only completed work is left to release.
+      levelOfDetailUpdates.clear();
+    }
+    // Simplified geometries are kept while features are out of view, but not once removed.
+    simplifiedPolygons.rowKeySet().retainAll(featureBounds.keySet());
+    simplifiedGeoJson.rowKeySet().retainAll(featureBounds.keySet());
+    applyLevelOfDetail();
+    int band = zoomBand;
+    if (band >= LevelOfDetail.FULL_DETAIL_BAND) {
+      return;
+    }
+    ImmutableList<MapPolygon> pendingPolygons =
+        stream(renderedVertices.keySet())
+            .filter(
+                polygon ->
+                    !simplifiedPolygons.contains(polygon, band)
+                        && !simplifyingFeatures.contains(polygon))
+            .collect(toImmutableList());
+    if (!pendingPolygons.isEmpty()) {
+      levelOfDetailUpdates.add(
+          simplifyInBackground(
+              pendingPolygons,
+              band,
+              polygon ->
+                  LevelOfDetail.simplify(
+                      stream(polygon.getVertices())
+                          .map(GoogleMapsMapAdapter::toLatLng)
+                          .collect(toImmutableList()),
+                      band),
+              simplifiedPolygons));
+    }
+    ImmutableList<MapGeoJson> pendingGeoJson =
+        stream(geoJsonLayers.getFeatures())
+            .filter(
+                geoJson ->
+                    !simplifiedGeoJson.contains(geoJson, band)
+                        && !simplifyingFeatures.contains(geoJson))
+            .collect(toImmutableList());
+    if (!pendingGeoJson.isEmpty()) {
+      levelOfDetailUpdates.add(
+          simplifyInBackground(
+              pendingGeoJson,
+              band,
+              geoJson -> LevelOfDetail.simplify(geoJson.getGeoJson(), band),
+              simplifiedGeoJson));
+    }
+  }
+
+  /**
+   * Simplifies the geometries of the specified features for the specified zoom band off the main
+   * thread, then caches the results and renders them if the camera is still in that band. {@code
+   * simplify} is called in the background, so must only read the feature passed to it.
+   */
+  private <F extends MapFeature, G> Disposable simplifyInBackground(
+      ImmutableList<F> features, int band, Function<F, G> simplify, Table<F, Integer, G> cache) {
+    simplifyingFeatures.addAll(features);
+    return Single.fromCallable(
+            () -> {
+              ImmutableMap.Builder<F, G> simplified = ImmutableMap.builder();
+              for (F feature : features) {
+                simplified.put(feature, simplify.apply(feature));
+              }
+              return simplified.build();
+            })
+        .subscribeOn(schedulers.io())
+        .observeOn(schedulers.ui())
+        .doFinally(() -> simplifyingFeatures.removeAll(features))
+        .subscribe(
+            simplified -> {
+              for (Entry<F, G> entry : simplified.entrySet()) {
+                cache.put(entry.getKey(), band, entry.getValue());
+              }
+              applyLevelOfDetail();
+            },
+            t -> Timber.e(t, "Failed to simplify map geometries"));
+  }
+
+  /**
+   * Renders each polygon and GeoJSON feature with its geometry for the current zoom band, leaving
+   * those whose geometry for the band isn't available yet as they are.
+   */
+  private void applyLevelOfDetail() {
+    for (Entry<MapPolygon, Polyline> entry : polylines.entrySet()) {
+      MapPolygon polygon = entry.getKey();
+      List<LatLng> vertices = getVerticesForZoomBand(polygon);
+      if (vertices != null && vertices != renderedVertices.get(polygon)) {
+        entry.getValue().setPoints(vertices);
+        renderedVertices.put(polygon, vertices);
+      }
+    }
+    for (MapGeoJson mapGeoJson : ImmutableList.copyOf(geoJsonLayers.getFeatures())) {
+      JSONObject geoJson = getGeoJsonForZoomBand(mapGeoJson);
+      if (geoJson != null && geoJson != geoJsonLayers.getGeoJson(mapGeoJson)) {
+        // Features in shared layers are replaced individually, leaving the rest of the layer as is.
+        addMapGeoJson(mapGeoJson);
       }
     }
   }
 
+  /**
+   * Returns the vertices of the specified polygon simplified for the current zoom band, or null if
+   * they haven't been simplified yet.
+   */
+  @Nullable
+  private List<LatLng> getVerticesForZoomBand(MapPolygon polygon) {
+    return zoomBand >= LevelOfDetail.FULL_DETAIL_BAND
+        ? polygons.get(polygon)
+        : simplifiedPolygons.get(polygon, zoomBand);
+  }
+
+  /**
+   * Returns the GeoJSON of the specified feature simplified for the current zoom band, or null if
+   * it hasn't been simplified yet.
+   */
+  @Nullable
+  private JSONObject getGeoJsonForZoomBand(MapGeoJson mapGeoJson) {
+    return zoomBand >= LevelOfDetail.FULL_DETAIL_BAND
+        ? mapGeoJson.getGeoJson()
+        : simplifiedGeoJson.get(mapGeoJson, zoomBand);
+  }
+
   @Override
   public int getMapType() {
     return map.getMapType();
@@ -484,6 +899,8 @@ class GoogleMapsMapAdapter implements MapAdapter {
   private void removePolygon(Polyline polyline) {
     Timber.v("Removing polyline %s", polyline.getId());
     polyline.remove();
+    polygons.remove(polyline.getTag());
+    renderedVertices.remove(polyline.getTag());
   }
 
   private int parseColor(@Nullable String colorHexCode) {
@@ -496,6 +913,7 @@ class GoogleMapsMapAdapter implements MapAdapter {
   }
 
   private void onCameraIdle() {
+    updateRenderedFeatures();
     if (cameraChangeReason == REASON_GESTURE) {
       LatLng target = map.getCameraPosition().target;
       float zoom = map.getCameraPosition().zoom;
@@ -504,6 +922,16 @@ class GoogleMapsMapAdapter implements MapAdapter {
     }
   }
 
+  private void onCameraMove() {
+    int band = LevelOfDetail.getBand(map.getCameraPosition().zoom);
+    if (band != zoomBand) {
+      zoomBand = band;
+      // Geometries still being simplified for the previous band are no longer needed.
+      levelOfDetailUpdates.clear();
+      updateLevelOfDetail();
+    }
+  }
+
   private void onCameraMoveStarted(int reason) {
     cameraChangeReason = reason;
     if (reason == REASON_GESTURE) {
@@ -511,6 +939,31 @@ class GoogleMapsMapAdapter implements MapAdapter {
     }
   }
 
+  /** Changes to the features on the map needed to show a new set of features. */
+  private static class MapFeatureDiff {
+    /** The set of features to be shown once the changes are applied. */
+    final ImmutableSet<MapFeature> features;
+
+    final ImmutableList<MapFeature> removed;
+
+    /** Features to add, mapped to their bounds, or to null for pins and empty geometries. */
+    final Map<MapFeature, LatLngBounds> added;
+
+    /** Time taken to compute the diff in the background. */
+    final long durationNanos;
+
+    MapFeatureDiff(
+        ImmutableSet<MapFeature> features,
+        ImmutableList<MapFeature> removed,
+        Map<MapFeature, LatLngBounds> added,
+        long durationNanos) {
+      this.features = features;
+      this.removed = removed;
+      this.added = added;
+      this.durationNanos = durationNanos;
+    }
+  }
+
   @Override
   public LatLngBounds getViewport() {
     return map.getProjection().getVisibleRegion().latLngBounds;
@@ -521,25 +974,91 @@ class GoogleMapsMapAdapter implements MapAdapter {
     map.moveCamera(CameraUpdateFactory.newLatLngBounds(bounds, 0));
   }
 
-  private void addTileOverlay(String filePath) {
-    File mbtilesFile = new File(context.getFilesDir(), filePath);
+  @Override
+  public void setOfflineTiles(MergedTileStore tileStore) {
+    if (offlineTileOverlay == null) {
+      offlineTileOverlay =
+          map.addTileOverlay(
+              new TileOverlayOptions()
+                  .tileProvider(new MergedTileProvider(tileStore, tileSourceAccesses::onNext)));
+    } else {
+      // The overlay caches tiles already shown, so they must be reloaded to pick up changes.
+      offlineTileOverlay.clearTileCache();
+    }
+  }
 
-    if (!mbtilesFile.exists()) {
-      Timber.i("mbtiles file %s does not exist", mbtilesFile.getAbsolutePath());
+  @Override
+  public void setFeatureOverview(@Nullable FeatureOverview overview) {
+    featureOverviewShown = overview != null;
+    if (overview == null) {
+      if (featureOverviewOverlay != null) {
+        featureOverviewOverlay.remove();
+        featureOverviewOverlay = null;
+      }
       return;
     }
+    // The overlay is added once the tile cache reflects the new features.
+    featureOverviews.onNext(overview);
+  }
 
-    try {
-      MapBoxOfflineTileProvider tileProvider = new MapBoxOfflineTileProvider(mbtilesFile);
-      tileProviders.onNext(tileProvider);
-      map.addTileOverlay(new TileOverlayOptions().tileProvider(tileProvider));
-    } catch (Exception e) {
-      Timber.e(e, "Couldn't initialize tile provider for mbtiles file %s", mbtilesFile);
+  private void onFeatureOverviewUpdated(boolean tilesChanged) {
+    if (!featureOverviewShown) {
+      return;
+    }
+    if (featureOverviewOverlay == null) {
+      featureOverviewOverlay =
+          map.addTileOverlay(
+              new TileOverlayOptions()
+                  .tileProvider(featureTileProvider)
+                  .zIndex(FEATURE_OVERVIEW_Z_INDEX));
+    } else if (tilesChanged) {
+      featureOverviewOverlay.clearTileCache();
     }
   }
 
   @Override
-  public void addTileOverlays(ImmutableSet<String> mbtilesFiles) {
-    stream(mbtilesFiles).forEach(this::addTileOverlay);
+  public void setObservationHeatmap(ImmutableList<FeatureObservationCount> counts) {
+    heatmapShown = !counts.isEmpty();
+    if (!heatmapShown) {
+      removeHeatmapOverlay();
+      return;
+    }
+    // The overlay is added or refreshed once the new points are indexed.
+    observationHeatmaps.onNext(counts);
+  }
+
+  /**
+   * Returns a provider rendering the specified counts as weighted points. Called on a background
+   * thread, since indexing the points is costly in large projects. A new provider is built each
+   * time rather than updating the one shown, since the map reads tiles from it concurrently.
+   */
+  private static HeatmapTileProvider newHeatmapTileProvider(
+      ImmutableList<FeatureObservationCount> counts) {
+    List<WeightedLatLng> points = new ArrayList<>(counts.size());
+    for (FeatureObservationCount count : counts) {
+      points.add(new WeightedLatLng(toLatLng(count.getLocation()), count.getObservationCount()));
+    }
+    return new HeatmapTileProvider.Builder().weightedData(points).radius(HEATMAP_RADIUS_PX).build();
+  }
+
+  private void onHeatmapUpdated(HeatmapTileProvider tileProvider) {
+    if (!heatmapShown) {
+      return;
+    }
+    // The new overlay is added before the old one is removed so that the heatmap doesn't flicker.
+    TileOverlay previous = heatmapOverlay;
+    heatmapOverlay =
+        map.addTileOverlay(
+            new TileOverlayOptions().tileProvider(tileProvider).zIndex(HEATMAP_Z_INDEX));
+    if (previous != null) {
+      previous.remove();
+    }
+  }
+
+  private void removeHeatmapOverlay() {
+    if (heatmapOverlay != null) {
+      heatmapOverlay.remove();
+      heatmapOverlay = null;
+    }
   }
 }
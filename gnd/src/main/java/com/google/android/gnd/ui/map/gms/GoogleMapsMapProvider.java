@@ -19,6 +19,7 @@ package com.google.android.gnd.ui.map.gms;
 import android.util.Pair;
 import androidx.fragment.app.Fragment;
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gnd.rx.Schedulers;
 import com.google.android.gnd.rx.annotations.Hot;
 import com.google.android.gnd.ui.MarkerIconFactory;
 import com.google.android.gnd.ui.map.MapAdapter;
@@ -34,15 +35,18 @@ public class GoogleMapsMapProvider implements MapProvider {
 
   private final MarkerIconFactory markerIconFactory;
   private final BitmapUtil bitmapUtil;
+  private final Schedulers schedulers;
   @Hot private final SingleSubject<MapAdapter> map = SingleSubject.create();
 
   @SuppressWarnings("NullAway.Init")
   private GoogleMapsFragment fragment;
 
   @Inject
-  public GoogleMapsMapProvider(MarkerIconFactory markerIconFactory, BitmapUtil bitmapUtil) {
+  public GoogleMapsMapProvider(
+      MarkerIconFactory markerIconFactory, BitmapUtil bitmapUtil, Schedulers schedulers) {
     this.markerIconFactory = markerIconFactory;
     this.bitmapUtil = bitmapUtil;
+    this.schedulers = schedulers;
   }
 
   @Override
@@ -64,7 +68,11 @@ public class GoogleMapsMapProvider implements MapProvider {
             googleMap ->
                 map.onSuccess(
                     new GoogleMapsMapAdapter(
-                        googleMap, fragment.getContext(), markerIconFactory, bitmapUtil)));
+                        googleMap,
+                        fragment.getContext(),
+                        markerIconFactory,
+                        bitmapUtil,
+                        schedulers)));
   }
 
   @Override
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+import androidx.annotation.Nullable;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.maps.android.PolyUtil;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Simplification of lines and polygon outlines for display at lower zoom levels. Zoom levels are
+ * grouped into bands, and geometries are simplified with Douglas-Peucker so that the error never
+ * exceeds a fraction of a pixel anywhere in the band. Geometries are drawn at full detail at the
+ * highest zoom levels.
+ */
+final class LevelOfDetail {
+
+  /** Number of zoom levels spanned by each band. */
+  private static final int ZOOM_LEVELS_PER_BAND = 2;
+
+  /** Bands at or above this one are drawn at full detail. */
+  static final int FULL_DETAIL_BAND = 9;
+
+  /** Number of zoom bands, including the full detail band. */
+  static final int BAND_COUNT = FULL_DETAIL_BAND + 1;
+
+  /** Maximum distance between a simplified line and the original, in screen pixels. */
+  private static final double TOLERANCE_PIXELS = 0.5;
+
+  /** Size of a pixel at the equator at zoom level 0, in meters. */
+  private static final double METERS_PER_PIXEL_AT_ZOOM_0 = 156_543.034;
+
+  /** Lines with fewer vertices are never simplified, since doing so saves little. */
+  private static final int MIN_VERTICES = 32;
+
+  /** GeoJSON geometry types whose coordinates are simplified. Points are left as is. */
+  private static final ImmutableSet<String> LINEAR_GEOMETRY_TYPES =
+      ImmutableSet.of("LineString", "MultiLineString", "Polygon", "MultiPolygon");
+
+  private LevelOfDetail() {}
+
+  /** Returns the zoom band containing the specified zoom level. */
+  static int getBand(float zoom) {
+    return Math.max(0, Math.min((int) zoom / ZOOM_LEVELS_PER_BAND, FULL_DETAIL_BAND));
+  }
+
+  /**
+   * Returns the simplification tolerance for the specified band at the specified latitude, in
+   * meters. The tolerance is based on the size of pixels at the highest zoom level in the band,
+   * where they're smallest.
+   */
+  static double getToleranceMeters(int band, double latitude) {
+    int maxZoom = (band + 1) * ZOOM_LEVELS_PER_BAND;
+    double metersPerPixel =
+        METERS_PER_PIXEL_AT_ZOOM_0 * Math.cos(Math.toRadians(latitude)) / (1 << maxZoom);
+    return TOLERANCE_PIXELS * metersPerPixel;
+  }
+
+  /**
+   * Returns the specified line or polygon outline simplified for display in the specified band.
+   * Closed outlines remain closed. Returns the original vertices if they can't be usefully
+   * simplified.
+   */
+  static List<LatLng> simplify(List<LatLng> vertices, int band) {
+    if (band >= FULL_DETAIL_BAND || vertices.size() < MIN_VERTICES) {
+      return vertices;
+    }
+    double tolerance = getToleranceMeters(band, vertices.get(0).latitude);
+    // PolyUtil.simplify() temporarily modifies closed outlines, so is given a copy.
+    List<LatLng> simplified = PolyUtil.simplify(new ArrayList<>(vertices), tolerance);
+    // Outlines smaller than the tolerance collapse entirely; there's little to gain there anyway.
+    if (PolyUtil.isClosedPolygon(vertices) && simplified.size() < 4) {
+      return vertices;
+    }
+    return ImmutableList.copyOf(simplified);
+  }
+
+  /**
+   * Returns a copy of the specified GeoJSON object with the coordinates of all lines and polygons
+   * simplified for display in the specified band. Works with bare geometries, features, and
+   * feature collections. Returns the original object if nothing could be usefully simplified.
+   */
+  static JSONObject simplify(JSONObject geoJson, int band) throws JSONException {
+    if (band >= FULL_DETAIL_BAND) {
+      return geoJson;
+    }
+    JSONObject copy = new JSONObject(geoJson.toString());
+    return simplifyObject(copy, band) ? copy : geoJson;
+  }
+
+  /** Simplifies the specified object in place, returning true iff anything was changed. */
+  private static boolean simplifyObject(JSONObject object, int band) throws JSONException {
+    boolean changed = false;
+    if (LINEAR_GEOMETRY_TYPES.contains(object.optString("type"))) {
+      JSONArray coordinates = object.optJSONArray("coordinates");
+      if (coordinates != null) {
+        JSONArray simplified = simplifyCoordinates(coordinates, band);
+        object.put("coordinates", simplified);
+        changed = simplified != coordinates;
+      }
+    }
+    JSONObject geometry = object.optJSONObject("geometry");
+    if (geometry != null) {
+      changed |= simplifyObject(geometry, band);
+    }
+    changed |= simplifyObjects(object.optJSONArray("features"), band);
+    changed |= simplifyObjects(object.optJSONArray("geometries"), band);
+    return changed;
+  }
+
+  private static boolean simplifyObjects(@Nullable JSONArray objects, int band)
+      throws JSONException {
+    if (objects == null) {
+      return false;
+    }
+    boolean changed = false;
+    for (int i = 0; i < objects.length(); i++) {
+      JSONObject object = objects.optJSONObject(i);
+      if (object != null) {
+        changed |= simplifyObject(object, band);
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Simplifies each line found in the specified, possibly nested, array of GeoJSON positions.
+   * Positions are [longitude, latitude] arrays. Returns the original array if unchanged.
+   */
+  private static JSONArray simplifyCoordinates(JSONArray coordinates, int band)
+      throws JSONException {
+    JSONArray first = coordinates.optJSONArray(0);
+    if (first == null) {
+      return coordinates;
+    }
+    if (first.optJSONArray(0) != null) {
+      JSONArray nested = new JSONArray();
+      boolean changed = false;
+      for (int i = 0; i < coordinates.length(); i++) {
+        JSONArray child = coordinates.getJSONArray(i);
+        JSONArray simplified = simplifyCoordinates(child, band);
+        nested.put(simplified);
+        changed |= simplified != child;
+      }
+      return changed ? nested : coordinates;
+    }
+    List<LatLng> line = new ArrayList<>(coordinates.length());
+    for (int i = 0; i < coordinates.length(); i++) {
+      JSONArray position = coordinates.getJSONArray(i);
+      line.add(new LatLng(position.getDouble(1), position.getDouble(0)));
+    }
+    List<LatLng> simplified = simplify(line, band);
+    if (simplified == line) {
+      return coordinates;
+    }
+    JSONArray positions = new JSONArray();
+    for (LatLng vertex : simplified) {
+      positions.put(new JSONArray().put(vertex.longitude).put(vertex.latitude));
+    }
+    return positions;
+  }
+}
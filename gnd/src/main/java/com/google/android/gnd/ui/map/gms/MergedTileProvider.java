@@ -0,0 +1,69 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+import android.os.SystemClock;
+import androidx.annotation.Nullable;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+import com.google.android.gnd.persistence.mbtiles.MergedTileStore;
+import com.google.android.gnd.persistence.mbtiles.MergedTileStore.MergedTile;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java8.util.function.Consumer;
+
+/**
+ * A {@link TileProvider} which serves offline imagery from the {@link MergedTileStore}, notifying
+ * a listener of the paths of the tile sources tiles are read from so that the last use of each
+ * source can be tracked. Each source is reported at most once per {@link #REPORT_INTERVAL_MILLIS},
+ * since tiles are requested many times per second while the map is moving.
+ */
+class MergedTileProvider implements TileProvider {
+
+  /** Size of tiles in the store, in pixels. */
+  private static final int TILE_SIZE = 256;
+
+  /** Minimum time between notifications to the listener for the same tile source. */
+  private static final long REPORT_INTERVAL_MILLIS = 60_000;
+
+  private final MergedTileStore tileStore;
+  private final Consumer<String> onAccess;
+  private final Map<String, Long> lastReported = new ConcurrentHashMap<>();
+
+  MergedTileProvider(MergedTileStore tileStore, Consumer<String> onAccess) {
+    this.tileStore = tileStore;
+    this.onAccess = onAccess;
+  }
+
+  @Nullable
+  @Override
+  public Tile getTile(int x, int y, int zoom) {
+    MergedTile tile = tileStore.getTile(x, y, zoom);
+    if (tile == null) {
+      return NO_TILE;
+    }
+    long now = SystemClock.elapsedRealtime();
+    for (String path : tile.getSourcePaths()) {
+      Long last = lastReported.get(path);
+      if (last == null || now - last >= REPORT_INTERVAL_MILLIS) {
+        lastReported.put(path, now);
+        onAccess.accept(path);
+      }
+    }
+    return new Tile(TILE_SIZE, TILE_SIZE, tile.getData());
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
+import com.google.android.gnd.rx.annotations.Hot;
+import com.google.android.gnd.ui.map.MapRenderStats;
+import io.reactivex.Observable;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time between frames while enabled, along with the work done to diff and apply
+ * changes to map features, and emits them aggregated over one second windows. Must only be used
+ * from the main thread. Frame callbacks are only posted while enabled, so disabled recorders cost
+ * nothing.
+ */
+class RenderMetricsRecorder implements FrameCallback {
+
+  private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * Frames taking longer than this are counted as janky, since at 60 Hz at least one frame was
+   * skipped while they were rendered.
+   */
+  private static final long JANK_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(25);
+
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /** Sets the number of features and map objects shown on the stats of each window. */
+  interface MapObjectCounter {
+    void count(MapRenderStats.Builder stats);
+  }
+
+  private final FrameBudgetedExecutor mapUpdates;
+  private final MapObjectCounter mapObjectCounter;
+
+  @Hot private final Subject<MapRenderStats> stats = PublishSubject.create();
+
+  private boolean enabled;
+  private long windowStartNanos;
+  private long lastFrameNanos;
+  private int frameCount;
+  private int jankyFrameCount;
+  private long maxFrameNanos;
+  private int featureUpdateCount;
+  private long diffNanos;
+  private long windowStartBusyNanos;
+  private int addedCount;
+  private int removedCount;
+
+  /**
+   * Creates a recorder which reports the time spent running tasks on {@code mapUpdates} as time
+   * spent applying changes to the map.
+   */
+  RenderMetricsRecorder(FrameBudgetedExecutor mapUpdates, MapObjectCounter mapObjectCounter) {
+    this.mapUpdates = mapUpdates;
+    this.mapObjectCounter = mapObjectCounter;
+  }
+
+  /** Returns the stats of each window completed while enabled. */
+  @Hot
+  Observable<MapRenderStats> getStats() {
+    return stats;
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Starts or stops recording. Partial windows are discarded when stopped. */
+  void setEnabled(boolean enabled) {
+    if (this.enabled == enabled) {
+      return;
+    }
+    this.enabled = enabled;
+    Choreographer choreographer = Choreographer.getInstance();
+    if (enabled) {
+      lastFrameNanos = 0;
+      choreographer.postFrameCallback(this);
+    } else {
+      choreographer.removeFrameCallback(this);
+    }
+  }
+
+  /** Records a set of features diffed against those on the map. */
+  void onFeaturesDiffed(long durationNanos, int added, int removed) {
+    if (!enabled) {
+      return;
+    }
+    featureUpdateCount++;
+    diffNanos += durationNanos;
+    addedCount += added;
+    removedCount += removed;
+  }
+
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    if (!enabled) {
+      return;
+    }
+    if (lastFrameNanos == 0) {
+      startWindow(frameTimeNanos);
+    } else {
+      long frameNanos = frameTimeNanos - lastFrameNanos;
+      frameCount++;
+      if (frameNanos > JANK_THRESHOLD_NANOS) {
+        jankyFrameCount++;
+      }
+      maxFrameNanos = Math.max(maxFrameNanos, frameNanos);
+      if (frameTimeNanos - windowStartNanos >= WINDOW_NANOS) {
+        emitWindow(frameTimeNanos);
+        startWindow(frameTimeNanos);
+      }
+    }
+    lastFrameNanos = frameTimeNanos;
+    Choreographer.getInstance().postFrameCallback(this);
+  }
+
+  private void emitWindow(long frameTimeNanos) {
+    MapRenderStats.Builder builder =
+        MapRenderStats.newBuilder()
+            .setTimestamp(System.currentTimeMillis())
+            .setWindowMillis(TimeUnit.NANOSECONDS.toMillis(frameTimeNanos - windowStartNanos))
+            .setFrameCount(frameCount)
+            .setJankyFrameCount(jankyFrameCount)
+            .setMaxFrameMillis(maxFrameNanos / NANOS_PER_MILLI)
+            .setFeatureUpdateCount(featureUpdateCount)
+            .setDiffMillis(diffNanos / NANOS_PER_MILLI)
+            .setApplyMillis((mapUpdates.getBusyNanos() - windowStartBusyNanos) / NANOS_PER_MILLI)
+            .setAddedCount(addedCount)
+            .setRemovedCount(removedCount);
+    mapObjectCounter.count(builder);
+    stats.onNext(builder.build());
+  }
+
+  private void startWindow(long frameTimeNanos) {
+    windowStartNanos = frameTimeNanos;
+    frameCount = 0;
+    jankyFrameCount = 0;
+    maxFrameNanos = 0;
+    featureUpdateCount = 0;
+    diffNanos = 0;
+    windowStartBusyNanos = mapUpdates.getBusyNanos();
+    addedCount = 0;
+    removedCount = 0;
+  }
+}
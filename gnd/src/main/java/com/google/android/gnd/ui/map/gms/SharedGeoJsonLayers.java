@@ -0,0 +1,222 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+import androidx.annotation.Nullable;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gnd.model.layer.Style;
+import com.google.android.gnd.ui.map.MapGeoJson;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.maps.android.collections.GroundOverlayManager;
+import com.google.maps.android.collections.MarkerManager;
+import com.google.maps.android.collections.PolygonManager;
+import com.google.maps.android.collections.PolylineManager;
+import com.google.maps.android.data.geojson.GeoJsonFeature;
+import com.google.maps.android.data.geojson.GeoJsonLayer;
+import com.google.maps.android.data.geojson.GeoJsonLineStringStyle;
+import com.google.maps.android.data.geojson.GeoJsonPointStyle;
+import com.google.maps.android.data.geojson.GeoJsonPolygonStyle;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java8.util.function.ToIntFunction;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Renders {@link MapGeoJson} features in one shared {@link GeoJsonLayer} per map layer and style,
+ * rather than one layer per feature. Features are added to and removed from their shared layer
+ * individually, so changing one feature doesn't redraw the others. Must only be used from the
+ * main thread.
+ */
+class SharedGeoJsonLayers {
+
+  private static final String EMPTY_FEATURE_COLLECTION =
+      "{\"type\": \"FeatureCollection\", \"features\": []}";
+
+  private final GoogleMap map;
+  private final MarkerManager markerManager;
+  private final ToIntFunction<String> parseColor;
+
+  /*
+   * Layers create their own managers for the types of objects not passed in, each of which
+   * replaces the map's listeners, so one of each is shared by all layers.
+   */
+  private final PolygonManager polygonManager;
+  private final PolylineManager polylineManager;
+  private final GroundOverlayManager groundOverlayManager;
+
+  /** Shared layers on the map, each with at least one feature. */
+  private final Map<LayerKey, SharedLayer> layers = new HashMap<>();
+
+  /** Features on the map, keyed by identity, with the layer and GeoJSON features rendering them. */
+  private final Map<MapGeoJson, RenderedFeature> renderedFeatures = new IdentityHashMap<>();
+
+  /**
+   * Creates a new set of layers on the specified map. {@code markerManager} is shared with other
+   * layers so that points in all layers remain clickable, and {@code parseColor} converts style
+   * colors to color ints.
+   */
+  SharedGeoJsonLayers(
+      GoogleMap map, MarkerManager markerManager, ToIntFunction<String> parseColor) {
+    this.map = map;
+    this.markerManager = markerManager;
+    this.parseColor = parseColor;
+    this.polygonManager = new PolygonManager(map);
+    this.polylineManager = new PolylineManager(map);
+    this.groundOverlayManager = new GroundOverlayManager(map);
+  }
+
+  /**
+   * Renders the specified geometry for the specified feature in the shared layer for its map layer
+   * and style, replacing the geometry currently rendered for it, if any. Returns the GeoJSON
+   * features added, which can be used to determine which feature was clicked.
+   */
+  ImmutableList<GeoJsonFeature> add(MapGeoJson mapGeoJson, JSONObject geoJson) {
+    remove(mapGeoJson);
+    LayerKey key = LayerKey.of(mapGeoJson);
+    SharedLayer sharedLayer = layers.get(key);
+    if (sharedLayer == null) {
+      sharedLayer = new SharedLayer(createLayer(mapGeoJson));
+      layers.put(key, sharedLayer);
+    }
+    GeoJsonLayer layer = sharedLayer.layer;
+    // Layers parse GeoJSON on construction, so a detached one is used to parse the feature alone.
+    ImmutableList<GeoJsonFeature> features =
+        ImmutableList.copyOf(newLayer(geoJson).getFeatures());
+    for (GeoJsonFeature feature : features) {
+      feature.setPointStyle(layer.getDefaultPointStyle());
+      feature.setPolygonStyle(layer.getDefaultPolygonStyle());
+      feature.setLineStringStyle(layer.getDefaultLineStringStyle());
+      layer.addFeature(feature);
+    }
+    sharedLayer.featureCount++;
+    renderedFeatures.put(mapGeoJson, new RenderedFeature(key, features, geoJson));
+    return features;
+  }
+
+  /** Removes the specified feature from its shared layer, if rendered. */
+  void remove(MapGeoJson mapGeoJson) {
+    RenderedFeature rendered = renderedFeatures.remove(mapGeoJson);
+    if (rendered == null) {
+      return;
+    }
+    SharedLayer sharedLayer = layers.get(rendered.key);
+    for (GeoJsonFeature feature : rendered.features) {
+      sharedLayer.layer.removeFeature(feature);
+    }
+    if (--sharedLayer.featureCount == 0) {
+      sharedLayer.layer.removeLayerFromMap();
+      layers.remove(rendered.key);
+    }
+  }
+
+  /** Returns true iff the specified feature is currently rendered. */
+  boolean contains(MapGeoJson mapGeoJson) {
+    return renderedFeatures.containsKey(mapGeoJson);
+  }
+
+  /** Returns the GeoJSON currently rendered for the specified feature, or null if not rendered. */
+  @Nullable
+  JSONObject getGeoJson(MapGeoJson mapGeoJson) {
+    RenderedFeature rendered = renderedFeatures.get(mapGeoJson);
+    return rendered == null ? null : rendered.geoJson;
+  }
+
+  /** Returns a live view of the features currently rendered. */
+  Set<MapGeoJson> getFeatures() {
+    return renderedFeatures.keySet();
+  }
+
+  private GeoJsonLayer createLayer(MapGeoJson mapGeoJson) {
+    GeoJsonLayer layer = newLayer(emptyFeatureCollection());
+
+    int width = mapGeoJson.getStrokeWidth();
+    int color = parseColor.applyAsInt(mapGeoJson.getStyle().getColor());
+
+    GeoJsonPointStyle pointStyle = layer.getDefaultPointStyle();
+    pointStyle.setZIndex(1);
+
+    GeoJsonPolygonStyle polygonStyle = layer.getDefaultPolygonStyle();
+    polygonStyle.setStrokeWidth(width);
+    polygonStyle.setLineStringWidth(width);
+    polygonStyle.setStrokeColor(color);
+    polygonStyle.setClickable(false);
+    polygonStyle.setZIndex(1);
+
+    GeoJsonLineStringStyle lineStringStyle = layer.getDefaultLineStringStyle();
+    lineStringStyle.setLineStringWidth(width);
+    lineStringStyle.setZIndex(1);
+
+    layer.addLayerToMap();
+    return layer;
+  }
+
+  private GeoJsonLayer newLayer(JSONObject geoJson) {
+    // Pass markerManager here otherwise markers in the previous layers won't be clickable.
+    return new GeoJsonLayer(
+        map, geoJson, markerManager, polygonManager, polylineManager, groundOverlayManager);
+  }
+
+  private static JSONObject emptyFeatureCollection() {
+    try {
+      return new JSONObject(EMPTY_FEATURE_COLLECTION);
+    } catch (JSONException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Identifies the shared layer used to render features of a map layer with a given style. */
+  @AutoValue
+  abstract static class LayerKey {
+    abstract String getLayerId();
+
+    abstract Style getStyle();
+
+    abstract int getStrokeWidth();
+
+    static LayerKey of(MapGeoJson mapGeoJson) {
+      return new AutoValue_SharedGeoJsonLayers_LayerKey(
+          mapGeoJson.getLayerId(),
+          mapGeoJson.getStyle(),
+          mapGeoJson.getStrokeWidth());
+    }
+  }
+
+  private static class SharedLayer {
+    final GeoJsonLayer layer;
+    int featureCount;
+
+    SharedLayer(GeoJsonLayer layer) {
+      this.layer = layer;
+    }
+  }
+
+  private static class RenderedFeature {
+    final LayerKey key;
+    final ImmutableList<GeoJsonFeature> features;
+    final JSONObject geoJson;
+
+    RenderedFeature(LayerKey key, ImmutableList<GeoJsonFeature> features, JSONObject geoJson) {
+      this.key = key;
+      this.features = features;
+      this.geoJson = geoJson;
+    }
+  }
+}
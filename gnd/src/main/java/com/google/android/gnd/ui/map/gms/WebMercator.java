@@ -0,0 +1,60 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+/**
+ * Conversions between geographic coordinates and the Web Mercator projection used by map tiles.
+ * World coordinates are normalized to [0, 1] from the top left corner of the map, and scaled by
+ * {@link #getWorldSize(int)} to get pixel coordinates at a given zoom level.
+ */
+final class WebMercator {
+
+  /** Size of map tiles, in pixels. */
+  static final int TILE_SIZE = 256;
+
+  /** Latitude of the top and bottom edges of the projected map, in degrees. */
+  static final double MAX_LATITUDE = 85.05112878;
+
+  /** Do not instantiate. */
+  private WebMercator() {}
+
+  /** Returns the normalized world x coordinate of the specified longitude. */
+  static double toWorldX(double longitude) {
+    return (longitude + 180.0) / 360.0;
+  }
+
+  /** Returns the normalized world y coordinate of the specified latitude. */
+  static double toWorldY(double latitude) {
+    double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+    double sin = Math.sin(Math.toRadians(clamped));
+    return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+  }
+
+  /** Returns the width and height of the whole map at the specified zoom level, in pixels. */
+  static double getWorldSize(int zoom) {
+    return TILE_SIZE * (double) (1L << zoom);
+  }
+
+  /**
+   * Returns the column or row of the tile containing the specified pixel coordinate at the
+   * specified zoom level, clamped to the tiles which exist at that level.
+   */
+  static int toTile(double pixel, int zoom) {
+    int max = (1 << zoom) - 1;
+    return (int) Math.max(0, Math.min(max, Math.floor(pixel / TILE_SIZE)));
+  }
+}
@@ -27,12 +27,15 @@ import com.google.common.collect.ImmutableList;
 import javax.inject.Inject;
 
 /**
- * View model for the offline area manager fragment. Handles the current list of downloaded areas.
+ * View model for the offline area manager fragment. Handles the current list of downloaded areas
+ * and the total storage they use on the device.
  */
 public class OfflineBaseMapsViewModel extends AbstractViewModel {
 
   private LiveData<ImmutableList<OfflineBaseMap>> offlineAreas;
   private LiveData<Integer> noAreasMessageVisibility;
+  private LiveData<Integer> storageSummaryVisibility;
+  private LiveData<Double> totalStorageSize;
   private final Navigator navigator;
 
   @Inject
@@ -46,6 +49,16 @@ public class OfflineBaseMapsViewModel extends AbstractViewModel {
             offlineBaseMapRepository
                 .getOfflineAreasOnceAndStream()
                 .map(baseMaps -> baseMaps.isEmpty() ? View.VISIBLE : View.GONE));
+    this.storageSummaryVisibility =
+        LiveDataReactiveStreams.fromPublisher(
+            offlineBaseMapRepository
+                .getOfflineAreasOnceAndStream()
+                .map(baseMaps -> baseMaps.isEmpty() ? View.GONE : View.VISIBLE));
+    this.totalStorageSize =
+        LiveDataReactiveStreams.fromPublisher(
+            offlineBaseMapRepository
+                .getDownloadedTileSourcesByteCountOnceAndStream()
+                .map(bytes -> (double) bytes / (1024 * 1024)));
   }
 
   public void showOfflineAreaSelector() {
@@ -59,4 +72,13 @@ public class OfflineBaseMapsViewModel extends AbstractViewModel {
   public LiveData<Integer> getNoAreasMessageVisibility() {
     return noAreasMessageVisibility;
   }
+
+  public LiveData<Integer> getStorageSummaryVisibility() {
+    return storageSummaryVisibility;
+  }
+
+  /** Returns the total size of all downloaded base maps on the device, in MB. */
+  public LiveData<Double> getTotalStorageSize() {
+    return totalStorageSize;
+  }
 }
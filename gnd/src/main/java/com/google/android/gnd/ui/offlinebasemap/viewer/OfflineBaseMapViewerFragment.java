@@ -75,6 +75,8 @@ public class OfflineBaseMapViewerFragment extends AbstractFragment {
     binding.setViewModel(viewModel);
     binding.setLifecycleOwner(this);
     binding.removeButton.setOnClickListener(__ -> onRemoveClick());
+    binding.pinSwitch.setOnCheckedChangeListener(
+        (__, pinned) -> viewModel.onPinnedChanged(pinned).as(autoDisposable(this)).subscribe());
     ((MainActivity) getActivity()).setActionBar(binding.offlineAreaViewerToolbar, true);
     return binding.getRoot();
   }
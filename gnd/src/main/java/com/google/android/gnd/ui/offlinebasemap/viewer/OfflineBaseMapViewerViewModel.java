@@ -16,23 +16,15 @@
 
 package com.google.android.gnd.ui.offlinebasemap.viewer;
 
-import static java8.util.stream.StreamSupport.stream;
-
-import android.content.Context;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.LiveDataReactiveStreams;
 import com.google.android.gnd.model.basemap.OfflineBaseMap;
-import com.google.android.gnd.model.basemap.tile.TileSource;
 import com.google.android.gnd.repository.OfflineBaseMapRepository;
 import com.google.android.gnd.rx.annotations.Hot;
 import com.google.android.gnd.ui.common.AbstractViewModel;
-import com.google.common.collect.ImmutableSet;
-import dagger.hilt.android.qualifiers.ApplicationContext;
 import io.reactivex.Completable;
 import io.reactivex.processors.BehaviorProcessor;
 import io.reactivex.processors.FlowableProcessor;
-import java.io.File;
-import java.lang.ref.WeakReference;
 import javax.inject.Inject;
 
 /**
@@ -46,16 +38,14 @@ public class OfflineBaseMapViewerViewModel extends AbstractViewModel {
       BehaviorProcessor.create();
 
   private final OfflineBaseMapRepository offlineBaseMapRepository;
-  private final WeakReference<Context> context;
   public LiveData<Double> areaStorageSize;
   public LiveData<String> areaName;
+  public LiveData<Boolean> areaPinned;
   private LiveData<OfflineBaseMap> offlineArea;
 
   @Inject
-  public OfflineBaseMapViewerViewModel(
-      OfflineBaseMapRepository offlineBaseMapRepository, @ApplicationContext Context context) {
+  public OfflineBaseMapViewerViewModel(OfflineBaseMapRepository offlineBaseMapRepository) {
     this.offlineBaseMapRepository = offlineBaseMapRepository;
-    this.context = new WeakReference<>(context);
     this.areaName =
         LiveDataReactiveStreams.fromPublisher(
             this.argsProcessor.switchMap(
@@ -64,6 +54,14 @@ public class OfflineBaseMapViewerViewModel extends AbstractViewModel {
                         .getOfflineArea(args.getOfflineAreaId())
                         .toFlowable()
                         .map(OfflineBaseMap::getName)));
+    this.areaPinned =
+        LiveDataReactiveStreams.fromPublisher(
+            this.argsProcessor.switchMap(
+                args ->
+                    this.offlineBaseMapRepository
+                        .getOfflineArea(args.getOfflineAreaId())
+                        .toFlowable()
+                        .map(OfflineBaseMap::isPinned)));
     this.areaStorageSize =
         LiveDataReactiveStreams.fromPublisher(
             this.argsProcessor.switchMap(
@@ -71,10 +69,8 @@ public class OfflineBaseMapViewerViewModel extends AbstractViewModel {
                     this.offlineBaseMapRepository
                         .getOfflineArea(args.getOfflineAreaId())
                         .toFlowable()
-                        .flatMap(
-                            offlineBaseMapRepository
-                                ::getIntersectingDownloadedTileSourcesOnceAndStream)
-                        .map(this::tileSourcesToTotalStorageSize)));
+                        .flatMap(offlineBaseMapRepository::getAreaByteCountOnceAndStream)
+                        .map(bytes -> (double) bytes / (1024 * 1024))));
     this.offlineArea =
         LiveDataReactiveStreams.fromPublisher(
             this.argsProcessor.switchMap(
@@ -84,20 +80,6 @@ public class OfflineBaseMapViewerViewModel extends AbstractViewModel {
                         .toFlowable()));
   }
 
-  private Double tileSourcesToTotalStorageSize(ImmutableSet<TileSource> tileSources) {
-    return stream(tileSources).map(this::tileSourceStorageSize).reduce((x, y) -> x + y).orElse(0.0);
-  }
-
-  private double tileSourceStorageSize(TileSource tileSource) {
-    Context context1 = context.get();
-    if (context1 == null) {
-      return 0.0;
-    } else {
-      File tileFile = new File(context1.getFilesDir(), tileSource.getPath());
-      return (double) tileFile.length() / (1024 * 1024);
-    }
-  }
-
   /**
    * Removes the offline area associated with this viewmodel from the device by removing all tile
    * sources that are not included in other areas and removing the area from the db.
@@ -106,6 +88,18 @@ public class OfflineBaseMapViewerViewModel extends AbstractViewModel {
     return offlineBaseMapRepository.deleteArea(this.offlineArea.getValue().getId());
   }
 
+  /**
+   * Sets whether the offline area associated with this viewmodel may be removed automatically when
+   * offline base maps exceed their storage budget.
+   */
+  public Completable onPinnedChanged(boolean pinned) {
+    OfflineBaseMap area = this.offlineArea.getValue();
+    if (area == null) {
+      return Completable.complete();
+    }
+    return offlineBaseMapRepository.setAreaPinned(area.getId(), pinned);
+  }
+
   /** Returns the offline area associated with this view model. */
   public LiveData<OfflineBaseMap> getOfflineArea() {
     return offlineArea;
@@ -22,10 +22,31 @@ public final class Keys {
   // General
   public static final String UPLOAD_MEDIA = "upload_media";
   public static final String OFFLINE_AREAS = "offline_areas";
+  public static final String OFFLINE_FIRST_PROJECTS = "offline_first_projects";
+  public static final String PHOTO_PRESET = "photo_preset";
+  public static final String OFFLINE_STORAGE_BUDGET = "offline_storage_budget";
+  public static final String OFFLINE_PREFETCH_RADIUS = "offline_prefetch_radius";
+  public static final String FEATURE_OVERVIEW_ZOOM = "feature_overview_zoom";
+
+  // Diagnostics
+  public static final String RENDER_METRICS = "render_metrics";
+  public static final String EXPORT_RENDER_METRICS = "export_render_metrics";
 
   // Help
   public static final String VISIT_WEBSITE = "visit_website";
   public static final String FEEDBACK = "feedback";
 
-  static final String[] ALL_KEYS = {UPLOAD_MEDIA, OFFLINE_AREAS, VISIT_WEBSITE, FEEDBACK};
+  static final String[] ALL_KEYS = {
+    UPLOAD_MEDIA,
+    OFFLINE_AREAS,
+    OFFLINE_FIRST_PROJECTS,
+    PHOTO_PRESET,
+    OFFLINE_STORAGE_BUDGET,
+    OFFLINE_PREFETCH_RADIUS,
+    FEATURE_OVERVIEW_ZOOM,
+    RENDER_METRICS,
+    EXPORT_RENDER_METRICS,
+    VISIT_WEBSITE,
+    FEEDBACK
+  };
 }
@@ -16,34 +16,49 @@
 
 package com.google.android.gnd.ui.settings;
 
+import static com.google.android.gnd.rx.RxAutoDispose.autoDisposable;
+
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
 import android.widget.Toast;
 import androidx.annotation.Nullable;
+import androidx.core.content.FileProvider;
+import androidx.preference.ListPreference;
 import androidx.preference.Preference;
 import androidx.preference.Preference.OnPreferenceChangeListener;
 import androidx.preference.Preference.OnPreferenceClickListener;
 import androidx.preference.PreferenceFragmentCompat;
 import androidx.preference.PreferenceManager;
+import com.google.android.gnd.BuildConfig;
 import com.google.android.gnd.Config;
 import com.google.android.gnd.R;
+import com.google.android.gnd.persistence.local.LocalValueStore;
+import com.google.android.gnd.ui.common.ViewModelFactory;
+import dagger.hilt.android.AndroidEntryPoint;
+import java.io.File;
+import javax.inject.Inject;
+import timber.log.Timber;
 
 /**
  * Fragment containing app preferences saved as shared preferences.
  *
  * <p>NOTE: It uses {@link PreferenceFragmentCompat} instead of {@link
- * com.google.android.gnd.ui.common.AbstractFragment}, so dagger can't inject into it like it does
- * in other fragments.
- *
- * <p>TODO: Create dagger module and support injection into this fragment.
+ * com.google.android.gnd.ui.common.AbstractFragment}, so view models are obtained from the
+ * injected {@link ViewModelFactory} directly.
  */
+@AndroidEntryPoint
 public class SettingsFragment extends PreferenceFragmentCompat
     implements OnPreferenceChangeListener, OnPreferenceClickListener {
 
+  @Inject ViewModelFactory viewModelFactory;
+
+  private SettingsViewModel viewModel;
+
   @Override
   public void onCreate(@Nullable Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
+    viewModel = viewModelFactory.get(this, SettingsViewModel.class);
     PreferenceManager preferenceManager = getPreferenceManager();
     preferenceManager.setSharedPreferencesName(Config.SHARED_PREFS_NAME);
     preferenceManager.setSharedPreferencesMode(Config.SHARED_PREFS_MODE);
@@ -61,6 +76,8 @@ public class SettingsFragment extends PreferenceFragmentCompat
       preference.setOnPreferenceChangeListener(this);
       preference.setOnPreferenceClickListener(this);
     }
+    ListPreference storageBudget = findPreference(Keys.OFFLINE_STORAGE_BUDGET);
+    updateStorageBudgetSummary(storageBudget, storageBudget.getValue());
   }
 
   @Override
@@ -68,8 +85,15 @@ public class SettingsFragment extends PreferenceFragmentCompat
     switch (preference.getKey()) {
       case Keys.UPLOAD_MEDIA:
       case Keys.OFFLINE_AREAS:
+      case Keys.OFFLINE_FIRST_PROJECTS:
+      case Keys.PHOTO_PRESET:
+      case Keys.RENDER_METRICS:
         // do nothing.
         break;
+      case Keys.OFFLINE_STORAGE_BUDGET:
+        updateStorageBudgetSummary((ListPreference) preference, (String) newValue);
+        viewModel.onOfflineStorageBudgetChanged().as(autoDisposable(this)).subscribe();
+        break;
       default:
         break;
     }
@@ -85,12 +109,58 @@ public class SettingsFragment extends PreferenceFragmentCompat
       case Keys.FEEDBACK:
         Toast.makeText(getContext(), "Not yet implemented", Toast.LENGTH_SHORT).show();
         break;
+      case Keys.EXPORT_RENDER_METRICS:
+        viewModel
+            .exportRenderMetrics()
+            .as(autoDisposable(this))
+            .subscribe(this::shareRenderMetrics, this::onExportRenderMetricsFailed);
+        break;
       default:
         return false;
     }
     return true;
   }
 
+  /**
+   * Shows the selected budget along with the storage currently used by offline base maps and how
+   * much of it would be freed by applying the budget.
+   */
+  private void updateStorageBudgetSummary(ListPreference preference, String value) {
+    int index = preference.findIndexOfValue(value);
+    CharSequence label = index < 0 ? value : preference.getEntries()[index];
+    preference.setSummary(label);
+    viewModel
+        .getEvictionPlan(LocalValueStore.parseOfflineStorageBudget(value))
+        .as(autoDisposable(this))
+        .subscribe(
+            plan ->
+                preference.setSummary(
+                    getString(
+                        R.string.offline_storage_budget_summary,
+                        label,
+                        toMegabytes(plan.getBytesUsed()),
+                        toMegabytes(plan.getBytesFreed()))),
+            t -> Timber.e(t, "Couldn't compute offline storage usage"));
+  }
+
+  private static double toMegabytes(long bytes) {
+    return (double) bytes / (1024 * 1024);
+  }
+
+  private void shareRenderMetrics(File file) {
+    Uri uri = FileProvider.getUriForFile(requireContext(), BuildConfig.APPLICATION_ID, file);
+    Intent intent = new Intent(Intent.ACTION_SEND);
+    intent.setType("text/csv");
+    intent.putExtra(Intent.EXTRA_STREAM, uri);
+    intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+    startActivity(Intent.createChooser(intent, getString(R.string.export_render_metrics)));
+  }
+
+  private void onExportRenderMetricsFailed(Throwable t) {
+    Timber.e(t, "Couldn't export render metrics");
+    Toast.makeText(getContext(), R.string.export_render_metrics_failed, Toast.LENGTH_SHORT).show();
+  }
+
   private void openUrl(String url) {
     Intent intent = new Intent(Intent.ACTION_VIEW);
     intent.setData(Uri.parse(url));
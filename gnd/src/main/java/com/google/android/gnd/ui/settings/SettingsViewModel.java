@@ -0,0 +1,69 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.ui.settings;
+
+import com.google.android.gnd.persistence.sync.OfflineStorageWorkManager;
+import com.google.android.gnd.repository.EvictionPlan;
+import com.google.android.gnd.repository.OfflineBaseMapRepository;
+import com.google.android.gnd.rx.Schedulers;
+import com.google.android.gnd.ui.common.AbstractViewModel;
+import com.google.android.gnd.ui.map.MapRenderMetricsLog;
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import java.io.File;
+import javax.inject.Inject;
+
+/** View model for the settings screen. */
+public class SettingsViewModel extends AbstractViewModel {
+
+  private final OfflineBaseMapRepository offlineBaseMapRepository;
+  private final OfflineStorageWorkManager offlineStorageWorkManager;
+  private final MapRenderMetricsLog mapRenderMetricsLog;
+  private final Schedulers schedulers;
+
+  @Inject
+  SettingsViewModel(
+      OfflineBaseMapRepository offlineBaseMapRepository,
+      OfflineStorageWorkManager offlineStorageWorkManager,
+      MapRenderMetricsLog mapRenderMetricsLog,
+      Schedulers schedulers) {
+    this.offlineBaseMapRepository = offlineBaseMapRepository;
+    this.offlineStorageWorkManager = offlineStorageWorkManager;
+    this.mapRenderMetricsLog = mapRenderMetricsLog;
+    this.schedulers = schedulers;
+  }
+
+  /**
+   * Returns the storage currently used by offline base maps and the amount which would be freed by
+   * applying the specified budget. Results are delivered on the main thread.
+   */
+  public Single<EvictionPlan> getEvictionPlan(long budgetBytes) {
+    return offlineBaseMapRepository.getEvictionPlan(budgetBytes).observeOn(schedulers.ui());
+  }
+
+  /** Applies a newly selected storage budget by removing offline areas in the background. */
+  public Completable onOfflineStorageBudgetChanged() {
+    return offlineStorageWorkManager.enqueueStorageBudgetWorker();
+  }
+
+  /**
+   * Returns a CSV file containing the map rendering metrics currently logged. The file is delivered
+   * on the main thread.
+   */
+  public Single<File> exportRenderMetrics() {
+    return mapRenderMetricsLog.export().observeOn(schedulers.ui());
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.util;
+
+import java.util.Arrays;
+
+/**
+ * Static R-tree over a fixed set of bounding boxes, packed into primitive arrays. Items are sorted
+ * along a Hilbert curve and grouped bottom-up into nodes of {@link #NODE_SIZE} children, which
+ * gives good query performance without any per-node object allocation.
+ *
+ * <p>Boxes are specified as (south, west, north, east) quadruples. Any planar coordinates may be
+ * used in place of latitude and longitude, provided the first two values of each box are the
+ * minimums and the last two the maximums.
+ */
+public final class PackedRTree {
+
+  /** Maximum number of children per node. */
+  private static final int NODE_SIZE = 16;
+
+  /** Number of bits per axis of the Hilbert grid. Keeps Hilbert values within 30 bits. */
+  private static final int HILBERT_BITS = 15;
+
+  private static final int HILBERT_MAX = (1 << HILBERT_BITS) - 1;
+
+  private final int numItems;
+
+  /** Bounds of all nodes, leaves first and root last, packed as south, west, north, east. */
+  private final double[] boxes;
+
+  /** For leaves, the index of the item; for other nodes, the position of the first child. */
+  private final int[] indices;
+
+  /** Position in {@link #boxes} of the end of each level of the tree, from the leaves up. */
+  private final int[] levelBounds;
+
+  /**
+   * Builds a tree over the first {@code numItems} boxes in {@code itemBoxes}. The returned tree
+   * doesn't retain a reference to {@code itemBoxes}.
+   */
+  public PackedRTree(double[] itemBoxes, int numItems) {
+    this.numItems = numItems;
+    int[] levels = new int[32];
+    int levelCount = 0;
+    int n = numItems;
+    int numNodes = n;
+    levels[levelCount++] = n * 4;
+    do {
+      n = (n + NODE_SIZE - 1) / NODE_SIZE;
+      numNodes += n;
+      levels[levelCount++] = numNodes * 4;
+    } while (n > 1);
+    levelBounds = Arrays.copyOf(levels, levelCount);
+    boxes = new double[numNodes * 4];
+    indices = new int[numNodes];
+    if (numItems == 0) {
+      return;
+    }
+    sortLeaves(itemBoxes);
+    buildNodes();
+  }
+
+  /** Copies items into the leaf level, ordered by the Hilbert value of their centers. */
+  private void sortLeaves(double[] itemBoxes) {
+    double minLat = Double.POSITIVE_INFINITY;
+    double minLng = Double.POSITIVE_INFINITY;
+    double maxLat = Double.NEGATIVE_INFINITY;
+    double maxLng = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < numItems; i++) {
+      minLat = Math.min(minLat, itemBoxes[i * 4]);
+      minLng = Math.min(minLng, itemBoxes[i * 4 + 1]);
+      maxLat = Math.max(maxLat, itemBoxes[i * 4 + 2]);
+      maxLng = Math.max(maxLng, itemBoxes[i * 4 + 3]);
+    }
+    double latScale = maxLat > minLat ? HILBERT_MAX / (maxLat - minLat) : 0;
+    double lngScale = maxLng > minLng ? HILBERT_MAX / (maxLng - minLng) : 0;
+    // Pack Hilbert value and item index into a single long so that a primitive sort suffices.
+    long[] keys = new long[numItems];
+    for (int i = 0; i < numItems; i++) {
+      double centerLat = (itemBoxes[i * 4] + itemBoxes[i * 4 + 2]) / 2;
+      double centerLng = (itemBoxes[i * 4 + 1] + itemBoxes[i * 4 + 3]) / 2;
+      int x = (int) ((centerLng - minLng) * lngScale);
+      int y = (int) ((centerLat - minLat) * latScale);
+      keys[i] = ((long) hilbert(x, y) << 32) | i;
+    }
+    Arrays.sort(keys);
+    for (int i = 0; i < numItems; i++) {
+      int item = (int) keys[i];
+      System.arraycopy(itemBoxes, item * 4, boxes, i * 4, 4);
+      indices[i] = item;
+    }
+  }
+
+  /** Fills in all non-leaf levels, each node covering up to NODE_SIZE nodes of the level below. */
+  private void buildNodes() {
+    int out = numItems * 4;
+    int pos = 0;
+    for (int level = 0; level < levelBounds.length - 1; level++) {
+      int end = levelBounds[level];
+      while (pos < end) {
+        int firstChild = pos;
+        double south = Double.POSITIVE_INFINITY;
+        double west = Double.POSITIVE_INFINITY;
+        double north = Double.NEGATIVE_INFINITY;
+        double east = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < NODE_SIZE && pos < end; i++, pos += 4) {
+          south = Math.min(south, boxes[pos]);
+          west = Math.min(west, boxes[pos + 1]);
+          north = Math.max(north, boxes[pos + 2]);
+          east = Math.max(east, boxes[pos + 3]);
+        }
+        indices[out / 4] = firstChild;
+        boxes[out++] = south;
+        boxes[out++] = west;
+        boxes[out++] = north;
+        boxes[out++] = east;
+      }
+    }
+  }
+
+  /** Receives the indices of items found by {@link #search}. */
+  public interface Visitor {
+    void visit(int item);
+  }
+
+  /** Calls {@code visitor} with each item whose box intersects the specified box. */
+  public void search(double south, double west, double north, double east, Visitor visitor) {
+    if (numItems == 0) {
+      return;
+    }
+    int[] stack = new int[16];
+    int stackSize = 0;
+    int nodePos = boxes.length - 4;
+    while (true) {
+      int end = Math.min(nodePos + NODE_SIZE * 4, upperLevelBound(nodePos));
+      for (int pos = nodePos; pos < end; pos += 4) {
+        if (boxes[pos] > north
+            || boxes[pos + 1] > east
+            || boxes[pos + 2] < south
+            || boxes[pos + 3] < west) {
+          continue;
+        }
+        int index = indices[pos / 4];
+        if (nodePos >= numItems * 4) {
+          if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+          }
+          stack[stackSize++] = index;
+        } else {
+          visitor.visit(index);
+        }
+      }
+      if (stackSize == 0) {
+        return;
+      }
+      nodePos = stack[--stackSize];
+    }
+  }
+
+  /** Returns the end position of the tree level containing the node at {@code nodePos}. */
+  private int upperLevelBound(int nodePos) {
+    for (int bound : levelBounds) {
+      if (bound > nodePos) {
+        return bound;
+      }
+    }
+    return levelBounds[levelBounds.length - 1];
+  }
+
+  /**
+   * Returns the position of (x, y) along a Hilbert curve filling a 2^15 x 2^15 grid. Adapted from
+   * "Fast Hilbert curve generation, sorting, and range queries" by Rawrunprotected.
+   */
+  private static int hilbert(int x, int y) {
+    x = x << (16 - HILBERT_BITS);
+    y = y << (16 - HILBERT_BITS);
+
+    int a = x ^ y;
+    int b = 0xFFFF ^ a;
+    int c = 0xFFFF ^ (x | y);
+    int d = x & (y ^ 0xFFFF);
+
+    int aa = a | (b >> 1);
+    int bb = (a >> 1) ^ a;
+    int cc = ((c >> 1) ^ (b & (d >> 1))) ^ c;
+    int dd = ((a & (c >> 1)) ^ (d >> 1)) ^ d;
+
+    a = aa;
+    b = bb;
+    c = cc;
+    d = dd;
+    aa = (a & (a >> 2)) ^ (b & (b >> 2));
+    bb = (a & (b >> 2)) ^ (b & ((a ^ b) >> 2));
+    cc ^= (a & (c >> 2)) ^ (b & (d >> 2));
+    dd ^= (b & (c >> 2)) ^ ((a ^ b) & (d >> 2));
+
+    a = aa;
+    b = bb;
+    c = cc;
+    d = dd;
+    aa = (a & (a >> 4)) ^ (b & (b >> 4));
+    bb = (a & (b >> 4)) ^ (b & ((a ^ b) >> 4));
+    cc ^= (a & (c >> 4)) ^ (b & (d >> 4));
+    dd ^= (b & (c >> 4)) ^ ((a ^ b) & (d >> 4));
+
+    a = aa;
+    b = bb;
+    c = cc;
+    d = dd;
+    cc ^= (a & (c >> 8)) ^ (b & (d >> 8));
+    dd ^= (b & (c >> 8)) ^ ((a ^ b) & (d >> 8));
+
+    a = cc ^ (cc >> 1);
+    b = dd ^ (dd >> 1);
+
+    int i0 = x ^ y;
+    int i1 = b | (0xFFFF ^ (i0 | a));
+
+    i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+    i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+    i0 = (i0 | (i0 << 2)) & 0x33333333;
+    i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+    i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+    i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+    i1 = (i1 | (i1 << 2)) & 0x33333333;
+    i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+    return ((i1 << 1) | i0) >>> (2 * (16 - HILBERT_BITS));
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.model.feature;
+
+import static com.google.android.gnd.model.TestModelBuilders.newAuditInfo;
+import static com.google.android.gnd.model.TestModelBuilders.newLayer;
+import static com.google.android.gnd.model.TestModelBuilders.newPoint;
+import static com.google.android.gnd.model.TestModelBuilders.newPointFeature;
+import static com.google.android.gnd.model.TestModelBuilders.newPolygonFeature;
+import static com.google.android.gnd.model.TestModelBuilders.newProject;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.android.gnd.model.Project;
+import com.google.android.gnd.model.layer.Layer;
+import java.util.Date;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FeatureTest {
+
+  private static PointFeature.Builder newTestPointFeature() {
+    Layer layer = newLayer().setId("layer001").build();
+    return newPointFeature()
+        .setId("feature001")
+        .setProject(newProject().setId("project001").putLayer("layer001", layer).build())
+        .setLayer(layer)
+        .setCaption("caption")
+        .setLastModified(newAuditInfo().setClientTimestamp(new Date(100)).build());
+  }
+
+  @Test
+  public void testProjectsAndLayersAreInterned() {
+    Project project = newTestPointFeature().build().getProject();
+    Layer layer = newTestPointFeature().build().getLayer();
+
+    assertThat(newTestPointFeature().build().getProject()).isSameInstanceAs(project);
+    assertThat(newTestPointFeature().build().getLayer()).isSameInstanceAs(layer);
+  }
+
+  @Test
+  public void testEquals_sameContents() {
+    PointFeature feature = newTestPointFeature().build();
+    PointFeature other = newTestPointFeature().build();
+
+    assertThat(feature).isEqualTo(other);
+    assertThat(feature.hashCode()).isEqualTo(other.hashCode());
+  }
+
+  @Test
+  public void testEquals_differentId() {
+    assertThat(newTestPointFeature().build())
+        .isNotEqualTo(newTestPointFeature().setId("feature002").build());
+  }
+
+  @Test
+  public void testEquals_differentVersion() {
+    assertThat(newTestPointFeature().build())
+        .isNotEqualTo(
+            newTestPointFeature()
+                .setLastModified(newAuditInfo().setClientTimestamp(new Date(200)).build())
+                .build());
+  }
+
+  @Test
+  public void testEquals_differentContentsSameVersion() {
+    PointFeature feature = newTestPointFeature().build();
+
+    assertThat(feature).isNotEqualTo(feature.toBuilder().setCaption("other").build());
+    assertThat(feature)
+        .isNotEqualTo(feature.toBuilder().setPoint(newPoint().setLatitude(1).build()).build());
+    assertThat(feature)
+        .isNotEqualTo(
+            feature.toBuilder().setProject(newProject().setId("project002").build()).build());
+  }
+
+  @Test
+  public void testEquals_differentType() {
+    PointFeature point = newTestPointFeature().build();
+    PolygonFeature polygon =
+        newPolygonFeature()
+            .setId(point.getId())
+            .setProject(point.getProject())
+            .setLayer(point.getLayer())
+            .setCaption(point.getCaption())
+            .setLastModified(point.getLastModified())
+            .build();
+
+    assertThat(point).isNotEqualTo(polygon);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.model.observation;
+
+import static com.google.android.gnd.model.TestModelBuilders.newAuditInfo;
+import static com.google.android.gnd.model.TestModelBuilders.newForm;
+import static com.google.android.gnd.model.TestModelBuilders.newLayer;
+import static com.google.android.gnd.model.TestModelBuilders.newPointFeature;
+import static com.google.android.gnd.model.TestModelBuilders.newProject;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.android.gnd.model.Project;
+import com.google.android.gnd.model.feature.Feature;
+import com.google.android.gnd.model.form.Form;
+import com.google.android.gnd.model.layer.Layer;
+import java.util.Date;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ObservationTest {
+
+  private static Observation.Builder newTestObservation() {
+    Form form = newForm().setId("form001").build();
+    Layer layer = newLayer().setId("layer001").setForm(form).build();
+    Project project = newProject().setId("project001").putLayer("layer001", layer).build();
+    Feature feature =
+        newPointFeature().setId("feature001").setProject(project).setLayer(layer).build();
+    return Observation.newBuilder()
+        .setId("observation001")
+        .setProject(project)
+        .setFeature(feature)
+        .setForm(form)
+        .setCreated(newAuditInfo().build())
+        .setLastModified(newAuditInfo().setClientTimestamp(new Date(100)).build())
+        .setResponses(
+            ResponseMap.builder().putResponse("field1", new TextResponse("response")).build());
+  }
+
+  @Test
+  public void testEquals_sameContents() {
+    Observation observation = newTestObservation().build();
+    Observation other = newTestObservation().build();
+
+    assertThat(observation).isEqualTo(other);
+    assertThat(observation.hashCode()).isEqualTo(other.hashCode());
+  }
+
+  @Test
+  public void testEquals_differentVersion() {
+    assertThat(newTestObservation().build())
+        .isNotEqualTo(
+            newTestObservation()
+                .setLastModified(newAuditInfo().setClientTimestamp(new Date(200)).build())
+                .build());
+  }
+
+  @Test
+  public void testEquals_differentResponsesSameVersion() {
+    Observation observation = newTestObservation().build();
+
+    assertThat(observation)
+        .isNotEqualTo(
+            observation.toBuilder()
+                .setResponses(
+                    ResponseMap.builder().putResponse("field1", new TextResponse("other")).build())
+                .build());
+  }
+}
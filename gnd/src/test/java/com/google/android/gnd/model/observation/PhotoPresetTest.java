@@ -0,0 +1,58 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.model.observation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PhotoPresetTest {
+
+  @Test
+  public void testShouldReencode() {
+    assertThat(PhotoPreset.HIGH.shouldReencode(4000, 3000)).isTrue();
+    assertThat(PhotoPreset.HIGH.shouldReencode(3000, 4000)).isTrue();
+    assertThat(PhotoPreset.HIGH.shouldReencode(2560, 1920)).isFalse();
+    assertThat(PhotoPreset.LOW.shouldReencode(2560, 1920)).isTrue();
+  }
+
+  @Test
+  public void testShouldReencode_original() {
+    assertThat(PhotoPreset.ORIGINAL.shouldReencode(8000, 6000)).isFalse();
+  }
+
+  @Test
+  public void testGetSampleSize() {
+    // 4000 / 2 = 2000 >= 1920, while 4000 / 4 = 1000 would be too small.
+    assertThat(PhotoPreset.MEDIUM.getSampleSize(4000, 3000)).isEqualTo(2);
+    assertThat(PhotoPreset.LOW.getSampleSize(3000, 6000)).isEqualTo(4);
+    assertThat(PhotoPreset.HIGH.getSampleSize(4000, 3000)).isEqualTo(1);
+    assertThat(PhotoPreset.HIGH.getSampleSize(1000, 800)).isEqualTo(1);
+    assertThat(PhotoPreset.ORIGINAL.getSampleSize(8000, 6000)).isEqualTo(1);
+  }
+
+  @Test
+  public void testGetScale() {
+    assertThat(PhotoPreset.LOW.getScale(2560, 1920)).isEqualTo(0.5f);
+    assertThat(PhotoPreset.LOW.getScale(1920, 2560)).isEqualTo(0.5f);
+    assertThat(PhotoPreset.LOW.getScale(1280, 960)).isEqualTo(1f);
+    assertThat(PhotoPreset.ORIGINAL.getScale(8000, 6000)).isEqualTo(1f);
+  }
+}
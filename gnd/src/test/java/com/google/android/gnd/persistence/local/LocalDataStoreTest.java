@@ -310,6 +310,30 @@ public class LocalDataStoreTest {
         .assertValue(result -> result.getLayers().equals(ImmutableList.of(layer2)));
   }
 
+  @Test
+  public void testReplaceAndGetProjectSummaries() {
+    Project summary = Project.newBuilder().setId("project id").setTitle("project 1").build();
+    long cachedAfter = System.currentTimeMillis();
+
+    localDataStore.isProjectSummaryCacheFresh(TEST_USER, 0).test().assertValue(false);
+
+    localDataStore
+        .replaceProjectSummaries(TEST_USER, ImmutableList.of(summary))
+        .test()
+        .assertComplete();
+
+    localDataStore.getProjectSummaries(TEST_USER).test().assertValue(ImmutableList.of(summary));
+    localDataStore.isProjectSummaryCacheFresh(TEST_USER, cachedAfter).test().assertValue(true);
+    localDataStore
+        .isProjectSummaryCacheFresh(TEST_USER, Long.MAX_VALUE)
+        .test()
+        .assertValue(false);
+
+    localDataStore.replaceProjectSummaries(TEST_USER, ImmutableList.of()).blockingAwait();
+
+    localDataStore.getProjectSummaries(TEST_USER).test().assertValue(ImmutableList.of());
+  }
+
   @Test
   public void testInsertAndGetUser() {
     localDataStore.insertOrUpdateUser(TEST_USER).test().assertComplete();
@@ -497,9 +521,9 @@ public class LocalDataStoreTest {
     observation = localDataStore.getObservation(feature, "observation id").blockingGet();
     assertEquivalent(mutation, observation);
 
-    // also test that getObservations returns the same observation as well
+    // also test that getObservationsOnceAndStream returns the same observation as well
     ImmutableList<Observation> observations =
-        localDataStore.getObservations(feature, "form id").blockingGet();
+        localDataStore.getObservationsOnceAndStream(feature, "form id").blockingFirst();
     assertThat(observations).hasSize(1);
     assertEquivalent(mutation, observations.get(0));
   }
@@ -535,6 +559,25 @@ public class LocalDataStoreTest {
     assertThat("updated response").isEqualTo(responses.getResponse("field id").get().toString());
   }
 
+  @Test
+  public void testGetObservationsOnceAndStream() {
+    localDataStore.insertOrUpdateUser(TEST_USER).blockingAwait();
+    localDataStore.insertOrUpdateProject(TEST_PROJECT).blockingAwait();
+    localDataStore.applyAndEnqueue(TEST_FEATURE_MUTATION).blockingAwait();
+    PointFeature feature =
+        (PointFeature) localDataStore.getFeature(TEST_PROJECT, "feature id").blockingGet();
+
+    TestSubscriber<ImmutableList<Observation>> subscriber =
+        localDataStore.getObservationsOnceAndStream(feature, "form id").test();
+
+    subscriber.assertValue(ImmutableList.of());
+
+    localDataStore.applyAndEnqueue(TEST_OBSERVATION_MUTATION).blockingAwait();
+
+    subscriber.assertValueCount(2);
+    assertEquivalent(TEST_OBSERVATION_MUTATION, subscriber.values().get(1).get(0));
+  }
+
   @Test
   public void testDeleteObservation() {
     // Add test observation
@@ -555,10 +598,13 @@ public class LocalDataStoreTest {
         .test()
         .assertValue(observationEntity -> observationEntity.getState() == EntityState.DELETED);
 
-    // Verify that the local observation doesn't end up in getObservations().
+    // Verify that the local observation doesn't end up in getObservationsOnceAndStream().
     PointFeature feature =
         (PointFeature) localDataStore.getFeature(TEST_PROJECT, "feature id").blockingGet();
-    localDataStore.getObservations(feature, "form id").test().assertValue(ImmutableList.of());
+    localDataStore
+        .getObservationsOnceAndStream(feature, "form id")
+        .test()
+        .assertValue(ImmutableList.of());
 
     // After successful remote sync, delete observation is called by LocalMutationSyncWorker.
     localDataStore.deleteObservation("observation id").blockingAwait();
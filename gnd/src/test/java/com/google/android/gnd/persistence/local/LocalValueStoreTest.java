@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.local;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.test.core.app.ApplicationProvider;
+import com.google.android.gnd.model.observation.PhotoPreset;
+import com.google.android.gnd.ui.settings.Keys;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@Config(application = Application.class)
+@RunWith(RobolectricTestRunner.class)
+public class LocalValueStoreTest {
+
+  private SharedPreferences preferences;
+  private LocalValueStore localValueStore;
+
+  @Before
+  public void setUp() {
+    preferences =
+        ApplicationProvider.getApplicationContext()
+            .getSharedPreferences("test", Context.MODE_PRIVATE);
+    localValueStore = new LocalValueStore(preferences);
+  }
+
+  @Test
+  public void testGetPhotoPreset() {
+    for (PhotoPreset preset : PhotoPreset.values()) {
+      preferences.edit().putString(Keys.PHOTO_PRESET, preset.name()).commit();
+
+      assertThat(localValueStore.getPhotoPreset()).isEqualTo(preset);
+    }
+  }
+
+  @Test
+  public void testGetPhotoPreset_default() {
+    assertThat(localValueStore.getPhotoPreset()).isEqualTo(PhotoPreset.HIGH);
+  }
+
+  @Test
+  public void testGetPhotoPreset_invalid() {
+    preferences.edit().putString(Keys.PHOTO_PRESET, "HUGE").commit();
+
+    assertThat(localValueStore.getPhotoPreset()).isEqualTo(PhotoPreset.HIGH);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.mbtiles;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import android.app.Application;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@Config(application = Application.class)
+@RunWith(RobolectricTestRunner.class)
+public class MbtilesFootprintParserTest {
+
+  private static final String FOOTPRINT_JSON =
+      "{\"type\": \"FeatureCollection\", \"features\": ["
+          + "  {\"type\": \"Feature\", \"id\": \"(1, 2, 3)\","
+          + "   \"properties\": {\"url\": \"https://example.com/3-1-2.mbtiles\"},"
+          + "   \"geometry\": {\"type\": \"Polygon\", \"coordinates\": "
+          + "     [[[10.0, 20.0], [11.0, 20.0], [11.0, 21.0], [10.0, 21.0], [10.0, 20.0]]]}},"
+          // Geometry before properties, extra members and a numeric id.
+          + "  {\"geometry\": {\"type\": \"Polygon\", \"coordinates\": "
+          + "     [[[12.0, 22.0, 0.0], [13.0, 22.0, 0.0], [13.0, 23.0, 0.0], [12.0, 22.0, 0.0]]]},"
+          + "   \"extra\": {\"nested\": [1, 2, 3]}, \"id\": 42,"
+          + "   \"properties\": {\"name\": \"b\", \"url\": \"https://example.com/b.mbtiles\"}},"
+          // Missing url; skipped.
+          + "  {\"id\": \"(4, 5, 6)\", \"properties\": {},"
+          + "   \"geometry\": {\"type\": \"Polygon\", \"coordinates\": [[[0, 0], [1, 1]]]}}"
+          + "]}";
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final MbtilesFootprintParser parser = new MbtilesFootprintParser(() -> "uuid");
+
+  private static InputStream toStream(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static LatLngBounds bounds(double south, double west, double north, double east) {
+    return new LatLngBounds(new LatLng(south, west), new LatLng(north, east));
+  }
+
+  @Test
+  public void testParseIndex() throws IOException {
+    TileSetIndex index = parser.parseIndex(toStream(FOOTPRINT_JSON));
+
+    assertThat(index.size()).isEqualTo(2);
+    assertThat(index.getId(0)).isEqualTo("(1, 2, 3)");
+    assertThat(index.getUrl(0)).isEqualTo("https://example.com/3-1-2.mbtiles");
+    assertThat(index.getId(1)).isEqualTo("42");
+    assertThat(index.getUrl(1)).isEqualTo("https://example.com/b.mbtiles");
+  }
+
+  @Test
+  public void testParseIndex_malformed() {
+    assertThrows(IOException.class, () -> parser.parseIndex(toStream("{\"features\": [{]}")));
+  }
+
+  @Test
+  public void testFindIntersecting() throws IOException {
+    TileSetIndex index = parser.parseIndex(toStream(FOOTPRINT_JSON));
+
+    assertThat(index.findIntersecting(bounds(20.5, 10.5, 22.5, 12.5)))
+        .asList()
+        .containsExactly(0, 1);
+    assertThat(index.findIntersecting(bounds(22.5, 12.5, 30, 30))).asList().containsExactly(1);
+    assertThat(index.findIntersecting(bounds(-10, -10, 0, 0))).isEmpty();
+  }
+
+  @Test
+  public void testWriteAndReadIndex() throws IOException {
+    TileSetIndex index = parser.parseIndex(toStream(FOOTPRINT_JSON));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    index.writeTo(out);
+    TileSetIndex copy = TileSetIndex.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+    assertThat(copy.size()).isEqualTo(index.size());
+    assertThat(copy.getId(1)).isEqualTo(index.getId(1));
+    assertThat(copy.getUrl(1)).isEqualTo(index.getUrl(1));
+    assertThat(copy.findIntersecting(bounds(22.5, 12.5, 30, 30))).asList().containsExactly(1);
+  }
+
+  @Test
+  public void testGetIndex_persistsIndex() throws IOException {
+    File footprint = tempFolder.newFile("footprint.geojson");
+    Files.write(footprint.toPath(), FOOTPRINT_JSON.getBytes(StandardCharsets.UTF_8));
+
+    TileSetIndex index = parser.getIndex(footprint);
+
+    assertThat(parser.intersectingTiles(bounds(20.5, 10.5, 20.6, 10.6), index)).hasSize(1);
+    assertThat(MbtilesFootprintParser.getIndexFile(footprint).exists()).isTrue();
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.mbtiles;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.Application;
+import android.database.sqlite.SQLiteDatabase;
+import com.google.android.gnd.persistence.mbtiles.MergedTileStore.MergedTile;
+import com.google.common.collect.ImmutableSet;
+import java.io.File;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@Config(application = Application.class)
+@RunWith(RobolectricTestRunner.class)
+public class MergedTileStoreTest {
+
+  private static final int ZOOM = 1;
+
+  private static final byte[] TILE_A = {1, 2, 3};
+  private static final byte[] TILE_B = {4, 5};
+  private static final byte[] TILE_SHARED = {6, 7, 8, 9};
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private MergedTileStore store;
+  private File sourceA;
+  private File sourceB;
+
+  /** Creates an MBTiles file with the specified tiles, keyed by column and top-numbered row. */
+  private File newSource(String name, int[][] keys, byte[]... tiles) {
+    File file = new File(tempFolder.getRoot(), name);
+    SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+    db.execSQL(
+        "CREATE TABLE tiles (zoom_level INTEGER, tile_column INTEGER, tile_row INTEGER, "
+            + "tile_data BLOB)");
+    for (int i = 0; i < keys.length; i++) {
+      int row = (1 << ZOOM) - 1 - keys[i][1];
+      db.execSQL(
+          "INSERT INTO tiles VALUES (?, ?, ?, ?)", new Object[] {ZOOM, keys[i][0], row, tiles[i]});
+    }
+    db.close();
+    return file;
+  }
+
+  @Before
+  public void setUp() {
+    store = new MergedTileStore(new File(tempFolder.getRoot(), "merged_tiles.db"));
+    sourceA = newSource("a.mbtiles", new int[][] {{0, 0}, {1, 1}}, TILE_A, TILE_SHARED);
+    sourceB = newSource("b.mbtiles", new int[][] {{1, 0}, {1, 1}}, TILE_B, TILE_SHARED);
+  }
+
+  @Test
+  public void testMerge() {
+    long byteCount = store.merge(sourceA, "a");
+
+    assertThat(byteCount).isEqualTo(TILE_A.length + TILE_SHARED.length);
+    assertThat(store.getMergedPaths()).containsExactly("a");
+    MergedTile tile = store.getTile(0, 0, ZOOM);
+    assertThat(tile.getData()).isEqualTo(TILE_A);
+    assertThat(tile.getSourcePaths()).containsExactly("a");
+    assertThat(store.getTile(1, 0, ZOOM)).isNull();
+  }
+
+  @Test
+  public void testMerge_sharedTile() {
+    store.merge(sourceA, "a");
+    long byteCount = store.merge(sourceB, "b");
+
+    // The shared tile is only stored and counted once.
+    assertThat(byteCount).isEqualTo(TILE_B.length);
+    assertThat(store.getMergedPaths()).containsExactly("a", "b");
+    MergedTile tile = store.getTile(1, 1, ZOOM);
+    assertThat(tile.getData()).isEqualTo(TILE_SHARED);
+    assertThat(tile.getSourcePaths()).containsExactly("a", "b");
+  }
+
+  @Test
+  public void testRemove_keepsTilesOfRemainingSources() {
+    store.merge(sourceA, "a");
+    store.merge(sourceB, "b");
+
+    store.remove(ImmutableSet.of("a"));
+
+    assertThat(store.getMergedPaths()).containsExactly("b");
+    assertThat(store.getTile(0, 0, ZOOM)).isNull();
+    assertThat(store.getTile(1, 0, ZOOM).getData()).isEqualTo(TILE_B);
+    MergedTile shared = store.getTile(1, 1, ZOOM);
+    assertThat(shared.getData()).isEqualTo(TILE_SHARED);
+    assertThat(shared.getSourcePaths()).containsExactly("b");
+  }
+
+  @Test
+  public void testRemove_allSources() {
+    store.merge(sourceA, "a");
+    store.merge(sourceB, "b");
+
+    store.remove(ImmutableSet.of("a", "b"));
+
+    assertThat(store.getMergedPaths()).isEmpty();
+    assertThat(store.getTile(0, 0, ZOOM)).isNull();
+    assertThat(store.getTile(1, 0, ZOOM)).isNull();
+    assertThat(store.getTile(1, 1, ZOOM)).isNull();
+  }
+
+  @Test
+  public void testRemove_thenMergeAgain() {
+    store.merge(sourceA, "a");
+    store.remove(ImmutableSet.of("a"));
+
+    long byteCount = store.merge(sourceA, "a");
+
+    assertThat(byteCount).isEqualTo(TILE_A.length + TILE_SHARED.length);
+    assertThat(store.getTile(0, 0, ZOOM).getSourcePaths()).containsExactly("a");
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.mbtiles;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TileSetIndexTest {
+
+  private static final int RANDOM_FOOTPRINTS = 5_000;
+  private static final int RANDOM_QUERIES = 200;
+
+  private static final int BENCHMARK_FOOTPRINTS = 100_000;
+  private static final int BENCHMARK_QUERIES = 1_000;
+
+  /** Right triangle with vertices at (0, 0), (0, 10) and (10, 0), as lat, lng pairs. */
+  private static final double[] TRIANGLE = {0, 0, 0, 10, 10, 0, 0, 0};
+
+  @Test
+  public void testFindIntersecting_viewportInsideFootprint() {
+    TileSetIndex index = TileSetIndex.newBuilder().add("big", "url", -10, -10, 10, 10).build();
+
+    assertThat(index.findIntersecting(1, 1, 1.1, 1.1)).asList().containsExactly(0);
+  }
+
+  @Test
+  public void testFindIntersecting_footprintInsideViewport() {
+    TileSetIndex index = TileSetIndex.newBuilder().add("small", "url", 1, 1, 2, 2).build();
+
+    assertThat(index.findIntersecting(0, 0, 10, 10)).asList().containsExactly(0);
+  }
+
+  @Test
+  public void testFindIntersecting_noOverlap() {
+    TileSetIndex index = TileSetIndex.newBuilder().add("tile", "url", 0, 0, 1, 1).build();
+
+    assertThat(index.findIntersecting(2, 2, 3, 3)).isEmpty();
+    assertThat(index.findIntersecting(0, 2, 1, 3)).isEmpty();
+  }
+
+  @Test
+  public void testFindIntersecting_polygon() {
+    TileSetIndex index = TileSetIndex.newBuilder().addPolygon("triangle", "url", TRIANGLE).build();
+
+    // Within the bounding box but outside the triangle.
+    assertThat(index.findIntersecting(8, 8, 9, 9)).isEmpty();
+    // Viewport entirely inside the triangle.
+    assertThat(index.findIntersecting(1, 1, 2, 2)).asList().containsExactly(0);
+    // Edges cross the viewport but no vertices lie within it.
+    assertThat(index.findIntersecting(4, -1, 6, 11)).asList().containsExactly(0);
+  }
+
+  @Test
+  public void testFindIntersecting_acrossAntimeridian() {
+    TileSetIndex index =
+        TileSetIndex.newBuilder()
+            .add("east", "url", 0, 175, 5, 180)
+            .add("west", "url", 0, -180, 5, -175)
+            .add("prime", "url", 0, 0, 5, 5)
+            .build();
+
+    assertThat(index.findIntersecting(1, 170, 2, -170)).asList().containsExactly(0, 1).inOrder();
+  }
+
+  @Test
+  public void testFindIntersecting_empty() {
+    assertThat(TileSetIndex.newBuilder().build().findIntersecting(0, 0, 1, 1)).isEmpty();
+  }
+
+  /** Compares results against a brute-force scan over enough footprints to span many nodes. */
+  @Test
+  public void testFindIntersecting_matchesScan() {
+    Random random = new Random(0);
+    double[] boxes = randomBoxes(random, RANDOM_FOOTPRINTS, 20, 20);
+    TileSetIndex index = toIndex(boxes);
+
+    for (int q = 0; q < RANDOM_QUERIES; q++) {
+      double south = random.nextDouble() * 22 - 11;
+      double west = random.nextDouble() * 22 - 11;
+      double size = random.nextDouble() * 3;
+
+      assertThat(index.findIntersecting(south, west, south + size, west + size))
+          .isEqualTo(scan(boxes, south, west, south + size, west + size));
+    }
+  }
+
+  /**
+   * Compares query times against a brute-force scan over 100k footprints spread across the globe.
+   * Too slow for the regular suite, so run manually when changing the index.
+   */
+  @Ignore("Benchmark")
+  @Test
+  public void testFindIntersecting_benchmark() {
+    Random random = new Random(0);
+    double[] boxes = randomBoxes(random, BENCHMARK_FOOTPRINTS, 160, 340);
+    long buildStart = System.nanoTime();
+    TileSetIndex index = toIndex(boxes);
+    long buildNanos = System.nanoTime() - buildStart;
+
+    long indexNanos = 0;
+    long scanNanos = 0;
+    for (int q = 0; q < BENCHMARK_QUERIES; q++) {
+      double south = random.nextDouble() * 160 - 80;
+      double west = random.nextDouble() * 340 - 170;
+      double size = random.nextDouble() * 5;
+
+      long start = System.nanoTime();
+      int[] actual = index.findIntersecting(south, west, south + size, west + size);
+      indexNanos += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      int[] expected = scan(boxes, south, west, south + size, west + size);
+      scanNanos += System.nanoTime() - start;
+
+      assertThat(actual).isEqualTo(expected);
+    }
+    System.out.printf(
+        "%d footprints: build %.1f ms, query %.1f us (index) vs %.1f us (scan)%n",
+        BENCHMARK_FOOTPRINTS,
+        buildNanos / 1e6,
+        indexNanos / 1e3 / BENCHMARK_QUERIES,
+        scanNanos / 1e3 / BENCHMARK_QUERIES);
+  }
+
+  /**
+   * Returns {@code count} random boxes of up to half a degree, as south, west, north, east
+   * quadruples, with south west corners spread over the specified range centered on the origin.
+   */
+  private static double[] randomBoxes(
+      Random random, int count, double latitudeRange, double longitudeRange) {
+    double[] boxes = new double[count * 4];
+    for (int i = 0; i < count; i++) {
+      double south = random.nextDouble() * latitudeRange - latitudeRange / 2;
+      double west = random.nextDouble() * longitudeRange - longitudeRange / 2;
+      boxes[i * 4] = south;
+      boxes[i * 4 + 1] = west;
+      boxes[i * 4 + 2] = south + random.nextDouble() * 0.5;
+      boxes[i * 4 + 3] = west + random.nextDouble() * 0.5;
+    }
+    return boxes;
+  }
+
+  private static TileSetIndex toIndex(double[] boxes) {
+    TileSetIndex.Builder builder = TileSetIndex.newBuilder();
+    for (int i = 0; i < boxes.length / 4; i++) {
+      builder.add(
+          "id" + i, "url" + i, boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3]);
+    }
+    return builder.build();
+  }
+
+  private static int[] scan(double[] boxes, double south, double west, double north, double east) {
+    int[] results = new int[boxes.length / 4];
+    int count = 0;
+    for (int i = 0; i < boxes.length / 4; i++) {
+      if (boxes[i * 4] <= north
+          && boxes[i * 4 + 1] <= east
+          && boxes[i * 4 + 2] >= south
+          && boxes[i * 4 + 3] >= west) {
+        results[count++] = i;
+      }
+    }
+    return Arrays.copyOf(results, count);
+  }
+}
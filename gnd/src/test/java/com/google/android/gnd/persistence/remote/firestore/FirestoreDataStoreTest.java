@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.remote.firestore;
+
+import static org.mockito.Mockito.when;
+
+import com.google.android.gnd.model.Project;
+import com.google.android.gnd.model.User;
+import com.google.android.gnd.persistence.remote.firestore.schema.GroundFirestore;
+import com.google.android.gnd.persistence.remote.firestore.schema.ProjectSummariesCollectionReference;
+import com.google.android.gnd.persistence.remote.firestore.schema.ProjectsCollectionReference;
+import com.google.android.gnd.rx.Schedulers;
+import com.google.common.collect.ImmutableList;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+@RunWith(JUnit4.class)
+public class FirestoreDataStoreTest {
+
+  private static final Schedulers SCHEDULERS =
+      new Schedulers() {
+        @Override
+        public Scheduler io() {
+          return io.reactivex.schedulers.Schedulers.trampoline();
+        }
+
+        @Override
+        public Scheduler ui() {
+          return io.reactivex.schedulers.Schedulers.trampoline();
+        }
+      };
+
+  private static final User TEST_USER =
+      User.builder().setId("user id").setEmail("user@gmail.com").setDisplayName("user 1").build();
+
+  private static final Project TEST_SUMMARY =
+      Project.newBuilder().setId("summary").setTitle("Summary").setDescription("").build();
+
+  private static final Project TEST_PROJECT =
+      Project.newBuilder().setId("project").setTitle("Project").setDescription("").build();
+
+  @Rule public MockitoRule rule = MockitoJUnit.rule();
+
+  @Mock GroundFirestore mockDb;
+  @Mock ProjectSummariesCollectionReference mockProjectSummaries;
+  @Mock ProjectsCollectionReference mockProjects;
+
+  private FirestoreDataStore dataStore;
+
+  @Before
+  public void setUp() {
+    dataStore = new FirestoreDataStore();
+    dataStore.db = mockDb;
+    dataStore.schedulers = SCHEDULERS;
+    when(mockDb.projectSummaries()).thenReturn(mockProjectSummaries);
+    when(mockDb.projects()).thenReturn(mockProjects);
+    when(mockProjects.getReadable(TEST_USER))
+        .thenReturn(Single.<List<Project>>just(ImmutableList.of(TEST_PROJECT)));
+  }
+
+  @Test
+  public void testLoadProjectSummaries() {
+    when(mockProjectSummaries.getReadable(TEST_USER))
+        .thenReturn(Single.<List<Project>>just(ImmutableList.of(TEST_SUMMARY)));
+
+    dataStore.loadProjectSummaries(TEST_USER).test().assertValue(ImmutableList.of(TEST_SUMMARY));
+  }
+
+  @Test
+  public void testLoadProjectSummaries_emptySummariesFallsBackToProjects() {
+    when(mockProjectSummaries.getReadable(TEST_USER))
+        .thenReturn(Single.<List<Project>>just(ImmutableList.of()));
+
+    dataStore.loadProjectSummaries(TEST_USER).test().assertValue(ImmutableList.of(TEST_PROJECT));
+  }
+
+  @Test
+  public void testLoadProjectSummaries_summariesErrorFallsBackToProjects() {
+    when(mockProjectSummaries.getReadable(TEST_USER))
+        .thenReturn(Single.error(new IllegalStateException("Permission denied")));
+
+    dataStore.loadProjectSummaries(TEST_USER).test().assertValue(ImmutableList.of(TEST_PROJECT));
+  }
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.android.gnd.model.basemap.tile.TileSourceSegment;
+import com.google.android.gnd.persistence.sync.TileSourceDownloader.DownloadResult;
+import com.google.android.gnd.persistence.sync.TileSourceDownloader.ProgressListener;
+import com.google.android.gnd.persistence.sync.TileSourceDownloader.SegmentStore;
+import com.google.android.gnd.persistence.sync.TileSourceDownloader.UnexpectedResponseException;
+import com.google.android.gnd.rx.Schedulers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import io.reactivex.Scheduler;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Exercises {@link TileSourceDownloader} against a local HTTP stand-in with injected failures. */
+@RunWith(JUnit4.class)
+public class TileSourceDownloaderTest {
+
+  private static final int FILE_SIZE = 300 * 1024;
+  private static final int SEGMENT_SIZE = FILE_SIZE / 4;
+  private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+  private static final ProgressListener NO_OP_LISTENER =
+      new ProgressListener() {
+        @Override
+        public void onStart(long existingBytes, long totalBytes) {}
+
+        @Override
+        public void onBytesWritten(long byteCount) {}
+      };
+
+  private static final Schedulers SCHEDULERS =
+      new Schedulers() {
+        @Override
+        public Scheduler io() {
+          return io.reactivex.schedulers.Schedulers.io();
+        }
+
+        @Override
+        public Scheduler ui() {
+          throw new UnsupportedOperationException();
+        }
+      };
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final byte[] content = new byte[FILE_SIZE];
+  private final List<String> rangeHeaders = new CopyOnWriteArrayList<>();
+  private final Map<Long, TileSourceSegment> savedSegments = new ConcurrentSkipListMap<>();
+  private final SegmentStore segmentStore =
+      new SegmentStore() {
+        @Override
+        public ImmutableList<TileSourceSegment> load() {
+          return ImmutableList.copyOf(savedSegments.values());
+        }
+
+        @Override
+        public void save(ImmutableList<TileSourceSegment> segments) {
+          for (TileSourceSegment segment : segments) {
+            savedSegments.put(segment.getStart(), segment);
+          }
+        }
+
+        @Override
+        public void clear() {
+          savedSegments.clear();
+        }
+      };
+  // Files of any size are split into segments when the server advertises range support.
+  private final TileSourceDownloader downloader = new TileSourceDownloader(SCHEDULERS, 0);
+
+  private ServerSocket serverSocket;
+  private URL url;
+  private File file;
+
+  /** Number of upcoming responses which are cut off halfway through the body. */
+  private volatile int failuresRemaining;
+
+  /** Whether the server honors Range request headers. */
+  private volatile boolean supportsRanges = true;
+
+  /** Whether full responses include an Accept-Ranges header. */
+  private volatile boolean advertisesRanges;
+
+  /** Value of the Digest header included in responses, if any. */
+  private volatile String digest;
+
+  /** Status code returned instead of the file, or 0 to serve the file. */
+  private volatile int errorCode;
+
+  @Before
+  public void setUp() throws IOException {
+    new Random(0).nextBytes(content);
+    serverSocket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress());
+    Thread serverThread = new Thread(this::serve);
+    serverThread.setDaemon(true);
+    serverThread.start();
+    url = new URL("http://127.0.0.1:" + serverSocket.getLocalPort() + "/tile.mbtiles");
+    file = new File(tempFolder.getRoot(), "tile.mbtiles");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    serverSocket.close();
+  }
+
+  /**
+   * Minimal HTTP/1.1 server supporting Range requests. A raw socket is used rather than a full
+   * server implementation so that failures can be injected by closing the connection mid-body.
+   */
+  private void serve() {
+    while (!serverSocket.isClosed()) {
+      try (Socket socket = serverSocket.accept()) {
+        handle(socket);
+      } catch (IOException e) {
+        // Server socket closed or client went away.
+      }
+    }
+  }
+
+  private void handle(Socket socket) throws IOException {
+    BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+    String range = null;
+    String line;
+    while ((line = reader.readLine()) != null && !line.isEmpty()) {
+      if (line.toLowerCase().startsWith("range:")) {
+        range = line.substring("range:".length()).trim();
+      }
+    }
+    rangeHeaders.add(String.valueOf(range));
+    OutputStream out = socket.getOutputStream();
+    if (errorCode != 0) {
+      writeHeaders(out, errorCode + " Error", 0);
+      return;
+    }
+    int start = 0;
+    int end = content.length;
+    String extraHeaders = digest == null ? "" : "\r\nDigest: " + digest;
+    Matcher matcher = range == null ? null : RANGE_PATTERN.matcher(range);
+    if (supportsRanges && matcher != null && matcher.matches()) {
+      start = Integer.parseInt(matcher.group(1));
+      if (start >= content.length) {
+        writeHeaders(
+            out, "416 Range Not Satisfiable\r\nContent-Range: bytes */" + content.length, 0);
+        return;
+      }
+      if (!matcher.group(2).isEmpty()) {
+        end = Math.min(Integer.parseInt(matcher.group(2)) + 1, content.length);
+      }
+      writeHeaders(
+          out,
+          "206 Partial Content\r\nContent-Range: bytes "
+              + start
+              + "-"
+              + (end - 1)
+              + "/"
+              + content.length
+              + extraHeaders,
+          end - start);
+    } else {
+      if (advertisesRanges) {
+        extraHeaders += "\r\nAccept-Ranges: bytes";
+      }
+      writeHeaders(out, "200 OK" + extraHeaders, content.length);
+    }
+    if (failuresRemaining > 0) {
+      failuresRemaining--;
+      end = start + (end - start) / 2;
+    }
+    out.write(content, start, end - start);
+    out.flush();
+  }
+
+  private static void writeHeaders(OutputStream out, String status, int contentLength)
+      throws IOException {
+    String headers =
+        "HTTP/1.1 "
+            + status
+            + "\r\nContent-Length: "
+            + contentLength
+            + "\r\nConnection: close\r\n\r\n";
+    out.write(headers.getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  private DownloadResult expectedResult() {
+    return DownloadResult.create(FILE_SIZE, Hashing.sha256().hashBytes(content).toString());
+  }
+
+  private DownloadResult download() throws IOException {
+    return downloader.download(url, file, segmentStore, NO_OP_LISTENER);
+  }
+
+  private void downloadIgnoringErrors() {
+    try {
+      download();
+    } catch (IOException e) {
+      // Expected.
+    }
+  }
+
+  @Test
+  public void testDownload() throws IOException {
+    assertThat(download()).isEqualTo(expectedResult());
+
+    assertThat(Files.readAllBytes(file.toPath())).isEqualTo(content);
+    assertThat(rangeHeaders).containsExactly("null");
+  }
+
+  @Test
+  public void testDownload_resumesWithRangeAfterFailures() throws IOException {
+    failuresRemaining = 3;
+
+    downloadIgnoringErrors();
+    long firstAttemptLength = file.length();
+    downloadIgnoringErrors();
+    downloadIgnoringErrors();
+    long partialLength = file.length();
+
+    assertThat(download()).isEqualTo(expectedResult());
+    assertThat(Files.readAllBytes(file.toPath())).isEqualTo(content);
+    assertThat(firstAttemptLength).isEqualTo(FILE_SIZE / 2);
+    assertThat(rangeHeaders.get(0)).isEqualTo("null");
+    assertThat(rangeHeaders.get(1)).isEqualTo("bytes=" + firstAttemptLength + "-");
+    assertThat(rangeHeaders.get(3)).isEqualTo("bytes=" + partialLength + "-");
+  }
+
+  @Test
+  public void testDownload_truncatedResponseThrows() {
+    failuresRemaining = 1;
+
+    assertThrows(IOException.class, this::download);
+  }
+
+  @Test
+  public void testDownload_restartsWhenRangeIgnored() throws IOException {
+    failuresRemaining = 1;
+    supportsRanges = false;
+
+    downloadIgnoringErrors();
+
+    assertThat(download()).isEqualTo(expectedResult());
+    assertThat(Files.readAllBytes(file.toPath())).isEqualTo(content);
+  }
+
+  @Test
+  public void testDownload_alreadyComplete() throws IOException {
+    Files.write(file.toPath(), content);
+
+    assertThat(download()).isEqualTo(expectedResult());
+    assertThat(Files.readAllBytes(file.toPath())).isEqualTo(content);
+  }
+
+  @Test
+  public void testDownload_reportsProgress() throws IOException {
+    failuresRemaining = 1;
+    downloadIgnoringErrors();
+    long existing = file.length();
+    long[] reported = new long[3];
+
+    downloader.download(
+        url,
+        file,
+        segmentStore,
+        new ProgressListener() {
+          @Override
+          public void onStart(long existingBytes, long totalBytes) {
+            reported[0] = existingBytes;
+            reported[1] = totalBytes;
+          }
+
+          @Override
+          public void onBytesWritten(long byteCount) {
+            reported[2] += byteCount;
+          }
+        });
+
+    assertThat(reported)
+        .asList()
+        .containsExactly(existing, (long) FILE_SIZE, FILE_SIZE - existing)
+        .inOrder();
+  }
+
+  @Test
+  public void testDownload_notFound() {
+    errorCode = 404;
+
+    UnexpectedResponseException e = assertThrows(UnexpectedResponseException.class, this::download);
+    assertThat(e.getResponseCode()).isEqualTo(404);
+    assertThat(e.isPermanent()).isTrue();
+  }
+
+  @Test
+  public void testDownload_segmented() throws IOException {
+    advertisesRanges = true;
+
+    assertThat(download()).isEqualTo(expectedResult());
+
+    assertThat(Files.readAllBytes(file.toPath())).isEqualTo(content);
+    assertThat(rangeHeaders)
+        .containsExactly(
+            "null",
+            rangeHeader(SEGMENT_SIZE, 2 * SEGMENT_SIZE),
+            rangeHeader(2 * SEGMENT_SIZE, 3 * SEGMENT_SIZE),
+            rangeHeader(3 * SEGMENT_SIZE, FILE_SIZE));
+    assertThat(savedSegments).isEmpty();
+  }
+
+  @Test
+  public void testDownload_segmented_resumesEachPartialSegment() throws IOException {
+    advertisesRanges = true;
+    failuresRemaining = 4;
+
+    downloadIgnoringErrors();
+    assertThat(savedSegments).hasSize(4);
+    rangeHeaders.clear();
+
+    assertThat(download()).isEqualTo(expectedResult());
+    assertThat(Files.readAllBytes(file.toPath())).isEqualTo(content);
+    // The first segment is served from the start of the unranged response, which is cut off after
+    // more than a segment's worth of bytes, so only the other three are resumed.
+    int half = SEGMENT_SIZE / 2;
+    assertThat(rangeHeaders)
+        .containsExactly(
+            rangeHeader(SEGMENT_SIZE + half, 2 * SEGMENT_SIZE),
+            rangeHeader(2 * SEGMENT_SIZE + half, 3 * SEGMENT_SIZE),
+            rangeHeader(3 * SEGMENT_SIZE + half, FILE_SIZE));
+    assertThat(savedSegments).isEmpty();
+  }
+
+  @Test
+  public void testDownload_segmented_checksumMismatch() {
+    advertisesRanges = true;
+    digest = sha256Digest(new byte[] {0});
+
+    assertThrows(IOException.class, this::download);
+    assertThat(file.exists()).isFalse();
+    assertThat(savedSegments).isEmpty();
+  }
+
+  @Test
+  public void testDownload_matchingChecksum() throws IOException {
+    digest = sha256Digest(content);
+
+    assertThat(download()).isEqualTo(expectedResult());
+  }
+
+  private static String sha256Digest(byte[] bytes) {
+    return "sha-256=" + BaseEncoding.base64().encode(Hashing.sha256().hashBytes(bytes).asBytes());
+  }
+
+  private static String rangeHeader(int start, int end) {
+    return "bytes=" + start + "-" + (end - 1);
+  }
+}
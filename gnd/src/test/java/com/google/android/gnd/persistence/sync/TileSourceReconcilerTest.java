@@ -0,0 +1,215 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.persistence.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import com.google.android.gnd.model.basemap.tile.TileSource;
+import com.google.android.gnd.model.basemap.tile.TileSource.State;
+import com.google.android.gnd.persistence.local.LocalDataStore;
+import com.google.android.gnd.persistence.mbtiles.MergedTileStore;
+import com.google.android.gnd.persistence.sync.TileSourceReconciler.Report;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.reactivex.Completable;
+import io.reactivex.Single;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+@RunWith(JUnit4.class)
+public class TileSourceReconcilerTest {
+
+  private static final int PAGE_SIZE = 2;
+
+  @Rule public MockitoRule rule = MockitoJUnit.rule();
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock LocalDataStore mockLocalDataStore;
+  @Mock MergedTileStore mockMergedTileStore;
+
+  private File dir;
+  private final List<TileSource> tileSources = new ArrayList<>();
+  private final List<TileSource> requeued = new ArrayList<>();
+  private TileSourceReconciler reconciler;
+
+  private static TileSource newTileSource(String id, String path, State state, long byteCount) {
+    return TileSource.newBuilder()
+        .setId(id)
+        .setUrl("https://example.com/" + id)
+        .setPath(path)
+        .setState(state)
+        .setBasemapReferenceCount(1)
+        .setByteCount(byteCount)
+        .build();
+  }
+
+  @Before
+  public void setUp() {
+    dir = tempFolder.getRoot();
+    reconciler =
+        new TileSourceReconciler(dir, mockLocalDataStore, mockMergedTileStore, PAGE_SIZE);
+    when(mockMergedTileStore.getMergedPaths()).thenReturn(ImmutableSet.of());
+    // Pages over the tile sources added by each test the same way the db does.
+    when(mockLocalDataStore.getTileSourcesOrderedByPath(anyString(), anyString(), anyInt()))
+        .thenAnswer(
+            invocation -> {
+              String afterPath = invocation.getArgument(0);
+              String afterId = invocation.getArgument(1);
+              int limit = invocation.getArgument(2);
+              ImmutableList.Builder<TileSource> page = ImmutableList.builder();
+              int count = 0;
+              for (TileSource tileSource : sorted()) {
+                if (count < limit && isAfter(tileSource, afterPath, afterId)) {
+                  page.add(tileSource);
+                  count++;
+                }
+              }
+              return Single.just(page.build());
+            });
+    when(mockLocalDataStore.updateTileSourceStates(any()))
+        .thenAnswer(
+            invocation -> {
+              requeued.addAll(invocation.getArgument(0));
+              return Completable.complete();
+            });
+  }
+
+  private List<TileSource> sorted() {
+    List<TileSource> sorted = new ArrayList<>(tileSources);
+    sorted.sort(Comparator.comparing(TileSource::getPath).thenComparing(TileSource::getId));
+    return sorted;
+  }
+
+  private static boolean isAfter(TileSource tileSource, String afterPath, String afterId) {
+    int pathOrder = tileSource.getPath().compareTo(afterPath);
+    return pathOrder > 0 || (pathOrder == 0 && tileSource.getId().compareTo(afterId) > 0);
+  }
+
+  private File writeFile(String name, int length) throws IOException {
+    File file = new File(dir, name);
+    Files.write(file.toPath(), new byte[length]);
+    return file;
+  }
+
+  @Test
+  public void testReconcile_deletesOrphanedFiles() throws IOException {
+    tileSources.add(newTileSource("b", "b.mbtiles", State.DOWNLOADED, 10));
+    File before = writeFile("a.mbtiles", 3);
+    File kept = writeFile("b.mbtiles", 10);
+    File after = writeFile("c.mbtiles", 5);
+    File other = writeFile("other.txt", 7);
+
+    Report report = reconciler.reconcile();
+
+    assertThat(before.exists()).isFalse();
+    assertThat(after.exists()).isFalse();
+    assertThat(kept.exists()).isTrue();
+    assertThat(other.exists()).isTrue();
+    assertThat(report).isEqualTo(Report.create(2, 8, 0));
+  }
+
+  @Test
+  public void testReconcile_noTileSources() throws IOException {
+    File orphan = writeFile("a.mbtiles", 4);
+
+    Report report = reconciler.reconcile();
+
+    assertThat(orphan.exists()).isFalse();
+    assertThat(report).isEqualTo(Report.create(1, 4, 0));
+  }
+
+  @Test
+  public void testReconcile_requeuesMissingAndTruncatedFiles() throws IOException {
+    tileSources.add(newTileSource("missing", "a.mbtiles", State.DOWNLOADED, 10));
+    tileSources.add(newTileSource("truncated", "b.mbtiles", State.DOWNLOADED, 10));
+    tileSources.add(newTileSource("complete", "c.mbtiles", State.DOWNLOADED, 10));
+    tileSources.add(newTileSource("unknown size", "d.mbtiles", State.DOWNLOADED, 0));
+    tileSources.add(newTileSource("pending", "e.mbtiles", State.PENDING, 0));
+    File truncated = writeFile("b.mbtiles", 5);
+    File complete = writeFile("c.mbtiles", 10);
+    File unknownSize = writeFile("d.mbtiles", 3);
+
+    Report report = reconciler.reconcile();
+
+    assertThat(requeued)
+        .containsExactly(
+            newTileSource("missing", "a.mbtiles", State.PENDING, 10),
+            newTileSource("truncated", "b.mbtiles", State.PENDING, 10));
+    assertThat(truncated.exists()).isFalse();
+    assertThat(complete.exists()).isTrue();
+    assertThat(unknownSize.exists()).isTrue();
+    assertThat(report.getTilesRequeued()).isEqualTo(2);
+    assertThat(report.getFilesDeleted()).isEqualTo(0);
+  }
+
+  @Test
+  public void testReconcile_skipsMergedPaths() throws IOException {
+    when(mockMergedTileStore.getMergedPaths()).thenReturn(ImmutableSet.of("a.mbtiles"));
+    tileSources.add(newTileSource("merged", "a.mbtiles", State.DOWNLOADED, 10));
+
+    Report report = reconciler.reconcile();
+
+    assertThat(requeued).isEmpty();
+    assertThat(report).isEqualTo(Report.create(0, 0, 0));
+  }
+
+  @Test
+  public void testReconcile_acrossPages() throws IOException {
+    // Rows sharing a path straddle the first page boundary.
+    tileSources.add(newTileSource("1", "a.mbtiles", State.DOWNLOADED, 10));
+    tileSources.add(newTileSource("2", "b.mbtiles", State.DOWNLOADED, 10));
+    tileSources.add(newTileSource("3", "b.mbtiles", State.DOWNLOADED, 10));
+    tileSources.add(newTileSource("4", "d.mbtiles", State.DOWNLOADED, 10));
+    tileSources.add(newTileSource("5", "f.mbtiles", State.DOWNLOADED, 10));
+    File first = writeFile("a.mbtiles", 10);
+    File orphan1 = writeFile("c.mbtiles", 1);
+    File last = writeFile("d.mbtiles", 10);
+    File orphan2 = writeFile("e.mbtiles", 2);
+    File orphan3 = writeFile("g.mbtiles", 4);
+
+    Report report = reconciler.reconcile();
+
+    assertThat(requeued)
+        .containsExactly(
+            newTileSource("2", "b.mbtiles", State.PENDING, 10),
+            newTileSource("3", "b.mbtiles", State.PENDING, 10),
+            newTileSource("5", "f.mbtiles", State.PENDING, 10));
+    assertThat(first.exists()).isTrue();
+    assertThat(last.exists()).isTrue();
+    assertThat(orphan1.exists()).isFalse();
+    assertThat(orphan2.exists()).isFalse();
+    assertThat(orphan3.exists()).isFalse();
+    assertThat(report).isEqualTo(Report.create(3, 7, 3));
+  }
+}
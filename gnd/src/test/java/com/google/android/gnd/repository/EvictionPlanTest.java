@@ -0,0 +1,146 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.repository;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gnd.model.basemap.OfflineBaseMap;
+import com.google.android.gnd.model.basemap.tile.TileSource;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSetMultimap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class EvictionPlanTest {
+
+  private static final LatLngBounds BOUNDS = new LatLngBounds(new LatLng(0, 0), new LatLng(1, 1));
+
+  private static OfflineBaseMap area(String id, boolean pinned) {
+    return OfflineBaseMap.newBuilder()
+        .setId(id)
+        .setName(id)
+        .setBounds(BOUNDS)
+        .setState(OfflineBaseMap.State.DOWNLOADED)
+        .setPinned(pinned)
+        .build();
+  }
+
+  private static TileSource tile(String id, TileSource.State state, long bytes, long lastAccessed) {
+    return TileSource.newBuilder()
+        .setId(id)
+        .setUrl("https://example.com/" + id)
+        .setPath(id + ".mbtiles")
+        .setState(state)
+        .setBasemapReferenceCount(1)
+        .setByteCount(bytes)
+        .setLastAccessed(lastAccessed)
+        .build();
+  }
+
+  private static TileSource tile(String id, long bytes, long lastAccessed) {
+    return tile(id, TileSource.State.DOWNLOADED, bytes, lastAccessed);
+  }
+
+  @Test
+  public void testForBudget_withinBudget() {
+    EvictionPlan plan =
+        EvictionPlan.forBudget(
+            ImmutableList.of(area("a", false)),
+            ImmutableSetMultimap.of("a", "t1"),
+            ImmutableList.of(tile("t1", 100, 1)),
+            100);
+
+    assertThat(plan.getAreaIds()).isEmpty();
+    assertThat(plan.getBytesUsed()).isEqualTo(100);
+    assertThat(plan.getBytesFreed()).isEqualTo(0);
+  }
+
+  @Test
+  public void testForBudget_unlimited() {
+    EvictionPlan plan =
+        EvictionPlan.forBudget(
+            ImmutableList.of(area("a", false)),
+            ImmutableSetMultimap.of("a", "t1"),
+            ImmutableList.of(tile("t1", 100, 1)),
+            0);
+
+    assertThat(plan.getAreaIds()).isEmpty();
+  }
+
+  @Test
+  public void testForBudget_removesLeastRecentlyUsedFirst() {
+    EvictionPlan plan =
+        EvictionPlan.forBudget(
+            ImmutableList.of(area("new", false), area("old", false), area("older", false)),
+            ImmutableSetMultimap.of("new", "t1", "old", "t2", "older", "t3"),
+            ImmutableList.of(tile("t1", 100, 30), tile("t2", 100, 20), tile("t3", 100, 10)),
+            150);
+
+    assertThat(plan.getAreaIds()).containsExactly("older", "old").inOrder();
+    assertThat(plan.getBytesFreed()).isEqualTo(200);
+  }
+
+  @Test
+  public void testForBudget_skipsPinnedAndIncompleteAreas() {
+    EvictionPlan plan =
+        EvictionPlan.forBudget(
+            ImmutableList.of(area("pinned", true), area("pending", false), area("a", false)),
+            ImmutableSetMultimap.of("pinned", "t1", "pending", "t2", "a", "t3"),
+            ImmutableList.of(
+                tile("t1", 100, 1),
+                tile("t2", TileSource.State.IN_PROGRESS, 0, 0),
+                tile("t3", 100, 50)),
+            10);
+
+    assertThat(plan.getAreaIds()).containsExactly("a");
+    assertThat(plan.getBytesFreed()).isEqualTo(100);
+  }
+
+  @Test
+  public void testForBudget_removesAreasWithFailedTiles() {
+    EvictionPlan plan =
+        EvictionPlan.forBudget(
+            ImmutableList.of(area("failed", false), area("a", false)),
+            ImmutableSetMultimap.of("failed", "t1", "failed", "t2", "a", "t3"),
+            ImmutableList.of(
+                tile("t1", 100, 1),
+                tile("t2", TileSource.State.FAILED, 50, 0),
+                tile("t3", 100, 50)),
+            150);
+
+    assertThat(plan.getAreaIds()).containsExactly("failed");
+    assertThat(plan.getBytesUsed()).isEqualTo(200);
+    assertThat(plan.getBytesFreed()).isEqualTo(100);
+  }
+
+  @Test
+  public void testForBudget_sharedTilesFreedOnlyWithLastArea() {
+    EvictionPlan plan =
+        EvictionPlan.forBudget(
+            ImmutableList.of(area("a", false), area("b", true)),
+            ImmutableSetMultimap.of("a", "shared", "a", "t1", "b", "shared"),
+            ImmutableList.of(tile("shared", 500, 1), tile("t1", 100, 1)),
+            10);
+
+    assertThat(plan.getAreaIds()).containsExactly("a");
+    assertThat(plan.getBytesUsed()).isEqualTo(600);
+    assertThat(plan.getBytesFreed()).isEqualTo(100);
+  }
+}
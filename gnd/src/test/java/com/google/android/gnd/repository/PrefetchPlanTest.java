@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.gnd.repository;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.android.gnd.model.feature.Point;
+import com.google.android.gnd.persistence.mbtiles.TileSetIndex;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PrefetchPlanTest {
+
+  private static final int HERE = 0;
+  private static final int AHEAD = 1;
+  private static final int BEHIND = 2;
+  private static final int FAR = 3;
+
+  // About 111 m between points, heading east and ending at the origin.
+  private static final ImmutableList<Point> TRACK =
+      ImmutableList.of(point(0, -0.002), point(0, -0.001), point(0, 0));
+
+  // Tiles ahead of and behind the user are both about 333 m from the nearest point of the track.
+  private static final TileSetIndex INDEX =
+      TileSetIndex.newBuilder()
+          .add("here", "https://example.com/here", -0.001, -0.001, 0.001, 0.001)
+          .add("ahead", "https://example.com/ahead", -0.001, 0.003, 0.001, 0.004)
+          .add("behind", "https://example.com/behind", -0.001, -0.006, 0.001, -0.005)
+          .add("far", "https://example.com/far", -0.001, 0.05, 0.001, 0.06)
+          .build();
+
+  private static Point point(double lat, double lng) {
+    return Point.newBuilder().setLatitude(lat).setLongitude(lng).build();
+  }
+
+  @Test
+  public void testForTrack_ordersByDistanceThenHeading() {
+    PrefetchPlan plan = PrefetchPlan.forTrack(TRACK, 1000, INDEX, ImmutableSet.of(), 10);
+
+    assertThat(plan.getPositions()).containsExactly(HERE, AHEAD, BEHIND).inOrder();
+  }
+
+  @Test
+  public void testForTrack_skipsExcludedTiles() {
+    PrefetchPlan plan =
+        PrefetchPlan.forTrack(
+            TRACK, 1000, INDEX, ImmutableSet.of("https://example.com/here"), 10);
+
+    assertThat(plan.getPositions()).containsExactly(AHEAD, BEHIND).inOrder();
+  }
+
+  @Test
+  public void testForTrack_limitsTileCount() {
+    PrefetchPlan plan = PrefetchPlan.forTrack(TRACK, 1000, INDEX, ImmutableSet.of(), 2);
+
+    assertThat(plan.getPositions()).containsExactly(HERE, AHEAD).inOrder();
+  }
+
+  @Test
+  public void testForTrack_noHeadingWhenStationary() {
+    ImmutableList<Point> track = ImmutableList.of(point(0, 0));
+
+    PrefetchPlan plan = PrefetchPlan.forTrack(track, 10_000, INDEX, ImmutableSet.of(), 10);
+
+    // Without a heading, tiles are ranked by distance alone.
+    assertThat(plan.getPositions()).containsExactly(HERE, AHEAD, BEHIND, FAR).inOrder();
+  }
+
+  @Test
+  public void testAppendToTrack_replacesNearbyPointsAndKeepsMostRecent() {
+    ImmutableList<Point> track = ImmutableList.of();
+    int count = PrefetchPlan.MAX_TRACK_POINTS + 5;
+    for (int i = 0; i < count; i++) {
+      track = PrefetchPlan.appendToTrack(track, point(0, i * 0.001));
+    }
+    // About a meter from the last point.
+    Point nearby = point(0.00001, (count - 1) * 0.001);
+
+    ImmutableList<Point> updated = PrefetchPlan.appendToTrack(track, nearby);
+
+    assertThat(track).hasSize(PrefetchPlan.MAX_TRACK_POINTS);
+    assertThat(track.get(track.size() - 1)).isEqualTo(point(0, (count - 1) * 0.001));
+    assertThat(updated).hasSize(PrefetchPlan.MAX_TRACK_POINTS);
+    assertThat(updated.get(updated.size() - 1)).isEqualTo(nearby);
+    assertThat(updated.get(updated.size() - 2)).isEqualTo(track.get(track.size() - 2));
+  }
+}
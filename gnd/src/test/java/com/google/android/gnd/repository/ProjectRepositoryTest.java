@@ -0,0 +1,144 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.repository;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.android.gnd.model.Project;
+import com.google.android.gnd.model.User;
+import com.google.android.gnd.persistence.local.LocalDataStore;
+import com.google.android.gnd.persistence.local.LocalValueStore;
+import com.google.android.gnd.persistence.remote.RemoteDataStore;
+import com.google.android.gnd.rx.Loadable;
+import com.google.common.collect.ImmutableList;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+@RunWith(JUnit4.class)
+public class ProjectRepositoryTest {
+
+  private static final User TEST_USER =
+      User.builder().setId("user id").setEmail("user@gmail.com").setDisplayName("user 1").build();
+
+  private static final Project TEST_PROJECT_1 =
+      Project.newBuilder().setId("project 1").setTitle("Project 1").setDescription("").build();
+
+  private static final Project TEST_PROJECT_2 =
+      Project.newBuilder().setId("project 2").setTitle("Project 2").setDescription("").build();
+
+  @Rule public MockitoRule rule = MockitoJUnit.rule();
+
+  @Mock UserRepository mockUserRepository;
+  @Mock LocalDataStore mockLocalDataStore;
+  @Mock RemoteDataStore mockRemoteDataStore;
+  @Mock LocalValueStore mockLocalValueStore;
+
+  private ProjectRepository projectRepository;
+
+  @Before
+  public void setUp() {
+    projectRepository =
+        new ProjectRepository(
+            mockUserRepository, mockLocalDataStore, mockRemoteDataStore, mockLocalValueStore);
+    when(mockLocalDataStore.isProjectSummaryCacheFresh(any(), anyLong()))
+        .thenReturn(Single.just(false));
+    when(mockLocalDataStore.replaceProjectSummaries(any(), any()))
+        .thenReturn(Completable.complete());
+  }
+
+  private Flowable<List<Project>> getProjectSummaries() {
+    return Flowable.fromPublisher(
+        Loadable.values(projectRepository.getProjectSummaries(TEST_USER)));
+  }
+
+  @Test
+  public void testGetProjectSummaries_staleCacheRevalidated() {
+    when(mockLocalDataStore.getProjectSummaries(TEST_USER))
+        .thenReturn(
+            Single.just(ImmutableList.of(TEST_PROJECT_1)),
+            Single.just(ImmutableList.of(TEST_PROJECT_1, TEST_PROJECT_2)));
+    when(mockRemoteDataStore.loadProjectSummaries(TEST_USER))
+        .thenReturn(Single.<List<Project>>just(ImmutableList.of(TEST_PROJECT_1, TEST_PROJECT_2)));
+
+    getProjectSummaries()
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertValues(
+            ImmutableList.of(TEST_PROJECT_1), ImmutableList.of(TEST_PROJECT_1, TEST_PROJECT_2));
+  }
+
+  @Test
+  public void testGetProjectSummaries_emptyRemoteReplacesCache() {
+    when(mockLocalDataStore.getProjectSummaries(TEST_USER))
+        .thenReturn(
+            Single.just(ImmutableList.of(TEST_PROJECT_1)),
+            Single.just(ImmutableList.<Project>of()));
+    when(mockRemoteDataStore.loadProjectSummaries(TEST_USER))
+        .thenReturn(Single.<List<Project>>just(ImmutableList.of()));
+
+    getProjectSummaries()
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertValues(ImmutableList.of(TEST_PROJECT_1), ImmutableList.<Project>of());
+    verify(mockLocalDataStore).replaceProjectSummaries(TEST_USER, ImmutableList.of());
+  }
+
+  @Test
+  public void testGetProjectSummaries_remoteErrorKeepsCache() {
+    when(mockLocalDataStore.getProjectSummaries(TEST_USER))
+        .thenReturn(Single.just(ImmutableList.of(TEST_PROJECT_1)));
+    when(mockRemoteDataStore.loadProjectSummaries(TEST_USER))
+        .thenReturn(Single.error(new Exception("Offline")));
+
+    getProjectSummaries()
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertValues(ImmutableList.of(TEST_PROJECT_1));
+    verify(mockLocalDataStore, never()).replaceProjectSummaries(any(), any());
+  }
+
+  @Test
+  public void testGetProjectSummaries_remoteErrorAndEmptyCache() {
+    Exception error = new Exception("Offline");
+    when(mockLocalDataStore.getProjectSummaries(TEST_USER))
+        .thenReturn(Single.just(ImmutableList.<Project>of()));
+    when(mockRemoteDataStore.loadProjectSummaries(TEST_USER)).thenReturn(Single.error(error));
+
+    projectRepository
+        .getProjectSummaries(TEST_USER)
+        .test()
+        .awaitDone(5, SECONDS)
+        .assertValueCount(2)
+        .assertValueAt(1, loadable -> loadable.error().orElse(null) == error);
+    verify(mockLocalDataStore, never()).getProjects();
+  }
+}
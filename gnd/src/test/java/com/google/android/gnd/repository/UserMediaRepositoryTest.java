@@ -0,0 +1,127 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.repository;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.when;
+
+import android.app.Application;
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import com.google.android.gnd.model.observation.PhotoPreset;
+import com.google.android.gnd.persistence.local.LocalValueStore;
+import com.google.android.gnd.persistence.remote.RemoteStorageManager;
+import com.google.android.gnd.persistence.uuid.OfflineUuidGenerator;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@Config(application = Application.class)
+@RunWith(RobolectricTestRunner.class)
+public class UserMediaRepositoryTest {
+
+  @Rule public MockitoRule rule = MockitoJUnit.rule();
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Mock RemoteStorageManager mockRemoteStorageManager;
+  @Mock OfflineUuidGenerator mockUuidGenerator;
+  @Mock LocalValueStore mockLocalValueStore;
+
+  private Context context;
+  private UserMediaRepository userMediaRepository;
+
+  private File newJpeg(String name, int width, int height) throws IOException {
+    File file = tempFolder.newFile(name);
+    ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", file);
+    return file;
+  }
+
+  @Before
+  public void setUp() {
+    context = ApplicationProvider.getApplicationContext();
+    userMediaRepository =
+        new UserMediaRepository(
+            context, mockRemoteStorageManager, mockUuidGenerator, mockLocalValueStore);
+  }
+
+  @Test
+  public void testGetUploadFile_withinPreset() throws IOException {
+    when(mockLocalValueStore.getPhotoPreset()).thenReturn(PhotoPreset.HIGH);
+    File photo = newJpeg("small.jpg", 1000, 800);
+
+    assertThat(userMediaRepository.getUploadFile(photo)).isEqualTo(photo);
+  }
+
+  @Test
+  public void testGetUploadFile_original() throws IOException {
+    when(mockLocalValueStore.getPhotoPreset()).thenReturn(PhotoPreset.ORIGINAL);
+    File photo = newJpeg("large.jpg", 4000, 3000);
+
+    assertThat(userMediaRepository.getUploadFile(photo)).isEqualTo(photo);
+  }
+
+  @Test
+  public void testGetUploadFile_reencodesLargePhotos() throws IOException {
+    when(mockLocalValueStore.getPhotoPreset()).thenReturn(PhotoPreset.HIGH);
+    File photo = newJpeg("large.jpg", 4000, 3000);
+
+    File uploadFile = userMediaRepository.getUploadFile(photo);
+
+    assertThat(uploadFile).isNotEqualTo(photo);
+    assertThat(uploadFile.getParentFile().getParentFile()).isEqualTo(context.getCacheDir());
+    assertThat(uploadFile.getName()).isEqualTo(photo.getName());
+    assertThat(uploadFile.exists()).isTrue();
+    assertThat(new File(uploadFile.getPath() + ".tmp").exists()).isFalse();
+  }
+
+  @Test
+  public void testGetUploadFile_reusesCopy() throws IOException {
+    when(mockLocalValueStore.getPhotoPreset()).thenReturn(PhotoPreset.HIGH);
+    File photo = newJpeg("large.jpg", 4000, 3000);
+    File uploadFile = userMediaRepository.getUploadFile(photo);
+    long lastModified = uploadFile.lastModified();
+
+    // Retries must upload the same bytes, even if the preset has changed since.
+    when(mockLocalValueStore.getPhotoPreset()).thenReturn(PhotoPreset.LOW);
+
+    assertThat(userMediaRepository.getUploadFile(photo)).isEqualTo(uploadFile);
+    assertThat(uploadFile.lastModified()).isEqualTo(lastModified);
+  }
+
+  @Test
+  public void testDeleteUploadFile() throws IOException {
+    when(mockLocalValueStore.getPhotoPreset()).thenReturn(PhotoPreset.HIGH);
+    File photo = newJpeg("large.jpg", 4000, 3000);
+    File uploadFile = userMediaRepository.getUploadFile(photo);
+
+    userMediaRepository.deleteUploadFile(photo);
+
+    assertThat(uploadFile.exists()).isFalse();
+    assertThat(photo.exists()).isTrue();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.android.gnd.rx.Schedulers;
+import io.reactivex.Scheduler;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MapRenderMetricsLogTest {
+
+  private static final Schedulers SCHEDULERS =
+      new Schedulers() {
+        @Override
+        public Scheduler io() {
+          return io.reactivex.schedulers.Schedulers.trampoline();
+        }
+
+        @Override
+        public Scheduler ui() {
+          return io.reactivex.schedulers.Schedulers.trampoline();
+        }
+      };
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private MapRenderMetricsLog log;
+
+  private static MapRenderStats newStats(long timestamp) {
+    return MapRenderStats.newBuilder()
+        .setTimestamp(timestamp)
+        .setWindowMillis(1000)
+        .setFrameCount(58)
+        .setJankyFrameCount(2)
+        .setMaxFrameMillis(41.5)
+        .setFeatureUpdateCount(1)
+        .setDiffMillis(3.25)
+        .setApplyMillis(12)
+        .setAddedCount(100)
+        .setRemovedCount(5)
+        .setFeatureCount(1000)
+        .setMarkerCount(900)
+        .setPolylineCount(40)
+        .setGeoJsonCount(2)
+        .build();
+  }
+
+  private static List<String> readLines(File file) throws IOException {
+    return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+  }
+
+  @Before
+  public void setUp() {
+    log = new MapRenderMetricsLog(new File(tempFolder.getRoot(), "render_metrics"), SCHEDULERS);
+  }
+
+  @Test
+  public void testToCsvRow() {
+    assertThat(MapRenderMetricsLog.toCsvRow(newStats(1234)))
+        .isEqualTo("1234,1000,58,2,41.50,1,3.25,12.00,100,5,1000,900,40,2\n");
+  }
+
+  @Test
+  public void testExport_empty() throws IOException {
+    File export = log.export().blockingGet();
+
+    assertThat(readLines(export)).containsExactly(MapRenderMetricsLog.HEADER.trim());
+  }
+
+  @Test
+  public void testAppendAndExport() throws IOException {
+    log.append(newStats(1)).blockingAwait();
+    log.append(newStats(2)).blockingAwait();
+
+    List<String> lines = readLines(log.export().blockingGet());
+
+    assertThat(lines).hasSize(3);
+    assertThat(lines.get(0)).isEqualTo(MapRenderMetricsLog.HEADER.trim());
+    assertThat(lines.get(1)).startsWith("1,");
+    assertThat(lines.get(2)).startsWith("2,");
+  }
+
+  @Test
+  public void testAppend_buffersRows() {
+    File logFile = new File(tempFolder.getRoot(), "render_metrics/render_metrics.csv");
+    for (int i = 0; i < MapRenderMetricsLog.WINDOWS_PER_WRITE - 1; i++) {
+      log.append(newStats(i)).blockingAwait();
+    }
+
+    assertThat(logFile.exists()).isFalse();
+
+    log.append(newStats(MapRenderMetricsLog.WINDOWS_PER_WRITE)).blockingAwait();
+
+    assertThat(logFile.exists()).isTrue();
+  }
+
+  @Test
+  public void testAppend_rollsOver() throws IOException {
+    long rowBytes = MapRenderMetricsLog.toCsvRow(newStats(0)).length();
+    int rowsPerFile = (int) (MapRenderMetricsLog.MAX_FILE_BYTES / rowBytes) + 1;
+    int rowCount = rowsPerFile * 3;
+    for (int i = 0; i < rowCount; i++) {
+      log.add(newStats(i));
+    }
+
+    List<String> lines = readLines(log.writeExport());
+
+    // Only the current and previous files are kept, with the oldest rows dropped.
+    assertThat(lines.size() - 1).isLessThan(rowCount);
+    assertThat(lines.get(lines.size() - 1)).startsWith((rowCount - 1) + ",");
+    assertThat(lines.subList(1, lines.size())).doesNotContain(MapRenderMetricsLog.HEADER.trim());
+  }
+}
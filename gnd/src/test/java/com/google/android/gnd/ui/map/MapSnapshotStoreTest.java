@@ -0,0 +1,134 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.android.gnd.model.feature.Point;
+import com.google.android.gnd.model.layer.Style;
+import com.google.android.gnd.rx.Schedulers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.reactivex.Scheduler;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MapSnapshotStoreTest {
+
+  private static final Schedulers SCHEDULERS =
+      new Schedulers() {
+        @Override
+        public Scheduler io() {
+          return io.reactivex.schedulers.Schedulers.trampoline();
+        }
+
+        @Override
+        public Scheduler ui() {
+          return io.reactivex.schedulers.Schedulers.trampoline();
+        }
+      };
+
+  private static final Style RED = Style.builder().setColor("#ff0000").build();
+  private static final Style BLUE = Style.builder().setColor("#0000ff").build();
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File snapshotDir;
+  private MapSnapshotStore store;
+
+  private static Point newPoint(double latitude, double longitude) {
+    return Point.newBuilder().setLatitude(latitude).setLongitude(longitude).build();
+  }
+
+  @Before
+  public void setUp() {
+    snapshotDir = new File(tempFolder.getRoot(), "snapshots");
+    store = new MapSnapshotStore(snapshotDir, SCHEDULERS);
+  }
+
+  @Test
+  public void testRead_missingSnapshot() throws IOException {
+    assertThat(store.read("project")).isNull();
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    ImmutableSet<MapFeature> features =
+        ImmutableSet.of(
+            MapPin.newBuilder()
+                .setId("pin1")
+                .setPosition(newPoint(12.345678901, -98.765432109))
+                .setStyle(RED)
+                .setVersion(1000L)
+                .build(),
+            MapPin.newBuilder()
+                .setId("pin2")
+                .setPosition(newPoint(-45.5, 170.25))
+                .setStyle(BLUE)
+                .setVersion(Long.MAX_VALUE)
+                .build(),
+            MapPolygon.newBuilder()
+                .setId("polygon1")
+                .setVertices(
+                    ImmutableList.of(
+                        newPoint(0, 0), newPoint(0, 1), newPoint(1, 1), newPoint(0, 0)))
+                .setStyle(RED)
+                .setVersion(2000L)
+                .build());
+
+    store.write("project", features);
+
+    assertThat(store.read("project")).containsExactlyElementsIn(features);
+    assertThat(store.read("other")).isNull();
+  }
+
+  @Test
+  public void testWrite_replacesSnapshot() throws IOException {
+    MapPin pin =
+        MapPin.newBuilder()
+            .setId("pin1")
+            .setPosition(newPoint(1, 2))
+            .setStyle(RED)
+            .setVersion(1L)
+            .build();
+
+    store.write("project", ImmutableSet.of(pin));
+    store.write("project", ImmutableSet.of());
+
+    assertThat(store.read("project")).isEmpty();
+  }
+
+  @Test
+  public void testGetSnapshot_invalidFile() throws IOException {
+    assertThat(snapshotDir.mkdirs()).isTrue();
+    try (FileOutputStream out = new FileOutputStream(new File(snapshotDir, "project.snapshot"))) {
+      out.write(new byte[] {1, 2, 3});
+    }
+
+    assertThrows(IOException.class, () -> store.read("project"));
+    assertThat(store.getSnapshot("project").isEmpty().blockingGet()).isTrue();
+  }
+}
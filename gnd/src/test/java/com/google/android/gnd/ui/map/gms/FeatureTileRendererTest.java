@@ -0,0 +1,102 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.android.gnd.model.feature.Point;
+import com.google.android.gnd.ui.map.gms.FeatureTileRenderer.Shape;
+import com.google.android.gnd.ui.map.gms.FeatureTileRenderer.ShapeIndex;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FeatureTileRendererTest {
+
+  private static Point point(double lat, double lng) {
+    return Point.newBuilder().setLatitude(lat).setLongitude(lng).build();
+  }
+
+  private static Shape pin(String id, double lat, double lng) {
+    return Shape.create(id, 0, true, ImmutableList.of(point(lat, lng)));
+  }
+
+  @Test
+  public void testFindIntersecting_returnsShapesInTile() {
+    Shape inside = pin("inside", 10, 10);
+    Shape outside = pin("outside", -10, -10);
+    ShapeIndex index = new ShapeIndex(ImmutableList.of(inside, outside));
+    int zoom = 4;
+    double worldSize = WebMercator.getWorldSize(zoom);
+    int x = (int) (inside.xs[0] * worldSize / WebMercator.TILE_SIZE);
+    int y = (int) (inside.ys[0] * worldSize / WebMercator.TILE_SIZE);
+    double left = (double) x * WebMercator.TILE_SIZE;
+    double top = (double) y * WebMercator.TILE_SIZE;
+
+    assertThat(index.findIntersecting(left, top, worldSize)).containsExactly(inside);
+  }
+
+  @Test
+  public void testFindIntersecting_matchesScan() {
+    Random random = new Random(42);
+    List<Shape> shapes = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      double lat = random.nextDouble() * 20 - 10;
+      double lng = random.nextDouble() * 20 - 10;
+      if (i % 2 == 0) {
+        shapes.add(pin(String.valueOf(i), lat, lng));
+      } else {
+        shapes.add(
+            Shape.create(
+                String.valueOf(i),
+                0,
+                false,
+                ImmutableList.of(
+                    point(lat, lng),
+                    point(lat + random.nextDouble(), lng),
+                    point(lat, lng + random.nextDouble()),
+                    point(lat, lng))));
+      }
+    }
+    ShapeIndex index = new ShapeIndex(ImmutableList.copyOf(shapes));
+    int zoom = 8;
+    double worldSize = WebMercator.getWorldSize(zoom);
+    int minTile = (int) (WebMercator.toWorldX(-11) * worldSize / WebMercator.TILE_SIZE);
+    int maxTile = (int) (WebMercator.toWorldX(11) * worldSize / WebMercator.TILE_SIZE);
+    for (int x = minTile; x <= maxTile; x++) {
+      for (int y = minTile; y <= maxTile; y++) {
+        double left = (double) x * WebMercator.TILE_SIZE;
+        double top = (double) y * WebMercator.TILE_SIZE;
+        List<Shape> expected = new ArrayList<>();
+        for (Shape shape : shapes) {
+          if (shape.intersects(left, top, worldSize)) {
+            expected.add(shape);
+          }
+        }
+
+        assertThat(index.findIntersecting(left, top, worldSize))
+            .containsExactlyElementsIn(expected)
+            .inOrder();
+      }
+    }
+  }
+}
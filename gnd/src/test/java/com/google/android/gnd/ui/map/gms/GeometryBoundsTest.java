@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class GeometryBoundsTest {
+
+  private static final LatLngBounds VIEWPORT = bounds(0, 0, 1, 1);
+
+  @Test
+  public void testIsNearViewport_inside() {
+    assertThat(GeometryBounds.isNearViewport(bounds(0.4, 0.4, 0.6, 0.6), VIEWPORT, 0)).isTrue();
+  }
+
+  @Test
+  public void testIsNearViewport_withinMargin() {
+    LatLngBounds east = bounds(0.4, 1.2, 0.6, 1.3);
+
+    assertThat(GeometryBounds.isNearViewport(east, VIEWPORT, 0)).isFalse();
+    assertThat(GeometryBounds.isNearViewport(east, VIEWPORT, 0.5)).isTrue();
+  }
+
+  @Test
+  public void testIsNearViewport_northOfViewport() {
+    assertThat(GeometryBounds.isNearViewport(bounds(2, 0, 3, 1), VIEWPORT, 0.5)).isFalse();
+  }
+
+  @Test
+  public void testIsNearViewport_acrossAntimeridian() {
+    LatLngBounds viewport = bounds(0, 179, 1, -179);
+
+    assertThat(GeometryBounds.isNearViewport(bounds(0, -179.5, 1, -179.2), viewport, 0)).isTrue();
+    assertThat(GeometryBounds.isNearViewport(bounds(0, 178, 1, 178.5), viewport, 0)).isFalse();
+  }
+
+  private static LatLngBounds bounds(double south, double west, double north, double east) {
+    return new LatLngBounds(new LatLng(south, west), new LatLng(north, east));
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.android.gms.maps.model.LatLng;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LevelOfDetailTest {
+
+  @Test
+  public void testGetBand() {
+    assertThat(LevelOfDetail.getBand(0)).isEqualTo(0);
+    assertThat(LevelOfDetail.getBand(7.5f)).isEqualTo(3);
+    assertThat(LevelOfDetail.getBand(21)).isEqualTo(LevelOfDetail.FULL_DETAIL_BAND);
+  }
+
+  @Test
+  public void testSimplify_straightLine() {
+    List<LatLng> line = new ArrayList<>();
+    for (int i = 0; i <= 100; i++) {
+      line.add(new LatLng(0, i * 0.0001));
+    }
+
+    assertThat(LevelOfDetail.simplify(line, 5)).containsExactly(line.get(0), line.get(100));
+  }
+
+  @Test
+  public void testSimplify_closedOutlineStaysClosed() {
+    List<LatLng> square = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      square.add(new LatLng(0, i * 0.004));
+    }
+    for (int i = 0; i < 25; i++) {
+      square.add(new LatLng(i * 0.004, 0.1));
+    }
+    for (int i = 0; i < 25; i++) {
+      square.add(new LatLng(0.1, 0.1 - i * 0.004));
+    }
+    for (int i = 0; i < 25; i++) {
+      square.add(new LatLng(0.1 - i * 0.004, 0));
+    }
+    square.add(square.get(0));
+
+    List<LatLng> simplified = LevelOfDetail.simplify(square, 3);
+
+    assertThat(simplified)
+        .containsExactly(
+            new LatLng(0, 0),
+            new LatLng(0, 0.1),
+            new LatLng(0.1, 0.1),
+            new LatLng(0.1, 0),
+            new LatLng(0, 0))
+        .inOrder();
+  }
+
+  @Test
+  public void testSimplify_fullDetail() {
+    List<LatLng> line = new ArrayList<>();
+    for (int i = 0; i <= 100; i++) {
+      line.add(new LatLng(0, i * 0.0001));
+    }
+
+    assertThat(LevelOfDetail.simplify(line, LevelOfDetail.FULL_DETAIL_BAND)).isSameInstanceAs(line);
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.gnd.ui.map.gms;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class WebMercatorTest {
+
+  private static final double TOLERANCE = 1e-9;
+
+  @Test
+  public void testToWorldX() {
+    assertThat(WebMercator.toWorldX(-180)).isWithin(TOLERANCE).of(0);
+    assertThat(WebMercator.toWorldX(0)).isWithin(TOLERANCE).of(0.5);
+    assertThat(WebMercator.toWorldX(90)).isWithin(TOLERANCE).of(0.75);
+  }
+
+  @Test
+  public void testToWorldY() {
+    assertThat(WebMercator.toWorldY(0)).isWithin(TOLERANCE).of(0.5);
+    assertThat(WebMercator.toWorldY(WebMercator.MAX_LATITUDE)).isWithin(1e-6).of(0);
+    assertThat(WebMercator.toWorldY(-WebMercator.MAX_LATITUDE)).isWithin(1e-6).of(1);
+  }
+
+  @Test
+  public void testToWorldY_clampsPoles() {
+    assertThat(WebMercator.toWorldY(90)).isWithin(1e-6).of(0);
+    assertThat(WebMercator.toWorldY(-90)).isWithin(1e-6).of(1);
+  }
+
+  @Test
+  public void testToTile() {
+    double worldSize = WebMercator.getWorldSize(2);
+
+    assertThat(WebMercator.toTile(WebMercator.toWorldX(-100) * worldSize, 2)).isEqualTo(0);
+    assertThat(WebMercator.toTile(WebMercator.toWorldX(10) * worldSize, 2)).isEqualTo(2);
+    assertThat(WebMercator.toTile(WebMercator.toWorldY(70) * worldSize, 2)).isEqualTo(0);
+    assertThat(WebMercator.toTile(WebMercator.toWorldY(-30) * worldSize, 2)).isEqualTo(2);
+  }
+
+  @Test
+  public void testToTile_clampsToWorld() {
+    assertThat(WebMercator.toTile(-10, 3)).isEqualTo(0);
+    assertThat(WebMercator.toTile(WebMercator.getWorldSize(3) + 10, 3)).isEqualTo(7);
+  }
+}